@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.benchmarks;
+
+import org.niord.core.message.Message;
+import org.niord.model.DataFilter;
+import org.niord.model.geojson.FeatureCollectionVo;
+import org.niord.model.geojson.FeatureVo;
+import org.niord.model.geojson.PolygonVo;
+import org.niord.model.message.AreaVo;
+import org.niord.model.message.CategoryVo;
+import org.niord.model.message.MainType;
+import org.niord.model.message.MessagePartType;
+import org.niord.model.message.MessagePartVo;
+import org.niord.model.message.MessageVo;
+import org.niord.model.message.ReferenceType;
+import org.niord.model.message.ReferenceVo;
+import org.niord.model.message.Status;
+import org.niord.model.message.Type;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates synthetic, but realistic, data sets for the benchmarks.
+ * <p>
+ * The data is generated from a fixed random seed, so that the same data set is used across runs
+ * and the benchmark results can be compared between releases.
+ */
+public class BenchmarkData {
+
+    public static final String[] LANGUAGES = { "en", "da" };
+
+    static final String[] WORDS = {
+            "buoy", "light", "wreck", "obstruction", "dredging", "firing", "exercise", "cable", "pipeline",
+            "survey", "vessel", "harbour", "fairway", "unlit", "missing", "restricted", "area", "depth",
+            "anchorage", "pier", "racon", "beacon", "works", "navigation", "warning", "ice", "drifting"
+    };
+
+    private final Random random;
+
+    /** Constructor **/
+    public BenchmarkData() {
+        this(42L);
+    }
+
+    /** Constructor **/
+    public BenchmarkData(long seed) {
+        this.random = new Random(seed);
+    }
+
+
+    /**
+     * Creates the given number of synthetic messages
+     * @param count the number of messages
+     * @param pointCount the number of coordinates in the message geometry
+     * @return the messages
+     */
+    public List<Message> createMessages(int count, int pointCount) {
+        List<Message> messages = new ArrayList<>(count);
+        for (int x = 0; x < count; x++) {
+            Message message = new Message(createMessageVo(x, pointCount), DataFilter.get().fields(DataFilter.ALL));
+            message.setId(x + 1);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+
+    /** Creates a synthetic message value object **/
+    MessageVo createMessageVo(int index, int pointCount) {
+        MessageVo msg = new MessageVo();
+        msg.setId(String.format("%08x-0000-4000-8000-%012d", index, index));
+        msg.setMainType(index % 3 == 0 ? MainType.NM : MainType.NW);
+        msg.setType(msg.getMainType() == MainType.NM ? Type.PERMANENT_NOTICE : Type.LOCAL_WARNING);
+        msg.setStatus(Status.PUBLISHED);
+        msg.setNumber(index + 1);
+        msg.setShortId(String.format("DK-%03d-%02d", index % 1000, 20));
+        msg.setCreated(new Date(1500000000000L + index * 60000L));
+        msg.setUpdated(new Date(1500000000000L + index * 60000L));
+        msg.setPublishDateFrom(msg.getCreated());
+
+        AreaVo area = createArea(index);
+        msg.checkCreateAreas().add(area);
+        msg.checkCreateCategories().add(createCategory(index));
+
+        if (index > 0) {
+            ReferenceVo ref = new ReferenceVo();
+            ref.setMessageId(String.format("DK-%03d-%02d", (index - 1) % 1000, 20));
+            ref.setType(ReferenceType.REFERENCE);
+            msg.checkCreateReferences().add(ref);
+        }
+
+        for (String lang : LANGUAGES) {
+            msg.checkCreateDesc(lang).setTitle(area.getDesc(lang).getName() + ". " + sentence(4) + ".");
+            msg.checkCreateDesc(lang).setVicinity(sentence(2));
+        }
+
+        MessagePartVo part = new MessagePartVo();
+        part.setType(MessagePartType.DETAILS);
+        for (String lang : LANGUAGES) {
+            part.checkCreateDesc(lang).setSubject(sentence(3));
+            part.checkCreateDesc(lang).setDetails("<p>" + sentence(40) + "</p><p>" + sentence(20) + "</p>");
+        }
+        part.setGeometry(createFeatureCollection(1, pointCount));
+        msg.checkCreateParts().add(part);
+
+        return msg;
+    }
+
+
+    /** Creates a synthetic area with a parent area **/
+    AreaVo createArea(int index) {
+        AreaVo parent = new AreaVo();
+        parent.setId(1000 + index % 5);
+        AreaVo area = new AreaVo();
+        area.setId(2000 + index % 50);
+        area.setParent(parent);
+        for (String lang : LANGUAGES) {
+            parent.checkCreateDesc(lang).setName("Region " + (index % 5));
+            area.checkCreateDesc(lang).setName("Area " + (index % 50) + " " + WORDS[index % WORDS.length]);
+        }
+        return area;
+    }
+
+
+    /** Creates a synthetic category **/
+    CategoryVo createCategory(int index) {
+        CategoryVo category = new CategoryVo();
+        category.setId(3000 + index % 10);
+        for (String lang : LANGUAGES) {
+            category.checkCreateDesc(lang).setName("Category " + WORDS[index % WORDS.length]);
+        }
+        return category;
+    }
+
+
+    /**
+     * Creates a feature collection with the given number of polygon features
+     * @param featureCount the number of features
+     * @param pointCount the number of coordinates in each polygon
+     * @return the feature collection
+     */
+    public FeatureCollectionVo createFeatureCollection(int featureCount, int pointCount) {
+        FeatureVo[] features = new FeatureVo[featureCount];
+        for (int f = 0; f < featureCount; f++) {
+            FeatureVo feature = new FeatureVo();
+            feature.setGeometry(new PolygonVo(new double[][][] { createRing(pointCount) }));
+            feature.getProperties().put("name:en", "Feature " + f);
+            features[f] = feature;
+        }
+        FeatureCollectionVo fc = new FeatureCollectionVo();
+        fc.setFeatures(features);
+        return fc;
+    }
+
+
+    /** Creates a closed ring of coordinates in the Danish waters **/
+    double[][] createRing(int pointCount) {
+        int n = Math.max(3, pointCount);
+        double centerLon = 8.0 + 7.0 * random.nextDouble();
+        double centerLat = 54.5 + 3.0 * random.nextDouble();
+        double radius = 0.05 + 0.2 * random.nextDouble();
+        double[][] ring = new double[n + 1][];
+        for (int x = 0; x < n; x++) {
+            double angle = 2.0 * Math.PI * x / n;
+            double r = radius * (0.8 + 0.4 * random.nextDouble());
+            ring[x] = new double[] { centerLon + r * Math.cos(angle) * 1.7, centerLat + r * Math.sin(angle) };
+        }
+        ring[n] = ring[0];
+        return ring;
+    }
+
+
+    /**
+     * Creates the plain-text representation of a polygon, as parsed by the PlainTextConverter
+     * @param pointCount the number of coordinates
+     * @return the plain-text polygon
+     */
+    public String createPlainTextPolygon(int pointCount) {
+        StringBuilder result = new StringBuilder("Polygon, Synthetic area\n");
+        double[][] ring = createRing(pointCount);
+        for (int x = 0; x < ring.length - 1; x++) {
+            result.append(formatPos(ring[x][1], "N", "S"))
+                    .append(" - ")
+                    .append(formatPos(ring[x][0], "E", "W"))
+                    .append("\n");
+        }
+        return result.toString();
+    }
+
+
+    /** Formats the position in the degree and decimal minutes format **/
+    private static String formatPos(double value, String pos, String neg) {
+        double v = Math.abs(value);
+        int deg = (int) v;
+        double min = (v - deg) * 60.0;
+        return String.format(Locale.US, "%02d\u00B0 %06.3f'%s", deg, min, value >= 0 ? pos : neg).replace('.', ',');
+    }
+
+
+    /** Returns a sentence with the given number of random words **/
+    String sentence(int wordCount) {
+        StringBuilder result = new StringBuilder();
+        for (int x = 0; x < wordCount; x++) {
+            if (x > 0) {
+                result.append(' ');
+            }
+            result.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return result.toString();
+    }
+}
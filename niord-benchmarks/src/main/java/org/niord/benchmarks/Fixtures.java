@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.benchmarks;
+
+import org.niord.core.NiordApp;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+
+/**
+ * Helper functions used for wiring up Niord services outside of the application server
+ */
+public class Fixtures {
+
+    /** Prevent instantiation **/
+    private Fixtures() {
+    }
+
+
+    /**
+     * Sets the value of the given (typically injected) field of the target
+     * @param target the target object
+     * @param fieldName the name of the field
+     * @param value the value to set
+     * @return the target
+     */
+    public static <T> T inject(T target, String fieldName, Object value) {
+        for (Class<?> clz = target.getClass(); clz != null; clz = clz.getSuperclass()) {
+            try {
+                Field field = clz.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return target;
+            } catch (NoSuchFieldException ignored) {
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot set field " + fieldName + " of " + target, e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " in " + target.getClass());
+    }
+
+
+    /** Injects a logger into the "log" field of the target **/
+    public static <T> T injectLogger(T target) {
+        return inject(target, "log", LoggerFactory.getLogger(target.getClass()));
+    }
+
+
+    /** Deletes the given directory recursively **/
+    public static void deleteDirectory(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+
+    /**
+     * A NiordApp that does not depend on the settings service
+     */
+    public static class BenchmarkNiordApp extends NiordApp {
+
+        /** {@inheritDoc} **/
+        @Override
+        public String getBaseUri() {
+            return "http://localhost:8080";
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public String getCountry() {
+            return "DK";
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public String[] getLanguages() {
+            return BenchmarkData.LANGUAGES.clone();
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public Locale getLocale(String lang) {
+            return new Locale(getLanguage(lang));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.benchmarks;
+
+import org.niord.core.domain.Domain;
+import org.niord.core.domain.DomainService;
+import org.niord.core.message.Message;
+import org.niord.core.script.FmTemplateService;
+import org.niord.core.script.ScriptResource;
+import org.niord.core.script.ScriptResourceService;
+import org.niord.model.message.MessageVo;
+import org.niord.model.geojson.FeatureCollectionVo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks rendering Freemarker templates via the FmTemplateService
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FmTemplateBenchmark {
+
+    static final String MESSAGE_LIST_TEMPLATE = "/templates/benchmark/message-list.ftl";
+    static final String GEOMETRY_TABLE_TEMPLATE = "/templates/geometry/table.ftl";
+
+    /** Number of messages in the message list, and the number of coordinates in the geometry table **/
+    @Param({ "100", "1000" })
+    int size;
+
+    FmTemplateService templateService;
+    List<MessageVo> messages;
+    FeatureCollectionVo geometry;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkData data = new BenchmarkData();
+        messages = data.createMessages(size, 10).stream()
+                .map(m -> m.toVo(MessageVo.class, Message.MESSAGE_DETAILS_FILTER.lang("en")))
+                .collect(Collectors.toList());
+        geometry = data.createFeatureCollection(1, size);
+        Arrays.stream(geometry.getFeatures()).forEach(f -> f.getProperties().put("language", "en"));
+        templateService = createTemplateService();
+    }
+
+
+    /** Creates a template service that loads the templates from the class path **/
+    static FmTemplateService createTemplateService() {
+        ScriptResourceService resourceService = new ScriptResourceService() {
+            @Override
+            public Set<String> findAllScriptResourcePaths() {
+                // NB: Script resource paths are stored without a leading slash
+                return Stream.of(MESSAGE_LIST_TEMPLATE, GEOMETRY_TABLE_TEMPLATE)
+                        .map(path -> path.substring(1))
+                        .collect(Collectors.toSet());
+            }
+
+            @Override
+            public ScriptResource findByPath(String path) {
+                ScriptResource resource = readScriptResourceFromClassPath(path);
+                if (resource != null) {
+                    resource.setUpdated(new Date());
+                }
+                return resource;
+            }
+        };
+
+        DomainService domainService = new DomainService() {
+            @Override
+            public Domain currentDomain() {
+                return null;
+            }
+        };
+
+        FmTemplateService templateService = new FmTemplateService();
+        Fixtures.injectLogger(templateService);
+        Fixtures.inject(templateService, "pdfEncryptionEnabled", Boolean.FALSE);
+        Fixtures.inject(templateService, "resourceService", resourceService);
+        Fixtures.inject(templateService, "domainService", domainService);
+        Fixtures.inject(templateService, "app", new Fixtures.BenchmarkNiordApp());
+        return templateService;
+    }
+
+
+    /** Renders a list of messages **/
+    @Benchmark
+    public String messageList() throws Exception {
+        return templateService.newFmTemplateBuilder()
+                .templatePath(MESSAGE_LIST_TEMPLATE)
+                .data("messages", messages)
+                .language("en")
+                .process();
+    }
+
+
+    /** Renders a geometry as a position table, as used when appending positions to message details **/
+    @Benchmark
+    public String geometryTable() throws Exception {
+        return templateService.newFmTemplateBuilder()
+                .templatePath(GEOMETRY_TABLE_TEMPLATE)
+                .data("geometry", geometry)
+                .data("format", "dec")
+                .language("en")
+                .process();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.benchmarks;
+
+import org.locationtech.jts.geom.Geometry;
+import org.niord.core.geojson.GeoJsonUtils;
+import org.niord.core.geojson.JtsConverter;
+import org.niord.core.geojson.PlainTextConverter;
+import org.niord.model.geojson.FeatureCollectionVo;
+import org.niord.model.geojson.GeometryVo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the geometry conversions between plain text, GeoJSON and JTS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeometryConversionBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    int pointCount;
+
+    PlainTextConverter converter;
+    String plainText;
+    FeatureCollectionVo featureCollection;
+    GeometryVo geometry;
+    Geometry jtsGeometry;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkData data = new BenchmarkData();
+        converter = PlainTextConverter.newInstance(BenchmarkData.LANGUAGES);
+        plainText = data.createPlainTextPolygon(pointCount);
+        featureCollection = data.createFeatureCollection(1, pointCount);
+        geometry = featureCollection.getFeatures()[0].getGeometry();
+        jtsGeometry = JtsConverter.toJts(geometry);
+    }
+
+
+    /** Parses a plain-text polygon **/
+    @Benchmark
+    public FeatureCollectionVo fromPlainText() throws Exception {
+        return converter.fromPlainText(plainText);
+    }
+
+
+    /** Formats a polygon as plain text **/
+    @Benchmark
+    public String toPlainText() throws Exception {
+        return converter.toPlainText(featureCollection);
+    }
+
+
+    /** Converts a GeoJSON polygon to JTS **/
+    @Benchmark
+    public Geometry toJts() {
+        return JtsConverter.toJts(geometry);
+    }
+
+
+    /** Converts a JTS polygon to GeoJSON **/
+    @Benchmark
+    public GeometryVo fromJts() {
+        return JtsConverter.fromJts(jtsGeometry);
+    }
+
+
+    /** Computes the bounding box of a feature collection **/
+    @Benchmark
+    public double[] computeBBox() {
+        return GeoJsonUtils.computeBBox(new FeatureCollectionVo[] { featureCollection });
+    }
+
+
+    /** Serializes a feature collection, as used for the geometry templates **/
+    @Benchmark
+    public List<GeoJsonUtils.SerializedFeature> serializeFeatureCollection() {
+        return GeoJsonUtils.serializeFeatureCollection(featureCollection, "en");
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.benchmarks;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.niord.core.message.Message;
+import org.niord.core.script.pdf.HtmlToPdfRenderer;
+import org.niord.model.message.MessageVo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks rendering HTML, as generated by the message list template, to PDF
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HtmlToPdfBenchmark {
+
+    @Param({ "10", "100" })
+    int messageCount;
+
+    String html;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        List<MessageVo> messages = new BenchmarkData().createMessages(messageCount, 10).stream()
+                .map(m -> m.toVo(MessageVo.class, Message.MESSAGE_DETAILS_FILTER.lang("en")))
+                .collect(Collectors.toList());
+
+        html = FmTemplateBenchmark.createTemplateService().newFmTemplateBuilder()
+                .templatePath(FmTemplateBenchmark.MESSAGE_LIST_TEMPLATE)
+                .data("messages", messages)
+                .language("en")
+                .process();
+    }
+
+
+    /** Renders the HTML as PDF **/
+    @Benchmark
+    public void render() throws Exception {
+        HtmlToPdfRenderer.newBuilder()
+                .baseUri("http://localhost:8080")
+                .html(html)
+                .pdf(new NullOutputStream())
+                .build()
+                .render();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.benchmarks;
+
+import org.niord.core.message.Message;
+import org.niord.core.message.MessageLuceneIndex;
+import org.niord.core.message.MessageService;
+import org.niord.core.startup.StartupService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks indexing and querying the message Lucene index.
+ * <p>
+ * The search queries are defined by the separate {@linkplain SearchQuery} state, so that they
+ * only parameterize the search benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageLuceneIndexBenchmark {
+
+    @Param({ "100", "1000" })
+    int messageCount;
+
+    Path indexFolder;
+    MessageLuceneIndex index;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        List<Message> messages = new BenchmarkData().createMessages(messageCount, 10);
+
+        // Always returns all messages as updated messages, so each update re-indexes the full data set
+        MessageService messageService = new MessageService() {
+            @Override
+            public List<Message> findUpdatedMessages(Date date, int maxCount) {
+                return messages;
+            }
+        };
+
+        indexFolder = Files.createTempDirectory("niord-message-index");
+        index = new MessageLuceneIndex();
+        Fixtures.injectLogger(index);
+        Fixtures.inject(index, "indexFolder", indexFolder);
+        Fixtures.inject(index, "includeDeletedMessages", Boolean.FALSE);
+        Fixtures.inject(index, "deleteOnStartup", Boolean.TRUE);
+        Fixtures.inject(index, "messageService", messageService);
+        Fixtures.inject(index, "app", new Fixtures.BenchmarkNiordApp());
+        Fixtures.inject(index, "startupService", Fixtures.injectLogger(new StartupService()));
+        index.indexChangedMessages();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Fixtures.deleteDirectory(indexFolder);
+    }
+
+    /** Re-indexes all messages **/
+    @Benchmark
+    public int index() {
+        return index.indexChangedMessages();
+    }
+
+    /** Searches the index **/
+    @Benchmark
+    public List<Long> search(SearchQuery searchQuery) throws Exception {
+        return index.searchIndex(searchQuery.query, "en", 1000);
+    }
+
+
+    /** The search queries of the search benchmark **/
+    @State(Scope.Benchmark)
+    public static class SearchQuery {
+
+        @Param({ "\"wreck\"", "buoy light -cable", "harb*" })
+        String query;
+    }
+}
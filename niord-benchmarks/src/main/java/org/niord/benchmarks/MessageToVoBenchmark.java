@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.benchmarks;
+
+import org.niord.core.message.Message;
+import org.niord.core.message.vo.SystemMessageVo;
+import org.niord.model.DataFilter;
+import org.niord.model.message.MessageVo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks converting message entities to value objects using the standard data filters
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageToVoBenchmark {
+
+    @Param({ "100", "1000" })
+    int messageCount;
+
+    @Param({ "10", "1000" })
+    int pointCount;
+
+    @Param({ "details", "detailsAndPromulgations", "map", "all" })
+    String filter;
+
+    List<Message> messages;
+    DataFilter dataFilter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        messages = new BenchmarkData().createMessages(messageCount, pointCount);
+        switch (filter) {
+            case "details":
+                dataFilter = Message.MESSAGE_DETAILS_FILTER.lang("en");
+                break;
+            case "detailsAndPromulgations":
+                dataFilter = Message.MESSAGE_DETAILS_AND_PROMULGATIONS_FILTER.lang("en");
+                break;
+            case "map":
+                dataFilter = Message.MESSAGE_MAP_FILTER.lang("en");
+                break;
+            default:
+                dataFilter = DataFilter.get().fields(DataFilter.ALL);
+        }
+    }
+
+    /** Converts the messages to message value objects **/
+    @Benchmark
+    public void toMessageVo(Blackhole bh) {
+        for (Message message : messages) {
+            bh.consume(message.toVo(MessageVo.class, dataFilter));
+        }
+    }
+
+    /** Converts the messages to system message value objects **/
+    @Benchmark
+    public void toSystemMessageVo(Blackhole bh) {
+        for (Message message : messages) {
+            bh.consume(message.toVo(SystemMessageVo.class, dataFilter));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.benchmarks;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.niord.core.promulgation.NavtexFormatter;
+import org.niord.core.promulgation.NavtexPromulgationService;
+import org.niord.core.util.PositionAssembler;
+import org.niord.core.util.PositionUtils;
+import org.niord.core.util.TextUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks formatting the HTML details of navigational warnings as NAVTEX text, comparing the
+ * single-pass NavtexFormatter with the chain of text transformations it replaced.
+ * <p>
+ * By default, the bundled corpus of navigational warnings is used. Another corpus, in the same format,
+ * can be specified using e.g. "-p corpusFile=/path/to/nw-corpus.txt".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NavtexFormatterBenchmark {
+
+    static final String NW_CORPUS = "/navtex/nw-corpus.txt";
+
+    /** Optionally, a file containing the corpus of navigational warnings **/
+    @Param({ "" })
+    String corpusFile;
+
+    List<String> warnings;
+    NavtexFormatter formatter;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String corpus;
+        if (StringUtils.isNotBlank(corpusFile)) {
+            corpus = new String(Files.readAllBytes(Paths.get(corpusFile)), StandardCharsets.UTF_8);
+        } else {
+            try (InputStream in = NavtexFormatterBenchmark.class.getResourceAsStream(NW_CORPUS)) {
+                corpus = IOUtils.toString(in, StandardCharsets.UTF_8);
+            }
+        }
+        warnings = parseCorpus(corpus);
+
+        formatter = NavtexFormatter.newBuilder()
+                .lineLength(NavtexPromulgationService.NAVTEX_LINE_LENGTH)
+                .removeWords(NavtexPromulgationService.SUPERFLUOUS_WORDS)
+                .build();
+    }
+
+
+    /** Formats the warnings using the chain of text transformations **/
+    @Benchmark
+    public void transformationChain(Blackhole bh) {
+        for (String html : warnings) {
+            String text = TextUtils.html2txt(html, true);
+            text = PositionUtils.replaceSeparator(text, " ");
+            text = PositionUtils.updatePositionFormat(text, PositionAssembler.newNavtexPositionAssembler());
+            text = TextUtils.removeWords(text, NavtexPromulgationService.SUPERFLUOUS_WORDS);
+            text = TextUtils.maxLineLength(text, NavtexPromulgationService.NAVTEX_LINE_LENGTH);
+            bh.consume(text.toUpperCase().trim());
+        }
+    }
+
+
+    /** Formats the warnings using the single-pass NAVTEX formatter **/
+    @Benchmark
+    public void singlePassFormatter(Blackhole bh) {
+        for (String html : warnings) {
+            bh.consume(formatter.format(html));
+        }
+    }
+
+
+    /**
+     * Parses the corpus, where the warnings are separated by lines containing "----",
+     * and lines starting with "#" are comments
+     */
+    static List<String> parseCorpus(String corpus) {
+        List<String> result = new ArrayList<>();
+        StringBuilder warning = new StringBuilder();
+        for (String line : corpus.split("\\r?\\n")) {
+            if (line.trim().equals("----")) {
+                result.add(warning.toString());
+                warning.setLength(0);
+            } else if (!line.startsWith("#")) {
+                warning.append(line).append('\n');
+            }
+        }
+        result.add(warning.toString());
+        return result.stream()
+                .filter(StringUtils::isNotBlank)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs the Niord benchmarks and writes the results as a JSON report.
+ * <p>
+ * Usage:
+ * <pre>
+ *     mvn -P benchmarks -pl niord-benchmarks -am package
+ *     java -jar niord-benchmarks/target/benchmarks.jar [JMH options]
+ * </pre>
+ * Unless a result file is specified using the standard JMH "-rff" option, the results are written
+ * to "target/jmh-result.json", which can be compared with the results of a previous release.
+ * The size of the synthetic data sets can be changed with the JMH "-p" option, e.g. "-p messageCount=5000".
+ */
+public class NiordBenchmarks {
+
+    /** Main method **/
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cmdOptions);
+        if (!cmdOptions.getResult().hasValue()) {
+            Path result = Paths.get("target", "jmh-result.json");
+            Files.createDirectories(result.getParent());
+            builder.result(result.toString());
+        }
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
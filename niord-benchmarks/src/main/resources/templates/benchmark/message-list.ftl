@@ -0,0 +1,34 @@
+<#-- Synthetic message list used by the FmTemplateBenchmark -->
+<html>
+<head>
+    <title>Messages</title>
+    <style type="text/css">
+        body { font-family: Helvetica, Arial, sans-serif; font-size: 10px; }
+        .message { page-break-inside: avoid; margin-bottom: 8px; }
+        .title { font-weight: bold; }
+        .position-table td { padding: 0 4px; }
+    </style>
+</head>
+<body>
+<h1>Messages (${messages?size})</h1>
+<#list messages as msg>
+    <div class="message">
+        <div class="title">${msg.shortId!""} <#if msg.descs?has_content>${msg.descs[0].title!""}</#if></div>
+        <#if msg.areas?has_content>
+            <div><#list msg.areas as area><#if area.descs?has_content>${area.descs[0].name}</#if><#sep>, </#list></div>
+        </#if>
+        <#if msg.publishDateFrom??>
+            <div>${msg.publishDateFrom?string("dd MMMM yyyy, HH:mm")}</div>
+        </#if>
+        <#if msg.parts?has_content>
+            <#list msg.parts as part>
+                <#if part.descs?has_content>
+                    <div><strong>${part.descs[0].subject!""}</strong></div>
+                    <div>${part.descs[0].details!""}</div>
+                </#if>
+            </#list>
+        </#if>
+    </div>
+</#list>
+</body>
+</html>
@@ -18,11 +18,19 @@ package org.niord.core;
 
 import org.niord.core.domain.Domain;
 import org.niord.core.service.BaseService;
+import org.niord.core.startup.StartupService;
 import org.slf4j.Logger;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.SessionContext;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 
 /**
@@ -38,9 +46,46 @@ public class BootstrapService extends BaseService {
     @Inject
     Logger log;
 
+    static final String STARTUP_PHASE = "bootstrap";
+
+    @Inject
+    StartupService startupService;
+
+    @Resource
+    TimerService timerService;
+
+    @Resource
+    SessionContext ctx;
+
+    /** Bootstraps the system asynchronously, concurrently with the other start-up phases **/
     @PostConstruct
     void init() {
+        startupService.register(STARTUP_PHASE, true);
+        timerService.createSingleActionTimer(StartupService.ASYNC_START_DELAY, new TimerConfig(null, false));
+    }
 
+
+    /**
+     * Executes the bootstrap start-up phase in a new transaction, and retries it upon failure
+     */
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    private void runBootstrap() {
+        BootstrapService self = ctx.getBusinessObject(BootstrapService.class);
+        try {
+            startupService.run(STARTUP_PHASE, true, self::bootstrap);
+        } catch (Exception e) {
+            long delay = startupService.getRetryDelay(STARTUP_PHASE);
+            log.error("Error bootstrapping the system. Retrying in " + delay + " ms", e);
+            timerService.createSingleActionTimer(delay, new TimerConfig(null, false));
+        }
+    }
+
+
+    /**
+     * Ensures that a Master domain exists and handles upgrades
+     */
+    public void bootstrap() {
         // If no domains have been defined (fresh database), create
         // a Master domain that can be used whilst setting up the system
         if (count(Domain.class) == 0) {
@@ -58,6 +58,8 @@ import java.util.stream.Collectors;
                 query = "select distinct a from Area a left join fetch a.descs where a.id in (:ids)"),
         @NamedQuery(name  = "Area.findByMrn",
                 query = "select a from Area a left join fetch a.descs where a.mrn = :mrn"),
+        @NamedQuery(name  = "Area.findLineages",
+                query = "select a.id, a.lineage from Area a"),
         @NamedQuery(name  = "Area.findLastUpdated",
                 query = "select max(a.updated) from Area a")
 })
@@ -136,7 +138,7 @@ public class Area extends TreeBaseEntity<Area> implements ILocalizable<AreaDesc>
             this.originAngle = sysArea.getOriginAngle();
 
             if (compFilter.includeGeometry()) {
-                this.geometry = JtsConverter.toJts(sysArea.getGeometry());
+                this.geometry = JtsConverter.toJtsCopy(sysArea.getGeometry());
             }
 
             if (compFilter.includeChildren() && sysArea.getChildren() != null) {
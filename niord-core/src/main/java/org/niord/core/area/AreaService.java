@@ -23,16 +23,22 @@ import org.niord.core.db.SpatialIntersectsPredicate;
 import org.niord.core.domain.Domain;
 import org.niord.core.domain.DomainService;
 import org.niord.core.geojson.GeoJsonUtils;
+import org.niord.core.map.VectorTileCache;
+import org.niord.core.map.VectorTileService;
 import org.niord.core.message.Message;
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.model.BaseEntity;
+import org.niord.core.promulgation.PromulgationCoverageIndex;
 import org.niord.core.service.TreeBaseService;
 import org.niord.core.settings.SettingsService;
+import org.niord.core.web.SiteBundleVersion;
 import org.niord.model.search.PagedSearchParamsVo;
 import org.slf4j.Logger;
 
 import javax.ejb.Schedule;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
@@ -58,6 +64,7 @@ import static org.niord.core.area.AreaSearchParams.TREE_SORT_ORDER;
  * Business interface for accessing Niord areas
  */
 @Stateless
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class AreaService extends TreeBaseService<Area> {
 
@@ -72,6 +79,15 @@ public class AreaService extends TreeBaseService<Area> {
     @Inject
     DomainService domainService;
 
+    @Inject
+    VectorTileCache vectorTileCache;
+
+    @Inject
+    PromulgationCoverageIndex promulgationCoverageIndex;
+
+    @Inject
+    SiteBundleVersion siteBundleVersion;
+
 
     /**
      * Returns the area with the given legacy id
@@ -278,6 +294,11 @@ public class AreaService extends TreeBaseService<Area> {
         original.updateActiveFlag();
 
         original = saveEntity(original);
+        vectorTileCache.invalidateLayer(VectorTileService.LAYER_AREAS);
+        promulgationCoverageIndex.invalidate();
+
+        // Domains, as emitted in the site-config bundle, include area names
+        siteBundleVersion.changed();
 
         return original;
     }
@@ -318,6 +339,9 @@ public class AreaService extends TreeBaseService<Area> {
         area.updateLineage();
         area.updateActiveFlag();
         area = saveEntity(area);
+        vectorTileCache.invalidateLayer(VectorTileService.LAYER_AREAS);
+        promulgationCoverageIndex.invalidate();
+        siteBundleVersion.changed();
 
         em.flush();
         return area;
@@ -331,7 +355,13 @@ public class AreaService extends TreeBaseService<Area> {
      * @return if the area was moved
      */
     public boolean moveArea(Integer areaId, Integer parentId) {
-        return moveEntity(Area.class, areaId, parentId);
+        boolean moved = moveEntity(Area.class, areaId, parentId);
+        if (moved) {
+            vectorTileCache.invalidateLayer(VectorTileService.LAYER_AREAS);
+            promulgationCoverageIndex.invalidate();
+            siteBundleVersion.changed();
+        }
+        return moved;
     }
 
     /**
@@ -361,6 +391,9 @@ public class AreaService extends TreeBaseService<Area> {
             area.setParent(null);
             saveEntity(area);
             remove(area);
+            vectorTileCache.invalidateLayer(VectorTileService.LAYER_AREAS);
+            promulgationCoverageIndex.invalidate();
+            siteBundleVersion.changed();
             log.debug("Removed area " + areaId);
             return true;
         }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton;
+
+import org.niord.model.IJsonSerializable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, pre-computed, representation of the AtoN OSM defaults used by the AtoN editor.
+ * <p>
+ * The AtoN defaults are generated from the INT-1-preset.xml file by the {@linkplain AtonDefaultsGenerator}
+ * at build time, and serialized as JSON. All tag value list references have been resolved, and the
+ * tag keys and values are indexed for the auto-complete look-ups of the AtoN editor.
+ */
+@SuppressWarnings("unused")
+public class AtonDefaults implements IJsonSerializable {
+
+    List<NodeType> nodeTypes = new ArrayList<>();
+
+    // All distinct tag keys, in node type order
+    List<String> keys = new ArrayList<>();
+
+    // All distinct values of each tag key, in node type order
+    Map<String, List<String>> keyValues = new LinkedHashMap<>();
+
+
+    /**
+     * Defines a node type
+     */
+    public static class NodeType implements IJsonSerializable {
+        String name;
+        List<Tag> tags = new ArrayList<>();
+
+        /** Returns the tag with the given key, or null if not found */
+        public Tag tag(String key) {
+            return tags.stream()
+                    .filter(t -> t.getK().equals(key))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<Tag> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<Tag> tags) {
+            this.tags = tags;
+        }
+    }
+
+
+    /**
+     * Defines a node tag, with either a fixed value or a list of allowed values
+     */
+    public static class Tag implements IJsonSerializable {
+        String k;
+        String v;
+        List<String> values = new ArrayList<>();
+
+        public String getK() {
+            return k;
+        }
+
+        public void setK(String k) {
+            this.k = k;
+        }
+
+        public String getV() {
+            return v;
+        }
+
+        public void setV(String v) {
+            this.v = v;
+        }
+
+        public List<String> getValues() {
+            return values;
+        }
+
+        public void setValues(List<String> values) {
+            this.values = values;
+        }
+    }
+
+    /*************************/
+    /** Getters and Setters **/
+    /*************************/
+
+    public List<NodeType> getNodeTypes() {
+        return nodeTypes;
+    }
+
+    public void setNodeTypes(List<NodeType> nodeTypes) {
+        this.nodeTypes = nodeTypes;
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(List<String> keys) {
+        this.keys = keys;
+    }
+
+    public Map<String, List<String>> getKeyValues() {
+        return keyValues;
+    }
+
+    public void setKeyValues(Map<String, List<String>> keyValues) {
+        this.keyValues = keyValues;
+    }
+}
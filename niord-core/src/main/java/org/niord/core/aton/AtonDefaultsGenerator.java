@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.niord.core.aton.AtonDefaults.NodeType;
+import org.niord.core.aton.AtonDefaults.Tag;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the {@linkplain AtonDefaults} from a JOSM INT-1-preset.xml file.
+ * <p>
+ * The preset file is transformed via the aton-osm-defaults.xslt transformation (see {@linkplain AtonDefaultsService}),
+ * and the result is compiled into the compact {@linkplain AtonDefaults} look-up structure.
+ * <p>
+ * The generator is executed at build time, where it writes the AtoN defaults of the bundled INT-1-preset.xml file
+ * for both IALA buoyage systems as JSON resources. See the niord-core pom.xml.
+ */
+public class AtonDefaultsGenerator {
+
+    public static final String PRESET_RESOURCE = "/aton/INT-1-preset.xml";
+    public static final String XSLT_RESOURCE = "/aton/aton-osm-defaults.xslt";
+
+
+    /**
+     * Returns the class path resource of the pre-computed AtoN defaults for the given IALA system
+     * @param ialaSystem the IALA buoyage system
+     * @return the class path resource of the pre-computed AtoN defaults
+     */
+    public static String defaultsResource(IalaBuoyageSystem ialaSystem) {
+        return "/aton/aton-osm-defaults-" + ialaSystem.name().toLowerCase() + ".json";
+    }
+
+
+    /**
+     * Generates the AtoN defaults from the given INT-1-preset.xml file
+     * @param preset the INT-1-preset.xml file
+     * @param ialaSystem the IALA buoyage system
+     * @return the AtoN defaults
+     */
+    public static AtonDefaults generate(InputStream preset, IalaBuoyageSystem ialaSystem) throws Exception {
+
+        // Execute the xslt
+        StringWriter xml = new StringWriter();
+        try (InputStream xslt = AtonDefaultsGenerator.class.getResourceAsStream(XSLT_RESOURCE)) {
+            Transformer trans = TransformerFactory.newInstance().newTransformer(new StreamSource(xslt));
+            trans.setParameter("ialaSkipSystem", ialaSystem.other().toString());
+            trans.transform(new StreamSource(preset), new StreamResult(xml));
+        }
+
+        // Fix spelling mistakes
+        String resultXml = xml.toString()
+                .replace("topamrk", "topmark")
+                .replace("patern", "pattern");
+
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(resultXml)));
+
+        // Build look-up table for the tag value lists
+        Map<String, List<String>> tagValueLists = new HashMap<>();
+        for (Element tagValues : childElements(doc.getDocumentElement(), "tag-values")) {
+            tagValueLists.put(tagValues.getAttribute("id"), childValues(tagValues));
+        }
+
+        AtonDefaults defaults = new AtonDefaults();
+        Set<String> keys = new LinkedHashSet<>();
+        Map<String, Set<String>> keyValues = new HashMap<>();
+        for (Element nodeTypeElement : childElements(doc.getDocumentElement(), "node-type")) {
+            NodeType nodeType = new NodeType();
+            nodeType.setName(nodeTypeElement.getAttribute("name"));
+            for (Element tagElement : childElements(nodeTypeElement, "tag")) {
+                Tag tag = new Tag();
+                tag.setK(tagElement.getAttribute("k"));
+                tag.setV(tagElement.hasAttribute("v") ? tagElement.getAttribute("v") : null);
+                tag.setValues(computeValues(tagElement, tag, tagValueLists));
+                nodeType.getTags().add(tag);
+
+                keys.add(tag.getK());
+                // NB: only the first tag with a given key is used for look-ups
+                if (nodeType.tag(tag.getK()) == tag) {
+                    keyValues.computeIfAbsent(tag.getK(), k -> new LinkedHashSet<>()).addAll(tag.getValues());
+                }
+            }
+            defaults.getNodeTypes().add(nodeType);
+        }
+
+        defaults.getKeys().addAll(keys);
+        keys.forEach(k -> defaults.getKeyValues().put(k, new ArrayList<>(keyValues.get(k))));
+        return defaults;
+    }
+
+
+    /**
+     * Computes the list of values for the given tag. The tag either defines the value in the "v" attribute,
+     * lists the values in "tag-value" sub-elements, or references value lists in "tag-values" sub-elements.
+     */
+    private static List<String> computeValues(Element tagElement, Tag tag, Map<String, List<String>> tagValueLists) {
+        List<String> values = new ArrayList<>();
+        if (tag.getV() != null && !tag.getV().trim().isEmpty()) {
+            values.add(tag.getV());
+            return values;
+        }
+
+        List<Element> refs = childElements(tagElement, "tag-values");
+        if (!refs.isEmpty()) {
+            refs.stream()
+                    .map(r -> tagValueLists.get(r.getAttribute("ref")))
+                    .filter(v -> v != null)
+                    .forEach(values::addAll);
+        } else {
+            values.addAll(childValues(tagElement));
+        }
+        return values;
+    }
+
+
+    /** Returns the "v" attributes of the "tag-value" child elements of the element **/
+    private static List<String> childValues(Element element) {
+        List<String> values = new ArrayList<>();
+        childElements(element, "tag-value").forEach(e -> values.add(e.getAttribute("v")));
+        return values;
+    }
+
+
+    /** Returns the child elements with the given name **/
+    private static List<Element> childElements(Element element, String name) {
+        List<Element> result = new ArrayList<>();
+        for (Node n = element.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element && name.equals(n.getNodeName())) {
+                result.add((Element) n);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Generates the AtoN defaults of the bundled INT-1-preset.xml file for both IALA systems
+     * and writes them as JSON files to the output class folder specified as the first argument.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: AtonDefaultsGenerator <output class folder>");
+            System.exit(1);
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        for (IalaBuoyageSystem ialaSystem : IalaBuoyageSystem.values()) {
+            long t0 = System.currentTimeMillis();
+            AtonDefaults defaults;
+            try (InputStream preset = AtonDefaultsGenerator.class.getResourceAsStream(PRESET_RESOURCE)) {
+                defaults = generate(preset, ialaSystem);
+            }
+
+            File file = new File(args[0], defaultsResource(ialaSystem));
+            file.getParentFile().mkdirs();
+            mapper.writeValue(file, defaults);
+            System.out.println("Generated " + defaults.getNodeTypes().size() + " AtoN node types in " + file
+                    + " in " + (System.currentTimeMillis() - t0) + " ms");
+        }
+    }
+}
@@ -15,26 +15,18 @@
  */
 package org.niord.core.aton;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang.StringUtils;
+import org.niord.core.aton.AtonDefaults.NodeType;
+import org.niord.core.aton.AtonDefaults.Tag;
+import org.niord.core.settings.annotation.Setting;
 import org.slf4j.Logger;
 
-import javax.annotation.PostConstruct;
-import javax.annotation.Resource;
-import javax.ejb.*;
+import javax.ejb.Singleton;
 import javax.inject.Inject;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.annotation.XmlAttribute;
-import javax.xml.bind.annotation.XmlElement;
-import javax.xml.bind.annotation.XmlRootElement;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -84,6 +76,12 @@ import java.util.stream.Collectors;
  * </pre>
  *
  * <p>
+ * The transformation is executed at build time by the {@linkplain AtonDefaultsGenerator}, which compiles the
+ * result into the compact {@linkplain AtonDefaults} look-up structure, and stores it as a JSON class path resource.
+ * A custom preset file may be specified via the "atonDefaultsPreset" setting, in which case the
+ * transformation is executed at run time.
+ *
+ * <p>
  * Testing: From the command lines, run:
  * <pre>
  *     xsltproc --stringparam ialaSkipSystem "IALA-B"  aton-osm-defaults.xslt INT-1-preset.xml &gt; result.xml
@@ -91,73 +89,62 @@ import java.util.stream.Collectors;
  *
  */
 @Singleton
-@Startup
 @SuppressWarnings("unused")
 public class AtonDefaultsService {
 
     @Inject
     private Logger log;
 
-    @Resource
-    TimerService timerService;
+    @Inject
+    @Setting(value = "atonDefaultsPreset", defaultValue = "",
+            description = "Optional path to a custom JOSM INT-1-preset.xml file used for the AtoN editor defaults")
+    String presetFile;
 
     // TODO: Inject from setting
     private IalaBuoyageSystem ialaSystem = IalaBuoyageSystem.IALA_A;
 
-    private OsmDefaults osmDefaults;
+    private AtonDefaults atonDefaults;
 
-    // Look-up table for tag-values
-    private Map<String, ODTagValues> osmTagValues = new HashMap<>();
-    private Map<String, ODNodeType> osmNodeTypes = new HashMap<>();
+    // Look-up table for node types
+    private Map<String, NodeType> osmNodeTypes = new HashMap<>();
 
 
-    /** Called upon application startup */
-    @PostConstruct
-    public void init() {
-        // In order not to stall webapp deployment, wait 3 seconds before initializing the defaults
-        timerService.createSingleActionTimer(3000, new TimerConfig());
+    /**
+     * Loads the AtoN defaults upon first use.
+     * The defaults are only used by the AtoN editor, so there is no need to load them at start-up.
+     * NB: All methods hold the write lock of the singleton, so this is thread-safe.
+     */
+    private void checkLoadDefaults() {
+        if (atonDefaults == null) {
+            loadDefaults();
+        }
     }
 
     /**
-     * Generates the AtoN defaults from the INT-1-preset.xml file
+     * Loads the AtoN defaults pre-computed at build time, or generates the AtoN defaults
+     * from the custom preset file, if defined
      */
-    @Timeout
-    private void generateDefaults() {
+    private void loadDefaults() {
+        long t0 = System.currentTimeMillis();
+        String source = StringUtils.isNotBlank(presetFile) ? presetFile : AtonDefaultsGenerator.defaultsResource(ialaSystem);
         try {
-            long t0 = System.currentTimeMillis();
-            Source xsltSource = new StreamSource(getClass().getResourceAsStream("/aton/aton-osm-defaults.xslt"));
-            Source xmlSource = new StreamSource(getClass().getResourceAsStream("/aton/INT-1-preset.xml"));
-
-            // Capture the generated xml as a string
-            StringWriter xml = new StringWriter();
-            Result result = new StreamResult(xml);
-
-            // Execute the xslt
-            TransformerFactory transFact = TransformerFactory.newInstance();
-            Transformer trans = transFact.newTransformer(xsltSource);
-            trans.setParameter("ialaSkipSystem", ialaSystem.other().toString());
-            trans.transform(xmlSource, result);
-
-            // Fix spelling mistakes
-            String resultXml = xml.toString();
-            resultXml = resultXml
-                    .replace("topamrk", "topmark")
-                    .replace("patern", "pattern");
-
-            // Read in the result as OsmDefaults data
-            JAXBContext jaxbContext = JAXBContext.newInstance(OsmDefaults.class);
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            osmDefaults = (OsmDefaults) unmarshaller.unmarshal(new StringReader(resultXml));
-
-            // Build look-up tables for fast access
-            osmDefaults.getTagValues().stream()
-                    .forEach(tv -> osmTagValues.put(tv.getId(), tv));
-            osmDefaults.getNodeTypes().stream()
+            if (StringUtils.isNotBlank(presetFile)) {
+                try (InputStream in = Files.newInputStream(Paths.get(presetFile))) {
+                    atonDefaults = AtonDefaultsGenerator.generate(in, ialaSystem);
+                }
+            } else {
+                try (InputStream in = getClass().getResourceAsStream(source)) {
+                    atonDefaults = new ObjectMapper().readValue(in, AtonDefaults.class);
+                }
+            }
+
+            // Build look-up table for fast access
+            atonDefaults.getNodeTypes()
                     .forEach(nt -> osmNodeTypes.put(nt.getName(), nt));
 
-            log.trace("Created AtoN defaults in " + (System.currentTimeMillis() - t0) +  " ms");
+            log.info("Loaded AtoN defaults from " + source + " in " + (System.currentTimeMillis() - t0) +  " ms");
         } catch (Exception e) {
-            log.error("Failed creating AtoN defaults in " + e, e);
+            log.error("Failed loading AtoN defaults from " + source + ": " + e, e);
         }
     }
 
@@ -168,8 +155,9 @@ public class AtonDefaultsService {
      * @return the name of all node types where the name matches the parameter
      */
     public List<String> getNodeTypeNames(String name) {
-        return osmDefaults.getNodeTypes().stream()
-                .map(ODNodeType::getName)
+        checkLoadDefaults();
+        return atonDefaults.getNodeTypes().stream()
+                .map(NodeType::getName)
                 .filter(n -> name == null || StringUtils.containsIgnoreCase(n, name))
                 .distinct()
                 .sorted()
@@ -184,6 +172,7 @@ public class AtonDefaultsService {
      * @param nodeTypeName type names
      */
     public void mergeAtonWithNodeTypes(AtonNode aton, String nodeTypeName) {
+        checkLoadDefaults();
 
         // Sanity checks
         if (aton == null || StringUtils.isBlank(nodeTypeName) || !osmNodeTypes.containsKey(nodeTypeName)) {
@@ -208,13 +197,14 @@ public class AtonDefaultsService {
      * @return the auto-complete list
      */
     public List<String> computeKeysForAton(AtonNode aton, String keyStr, int maxKeyNo) {
+        checkLoadDefaults();
 
         // Return empty result for empty key string
         if (StringUtils.isBlank(keyStr)) {
             return Collections.emptyList();
         }
 
-        List<ODNodeType> matchingNodeTypes = computeMatchingNodeTypes(aton);
+        List<NodeType> matchingNodeTypes = computeMatchingNodeTypes(aton);
         Set<String> existingTagKeys = aton.getTags().stream()
                 .map(AtonTag::getK)
                 .collect(Collectors.toSet());
@@ -224,7 +214,7 @@ public class AtonDefaultsService {
         // 2) The key is not already defined in the AtoN
         List<String> result = matchingNodeTypes.stream()
                 .flatMap(nt -> nt.getTags().stream())
-                .map(ODTag::getK)
+                .map(Tag::getK)
                 .filter(k -> StringUtils.containsIgnoreCase(k, keyStr))
                 .filter(k -> !existingTagKeys.contains(k))
                 .distinct()
@@ -233,11 +223,8 @@ public class AtonDefaultsService {
 
         // If there is no match from the matching node types, just look for any matching tag key
         if (result.isEmpty()) {
-            result = osmDefaults.getNodeTypes().stream()
-                    .flatMap(nt -> nt.getTags().stream())
-                    .map(ODTag::getK)
+            result = atonDefaults.getKeys().stream()
                     .filter(k -> StringUtils.containsIgnoreCase(k, keyStr))
-                    .distinct()
                     .limit(maxKeyNo)
                     .sorted()
                     .collect(Collectors.toList());
@@ -257,6 +244,7 @@ public class AtonDefaultsService {
      * @return the auto-complete list
      */
     public List<String> getValuesForAtonAndKey(AtonNode aton, String key, String valueStr, int maxValueNo) {
+        checkLoadDefaults();
 
         // Return empty result for empty key
         if (StringUtils.isBlank(key)) {
@@ -264,11 +252,12 @@ public class AtonDefaultsService {
         }
 
         // Find a tag with a matching key in the set of node types that matches the AtoN
-        List<ODNodeType> matchingNodeTypes = computeMatchingNodeTypes(aton);
+        List<NodeType> matchingNodeTypes = computeMatchingNodeTypes(aton);
         List<String> values = matchingNodeTypes.stream()
-                .map(nt -> computeValuesForNodeType(nt, key, valueStr))
-                .filter(v -> !v.isEmpty())
-                .flatMap(Collection::stream)
+                .map(nt -> nt.tag(key))
+                .filter(Objects::nonNull)
+                .flatMap(tag -> tag.getValues().stream())
+                .filter(v -> valueStr == null || StringUtils.containsIgnoreCase(v, valueStr))
                 .distinct()
                 .limit(maxValueNo)
                 .collect(Collectors.toList());
@@ -276,11 +265,8 @@ public class AtonDefaultsService {
         // If we did not find any matching key-value in the set of node types
         // that matches the AtoN, look for any matching key-value
         if (values.isEmpty()) {
-            values = osmDefaults.getNodeTypes().stream()
-                    .map(nt -> computeValuesForNodeType(nt, key, valueStr))
-                    .filter(v -> !v.isEmpty())
-                    .flatMap(Collection::stream)
-                    .distinct()
+            values = atonDefaults.getKeyValues().getOrDefault(key, Collections.emptyList()).stream()
+                    .filter(v -> valueStr == null || StringUtils.containsIgnoreCase(v, valueStr))
                     .limit(maxValueNo)
                     .collect(Collectors.toList());
         }
@@ -289,82 +275,6 @@ public class AtonDefaultsService {
     }
 
 
-    /**
-     * Computes the tag values for the given node type, key and value substring.
-     * @param nodeType the node type
-     * @param key the tag key
-     * @param valueStr the value string
-     * @return the tag values for the given node type, key and value substring
-     */
-    private List<String> computeValuesForNodeType(ODNodeType nodeType, String key, String valueStr) {
-        ODTag tag = nodeType.tag(key);
-        return computeValuesForTag(tag).stream()
-                .filter(v -> valueStr == null || StringUtils.containsIgnoreCase(v, valueStr))
-                .distinct()
-                .collect(Collectors.toList());
-    }
-
-
-    /**
-     * Compute the list of values for the given tag. The tag can have various formats:
-     *
-     * <p>
-     * Format 1) Tag defines the value in "v" attribute
-     * <pre>
-     *     &lt;tag k="seamark:notice:function" v="information"/&gt;
-     * </pre>
-     * <p>
-     * Format 2) Tag defines values in "tag-value" sub-elements
-     * <pre>
-     *     &lt;tag k="seamark:buoy_lateral:category"&gt;
-     *         &lt;tag-value v="danger_right"/&gt;
-     *         &lt;tag-value v="junction_right"/&gt;
-     *         &lt;tag-value v="turnoff_right"/&gt;
-     *         &lt;tag-value v="harbour_right"/&gt;
-     *     &lt;/tag&gt;
-     * </pre>
-     * Format 3) defines values in "tag-values" value list references
-     * <pre>
-     *     &lt;tag k="seamark:buoy_lateral:colour"&gt;
-     *         &lt;tag-values ref="rightlateralcolours"/&gt;
-     *         &lt;tag-values ref="leftlateralcolours"/&gt;
-     *     &lt;/tag&gt;
-     * </pre>
-     * <p>
-     *
-     * @param tag the tag to find the values for
-     * @return the list of values
-     */
-    private List<String> computeValuesForTag(ODTag tag) {
-        if (tag == null) {
-            return Collections.emptyList();
-
-        } else if (StringUtils.isNotBlank(tag.getV())) {
-            // The tag explicitly defines the value in the "v" attribute
-            return Collections.singletonList(tag.getV());
-        }
-
-        // Look for "<tag-values ref="id"/>" sub-elements
-        if (tag.getTagValueRefs() != null) {
-            return tag.getTagValueRefs().stream()
-                    .filter(tvs -> tvs.getRef() != null && osmTagValues.containsKey(tvs.getRef()))
-                    .map(tvs -> osmTagValues.get(tvs.getRef()))
-                    .filter(tvs -> tvs != null && tvs.getTags() != null)
-                    .flatMap(tvs -> tvs.getTags().stream())
-                    .map(ODTagValue::getV)
-                    .collect(Collectors.toList());
-
-        } else if (tag.getTagValues() != null) {
-            // Look for "<tag-value v="value"/>" sub-elements
-            return tag.getTagValues().stream()
-                    .map(ODTagValue::getV)
-                    .collect(Collectors.toList());
-        }
-
-        // No joy
-        return Collections.emptyList();
-    }
-
     /**
      * Returns a list of matching node types for the given AtoN, sorted
      * so that the first node types have a higher match with the AtoN.
@@ -372,10 +282,10 @@ public class AtonDefaultsService {
      * @param aton the AtoN
      * @return a list of matching node types for the given AtoN
      */
-    private List<ODNodeType> computeMatchingNodeTypes(AtonNode aton) {
+    private List<NodeType> computeMatchingNodeTypes(AtonNode aton) {
 
         // Compute an AtoN match score for each node type
-        Map<ODNodeType, Integer> nodeTypeScore = osmDefaults.getNodeTypes().stream()
+        Map<NodeType, Integer> nodeTypeScore = atonDefaults.getNodeTypes().stream()
             .collect(Collectors.toMap(Function.identity(), nt -> computeNodeTypeMatch(aton, nt)));
 
         // Returns all node types with a non-trivial match (score > 2) sorted by the score
@@ -392,7 +302,7 @@ public class AtonDefaultsService {
      * @param nodeType the node type
      * @return a score for match between the AtoN and the node type
      */
-    private int computeNodeTypeMatch(AtonNode aton, ODNodeType nodeType) {
+    private int computeNodeTypeMatch(AtonNode aton, NodeType nodeType) {
         int score = 0;
 
         // Check for matching tag values
@@ -415,176 +325,4 @@ public class AtonDefaultsService {
 
         return score;
     }
-
-    /*************************/
-    /** Helper classes      **/
-    /*************************/
-
-    /**
-     * Root element in the OSM Defaults data generated by the aton-osm-defaults.xslt transformation
-     */
-    @XmlRootElement(name = "osm-defaults")
-    private static class OsmDefaults {
-
-        List<ODTagValues> tagValues = new ArrayList<>();
-        List<ODNodeType> nodeTypes;
-
-        @XmlElement(name = "tag-values")
-        List<ODTagValues> getTagValues() {
-            return tagValues;
-        }
-
-        public void setTagValues(List<ODTagValues> tagValues) {
-            this.tagValues = tagValues;
-        }
-
-        @XmlElement(name = "node-type")
-        List<ODNodeType> getNodeTypes() {
-            return nodeTypes;
-        }
-
-        public void setNodeTypes(List<ODNodeType> nodeTypes) {
-            this.nodeTypes = nodeTypes;
-        }
-    }
-
-    /**
-     * Defines a node type
-     */
-    private static class ODNodeType {
-        String name;
-        List<ODTag> tags = new ArrayList<>();
-
-        /** Returns if the node type contains a matching tag key pattern and value */
-        public boolean hasTagValue(String k, String v) {
-            return tags.stream().anyMatch(t -> t.getK().matches(k) && v.equals(t.getV()));
-        }
-
-        /** Returns the tag with the given key, or null if not found */
-        public ODTag tag(String key) {
-            return tags.stream()
-                    .filter(t -> t.getK().equals(key))
-                    .findFirst()
-                    .orElse(null);
-        }
-
-        @XmlAttribute
-        public String getName() {
-            return name;
-        }
-
-        public void setName(String name) {
-            this.name = name;
-        }
-
-        @XmlElement(name = "tag")
-        public List<ODTag> getTags() {
-            return tags;
-        }
-
-        public void setTags(List<ODTag> tags) {
-            this.tags = tags;
-        }
-    }
-
-    /**
-     * Defines a node tag
-     */
-    @SuppressWarnings("unused")
-    private static class ODTag {
-        String k;
-        String v;
-        List<ODTagValues> tagValueRefs;
-        List<ODTagValue> tagValues;
-
-        @XmlAttribute
-        public String getK() {
-            return k;
-        }
-
-        public void setK(String k) {
-            this.k = k;
-        }
-
-        @XmlAttribute
-        public String getV() {
-            return v;
-        }
-
-        public void setV(String v) {
-            this.v = v;
-        }
-
-        @XmlElement(name = "tag-values")
-        List<ODTagValues> getTagValueRefs() {
-            return tagValueRefs;
-        }
-
-        public void setTagValueRefs(List<ODTagValues> tagValueRefs) {
-            this.tagValueRefs = tagValueRefs;
-        }
-
-        @XmlElement(name = "tag-value")
-        List<ODTagValue> getTagValues() {
-            return tagValues;
-        }
-
-        public void setTagValues(List<ODTagValue> tagValues) {
-            this.tagValues = tagValues;
-        }
-    }
-
-    /**
-     * List of tag values
-     */
-    @SuppressWarnings("unused")
-    private static class ODTagValues {
-        String id;
-        String ref;
-        List<ODTagValue> tags;
-
-        @XmlAttribute
-        public String getId() {
-            return id;
-        }
-
-        public void setId(String id) {
-            this.id = id;
-        }
-
-        @XmlAttribute
-        public String getRef() {
-            return ref;
-        }
-
-        public void setRef(String ref) {
-            this.ref = ref;
-        }
-
-        @XmlElement(name = "tag-value")
-        public List<ODTagValue> getTags() {
-            return tags;
-        }
-
-        public void setTags(List<ODTagValue> tags) {
-            this.tags = tags;
-        }
-    }
-
-
-    /**
-     * Defines a tag values
-     */
-    private static class ODTagValue {
-        String v;
-
-        @XmlAttribute
-        public String getV() {
-            return v;
-        }
-
-        public void setV(String v) {
-            this.v = v;
-        }
-    }
 }
@@ -32,6 +32,8 @@ import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
 import javax.persistence.Transient;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -74,6 +76,10 @@ public class AtonNode extends BaseEntity<Integer> {
     int changeset;
     Date timestamp;
 
+    // The time of the latest change to the entity. Used as the Hibernate Search index watermark
+    @Temporal(TemporalType.TIMESTAMP)
+    Date updated;
+
     @Column(columnDefinition = "GEOMETRY", nullable = false)
     Geometry geometry;
 
@@ -134,6 +140,7 @@ public class AtonNode extends BaseEntity<Integer> {
         if (timestamp == null) {
             timestamp = new Date();
         }
+        updated = new Date();
         geometry = JtsConverter.toJtsPoint(lat, lon);
     }
 
@@ -253,6 +260,8 @@ public class AtonNode extends BaseEntity<Integer> {
         this.version = template.getVersion();
         this.changeset = template.getChangeset();
         this.timestamp = template.getTimestamp();
+        // NB: Tag changes alone do not trigger the pre-update callback
+        this.updated = new Date();
         template.getTags().forEach(t -> updateTag(t.getK(), t.getV()));
     }
 
@@ -325,6 +334,14 @@ public class AtonNode extends BaseEntity<Integer> {
         this.timestamp = timestamp;
     }
 
+    public Date getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(Date updated) {
+        this.updated = updated;
+    }
+
     public List<AtonTag> getTags() {
         return tags;
     }
@@ -28,6 +28,8 @@ import org.niord.core.area.Area;
 import org.niord.core.chart.Chart;
 import org.niord.core.db.CriteriaHelper;
 import org.niord.core.db.SpatialWithinPredicate;
+import org.niord.core.map.VectorTileCache;
+import org.niord.core.map.VectorTileService;
 import org.niord.core.model.BaseEntity;
 import org.niord.core.service.BaseService;
 import org.niord.model.search.PagedSearchResultVo;
@@ -54,6 +56,9 @@ public class AtonService extends BaseService {
     @Inject
     private Logger log;
 
+    @Inject
+    VectorTileCache vectorTileCache;
+
     /*************************/
     /** NEW Aton Model      **/
     /*************************/
@@ -113,6 +118,22 @@ public class AtonService extends BaseService {
     }
 
 
+    /**
+     * Returns the tags of all AtoNs as key-value maps, without loading the AtoN entities.
+     * Can e.g. be used for computing the distinct AtoN tag signatures.
+     *
+     * @return the tags of all AtoNs
+     */
+    public Collection<Map<String, String>> getAllAtonTags() {
+        Map<Integer, Map<String, String>> atonTags = new HashMap<>();
+        em.createQuery("select t.atonNode.id, t.k, t.v from AtonTag t", Object[].class)
+                .getResultList()
+                .forEach(t -> atonTags.computeIfAbsent((Integer) t[0], id -> new HashMap<>())
+                        .put((String) t[1], (String) t[2]));
+        return atonTags.values();
+    }
+
+
     /**
      * Replaces the AtoN DB
      * @param atons the new AtoNs
@@ -142,6 +163,9 @@ public class AtonService extends BaseService {
                 em.flush();
             }
         }
+        if (created + updated > 0) {
+            vectorTileCache.invalidateLayer(VectorTileService.LAYER_ATONS);
+        }
         log.info(String.format("Updated %s AtoNs (created %d, updated %d, ignored %d) in %d ms",
                 atons.size(), created, updated, unchanged, System.currentTimeMillis() - t0));
     }
@@ -15,11 +15,15 @@
  */
 package org.niord.core.batch;
 
+import org.niord.core.metrics.Metrics;
 import org.slf4j.Logger;
 
 import javax.batch.api.listener.AbstractJobListener;
 import javax.batch.operations.JobOperator;
 import javax.batch.runtime.BatchRuntime;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.Metric;
+import javax.batch.runtime.StepExecution;
 import javax.batch.runtime.context.JobContext;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -93,6 +97,9 @@ public class BatchJobListener extends AbstractJobListener {
     @Override
     public void afterJob() throws Exception {
 
+        // Record the batch job metrics
+        recordMetrics();
+
         // Close all the batch logs - otherwise the will keep a lock on the log files.
         @SuppressWarnings("unchecked")
         Map<String, java.util.logging.Logger> logs = (Map<String, java.util.logging.Logger>)jobContext.getTransientUserData();
@@ -110,4 +117,31 @@ public class BatchJobListener extends AbstractJobListener {
         }
     }
 
+
+    /** Records the execution time and number of items written by the batch job **/
+    private void recordMetrics() {
+        try {
+            String jobName = jobContext.getJobName();
+            JobOperator jobOperator = BatchRuntime.getJobOperator();
+            JobExecution execution = jobOperator.getJobExecution(jobContext.getExecutionId());
+            if (execution.getStartTime() != null) {
+                long ms = System.currentTimeMillis() - execution.getStartTime().getTime();
+                Metrics.histogram("niord_batch_job_seconds", "Execution time of batch jobs", "job", jobName)
+                        .record(ms * 1000000L);
+            }
+
+            long writeCount = 0;
+            for (StepExecution step : jobOperator.getStepExecutions(jobContext.getExecutionId())) {
+                for (Metric metric : step.getMetrics()) {
+                    if (metric.getType() == Metric.MetricType.WRITE_COUNT) {
+                        writeCount += metric.getValue();
+                    }
+                }
+            }
+            Metrics.counter("niord_batch_items_written", "Number of items written by batch jobs", "job", jobName)
+                    .inc(writeCount);
+        } catch (Exception e) {
+            log.debug("Failed recording batch job metrics: " + e);
+        }
+    }
 }
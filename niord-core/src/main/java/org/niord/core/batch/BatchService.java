@@ -23,6 +23,7 @@ import org.niord.core.batch.vo.BatchInstanceVo;
 import org.niord.core.batch.vo.BatchStatusVo;
 import org.niord.core.batch.vo.BatchTypeVo;
 import org.niord.core.domain.DomainService;
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.sequence.DefaultSequence;
 import org.niord.core.sequence.Sequence;
 import org.niord.core.sequence.SequenceService;
@@ -39,6 +40,7 @@ import javax.batch.operations.NoSuchJobException;
 import javax.ejb.Schedule;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import java.io.*;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -80,6 +82,7 @@ import java.util.zip.GZIPOutputStream;
  * @see <a href="https://github.com/NiordOrg/niord-dk/tree/master/niord-dk-web">Example solution</a>
  */
 @Stateless
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class BatchService extends BaseService {
 
@@ -20,7 +20,9 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.niord.core.batch.vo.BatchSetVo;
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.repo.RepositoryService;
+import org.niord.core.startup.StartupService;
 import org.niord.core.util.JsonUtils;
 import org.slf4j.Logger;
 
@@ -34,6 +36,7 @@ import javax.ejb.Timer;
 import javax.ejb.TimerConfig;
 import javax.ejb.TimerService;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -65,11 +68,14 @@ import java.util.zip.ZipInputStream;
  */
 @Singleton
 @Startup
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class BatchSetService {
 
     public static final String BATCH_SETS_FOLDER = "batch-sets";
 
+    static final String STARTUP_PHASE = "batch-sets";
+
     @Inject
     Logger log;
 
@@ -82,21 +88,34 @@ public class BatchSetService {
     @Inject
     RepositoryService repositoryService;
 
+    @Inject
+    StartupService startupService;
+
 
     /**
-     * Check if a batch set has been specified via the "niord.batch-set" system setting
+     * Check asynchronously if a batch set has been specified via the "niord.batch-set" system setting
      **/
     @PostConstruct
     public void init() {
         if (StringUtils.isNotBlank(System.getProperty("niord.batch-set"))) {
+            startupService.register(STARTUP_PHASE, false);
+            timerService.createSingleActionTimer(StartupService.ASYNC_START_DELAY, new TimerConfig(STARTUP_PHASE, false));
+        }
+    }
+
 
+    /**
+     * Executes the batch set specified via the "niord.batch-set" system setting
+     **/
+    private void executeStartupBatchSet() {
+        startupService.run(STARTUP_PHASE, false, () -> {
             Path path = Paths.get(System.getProperty("niord.batch-set"));
             try {
                 executeBatchSetFromArchiveOrFolder(path);
             } catch (Exception e) {
                 log.error("Error reading batch set from folder " + path, e);
             }
-        }
+        });
     }
 
 
@@ -206,10 +225,15 @@ public class BatchSetService {
 
 
     /**
-     * Called in order to execute a batch set item
+     * Called in order to execute a batch set item, or the start-up batch set
      */
     @Timeout
     private void executeBatchSetItem(Timer timer) {
+        if (STARTUP_PHASE.equals(timer.getInfo())) {
+            executeStartupBatchSet();
+            return;
+        }
+
         BatchSetExecution batchSetExecution = (BatchSetExecution)timer.getInfo();
 
         String batchJobName = batchSetExecution.getBatchSetItem().getJobName();
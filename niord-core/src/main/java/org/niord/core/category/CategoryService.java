@@ -22,14 +22,17 @@ import org.niord.core.aton.vo.AtonNodeVo;
 import org.niord.core.db.CriteriaHelper;
 import org.niord.core.domain.Domain;
 import org.niord.core.domain.DomainService;
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.script.ScriptResource;
 import org.niord.core.service.TreeBaseService;
+import org.niord.core.web.SiteBundleVersion;
 import org.niord.model.search.PagedSearchParamsVo;
 import org.slf4j.Logger;
 
 import javax.ejb.Schedule;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
@@ -52,6 +55,7 @@ import java.util.stream.Collectors;
  * Business interface for accessing Niord categories
  */
 @Stateless
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class CategoryService extends TreeBaseService<Category> {
 
@@ -66,6 +70,9 @@ public class CategoryService extends TreeBaseService<Category> {
     @Inject
     NiordApp app;
 
+    @Inject
+    SiteBundleVersion siteBundleVersion;
+
 
     /***************************************/
     /** Category look-up                  **/
@@ -297,6 +304,9 @@ public class CategoryService extends TreeBaseService<Category> {
         original.getTemplateParams().clear();
         original.getTemplateParams().addAll(category.getTemplateParams());
 
+        // Domains, as emitted in the site-config bundle, include category names
+        siteBundleVersion.changed();
+
         return saveEntity(original);
     }
 
@@ -339,6 +349,7 @@ public class CategoryService extends TreeBaseService<Category> {
         category.updateLineage();
         category.updateActiveFlag();
         category = saveEntity(category);
+        siteBundleVersion.changed();
 
         em.flush();
         return category;
@@ -352,7 +363,11 @@ public class CategoryService extends TreeBaseService<Category> {
      * @return if the category was moved
      */
     public boolean moveCategory(Integer categoryId, Integer parentId) {
-        return moveEntity(Category.class, categoryId, parentId);
+        boolean moved = moveEntity(Category.class, categoryId, parentId);
+        if (moved) {
+            siteBundleVersion.changed();
+        }
+        return moved;
     }
 
 
@@ -383,6 +398,7 @@ public class CategoryService extends TreeBaseService<Category> {
             category.setParent(null);
             saveEntity(category);
             remove(category);
+            siteBundleVersion.changed();
             log.debug("Removed category " + categoryId);
             return true;
         }
@@ -17,11 +17,19 @@
 package org.niord.core.category;
 
 import org.niord.core.service.BaseService;
+import org.niord.core.startup.StartupService;
 import org.slf4j.Logger;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.SessionContext;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import java.util.Arrays;
 
@@ -41,10 +49,45 @@ public class TemplateInitService extends BaseService {
     @Inject
     TemplateExecutionService templateExecutionService;
 
+    static final String STARTUP_PHASE = "standard-param-types";
 
-    /** Called when the web application boots up **/
+    @Inject
+    StartupService startupService;
+
+    @Resource
+    TimerService timerService;
+
+    @Resource
+    SessionContext ctx;
+
+
+    /** Called when the web application boots up. Checks the parameter types asynchronously **/
     @PostConstruct
     void init() {
+        startupService.register(STARTUP_PHASE, true);
+        timerService.createSingleActionTimer(StartupService.ASYNC_START_DELAY, new TimerConfig(null, false));
+    }
+
+
+    /**
+     * Executes the start-up phase in a new transaction, and retries it upon failure
+     */
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    private void runCheckStandardParamTypes() {
+        TemplateInitService self = ctx.getBusinessObject(TemplateInitService.class);
+        try {
+            startupService.run(STARTUP_PHASE, true, self::checkCreateStandardParamTypes);
+        } catch (Exception e) {
+            long delay = startupService.getRetryDelay(STARTUP_PHASE);
+            log.error("Error checking standard parameter types. Retrying in " + delay + " ms", e);
+            timerService.createSingleActionTimer(delay, new TimerConfig(null, false));
+        }
+    }
+
+
+    /** Creates the standard parameter types that do not exist **/
+    public void checkCreateStandardParamTypes() {
         Arrays.stream(STANDARD_PARAM_TYPES)
                 .forEach(this::checkCreateStandardParamType);
     }
@@ -125,7 +125,7 @@ public class Chart extends VersionedEntity<Integer> {
 
         if (chart instanceof SystemChartVo) {
             SystemChartVo sysChart = (SystemChartVo)chart;
-            this.geometry = JtsConverter.toJts(sysChart.getGeometry());
+            this.geometry = JtsConverter.toJtsCopy(sysChart.getGeometry());
             this.horizontalDatum = sysChart.getHorizontalDatum();
         }
     }
@@ -15,55 +15,412 @@
  */
 package org.niord.core.db;
 
+import org.apache.lucene.index.IndexReader;
 import org.hibernate.search.batchindexing.impl.SimpleIndexingProgressMonitor;
 import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.Search;
+import org.niord.core.db.vo.SearchIndexStatusVo;
+import org.niord.core.db.vo.SearchIndexStatusVo.IndexMode;
 import org.niord.core.service.BaseService;
+import org.niord.core.settings.annotation.Setting;
+import org.niord.core.startup.StartupService;
 import org.slf4j.Logger;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
-import javax.ejb.*;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.SessionContext;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
+import javax.persistence.metamodel.EntityType;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.niord.core.settings.Setting.Type.Integer;
 
 /**
- * Launches the Hibernate Search index
+ * Launches and maintains the Hibernate Search indexes.
+ * <p>
+ * The indexes are persisted across restarts (see {@link SearchIndexDirectoryProvider}), and for each indexed
+ * entity type, the index state file records a watermark, i.e. the latest "updated" timestamp of the entities
+ * at the time they were indexed. Upon start-up, only the entities updated after the watermark are re-indexed.
+ * <p>
+ * A full, parallelized, re-index of an entity type is performed if there is no recorded index state,
+ * if the entity type has no "updated" attribute, or if the number of indexed documents is inconsistent
+ * with the number of entities, e.g. because entities have been deleted directly in the database.
+ * <p>
+ * While the application is running, Hibernate Search keeps the indexes up-to-date.
  */
 @Singleton
 @Startup
+@Lock(LockType.READ)
 @SuppressWarnings("unused")
 public class HibernateSearchIndexService extends BaseService {
 
+    static final String STATE_FILE = "index-state.properties";
+    static final String STARTUP_PHASE = "hibernate-search-index";
+
     @Inject
     private Logger log;
 
     @Resource
     TimerService timerService;
 
+    @Resource
+    SessionContext ctx;
+
+    @Inject
+    StartupService startupService;
+
+    @Inject
+    @Setting(value = "searchIndexBatchSize", defaultValue = "100", type = Integer,
+            description = "The number of entities loaded per batch when updating the Hibernate Search indexes")
+    Integer batchSize;
+
+    @Inject
+    @Setting(value = "searchIndexThreads", defaultValue = "4", type = Integer,
+            description = "The number of threads used for loading entities when rebuilding the Hibernate Search indexes")
+    Integer threads;
+
+    /** The latest index state of the indexed entity types, keyed by entity name **/
+    private final Map<String, SearchIndexStatusVo> indexStates = new ConcurrentHashMap<>();
+
+    private volatile boolean indexing = true;
+
+
     /** Called upon application startup */
     @PostConstruct
     public void init() {
-        // In order not to stall webapp deployment, wait 2 seconds starting the search index
-        timerService.createSingleActionTimer(2000, new TimerConfig());
+        loadIndexState();
+
+        // In order not to stall webapp deployment, update the search index asynchronously
+        startupService.register(STARTUP_PHASE, true);
+        timerService.createSingleActionTimer(StartupService.ASYNC_START_DELAY, new TimerConfig());
     }
 
+
     /**
-     * Creates the full text indexes
+     * Updates the full text indexes, by either re-indexing the entities updated since the
+     * last recorded watermark, or by rebuilding the full index of an entity type
      */
     @Timeout
-    private void generateFullTextIndexes() {
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    private void updateFullTextIndexes() {
+        indexing = true;
+        startupService.start(STARTUP_PHASE);
         try {
-            log.info("Start Hibernate Search indexer");
+            // The index update runs in a transaction of its own. Only record the new
+            // index states once the index changes have been committed
+            List<SearchIndexStatusVo> updatedStates = ctx.getBusinessObject(HibernateSearchIndexService.class)
+                    .updateIndexes();
+            updatedStates.forEach(s -> indexStates.put(s.getEntity(), s));
+            saveIndexState();
+            startupService.complete(STARTUP_PHASE);
+        } catch (Exception e) {
+            // Retry, so that e.g. a transient database error does not leave the application unready
+            startupService.fail(STARTUP_PHASE, e);
+            long delay = startupService.getRetryDelay(STARTUP_PHASE);
+            log.error("Error updating Hibernate Search indexes. Retrying in " + delay + " ms", e);
+            timerService.createSingleActionTimer(delay, new TimerConfig());
+        } finally {
+            indexing = false;
+        }
+    }
+
+
+    /**
+     * Re-indexes the stale entities and rebuilds the inconsistent indexes.
+     * Called from the start-up timer only.
+     * @return the updated index states
+     */
+    public List<SearchIndexStatusVo> updateIndexes() throws InterruptedException {
+        log.info("Start Hibernate Search indexer");
+        long t0 = System.currentTimeMillis();
+
+        FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
+        List<SearchIndexStatusVo> updatedStates = new ArrayList<>();
+        List<Class<?>> rebuildTypes = new ArrayList<>();
+
+        for (Class<?> type : fullTextEntityManager.getSearchFactory().getIndexedTypes()) {
+            String entity = entityName(type);
+            SearchIndexStatusVo state = indexStates.get(entity);
+            boolean watermarkSupported = hasUpdatedAttribute(type);
+
+            if (state == null || state.getWatermark() == null || !watermarkSupported) {
+                rebuildTypes.add(type);
+                continue;
+            }
+
+            // Determine the entities updated after the watermark
+            long t1 = System.currentTimeMillis();
+            Date watermark = latestUpdate(type);
+            List<Object> staleIds = em
+                    .createQuery("select e.id from " + entity + " e where e.updated > :watermark", Object.class)
+                    .setParameter("watermark", state.getWatermark())
+                    .getResultList();
+
+            // The stale entities may or may not be indexed already, but the index must contain at least
+            // the non-stale entities and no more than all entities. Otherwise, rebuild the index.
+            long entityCount = entityCount(type);
+            long indexedCount = indexedCount(type);
+            if (indexedCount > entityCount || indexedCount < entityCount - staleIds.size()) {
+                log.info(String.format("Index of %s is inconsistent (%d entities, %d indexed)",
+                        entity, entityCount, indexedCount));
+                rebuildTypes.add(type);
+                continue;
+            }
+
+            reindexEntities(fullTextEntityManager, type, staleIds);
+
+            updatedStates.add(newIndexState(
+                    entity,
+                    watermark != null ? watermark : state.getWatermark(),
+                    IndexMode.INCREMENTAL,
+                    staleIds.size(),
+                    System.currentTimeMillis() - t1));
+            log.info(String.format("Re-indexed %d stale %s entities in %d ms",
+                    staleIds.size(), entity, System.currentTimeMillis() - t1));
+        }
+
+        if (!rebuildTypes.isEmpty()) {
+            updatedStates.addAll(rebuildIndexes(fullTextEntityManager, rebuildTypes));
+        }
+
+        log.info("Updated Hibernate Search indexes in " + (System.currentTimeMillis() - t0) + " ms");
+        return updatedStates;
+    }
+
+
+    /**
+     * Re-indexes the entities with the given IDs in batches
+     * @param fullTextEntityManager the full text entity manager
+     * @param type the entity type
+     * @param ids the IDs of the entities to re-index
+     */
+    private void reindexEntities(FullTextEntityManager fullTextEntityManager, Class<?> type, List<Object> ids) {
+        String entity = entityName(type);
+        int batch = Math.max(1, batchSize);
+        for (int x = 0; x < ids.size(); x += batch) {
+            em.createQuery("select e from " + entity + " e where e.id in :ids", type)
+                    .setParameter("ids", ids.subList(x, Math.min(ids.size(), x + batch)))
+                    .getResultList()
+                    .forEach(fullTextEntityManager::index);
+            fullTextEntityManager.flushToIndexes();
+            fullTextEntityManager.clear();
+        }
+    }
+
+
+    /**
+     * Rebuilds the full indexes of the given entity types
+     * @param fullTextEntityManager the full text entity manager
+     * @param types the entity types to rebuild the indexes for
+     * @return the new index states
+     */
+    private List<SearchIndexStatusVo> rebuildIndexes(FullTextEntityManager fullTextEntityManager, List<Class<?>> types)
+            throws InterruptedException {
+
+        String entities = types.stream().map(this::entityName).collect(Collectors.joining(", "));
+        log.info("Rebuilding Hibernate Search indexes of " + entities);
+
+        // Record the watermarks before indexing. Entities updated during the re-index are
+        // indexed by Hibernate Search upon commit anyway.
+        List<Date> watermarks = types.stream()
+                .map(t -> hasUpdatedAttribute(t) ? latestUpdate(t) : null)
+                .collect(Collectors.toList());
 
-            long t0 = System.currentTimeMillis();
-            FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
-            fullTextEntityManager.createIndexer()
-                    .progressMonitor(new SimpleIndexingProgressMonitor(5000))
-                    .startAndWait();
-            log.info("Created Hibernate Search indexes in " + (System.currentTimeMillis() - t0) + " ms");
+        long t0 = System.currentTimeMillis();
+        fullTextEntityManager.createIndexer(types.toArray(new Class<?>[types.size()]))
+                .typesToIndexInParallel(Math.min(types.size(), Math.max(1, threads)))
+                .threadsToLoadObjects(Math.max(1, threads))
+                .batchSizeToLoadObjects(Math.max(1, batchSize))
+                .idFetchSize(Math.max(1, batchSize) * 10)
+                .progressMonitor(new SimpleIndexingProgressMonitor(5000))
+                .startAndWait();
+        long time = System.currentTimeMillis() - t0;
+        log.info("Rebuilt Hibernate Search indexes of " + entities + " in " + time + " ms");
 
+        List<SearchIndexStatusVo> states = new ArrayList<>();
+        for (int x = 0; x < types.size(); x++) {
+            Class<?> type = types.get(x);
+            // Entity types without an "updated" attribute get a watermark of 0, which is
+            // ignored since such types are always rebuilt
+            Date watermark = watermarks.get(x) != null ? watermarks.get(x) : new Date(0);
+            states.add(newIndexState(entityName(type), watermark, IndexMode.FULL, entityCount(type), time));
+        }
+        return states;
+    }
+
+
+    /**
+     * Returns the freshness of the indexes of all indexed entity types
+     * @return the freshness of the indexes
+     */
+    public List<SearchIndexStatusVo> getIndexStatus() {
+        FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
+
+        List<SearchIndexStatusVo> result = new ArrayList<>();
+        for (Class<?> type : fullTextEntityManager.getSearchFactory().getIndexedTypes()) {
+            String entity = entityName(type);
+            SearchIndexStatusVo state = indexStates.get(entity);
+
+            SearchIndexStatusVo status = new SearchIndexStatusVo();
+            status.setEntity(entity);
+            status.setIndexing(indexing);
+            status.setEntityCount(entityCount(type));
+            status.setIndexedCount(indexedCount(type));
+            status.setLatestUpdate(hasUpdatedAttribute(type) ? latestUpdate(type) : null);
+            if (state != null) {
+                status.setWatermark(state.getWatermark());
+                status.setLastIndexed(state.getLastIndexed());
+                status.setLastIndexMode(state.getLastIndexMode());
+                status.setLastIndexedEntities(state.getLastIndexedEntities());
+                status.setLastIndexTime(state.getLastIndexTime());
+            }
+            status.setFresh(!indexing && state != null && status.getIndexedCount() == status.getEntityCount());
+            result.add(status);
+        }
+        result.sort(Comparator.comparing(SearchIndexStatusVo::getEntity));
+        return result;
+    }
+
+
+    /*************************/
+    /** Entity helpers      **/
+    /*************************/
+
+
+    /** Returns the JPA entity name of the type **/
+    private String entityName(Class<?> type) {
+        return em.getMetamodel().entity(type).getName();
+    }
+
+
+    /** Returns if the entity type has an "updated" attribute that can be used as a watermark **/
+    private boolean hasUpdatedAttribute(Class<?> type) {
+        EntityType<?> entityType = em.getMetamodel().entity(type);
+        return entityType.getAttributes().stream()
+                .anyMatch(a -> "updated".equals(a.getName()) && Date.class.isAssignableFrom(a.getJavaType()));
+    }
+
+
+    /** Returns the latest "updated" timestamp of the entity type **/
+    private Date latestUpdate(Class<?> type) {
+        return em.createQuery("select max(e.updated) from " + entityName(type) + " e", Date.class)
+                .getSingleResult();
+    }
+
+
+    /** Returns the number of entities of the entity type **/
+    private long entityCount(Class<?> type) {
+        return em.createQuery("select count(e) from " + entityName(type) + " e", Long.class)
+                .getSingleResult();
+    }
+
+
+    /** Returns the number of indexed documents of the entity type **/
+    private long indexedCount(Class<?> type) {
+        FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
+        IndexReader reader = fullTextEntityManager.getSearchFactory().getIndexReaderAccessor().open(type);
+        try {
+            return reader.numDocs();
+        } finally {
+            fullTextEntityManager.getSearchFactory().getIndexReaderAccessor().close(reader);
+        }
+    }
+
+
+    /*************************/
+    /** Index state         **/
+    /*************************/
+
+
+    /** Creates a new index state **/
+    private SearchIndexStatusVo newIndexState(String entity, Date watermark, IndexMode mode, long count, long time) {
+        SearchIndexStatusVo state = new SearchIndexStatusVo();
+        state.setEntity(entity);
+        state.setWatermark(watermark);
+        state.setLastIndexed(new Date());
+        state.setLastIndexMode(mode);
+        state.setLastIndexedEntities(count);
+        state.setLastIndexTime(time);
+        return state;
+    }
+
+
+    /** Loads the index state file from the index base folder **/
+    private void loadIndexState() {
+        Path file = SearchIndexDirectoryProvider.getIndexBase().resolve(STATE_FILE);
+        if (!Files.isRegularFile(file)) {
+            log.info("No Hibernate Search index state found at " + file);
+            return;
+        }
+
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(file)) {
+            props.load(in);
+            for (String key : props.stringPropertyNames()) {
+                if (key.endsWith(".watermark")) {
+                    String entity = key.substring(0, key.length() - ".watermark".length());
+                    indexStates.put(entity, newIndexState(
+                            entity,
+                            new Date(Long.parseLong(props.getProperty(key))),
+                            IndexMode.valueOf(props.getProperty(entity + ".mode", IndexMode.FULL.name())),
+                            Long.parseLong(props.getProperty(entity + ".count", "0")),
+                            Long.parseLong(props.getProperty(entity + ".time", "0"))));
+                    indexStates.get(entity).setLastIndexed(
+                            new Date(Long.parseLong(props.getProperty(entity + ".indexed", "0"))));
+                }
+            }
         } catch (Exception e) {
-            log.error("Error indexing AtoNs", e);
+            // Results in a full re-index
+            log.error("Error reading Hibernate Search index state " + file, e);
+            indexStates.clear();
+        }
+    }
+
+
+    /** Saves the index state file to the index base folder **/
+    private void saveIndexState() {
+        Path file = SearchIndexDirectoryProvider.getIndexBase().resolve(STATE_FILE);
+
+        Properties props = new Properties();
+        indexStates.values().forEach(s -> {
+            props.setProperty(s.getEntity() + ".watermark", String.valueOf(s.getWatermark().getTime()));
+            props.setProperty(s.getEntity() + ".indexed", String.valueOf(s.getLastIndexed().getTime()));
+            props.setProperty(s.getEntity() + ".mode", s.getLastIndexMode().name());
+            props.setProperty(s.getEntity() + ".count", String.valueOf(s.getLastIndexedEntities()));
+            props.setProperty(s.getEntity() + ".time", String.valueOf(s.getLastIndexTime()));
+        });
+
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmpFile = Files.createTempFile(file.getParent(), "index-state", ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmpFile)) {
+                props.store(out, "Hibernate Search index state");
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Error writing Hibernate Search index state " + file, e);
         }
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.db;
+
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.search.spi.BuildContext;
+import org.hibernate.search.store.impl.FSDirectoryProvider;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * A file system directory provider for the Hibernate Search indexes, which places the indexes
+ * in a persistent location, so that they survive application restarts and re-deployments.
+ * <p>
+ * Unless the "indexBase" is defined explicitly in persistence.xml, the index base is resolved as:
+ * <ul>
+ *     <li>The value of the "niord.searchIndexBase" system property, if defined.</li>
+ *     <li>Otherwise, the "search-index" folder of the "niord.home" system property, if defined.</li>
+ *     <li>Otherwise, the "${user.home}/.niord/search-index" folder.</li>
+ * </ul>
+ * NB: The "niord.home" setting of the database is not available when the persistence unit is bootstrapped,
+ * which is why system properties are used.
+ */
+public class SearchIndexDirectoryProvider extends FSDirectoryProvider {
+
+    public static final String INDEX_BASE_PROPERTY = "niord.searchIndexBase";
+
+    private static volatile Path indexBase = resolveDefaultIndexBase();
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public void initialize(String directoryProviderName, Properties properties, BuildContext context) {
+        // NB: The properties passed along are backed by defaults, so copy all property names
+        Properties props = new Properties();
+        properties.stringPropertyNames().forEach(key -> props.setProperty(key, properties.getProperty(key)));
+
+        if (StringUtils.isBlank(props.getProperty("indexBase"))) {
+            props.setProperty("indexBase", indexBase.toString());
+        } else {
+            indexBase = Paths.get(props.getProperty("indexBase"));
+        }
+
+        super.initialize(directoryProviderName, props, context);
+    }
+
+
+    /** Resolves the default index base from system properties **/
+    private static Path resolveDefaultIndexBase() {
+        String base = System.getProperty(INDEX_BASE_PROPERTY);
+        if (StringUtils.isNotBlank(base)) {
+            return Paths.get(base);
+        }
+        String niordHome = System.getProperty("niord.home");
+        if (StringUtils.isBlank(niordHome)) {
+            niordHome = Paths.get(System.getProperty("user.home"), ".niord").toString();
+        }
+        return Paths.get(niordHome, "search-index");
+    }
+
+
+    /** Returns the root folder of the Hibernate Search indexes **/
+    public static Path getIndexBase() {
+        return indexBase;
+    }
+}
@@ -16,11 +16,19 @@
 package org.niord.core.db;
 
 import org.niord.core.service.BaseService;
+import org.niord.core.startup.StartupService;
 import org.slf4j.Logger;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.SessionContext;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import java.util.List;
 
@@ -36,25 +44,57 @@ public class SpatialIndexCreator extends BaseService {
     @Inject
     private Logger log;
 
+    static final String STARTUP_PHASE = "spatial-indexes";
+
+    @Inject
+    StartupService startupService;
+
+    @Resource
+    TimerService timerService;
+
+    @Resource
+    SessionContext ctx;
+
 
     /**
-     * Checks and creates spatial indexes
+     * Checks and creates spatial indexes asynchronously, concurrently with the other start-up phases
      */
     @PostConstruct
-    private void createSpatialIndexes() {
+    private void init() {
+        startupService.register(STARTUP_PHASE, true);
+        timerService.createSingleActionTimer(StartupService.ASYNC_START_DELAY, new TimerConfig(null, false));
+    }
 
-        try {
-            if (!hasIndex("Feature", "feature_geometry_index")) {
-                createSpatialIndex("Feature", "geometry", "feature_geometry_index");
-                log.info("Created spatial index on Feature.geometry");
-            }
 
-            if (!hasIndex("AtonNode", "aton_node_geometry")) {
-                createSpatialIndex("AtonNode", "geometry", "aton_node_geometry");
-                log.info("Created spatial index on AtonNode.geometry");
-            }
+    /**
+     * Executes the start-up phase in a new transaction, and retries it upon failure
+     */
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    private void runCreateSpatialIndexes() {
+        SpatialIndexCreator self = ctx.getBusinessObject(SpatialIndexCreator.class);
+        try {
+            startupService.run(STARTUP_PHASE, true, self::createSpatialIndexes);
         } catch (Exception e) {
-            log.error("Failed checking/creating spatial indexes", e);
+            long delay = startupService.getRetryDelay(STARTUP_PHASE);
+            log.error("Failed checking/creating spatial indexes. Retrying in " + delay + " ms", e);
+            timerService.createSingleActionTimer(delay, new TimerConfig(null, false));
+        }
+    }
+
+
+    /**
+     * Checks and creates spatial indexes
+     */
+    public void createSpatialIndexes() {
+        if (!hasIndex("Feature", "feature_geometry_index")) {
+            createSpatialIndex("Feature", "geometry", "feature_geometry_index");
+            log.info("Created spatial index on Feature.geometry");
+        }
+
+        if (!hasIndex("AtonNode", "aton_node_geometry")) {
+            createSpatialIndex("AtonNode", "geometry", "aton_node_geometry");
+            log.info("Created spatial index on AtonNode.geometry");
         }
     }
 
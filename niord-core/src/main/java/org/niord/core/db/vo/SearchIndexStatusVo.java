@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.db.vo;
+
+import org.niord.model.IJsonSerializable;
+
+import java.util.Date;
+
+/**
+ * Reports the freshness of the Hibernate Search index of an indexed entity type
+ */
+@SuppressWarnings("unused")
+public class SearchIndexStatusVo implements IJsonSerializable {
+
+    /** The mode of the latest index update **/
+    public enum IndexMode { FULL, INCREMENTAL }
+
+    String entity;
+    boolean indexing;
+    boolean fresh;
+    long entityCount;
+    long indexedCount;
+    Date watermark;
+    Date latestUpdate;
+    Date lastIndexed;
+    IndexMode lastIndexMode;
+    long lastIndexedEntities;
+    long lastIndexTime;
+
+    /*************************/
+    /** Getters and Setters **/
+    /*************************/
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+
+    public boolean isIndexing() {
+        return indexing;
+    }
+
+    public void setIndexing(boolean indexing) {
+        this.indexing = indexing;
+    }
+
+    public boolean isFresh() {
+        return fresh;
+    }
+
+    public void setFresh(boolean fresh) {
+        this.fresh = fresh;
+    }
+
+    public long getEntityCount() {
+        return entityCount;
+    }
+
+    public void setEntityCount(long entityCount) {
+        this.entityCount = entityCount;
+    }
+
+    public long getIndexedCount() {
+        return indexedCount;
+    }
+
+    public void setIndexedCount(long indexedCount) {
+        this.indexedCount = indexedCount;
+    }
+
+    public Date getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(Date watermark) {
+        this.watermark = watermark;
+    }
+
+    public Date getLatestUpdate() {
+        return latestUpdate;
+    }
+
+    public void setLatestUpdate(Date latestUpdate) {
+        this.latestUpdate = latestUpdate;
+    }
+
+    public Date getLastIndexed() {
+        return lastIndexed;
+    }
+
+    public void setLastIndexed(Date lastIndexed) {
+        this.lastIndexed = lastIndexed;
+    }
+
+    public IndexMode getLastIndexMode() {
+        return lastIndexMode;
+    }
+
+    public void setLastIndexMode(IndexMode lastIndexMode) {
+        this.lastIndexMode = lastIndexMode;
+    }
+
+    public long getLastIndexedEntities() {
+        return lastIndexedEntities;
+    }
+
+    public void setLastIndexedEntities(long lastIndexedEntities) {
+        this.lastIndexedEntities = lastIndexedEntities;
+    }
+
+    public long getLastIndexTime() {
+        return lastIndexTime;
+    }
+
+    public void setLastIndexTime(long lastIndexTime) {
+        this.lastIndexTime = lastIndexTime;
+    }
+}
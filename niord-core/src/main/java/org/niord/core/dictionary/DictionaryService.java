@@ -22,14 +22,23 @@ import org.niord.core.aton.vo.AtonNodeVo;
 import org.niord.core.dictionary.vo.DictionaryEntryVo;
 import org.niord.core.dictionary.vo.DictionaryVo;
 import org.niord.core.service.BaseService;
+import org.niord.core.startup.StartupService;
+import org.niord.core.web.SiteBundleVersion;
 import org.niord.model.DataFilter;
 import org.slf4j.Logger;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import javax.ejb.Lock;
 import javax.ejb.LockType;
+import javax.ejb.SessionContext;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.script.ScriptException;
 import java.io.IOException;
@@ -57,6 +66,8 @@ import java.util.stream.Collectors;
 @SuppressWarnings("unused")
 public class DictionaryService extends BaseService {
 
+    static final String STARTUP_PHASE = "dictionaries";
+
     public static final String[] DEFAULT_BUNDLES = {"web", "message", "pdf", "mail", "template"};
 
     @Inject
@@ -65,22 +76,64 @@ public class DictionaryService extends BaseService {
     @Inject
     private NiordApp app;
 
+    @Inject
+    private SiteBundleVersion siteBundleVersion;
+
+    @Inject
+    StartupService startupService;
+
+    @Resource
+    TimerService timerService;
+
+    @Resource
+    SessionContext ctx;
+
     private Map<String, DictionaryVo> cachedDictionaries = new ConcurrentHashMap<>();
 
     /**
      * Called when the system starts up.
+     * Loads the dictionaries asynchronously, concurrently with the other start-up phases
      */
     @PostConstruct
     private void init() {
+        startupService.register(STARTUP_PHASE, true);
+        timerService.createSingleActionTimer(StartupService.ASYNC_START_DELAY, new TimerConfig());
+    }
+
+
+    /**
+     * Loads the dictionaries in a transaction of their own, and retries upon failure
+     */
+    @Timeout
+    @Lock(LockType.WRITE)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    private void loadDictionaries() {
+        DictionaryService self = ctx.getBusinessObject(DictionaryService.class);
+        try {
+            startupService.run(STARTUP_PHASE, true, self::cacheDictionaries);
+        } catch (Exception e) {
+            // Retry, so that e.g. a transient database error does not leave the application unready
+            long delay = startupService.getRetryDelay(STARTUP_PHASE);
+            log.error("Error loading dictionaries. Retrying in " + delay + " ms", e);
+            timerService.createSingleActionTimer(delay, new TimerConfig());
+        }
+    }
+
+
+    /**
+     * Caches all dictionaries and loads the default resource bundles into the dictionaries.
+     * Called from the start-up timer only.
+     */
+    @Lock(LockType.WRITE)
+    public void cacheDictionaries() {
+        // Load default resource bundles into dictionaries
+        loadDefaultResourceBundles(false);
 
         // Cache all dictionaries
         long t0 = System.currentTimeMillis();
         List<Dictionary> dictionaries = getAll(Dictionary.class);
         dictionaries.forEach(d -> getCachedDictionary(d.getName()));
         log.info(String.format("Cached %d dictionaries in %d ms", dictionaries.size(), System.currentTimeMillis() - t0));
-
-        // Load default resource bundles into dictionaries
-        loadDefaultResourceBundles(false);
     }
 
 
@@ -146,7 +199,7 @@ public class DictionaryService extends BaseService {
         saveEntity(dict);
 
         // Remove the cached dictionary
-        cachedDictionaries.remove(name);
+        evictCachedDictionary(name);
 
         return entry;
     }
@@ -178,7 +231,7 @@ public class DictionaryService extends BaseService {
         saveEntity(original);
 
         // Remove the cached dictionary
-        cachedDictionaries.remove(name);
+        evictCachedDictionary(name);
 
         return original;
     }
@@ -209,12 +262,23 @@ public class DictionaryService extends BaseService {
         saveEntity(dict);
 
         // Remove the cached dictionary
-        cachedDictionaries.remove(name);
+        evictCachedDictionary(name);
 
         return true;
     }
 
 
+    /**
+     * Removes the cached dictionary with the given name and flags that the site bundles must be re-generated
+     *
+     * @param name the name
+     */
+    private void evictCachedDictionary(String name) {
+        cachedDictionaries.remove(name);
+        siteBundleVersion.changed();
+    }
+
+
     /**
      * Returns the cached dictionary with the given name.
      *
@@ -392,7 +456,7 @@ public class DictionaryService extends BaseService {
             }
 
             // Remove the cached dictionary
-            cachedDictionaries.remove(name);
+            evictCachedDictionary(name);
 
             log.info(String.format("Persisted %d new '%s' dictionary entries in %d ms",
                     undefKeys.size(), name, System.currentTimeMillis() - t0));
@@ -429,7 +493,7 @@ public class DictionaryService extends BaseService {
         }
 
         // Remove the cached dictionary
-        cachedDictionaries.remove(name);
+        evictCachedDictionary(name);
 
         log.info(String.format("Persisted %d '%s' dictionary entries in %d ms",
                 properties.size(), name, System.currentTimeMillis() - t0));
@@ -460,7 +524,7 @@ public class DictionaryService extends BaseService {
         saveEntity(original);
 
         // Remove the cached dictionary
-        cachedDictionaries.remove(dictionary.getName());
+        evictCachedDictionary(dictionary.getName());
 
         log.info(String.format("Persisted and updated %d '%s' dictionary entries in %d ms",
                 dictionary.getEntries().size(), dictionary.getName(), System.currentTimeMillis() - t0));
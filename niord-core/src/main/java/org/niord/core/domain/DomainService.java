@@ -21,16 +21,20 @@ import org.niord.core.category.Category;
 import org.niord.core.keycloak.KeycloakIntegrationService;
 import org.niord.core.message.MessageSeriesService;
 import org.niord.core.service.BaseService;
+import org.niord.core.user.IdentityContext;
 import org.niord.core.user.TicketService;
 import org.niord.core.user.UserService;
+import org.niord.core.web.SiteBundleVersion;
 import org.slf4j.Logger;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -42,6 +46,11 @@ public class DomainService extends BaseService {
 
     private final static ThreadLocal<String> THREAD_LOCAL_DOMAIN = new ThreadLocal<>();
 
+    /** Maps domain IDs to the primary keys of the domain entities, which are second-level cached **/
+    private final static Map<String, Integer> DOMAIN_KEYS = new ConcurrentHashMap<>();
+
+    private final static String CURRENT_DOMAIN = "currentDomain";
+
     @Inject
     Logger log;
 
@@ -57,9 +66,24 @@ public class DomainService extends BaseService {
     @Inject
     TicketService ticketService;
 
+    @Inject
+    SiteBundleVersion siteBundleVersion;
+
+    @Inject
+    IdentityContext identityContext;
+
 
-    /** Returns the current domain or null if none are set */
+    /**
+     * Returns the current domain or null if none are set.
+     * The current domain is only resolved once per transaction.
+     */
     public Domain currentDomain() {
+        return identityContext.resolve(CURRENT_DOMAIN, this::resolveCurrentDomain);
+    }
+
+
+    /** Resolves the current domain or null if none are set */
+    private Domain resolveCurrentDomain() {
 
         Domain currentDomain = null;
 
@@ -92,6 +116,7 @@ public class DomainService extends BaseService {
     public void setDomainForCurrentThread(String domainId) {
         if (StringUtils.isNotBlank(domainId)) {
             THREAD_LOCAL_DOMAIN.set(domainId);
+            identityContext.evict(CURRENT_DOMAIN);
         }
     }
 
@@ -104,6 +129,7 @@ public class DomainService extends BaseService {
      */
     public void removeDomainForCurrentThread() {
         THREAD_LOCAL_DOMAIN.remove();
+        identityContext.evict(CURRENT_DOMAIN);
     }
 
 
@@ -113,11 +139,29 @@ public class DomainService extends BaseService {
      * @return the domain with the given domainId
      */
     public Domain findByDomainId(String domainId) {
+        if (domainId == null) {
+            return null;
+        }
+
+        // Look up the domain by primary key, which is served by the persistence context or the second-level cache
+        Integer key = DOMAIN_KEYS.get(domainId);
+        if (key != null) {
+            Domain domain = em.find(Domain.class, key);
+            if (domain != null && domainId.equals(domain.getDomainId())) {
+                return domain;
+            }
+            DOMAIN_KEYS.remove(domainId);
+        }
+
         try {
-            return em
+            Domain domain = em
                     .createNamedQuery("Domain.findByDomainId", Domain.class)
                     .setParameter("domainId", domainId)
                     .getSingleResult();
+            if (domain.getId() != null) {
+                DOMAIN_KEYS.put(domainId, domain.getId());
+            }
+            return domain;
         } catch (Exception e) {
             return null;
         }
@@ -245,7 +289,12 @@ public class DomainService extends BaseService {
         // Substitute the message series with the persisted ones
         original.setMessageSeries(messageSeriesService.persistedMessageSeries(domain.getMessageSeries()));
 
-        return saveEntity(original);
+        original = saveEntity(original);
+
+        // Flag that the site-config bundle must be re-generated
+        siteBundleVersion.changed();
+
+        return original;
     }
 
 
@@ -272,6 +321,9 @@ public class DomainService extends BaseService {
 
         domain = saveEntity(domain);
 
+        // Flag that the site-config bundle must be re-generated
+        siteBundleVersion.changed();
+
         // If request, create the domain in Keycloak - but do not throw an error in case of an error
         if (createInKeycloak) {
             try {
@@ -295,6 +347,8 @@ public class DomainService extends BaseService {
         Domain domain = findByDomainId(domainId);
         if (domain != null) {
             remove(domain);
+            DOMAIN_KEYS.remove(domainId);
+            siteBundleVersion.changed();
             return true;
         }
         return false;
@@ -102,7 +102,7 @@ public class Feature extends BaseEntity<Integer> implements IndexedEntity {
             feature.setUid(vo.getId().toString());
         }
         feature.getProperties().putAll(vo.getProperties());
-        feature.setGeometry(JtsConverter.toJts(vo.getGeometry()));
+        feature.setGeometry(JtsConverter.toJtsCopy(vo.getGeometry()));
         return feature;
     }
 
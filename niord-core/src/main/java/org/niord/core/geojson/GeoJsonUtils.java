@@ -62,6 +62,25 @@ public class GeoJsonUtils {
 
     /** Rounds the coordinates of the GeoJson object */
     public static void roundCoordinates(GeoJsonVo g, int decimals) {
+        if (g instanceof FeatureCollectionVo) {
+            FeatureVo[] features = ((FeatureCollectionVo) g).getFeatures();
+            if (features != null) {
+                Arrays.stream(features).forEach(f -> roundCoordinates(f, decimals));
+            }
+            return;
+        } else if (g instanceof FeatureVo) {
+            if (((FeatureVo) g).getGeometry() != null) {
+                roundCoordinates(((FeatureVo) g).getGeometry(), decimals);
+            }
+            return;
+        } else if (g instanceof GeometryCollectionVo) {
+            GeometryVo[] geometries = ((GeometryCollectionVo) g).getGeometries();
+            if (geometries != null) {
+                Arrays.stream(geometries).forEach(gc -> roundCoordinates(gc, decimals));
+            }
+            return;
+        }
+
         g.visitCoordinates(c -> {
             c[0] = new BigDecimal(c[0]).setScale(decimals, RoundingMode.HALF_EVEN).doubleValue();
             c[1] = new BigDecimal(c[1]).setScale(decimals, RoundingMode.HALF_EVEN).doubleValue();
@@ -117,18 +136,9 @@ public class GeoJsonUtils {
         if (g == null || g.length == 0) {
             return null;
         }
-        double[][] bboxes = Arrays.stream(g)
-                .map(GeoJsonVo::computeBBox)
-                .toArray(double[][]::new);
-        if (bboxes.length == 0) {
-            return null;
-        }
         double[] bbox = { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE };
-        for (double[] b : bboxes) {
-            bbox[0] = Math.min(bbox[0], b[0]);
-            bbox[1] = Math.min(bbox[1], b[1]);
-            bbox[2] = Math.max(bbox[2], b[2]);
-            bbox[3] = Math.max(bbox[3], b[3]);
+        for (GeoJsonVo geoJson : g) {
+            geoJson.extendBBox(bbox);
         }
         return bbox;
     }
@@ -399,21 +409,21 @@ public class GeoJsonUtils {
             } else if (g instanceof LineStringVo) {
                 serializeCoordinates(((LineStringVo)g).getCoordinates(), IncludeCoord.ALL, sf, properties, language, index);
             } else if (g instanceof PolygonVo) {
-                PolygonVo pol = (PolygonVo)g;
-                for (int ring = 0; pol.getCoordinates() != null && ring < pol.getCoordinates().length; ring++) {
+                double[][][] coords = ((PolygonVo)g).getCoordinates();
+                for (int ring = 0; coords != null && ring < coords.length; ring++) {
                     IncludeCoord incl = ring == 0 ? IncludeCoord.ALL_BUT_LAST : IncludeCoord.NONE;
-                    serializeCoordinates(pol.getCoordinates()[ring], incl, sf, properties, language, index);
+                    serializeCoordinates(coords[ring], incl, sf, properties, language, index);
                 }
             } else if (g instanceof MultiPointVo) {
                 serializeCoordinates(((MultiPointVo)g).getCoordinates(), IncludeCoord.ALL, sf, properties, language, index);
             } else if (g instanceof MultiLineStringVo) {
                 serializeCoordinates(((MultiLineStringVo)g).getCoordinates(), IncludeCoord.ALL, sf, properties, language, index);
             } else if (g instanceof MultiPolygonVo) {
-                MultiPolygonVo mp = (MultiPolygonVo)g;
-                for (int p = 0; mp.getCoordinates() != null && p < mp.getCoordinates().length; p++) {
-                    for (int ring = 0; mp.getCoordinates()[p] != null && ring < mp.getCoordinates()[p].length; ring++) {
+                double[][][][] coords = ((MultiPolygonVo)g).getCoordinates();
+                for (int p = 0; coords != null && p < coords.length; p++) {
+                    for (int ring = 0; coords[p] != null && ring < coords[p].length; ring++) {
                         IncludeCoord incl = ring == 0 ? IncludeCoord.ALL_BUT_LAST : IncludeCoord.NONE;
-                        serializeCoordinates(mp.getCoordinates()[p][ring], incl, sf, properties, language, index);
+                        serializeCoordinates(coords[p][ring], incl, sf, properties, language, index);
                     }
                 }
             } else if (g instanceof GeometryCollectionVo) {
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.geojson;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.util.concurrent.IsolationLevel;
+import org.locationtech.jts.geom.Geometry;
+import org.niord.core.cache.BaseCache;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Caches the simplified level-of-detail variants of geometries.
+ * <p>
+ * The cache keys are computed from the geometry coordinates and the zoom band,
+ * so updated geometries will automatically result in new cache entries.
+ */
+@ApplicationScoped
+public class GeometryLodCache extends BaseCache<String, Geometry> {
+
+    final static long LIFESPAN = 24 * 60 * 60 * 1000;   // 24 hours
+    final static long MAX_ENTRIES = 20000;              // at most 20.000 simplified geometries
+
+    final static String CACHE_ID = "geometryLodCache";
+
+    /** {@inheritDoc} */
+    @Override
+    public String getCacheId() {
+        return CACHE_ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Configuration createCacheConfiguration() {
+        return new ConfigurationBuilder()
+                .clustering().cacheMode(CacheMode.LOCAL)
+                .locking().isolationLevel(IsolationLevel.REPEATABLE_READ)
+                .memory().maxCount(MAX_ENTRIES).whenFull(EvictionStrategy.REMOVE)
+                .expiration().lifespan(LIFESPAN)
+                .build();
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.geojson;
+
+import org.locationtech.jts.geom.CoordinateFilter;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Puntal;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.niord.core.util.GlobalMercator;
+import org.niord.model.geojson.FeatureCollectionVo;
+import org.niord.model.geojson.FeatureVo;
+import org.niord.model.geojson.GeometryVo;
+import org.slf4j.Logger;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+
+/**
+ * Provides level-of-detail variants of geometries for display in the map client.
+ * <p>
+ * Detailed geometries, such as coastline area polygons, are simplified using a topology-preserving
+ * Douglas-Peucker simplification with a tolerance of half a pixel at the requested zoom level.
+ * The zoom levels are capped at {@code MAX_LOD_ZOOM}, beyond which the original geometry is used,
+ * and the simplified variants are cached per zoom level.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class GeometryLodService {
+
+    /** Zoom levels above this use the full resolution geometry **/
+    public static final int MAX_LOD_ZOOM = 14;
+
+    /** Geometries with fewer points than this are never simplified **/
+    public static final int MIN_LOD_POINTS = 50;
+
+    /** The simplification tolerance in pixels **/
+    static final double PIXEL_TOLERANCE = 0.5;
+
+    /** The assumed width in pixels of a map displaying a given extent **/
+    static final int MAP_WIDTH = 1024;
+
+    @Inject
+    Logger log;
+
+    @Inject
+    GeometryLodCache geometryLodCache;
+
+
+    /**
+     * Returns the simplification tolerance, in degrees, to use for the given zoom level
+     * @param zoom the zoom level
+     * @return the simplification tolerance in degrees
+     */
+    public static double toleranceForZoom(int zoom) {
+        return PIXEL_TOLERANCE * 360.0 / (GlobalMercator.TILE_SIZE * Math.pow(2, zoom));
+    }
+
+
+    /**
+     * Returns the approximate zoom level used by a map displaying the given extent
+     * @param extent the extent
+     * @return the zoom level, or null if undefined
+     */
+    public static Integer zoomForExtent(Geometry extent) {
+        if (extent == null || extent.isEmpty()) {
+            return null;
+        }
+        Envelope env = extent.getEnvelopeInternal();
+        double span = Math.max(env.getWidth(), env.getHeight());
+        if (span <= 0) {
+            return null;
+        }
+        double zoom = Math.log(360.0 * MAP_WIDTH / (GlobalMercator.TILE_SIZE * span)) / Math.log(2);
+        return Math.max(0, (int) Math.floor(zoom));
+    }
+
+
+    /**
+     * Returns the level-of-detail variant of the geometry for the given zoom level.
+     * If no simplification is needed, the original geometry is returned.
+     *
+     * @param geometry the geometry to simplify
+     * @param zoom the zoom level
+     * @return the simplified geometry
+     */
+    public Geometry simplify(Geometry geometry, Integer zoom) {
+        if (geometry == null || zoom == null || zoom < 0 || zoom > MAX_LOD_ZOOM
+                || geometry instanceof Puntal
+                || geometry.getNumPoints() < MIN_LOD_POINTS) {
+            return geometry;
+        }
+
+        String key = lodKey(geometry, zoom);
+        Geometry result = geometryLodCache.getCache().get(key);
+        if (result == null) {
+            long t0 = System.currentTimeMillis();
+            result = TopologyPreservingSimplifier.simplify(geometry, toleranceForZoom(zoom));
+            result.setSRID(geometry.getSRID());
+            geometryLodCache.getCache().put(key, result);
+            log.debug("Simplified geometry from " + geometry.getNumPoints() + " to " + result.getNumPoints()
+                    + " points for zoom level " + zoom + " in " + (System.currentTimeMillis() - t0) + " ms");
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the level-of-detail variant of the geometry for the given zoom level.
+     * If no simplification is needed, the original geometry is returned.
+     *
+     * @param geometry the geometry to simplify
+     * @param zoom the zoom level
+     * @return the simplified geometry
+     */
+    public GeometryVo simplify(GeometryVo geometry, Integer zoom) {
+        if (geometry == null || zoom == null || zoom > MAX_LOD_ZOOM) {
+            return geometry;
+        }
+        Geometry jtsGeometry = JtsConverter.toJts(geometry);
+        Geometry result = simplify(jtsGeometry, zoom);
+        return result == jtsGeometry ? geometry : JtsConverter.fromJts(result);
+    }
+
+
+    /**
+     * Replaces the feature geometries of the feature collection with the
+     * level-of-detail variants for the given zoom level.
+     *
+     * @param fc the feature collection to update
+     * @param zoom the zoom level
+     */
+    public void simplify(FeatureCollectionVo fc, Integer zoom) {
+        if (fc == null || fc.getFeatures() == null || zoom == null) {
+            return;
+        }
+        for (FeatureVo feature : fc.getFeatures()) {
+            feature.setGeometry(simplify(feature.getGeometry(), zoom));
+        }
+    }
+
+
+    /**
+     * Computes a cache key for the geometry at the given zoom level, based on the geometry coordinates.
+     * This ensures that cached variants are never served for updated geometries.
+     */
+    static String lodKey(Geometry geometry, int zoom) {
+        long[] hash = { 17L };
+        geometry.apply((CoordinateFilter) c -> {
+            hash[0] = 31L * hash[0] + Double.doubleToLongBits(c.x);
+            hash[0] = 31L * hash[0] + Double.doubleToLongBits(c.y);
+        });
+        return geometry.getGeometryType() + ":" + geometry.getNumPoints() + ":" + Long.toHexString(hash[0]) + ":" + zoom;
+    }
+}
@@ -18,10 +18,15 @@ package org.niord.core.geojson;
 
 import org.apache.commons.lang.StringUtils;
 import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.niord.model.geojson.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Utility functions for converting between the Niord and JTS GeoJSON representations
  */
@@ -94,7 +99,9 @@ public class JtsConverter {
     public static Geometry toJts(GeometryVo g) {
         if (g == null) {
             return null;
-        } if (g instanceof PointVo) {
+        } else if (g.getPackedCoordinates() != null) {
+            return g.computeCachedGeometryIfAbsent(Geometry.class, vo -> toJtsPacked(vo, vo.getPackedCoordinates()));
+        } else if (g instanceof PointVo) {
             return factory.createPoint(toJtsCoords(((PointVo)g).getCoordinates()));
         } else if (g instanceof LineStringVo) {
             return factory.createLineString(toJtsCoords(((LineStringVo)g).getCoordinates()));
@@ -125,23 +132,41 @@ public class JtsConverter {
         }
 
         Class<? extends Geometry> c = g.getClass();
+        GeometryVo result;
         if (c.equals(Point.class)) {
             return new PointVo(fromJtsCoords(g.getCoordinate()));
         } else if (c.equals(LineString.class)) {
-            return new LineStringVo(fromJtsCoords(g.getCoordinates()));
+            result = new LineStringVo(fromJtsPacked(2, (LineString) g));
         } else if (c.equals(Polygon.class)) {
-            return fromJtsPolygon((Polygon) g);
+            result = new PolygonVo(fromJtsPacked(3, (Polygon) g));
         } else if (c.equals(MultiPoint.class)) {
-            return new MultiPointVo(fromJtsCoords(g.getCoordinates()));
+            result = new MultiPointVo(fromJtsPacked(2, (MultiPoint) g));
         } else if (c.equals(MultiLineString.class)) {
-            return fromJtsMultiLineString((MultiLineString) g);
+            result = new MultiLineStringVo(fromJtsPacked(3, (MultiLineString) g));
         } else if (c.equals(MultiPolygon.class)) {
-            return fromJtsMultiPolygon((MultiPolygon) g);
+            result = new MultiPolygonVo(fromJtsPacked(4, (MultiPolygon) g));
         } else if (c.equals(GeometryCollection.class)) {
             return fromJtsGeometryCollection((GeometryCollection) g);
         } else {
             throw new UnsupportedOperationException();
         }
+
+        // Cache the JTS geometry, so that converting the result back to JTS is free
+        result.computeCachedGeometryIfAbsent(Geometry.class, vo -> g);
+        return result;
+    }
+
+
+    /**
+     * Returns a copy of the JTS geometry of the given GeoJson geometry.
+     * Use this rather than {@linkplain #toJts(GeometryVo)} if the resulting geometry is to be modified,
+     * since the latter may return a JTS geometry cached by the GeoJson geometry.
+     * @param g the GeoJson to convert
+     * @return the corresponding JTS geometry
+     */
+    public static Geometry toJtsCopy(GeometryVo g) {
+        Geometry geometry = toJts(g);
+        return geometry != null && geometry == g.getCachedGeometry() ? geometry.copy() : geometry;
     }
 
 
@@ -173,19 +198,19 @@ public class JtsConverter {
     }
 
     private static MultiLineString toJtsMultiLineString(MultiLineStringVo multiLineString) {
-        int size = multiLineString.getCoordinates().length;
-        LineString[] lineStrings = new LineString[size];
-        for (int i = 0; i < size; i++) {
-            lineStrings[i] = factory.createLineString(toJtsCoords(multiLineString.getCoordinates()[i]));
+        double[][][] coords = multiLineString.getCoordinates();
+        LineString[] lineStrings = new LineString[coords.length];
+        for (int i = 0; i < coords.length; i++) {
+            lineStrings[i] = factory.createLineString(toJtsCoords(coords[i]));
         }
         return factory.createMultiLineString(lineStrings);
     }
 
     private static MultiPolygon toJtsMultiPolygon(MultiPolygonVo multiPolygon) {
-        int size = multiPolygon.getCoordinates().length;
-        Polygon[] polygons = new Polygon[size];
-        for (int i = 0; i < size; i++) {
-            polygons[i] = toJtsPolygon(multiPolygon.getCoordinates()[i]);
+        double[][][][] coords = multiPolygon.getCoordinates();
+        Polygon[] polygons = new Polygon[coords.length];
+        for (int i = 0; i < coords.length; i++) {
+            polygons[i] = toJtsPolygon(coords[i]);
         }
         return factory.createMultiPolygon(polygons);
     }
@@ -200,6 +225,120 @@ public class JtsConverter {
     }
 
 
+    /*************************/
+    /** Packed coordinates  **/
+    /*************************/
+
+
+    /** Returns a coordinate sequence for the given ring of the packed coordinates **/
+    private static CoordinateSequence toJtsCoords(PackedCoordinates packed, int ring) {
+        int from = packed.getRingOffset(ring), to = packed.getRingOffset(ring + 1);
+        double[] coords = packed.getCoordCount() == to - from
+                ? packed.getCoords()
+                : Arrays.copyOfRange(packed.getCoords(), 2 * from, 2 * to);
+        return new PackedCoordinateSequence.Double(coords, 2, 0);
+    }
+
+    /** Returns the polygon for the given part of the packed coordinates **/
+    private static Polygon toJtsPolygon(PackedCoordinates packed, int part) {
+        int from = packed.getPartOffset(part), to = packed.getPartOffset(part + 1);
+        LinearRing outerRing = factory.createLinearRing(toJtsCoords(packed, from));
+        LinearRing[] innerRings = new LinearRing[to - from - 1];
+        for (int r = from + 1; r < to; r++) {
+            innerRings[r - from - 1] = factory.createLinearRing(toJtsCoords(packed, r));
+        }
+        return factory.createPolygon(outerRing, innerRings);
+    }
+
+    /**
+     * Converts the packed coordinates of the GeoJson geometry to the corresponding JTS geometry.
+     * The packed coordinate array is wrapped, rather than copied, by the JTS coordinate sequences where possible.
+     */
+    private static Geometry toJtsPacked(GeometryVo g, PackedCoordinates packed) {
+        if (g instanceof LineStringVo) {
+            return factory.createLineString(toJtsCoords(packed, 0));
+        } else if (g instanceof MultiPointVo) {
+            return factory.createMultiPoint(toJtsCoords(packed, 0));
+        } else if (g instanceof PolygonVo) {
+            return toJtsPolygon(packed, 0);
+        } else if (g instanceof MultiLineStringVo) {
+            LineString[] lineStrings = new LineString[packed.getRingCount()];
+            for (int i = 0; i < lineStrings.length; i++) {
+                lineStrings[i] = factory.createLineString(toJtsCoords(packed, i));
+            }
+            return factory.createMultiLineString(lineStrings);
+        } else if (g instanceof MultiPolygonVo) {
+            Polygon[] polygons = new Polygon[packed.getPartCount()];
+            for (int i = 0; i < polygons.length; i++) {
+                polygons[i] = toJtsPolygon(packed, i);
+            }
+            return factory.createMultiPolygon(polygons);
+        } else {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Packs the coordinates of the JTS geometry without allocating intermediate coordinates.
+     * @param depth the nesting depth of the corresponding GeoJson coordinates array
+     * @param g the JTS geometry
+     * @return the packed coordinates
+     */
+    private static PackedCoordinates fromJtsPacked(int depth, Geometry g) {
+        // Collect the rings (or line strings or points) of each part
+        List<CoordinateSequence> rings = new ArrayList<>();
+        int[] partOffsets;
+        if (g instanceof MultiPoint) {
+            partOffsets = new int[] { 0, 1 };
+            rings.add(factory.getCoordinateSequenceFactory().create(g.getCoordinates()));
+        } else if (g instanceof LineString) {
+            partOffsets = new int[] { 0, 1 };
+            rings.add(((LineString) g).getCoordinateSequence());
+        } else {
+            // Polygon, MultiLineString or MultiPolygon
+            int parts = (g instanceof MultiPolygon) ? g.getNumGeometries() : 1;
+            partOffsets = new int[parts + 1];
+            for (int p = 0; p < parts; p++) {
+                partOffsets[p] = rings.size();
+                Geometry part = (g instanceof MultiPolygon) ? g.getGeometryN(p) : g;
+                if (part instanceof Polygon) {
+                    Polygon polygon = (Polygon) part;
+                    rings.add(polygon.getExteriorRing().getCoordinateSequence());
+                    for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                        rings.add(polygon.getInteriorRingN(i).getCoordinateSequence());
+                    }
+                } else {
+                    for (int i = 0; i < part.getNumGeometries(); i++) {
+                        rings.add(((LineString) part.getGeometryN(i)).getCoordinateSequence());
+                    }
+                }
+            }
+            partOffsets[parts] = rings.size();
+        }
+
+        // Pack the coordinates of the rings
+        int coordCount = rings.stream().mapToInt(CoordinateSequence::size).sum();
+        double[] coords = new double[2 * coordCount];
+        int[] ringOffsets = new int[rings.size() + 1];
+        int c = 0;
+        for (int r = 0; r < rings.size(); r++) {
+            ringOffsets[r] = c;
+            CoordinateSequence seq = rings.get(r);
+            for (int i = 0; i < seq.size(); i++, c++) {
+                coords[2 * c] = seq.getX(i);
+                coords[2 * c + 1] = seq.getY(i);
+            }
+        }
+        ringOffsets[rings.size()] = c;
+        return new PackedCoordinates(depth, coords, ringOffsets, partOffsets);
+    }
+
+
+    /*************************/
+    /** Nested coordinates  **/
+    /*************************/
+
+
     private static double[] fromJtsCoords(Coordinate coordinate) {
         return new double[] { coordinate.x, coordinate.y };
     }
@@ -159,8 +159,7 @@ public class PlainTextConverter {
             formatCoordinates(result, g, properties);
 
         } else if (g instanceof MultiPointVo) {
-            MultiPointVo multiPoint = (MultiPointVo)g;
-            if (multiPoint.getCoordinates() == null || multiPoint.getCoordinates().length == 0) {
+            if (countCoordinates(g) == 0) {
                 throw new Exception("MultiPoint has no associated coordinates");
             }
             result.append("MultiPoint");
@@ -168,8 +167,7 @@ public class PlainTextConverter {
             formatCoordinates(result, g, properties);
 
         } else if (g instanceof LineStringVo) {
-            LineStringVo lineString = (LineStringVo)g;
-            if (lineString.getCoordinates() == null || lineString.getCoordinates().length == 0) {
+            if (countCoordinates(g) == 0) {
                 throw new Exception("LineString has no associated coordinates");
             }
             result.append("LineString");
@@ -177,9 +175,7 @@ public class PlainTextConverter {
             formatCoordinates(result, g, properties);
 
         } else if (g instanceof PolygonVo) {
-            PolygonVo polygon = (PolygonVo)g;
-            if (polygon.getCoordinates() == null || polygon.getCoordinates().length > 1 ||
-                    polygon.getCoordinates()[0].length == 0) {
+            if (countRings((PolygonVo)g) != 1 || countCoordinates(g) == 0) {
                 throw new Exception("Only polygons with an exterior ring and no interior rings supported");
             }
             result.append("Polygon");
@@ -215,22 +211,37 @@ public class PlainTextConverter {
         Locale locale = new Locale(languages.get(0));
         AtomicInteger coordIndex = new AtomicInteger(0);
 
-        // For polygons, only select exterior ring, and omit last coordinate which is identical to the first coordinate
+        // For polygons, only the exterior ring is supported, and omit last coordinate which is identical to the first coordinate
+        int coordCount = Integer.MAX_VALUE;
         if (g instanceof PolygonVo) {
-            PolygonVo pol = (PolygonVo)g;
-            if (pol.getCoordinates() != null && pol.getCoordinates().length >= 1 && pol.getCoordinates()[0].length >= 3) {
-                for (int index = 0; index < pol.getCoordinates()[0].length - 1; index++) {
-                    double[] xy = pol.getCoordinates()[0][index];
-                    result.append(PositionFormatter.format(locale, format, xy[1], xy[0]));
-                    formatFeatureName(result, "name:" + coordIndex.getAndIncrement() + ":", properties);
-                }
-            }
-        } else {
-            g.visitCoordinates(xy -> {
+            coordCount = countCoordinates(g);
+            coordCount = coordCount >= 3 ? coordCount - 1 : 0;
+        }
+
+        int maxCoords = coordCount;
+        g.visitCoordinates(xy -> {
+            if (coordIndex.get() < maxCoords) {
                 result.append(PositionFormatter.format(locale, format, xy[1], xy[0]));
                 formatFeatureName(result, "name:" + coordIndex.getAndIncrement() + ":", properties);
-            });
+            }
+        });
+    }
+
+
+    /** Returns the number of coordinates of the GeoJSON, without unpacking packed coordinates **/
+    private int countCoordinates(GeoJsonVo g) {
+        AtomicInteger count = new AtomicInteger(0);
+        g.visitCoordinates(xy -> count.incrementAndGet());
+        return count.get();
+    }
+
+
+    /** Returns the number of rings of the polygon, without unpacking packed coordinates **/
+    private int countRings(PolygonVo polygon) {
+        if (polygon.getPackedCoordinates() != null) {
+            return polygon.getPackedCoordinates().getRingCount();
         }
+        return polygon.getCoordinates() != null ? polygon.getCoordinates().length : 0;
     }
 
 
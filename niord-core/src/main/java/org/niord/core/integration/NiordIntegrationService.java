@@ -16,12 +16,14 @@
 
 package org.niord.core.integration;
 
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.service.BaseService;
 import org.slf4j.Logger;
 
 import javax.ejb.Schedule;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import java.util.Calendar;
 import java.util.List;
 
@@ -32,6 +34,7 @@ import java.util.List;
  * by the {@code NiordIntegration} entity
  */
 @Stateless
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class NiordIntegrationService extends BaseService {
 
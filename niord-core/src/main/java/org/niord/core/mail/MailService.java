@@ -16,6 +16,9 @@
 package org.niord.core.mail;
 
 import org.niord.core.NiordApp;
+import org.niord.core.metrics.Counter;
+import org.niord.core.metrics.Histogram;
+import org.niord.core.metrics.Metrics;
 import org.niord.core.service.BaseService;
 import org.niord.core.settings.annotation.Setting;
 import org.slf4j.Logger;
@@ -39,6 +42,11 @@ import java.util.stream.Collectors;
 @SuppressWarnings("unused")
 public class MailService extends BaseService {
 
+    static final Histogram MAIL_SEND_TIME
+            = Metrics.histogram("niord_mail_send_seconds", "Execution time of sending mails");
+    static final Counter MAIL_SEND_FAILURES
+            = Metrics.counter("niord_mail_send_failures", "Number of mails that failed to be sent");
+
     @Resource(name = "java:jboss/mail/Niord")
     Session mailSession;
 
@@ -96,6 +104,7 @@ public class MailService extends BaseService {
      * @param mail the mail to send
      */
     public void sendMail(Mail mail) throws MessagingException {
+        long nanoT0 = System.nanoTime();
         try {
             long t0 = System.currentTimeMillis();
 
@@ -140,8 +149,11 @@ public class MailService extends BaseService {
             log.info("Sent email to " + recipients + " in " + (System.currentTimeMillis() - t0) + " ms");
 
         } catch (MessagingException e) {
+            MAIL_SEND_FAILURES.inc();
             log.error("Failed sending mail for " + mail.getFrom(), e);
             throw e;
+        } finally {
+            MAIL_SEND_TIME.recordSince(nanoT0);
         }
     }
 
@@ -18,6 +18,7 @@ package org.niord.core.mail;
 
 import org.apache.commons.lang.StringUtils;
 import org.niord.core.db.CriteriaHelper;
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.model.BaseEntity;
 import org.niord.core.service.BaseService;
 import org.niord.core.settings.annotation.Setting;
@@ -35,6 +36,7 @@ import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
@@ -55,6 +57,7 @@ import static org.niord.core.settings.Setting.Type.Integer;
 @Singleton
 @Startup
 @Lock(LockType.READ)
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class ScheduledMailService extends BaseService {
 
@@ -87,13 +87,16 @@ public class MailingListExecutionService extends BaseService {
 
 
     /**
-     * Executes the status change mailing list trigger for the given message
+     * Executes the status change mailing list trigger for the given messages.
+     * <p>
+     * The mails of all messages are persisted in the same transaction. A message that fails
+     * is logged and skipped, so that it does not prevent the mails of the other messages.
      *
      * @param triggerId the ID of the status change mailing list trigger to execute
-     * @param messageUid the message UID to execute the trigger for
+     * @param messageUids the message UIDs to execute the trigger for
      */
     @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
-    public void executeStatusChangeTrigger(Integer triggerId, String messageUid) throws Exception {
+    public void executeStatusChangeTrigger(Integer triggerId, List<String> messageUids) throws Exception {
 
         // Look up the trigger
         MailingListTrigger trigger = getByPrimaryKey(MailingListTrigger.class, triggerId);
@@ -101,14 +104,23 @@ public class MailingListExecutionService extends BaseService {
             throw new IllegalArgumentException("Invalid trigger " + triggerId);
         }
 
-        // Look up the message
-        Message message = messageService.findByUid(messageUid);
-        if (message == null) {
-            throw new IllegalArgumentException("Invalid message " + messageUid);
-        }
+        List<ScheduledMail> mails = new ArrayList<>();
+        for (String messageUid : messageUids) {
+            Message message = messageService.findByUid(messageUid);
+            if (message == null) {
+                log.warn("Invalid message " + messageUid + " for trigger " + triggerId);
+                continue;
+            }
 
+            try {
+                mails.addAll(executeStatusChangeTrigger(trigger, message, false));
+            } catch (Exception e) {
+                log.error("Error executing status-change mailing-list trigger " + triggerId
+                        + " for message " + messageUid, e);
+            }
+        }
 
-        executeStatusChangeTrigger(trigger, message, true);
+        persistMails(mails);
     }
 
 
@@ -20,27 +20,55 @@ import org.niord.core.model.BaseEntity;
 import org.niord.model.message.Status;
 import org.slf4j.Logger;
 
+import javax.annotation.Resource;
 import javax.ejb.ActivationConfigProperty;
 import javax.ejb.MessageDriven;
 import javax.inject.Inject;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSDestinationDefinition;
+import javax.jms.JMSException;
 import javax.jms.MapMessage;
 import javax.jms.MessageListener;
+import javax.jms.Queue;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
- * Used for listening for message status updates via JMS
+ * Used for listening for message status updates via JMS.
+ * <p>
+ * The {@linkplain org.niord.core.message.MessageService} queues the status updates on a durable queue
+ * as part of the status-update transaction, so that no status update is lost upon a crash or redeploy.
+ * Upon delivery of a JMS message, the listener collects the status updates arriving within
+ * {@code BATCH_WINDOW} ms, and executes each status change trigger once for the whole batch.
  */
+@JMSDestinationDefinition(
+        name = MailingListMessageListener.STATUS_QUEUE,
+        interfaceName = "javax.jms.Queue",
+        destinationName = "MailingListStatusQueue")
 @MessageDriven(
         name = "MailingListStatusChangeMDB",
         activationConfig = {
-                @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Topic"),
-                @ActivationConfigProperty(propertyName = "destination", propertyValue = "java:/jms/topic/MessageStatusTopic"),
+                @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Queue"),
+                @ActivationConfigProperty(propertyName = "destination", propertyValue = MailingListMessageListener.STATUS_QUEUE),
                 @ActivationConfigProperty(propertyName = "acknowledgeMode", propertyValue = "Auto-acknowledge")
         })
 @SuppressWarnings("unused")
 public class MailingListMessageListener implements MessageListener {
 
+    public static final String STATUS_QUEUE = "java:/jms/queue/MailingListStatusQueue";
+
+    /** The time in ms to collect status updates for a batch **/
+    static final long BATCH_WINDOW = 1000L;
+
+    /** The maximum number of status updates in a batch **/
+    static final int BATCH_SIZE = 100;
+
     @Inject
     Logger log;
 
@@ -50,6 +78,12 @@ public class MailingListMessageListener implements MessageListener {
     @Inject
     MailingListExecutionService mailingListExecutionService;
 
+    @Inject
+    JMSContext jmsContext;
+
+    @Resource(lookup = STATUS_QUEUE)
+    Queue statusQueue;
+
 
     /**
      * {@inheritDoc}
@@ -57,28 +91,46 @@ public class MailingListMessageListener implements MessageListener {
     @Override
     public void onMessage(javax.jms.Message message) {
 
+        List<MapMessage> batch = new ArrayList<>();
+        batch.add((MapMessage) message);
         try {
-            MapMessage msg = (MapMessage) message;
+            // Collect the status updates of the batch window, received as part of the current transaction
+            long deadline = System.currentTimeMillis() + BATCH_WINDOW;
+            try (JMSConsumer consumer = jmsContext.createConsumer(statusQueue)) {
+                javax.jms.Message next;
+                long timeout;
+                while (batch.size() < BATCH_SIZE
+                        && (timeout = deadline - System.currentTimeMillis()) > 0
+                        && (next = consumer.receive(timeout)) != null) {
+                    batch.add((MapMessage) next);
+                }
+            }
 
-            String uid = msg.getString("UID");
-            Status status = Status.valueOf(msg.getString("STATUS"));
+            // Group the message UIDs by status, preserving the order of the status updates
+            Map<Status, Set<String>> uidsByStatus = new LinkedHashMap<>();
+            for (MapMessage msg : batch) {
+                uidsByStatus.computeIfAbsent(Status.valueOf(msg.getString("STATUS")), s -> new LinkedHashSet<>())
+                        .add(msg.getString("UID"));
+            }
 
-            log.debug("Received " + status + " message status update for UID: " + uid);
-            checkStatusChangeMailingListExecution(uid, status);
+            uidsByStatus.forEach((status, uids) -> {
+                log.debug("Received " + status + " message status update for UIDs: " + uids);
+                checkStatusChangeMailingListExecution(new ArrayList<>(uids), status);
+            });
 
-        } catch (Throwable e) {
-            log.error("Failed processing JMS message " + message, e);
+        } catch (JMSException e) {
+            log.error("Failed processing a batch of " + batch.size() + " JMS messages", e);
         }
     }
 
 
     /**
-     * Handle mailing list execution for the message. Called from the MailingListMessageListener MDB listener.
+     * Handle mailing list execution for the messages. Called from the MailingListMessageListener MDB listener.
      *
-     * @param messageUid the UID of the message
+     * @param messageUids the UIDs of the messages
      * @param status the message status
      */
-    public void checkStatusChangeMailingListExecution(String messageUid, Status status) {
+    public void checkStatusChangeMailingListExecution(List<String> messageUids, Status status) {
 
         long t0 = System.currentTimeMillis();
 
@@ -86,22 +138,22 @@ public class MailingListMessageListener implements MessageListener {
                 .map(BaseEntity::getId)
                 .collect(Collectors.toList());
 
-        log.debug(String.format("Found %d status change triggers for %s in status %s",
+        log.debug(String.format("Found %d status change triggers for %d messages in status %s",
                 triggerIds.size(),
-                messageUid,
+                messageUids.size(),
                 status));
 
         for (Integer triggerId : triggerIds) {
             try {
                 // NB: This function requires a new transaction
-                mailingListExecutionService.executeStatusChangeTrigger(triggerId, messageUid);
+                mailingListExecutionService.executeStatusChangeTrigger(triggerId, messageUids);
             } catch (Exception e) {
                 log.error("Error executing status-change mailing-list trigger " + triggerId, e);
             }
         }
-        log.debug(String.format("Executed %d status change triggers for %s in status %s in %d ms",
+        log.debug(String.format("Executed %d status change triggers for %d messages in status %s in %d ms",
                 triggerIds.size(),
-                messageUid,
+                messageUids.size(),
                 status,
                 System.currentTimeMillis() - t0));
     }
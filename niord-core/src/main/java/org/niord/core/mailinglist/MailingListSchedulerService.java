@@ -15,6 +15,7 @@
  */
 package org.niord.core.mailinglist;
 
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.model.BaseEntity;
 import org.niord.core.service.BaseService;
 import org.slf4j.Logger;
@@ -22,6 +23,7 @@ import org.slf4j.Logger;
 import javax.ejb.Schedule;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -34,6 +36,7 @@ import java.util.stream.Collectors;
  * for all mailing lists.
  */
 @Stateless
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class MailingListSchedulerService extends BaseService {
 
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.map;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.util.concurrent.IsolationLevel;
+import org.niord.core.cache.BaseCache;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches encoded vector tiles.
+ * <p>
+ * Each layer has a generation number which is part of the cache keys. When the entities of a layer change,
+ * the layer is invalidated by incrementing the generation, and the outdated tiles will simply be evicted.
+ * <p>
+ * When invalidated within a transaction, the generation is incremented both immediately and when the
+ * transaction completes, so that tiles encoded from uncommitted or outdated data while the transaction
+ * is in progress are not served once it has committed.
+ */
+@ApplicationScoped
+public class VectorTileCache extends BaseCache<String, byte[]> {
+
+    final static long LIFESPAN = 6 * 60 * 60 * 1000;    // 6 hours
+    final static long MAX_ENTRIES = 50000;              // at most 50.000 tiles
+
+    final static String CACHE_ID = "vectorTileCache";
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final Map<String, AtomicLong> layerGenerations = new ConcurrentHashMap<>();
+
+    /** {@inheritDoc} */
+    @Override
+    public String getCacheId() {
+        return CACHE_ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Configuration createCacheConfiguration() {
+        return new ConfigurationBuilder()
+                .clustering().cacheMode(CacheMode.LOCAL)
+                .locking().isolationLevel(IsolationLevel.REPEATABLE_READ)
+                .memory().maxCount(MAX_ENTRIES).whenFull(EvictionStrategy.REMOVE)
+                .expiration().lifespan(LIFESPAN)
+                .build();
+    }
+
+
+    /**
+     * Returns the current generation of the given layer
+     * @param layer the layer
+     * @return the current generation of the layer
+     */
+    public long getLayerGeneration(String layer) {
+        return layerGenerations.computeIfAbsent(layer, l -> new AtomicLong()).get();
+    }
+
+
+    /**
+     * Invalidates all cached tiles of the given layer
+     * @param layer the layer to invalidate
+     */
+    public void invalidateLayer(String layer) {
+        AtomicLong generation = layerGenerations.computeIfAbsent(layer, l -> new AtomicLong());
+        generation.incrementAndGet();
+
+        if (transactionRegistry != null
+                && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.map;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.TopologyException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes features as a Mapbox Vector Tile (MVT), version 2.
+ * <p>
+ * The geometries passed to {@code addFeature()} must already have been transformed into tile coordinates,
+ * i.e. with the origin in the top-left corner of the tile, the y-axis pointing down, and the
+ * tile spanning [0, extent]. The geometries are clipped to the tile, extended by a buffer, and
+ * the coordinates are rounded to integers.
+ * <p>
+ * The Protocol Buffers encoding is implemented directly, as the vector tile schema is small and stable.
+ * See https://github.com/mapbox/vector-tile-spec/tree/master/2.1
+ */
+public class VectorTileEncoder {
+
+    public static final int DEFAULT_EXTENT = 4096;
+    public static final int DEFAULT_BUFFER = 64;
+
+    // Geometry types
+    static final int TYPE_POINT         = 1;
+    static final int TYPE_LINESTRING    = 2;
+    static final int TYPE_POLYGON       = 3;
+
+    // Geometry commands
+    static final int CMD_MOVE_TO        = 1;
+    static final int CMD_LINE_TO        = 2;
+    static final int CMD_CLOSE_PATH     = 7;
+
+    private final int extent;
+    private final Geometry clipGeometry;
+    private final Envelope clipEnvelope;
+    private final Map<String, Layer> layers = new LinkedHashMap<>();
+
+
+    /** Constructor **/
+    public VectorTileEncoder() {
+        this(DEFAULT_EXTENT, DEFAULT_BUFFER);
+    }
+
+
+    /**
+     * Constructor
+     * @param extent the tile extent, i.e. the size of the tile in tile coordinates
+     * @param buffer the buffer, in tile coordinates, used when clipping geometries to the tile
+     */
+    public VectorTileEncoder(int extent, int buffer) {
+        this.extent = extent;
+        this.clipEnvelope = new Envelope(-buffer, extent + buffer, -buffer, extent + buffer);
+        this.clipGeometry = new GeometryFactory().toGeometry(clipEnvelope);
+    }
+
+
+    /** Returns the tile extent **/
+    public int getExtent() {
+        return extent;
+    }
+
+
+    /** Returns if no features have been added to the tile **/
+    public boolean isEmpty() {
+        return layers.isEmpty();
+    }
+
+
+    /**
+     * Adds a feature to the given layer.
+     *
+     * @param layerName the layer name
+     * @param id the optional feature ID
+     * @param properties the feature properties. Null values are skipped
+     * @param geometry the feature geometry in tile coordinates
+     */
+    public void addFeature(String layerName, Long id, Map<String, ?> properties, Geometry geometry) {
+        geometry = clip(geometry);
+        if (geometry == null || geometry.isEmpty()) {
+            return;
+        }
+
+        List<Integer> commands = new ArrayList<>();
+        int type = encodeGeometry(geometry, commands, new int[2]);
+        if (type == 0 || commands.isEmpty()) {
+            return;
+        }
+
+        Layer layer = layers.computeIfAbsent(layerName, Layer::new);
+        List<Integer> tags = new ArrayList<>();
+        if (properties != null) {
+            properties.forEach((k, v) -> {
+                if (k != null && v != null) {
+                    tags.add(layer.keyIndex(k));
+                    tags.add(layer.valueIndex(v instanceof Number || v instanceof Boolean ? v : v.toString()));
+                }
+            });
+        }
+        layer.features.add(new Feature(id, type, tags, commands));
+    }
+
+
+    /** Clips the geometry to the buffered tile. Returns null if the geometry is outside the tile **/
+    private Geometry clip(Geometry geometry) {
+        if (geometry == null) {
+            return null;
+        }
+        Envelope env = geometry.getEnvelopeInternal();
+        if (clipEnvelope.contains(env)) {
+            return geometry;
+        } else if (!clipEnvelope.intersects(env)) {
+            return null;
+        }
+        try {
+            return clipGeometry.intersection(geometry);
+        } catch (TopologyException e) {
+            // Attempt to repair invalid polygons
+            return clipGeometry.intersection(geometry.buffer(0));
+        }
+    }
+
+
+    /*************************/
+    /** Geometry encoding   **/
+    /*************************/
+
+
+    /**
+     * Encodes the geometry as MVT commands.
+     * Returns the MVT geometry type, or 0 if the geometry could not be encoded.
+     * <p>
+     * NB: MVT does not support geometry collections with mixed geometry types, so only
+     * the parts with the same geometry type as the first part are encoded.
+     * Multiple points are encoded as a single MoveTo command with a coordinate pair per point.
+     */
+    private int encodeGeometry(Geometry geometry, List<Integer> commands, int[] cursor) {
+        List<Geometry> parts = new ArrayList<>();
+        flatten(geometry, parts);
+
+        int type = 0;
+        int pointCount = 0, pointCommand = -1;
+        for (Geometry g : parts) {
+            int gType = geometryType(g);
+            if (gType == 0 || (type != 0 && gType != type)) {
+                continue;
+            }
+            boolean encoded;
+            if (gType == TYPE_POINT) {
+                if (pointCount++ == 0) {
+                    pointCommand = commands.size();
+                    commands.add(command(CMD_MOVE_TO, 1));
+                }
+                encoded = encodePoint((Point) g, commands, cursor);
+            } else if (gType == TYPE_LINESTRING) {
+                encoded = encodeLine(g.getCoordinates(), commands, cursor);
+            } else {
+                encoded = encodePolygon((Polygon) g, commands, cursor);
+            }
+            if (encoded) {
+                type = gType;
+            }
+        }
+
+        // Update the point count of the MoveTo command
+        if (pointCount > 1) {
+            commands.set(pointCommand, command(CMD_MOVE_TO, pointCount));
+        }
+        return type;
+    }
+
+
+    /** Flattens the geometry into its basic parts **/
+    private static void flatten(Geometry geometry, List<Geometry> parts) {
+        if (geometry instanceof Point || geometry instanceof LineString || geometry instanceof Polygon) {
+            if (!geometry.isEmpty()) {
+                parts.add(geometry);
+            }
+        } else {
+            for (int n = 0; n < geometry.getNumGeometries(); n++) {
+                flatten(geometry.getGeometryN(n), parts);
+            }
+        }
+    }
+
+
+    /** Returns the MVT geometry type of a basic geometry **/
+    private static int geometryType(Geometry geometry) {
+        if (geometry instanceof Point) {
+            return TYPE_POINT;
+        } else if (geometry instanceof LineString) {
+            return TYPE_LINESTRING;
+        } else if (geometry instanceof Polygon) {
+            return TYPE_POLYGON;
+        }
+        return 0;
+    }
+
+
+    /** Encodes the coordinate pair of a point. The MoveTo command is added by the caller **/
+    private boolean encodePoint(Point point, List<Integer> commands, int[] cursor) {
+        int x = (int) Math.round(point.getX());
+        int y = (int) Math.round(point.getY());
+        commands.add(zigZag(x - cursor[0]));
+        commands.add(zigZag(y - cursor[1]));
+        cursor[0] = x;
+        cursor[1] = y;
+        return true;
+    }
+
+
+    /** Encodes a polygon. Ensures that the exterior ring is clockwise and interior rings counter-clockwise **/
+    private boolean encodePolygon(Polygon polygon, List<Integer> commands, int[] cursor) {
+        if (!encodeRing(polygon.getExteriorRing().getCoordinates(), true, commands, cursor)) {
+            return false;
+        }
+        for (int r = 0; r < polygon.getNumInteriorRing(); r++) {
+            encodeRing(polygon.getInteriorRingN(r).getCoordinates(), false, commands, cursor);
+        }
+        return true;
+    }
+
+
+    /** Encodes a polygon ring with the given orientation **/
+    private boolean encodeRing(Coordinate[] coords, boolean exterior, List<Integer> commands, int[] cursor) {
+        int[] xy = roundCoordinates(coords, true);
+        int count = xy.length / 2;
+        if (count < 3) {
+            return false;
+        }
+
+        // Compute the area using the surveyor's formula. Exterior rings must have a positive area
+        long area = 0;
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1) % count;
+            area += (long) xy[2 * i] * xy[2 * j + 1] - (long) xy[2 * j] * xy[2 * i + 1];
+        }
+        if (area == 0) {
+            return false;
+        } else if ((area > 0) != exterior) {
+            reverse(xy);
+        }
+
+        encodePath(xy, commands, cursor);
+        commands.add(command(CMD_CLOSE_PATH, 1));
+        return true;
+    }
+
+
+    /** Encodes a line string **/
+    private boolean encodeLine(Coordinate[] coords, List<Integer> commands, int[] cursor) {
+        int[] xy = roundCoordinates(coords, false);
+        if (xy.length < 4) {
+            return false;
+        }
+        encodePath(xy, commands, cursor);
+        return true;
+    }
+
+
+    /** Encodes the path as a MoveTo command followed by a LineTo command **/
+    private void encodePath(int[] xy, List<Integer> commands, int[] cursor) {
+        int count = xy.length / 2;
+        commands.add(command(CMD_MOVE_TO, 1));
+        commands.add(zigZag(xy[0] - cursor[0]));
+        commands.add(zigZag(xy[1] - cursor[1]));
+        commands.add(command(CMD_LINE_TO, count - 1));
+        for (int i = 1; i < count; i++) {
+            commands.add(zigZag(xy[2 * i] - xy[2 * i - 2]));
+            commands.add(zigZag(xy[2 * i + 1] - xy[2 * i - 1]));
+        }
+        cursor[0] = xy[2 * count - 2];
+        cursor[1] = xy[2 * count - 1];
+    }
+
+
+    /**
+     * Rounds the coordinates to integers and removes repeated points.
+     * For rings, the closing point is removed as well.
+     */
+    private static int[] roundCoordinates(Coordinate[] coords, boolean ring) {
+        int[] xy = new int[2 * coords.length];
+        int n = 0;
+        for (Coordinate c : coords) {
+            int x = (int) Math.round(c.x);
+            int y = (int) Math.round(c.y);
+            if (n == 0 || x != xy[2 * n - 2] || y != xy[2 * n - 1]) {
+                xy[2 * n] = x;
+                xy[2 * n + 1] = y;
+                n++;
+            }
+        }
+        if (ring && n > 1 && xy[0] == xy[2 * n - 2] && xy[1] == xy[2 * n - 1]) {
+            n--;
+        }
+        int[] result = new int[2 * n];
+        System.arraycopy(xy, 0, result, 0, result.length);
+        return result;
+    }
+
+
+    /** Reverses the order of the x-y pairs **/
+    private static void reverse(int[] xy) {
+        for (int i = 0, j = xy.length / 2 - 1; i < j; i++, j--) {
+            int x = xy[2 * i], y = xy[2 * i + 1];
+            xy[2 * i] = xy[2 * j];
+            xy[2 * i + 1] = xy[2 * j + 1];
+            xy[2 * j] = x;
+            xy[2 * j + 1] = y;
+        }
+    }
+
+
+    /** Returns the command integer **/
+    static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+
+    /** Returns the zig-zag encoded parameter integer **/
+    static int zigZag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+
+    /*************************/
+    /** Tile encoding       **/
+    /*************************/
+
+
+    /**
+     * Encodes the tile using the Protocol Buffers format
+     * @return the encoded tile
+     */
+    public byte[] encode() {
+        ProtoWriter tile = new ProtoWriter();
+        for (Layer layer : layers.values()) {
+            tile.writeMessage(3, layer.encode(extent));
+        }
+        return tile.toByteArray();
+    }
+
+
+    /** Defines a vector tile layer **/
+    private static class Layer {
+        final String name;
+        final List<Feature> features = new ArrayList<>();
+        final Map<String, Integer> keys = new LinkedHashMap<>();
+        final Map<Object, Integer> values = new LinkedHashMap<>();
+
+        Layer(String name) {
+            this.name = name;
+        }
+
+        int keyIndex(String key) {
+            return keys.computeIfAbsent(key, k -> keys.size());
+        }
+
+        int valueIndex(Object value) {
+            return values.computeIfAbsent(value, v -> values.size());
+        }
+
+        byte[] encode(int extent) {
+            ProtoWriter out = new ProtoWriter();
+            out.writeVarintField(15, 2);
+            out.writeStringField(1, name);
+            for (Feature feature : features) {
+                out.writeMessage(2, feature.encode());
+            }
+            for (String key : keys.keySet()) {
+                out.writeStringField(3, key);
+            }
+            for (Object value : values.keySet()) {
+                out.writeMessage(4, encodeValue(value));
+            }
+            out.writeVarintField(5, extent);
+            return out.toByteArray();
+        }
+
+        static byte[] encodeValue(Object value) {
+            ProtoWriter out = new ProtoWriter();
+            if (value instanceof Boolean) {
+                out.writeVarintField(7, (Boolean) value ? 1 : 0);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+                long v = ((Number) value).longValue();
+                out.writeVarintField(6, (v << 1) ^ (v >> 63));
+            } else if (value instanceof Number) {
+                out.writeDoubleField(3, ((Number) value).doubleValue());
+            } else {
+                out.writeStringField(1, value.toString());
+            }
+            return out.toByteArray();
+        }
+    }
+
+
+    /** Defines a vector tile feature **/
+    private static class Feature {
+        final Long id;
+        final int type;
+        final List<Integer> tags;
+        final List<Integer> geometry;
+
+        Feature(Long id, int type, List<Integer> tags, List<Integer> geometry) {
+            this.id = id;
+            this.type = type;
+            this.tags = tags;
+            this.geometry = geometry;
+        }
+
+        byte[] encode() {
+            ProtoWriter out = new ProtoWriter();
+            if (id != null && id >= 0) {
+                out.writeVarintField(1, id);
+            }
+            if (!tags.isEmpty()) {
+                out.writePackedField(2, tags);
+            }
+            out.writeVarintField(3, type);
+            out.writePackedField(4, geometry);
+            return out.toByteArray();
+        }
+    }
+
+
+    /** Minimal Protocol Buffers writer **/
+    private static class ProtoWriter {
+        static final int WIRE_VARINT = 0;
+        static final int WIRE_FIXED64 = 1;
+        static final int WIRE_LENGTH = 2;
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        void writeTag(int field, int wireType) {
+            writeVarint((field << 3) | wireType);
+        }
+
+        void writeVarintField(int field, long value) {
+            writeTag(field, WIRE_VARINT);
+            writeVarint(value);
+        }
+
+        void writeDoubleField(int field, double value) {
+            writeTag(field, WIRE_FIXED64);
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                out.write((int) (bits >>> (8 * i)) & 0xFF);
+            }
+        }
+
+        void writeMessage(int field, byte[] data) {
+            writeTag(field, WIRE_LENGTH);
+            writeVarint(data.length);
+            out.write(data, 0, data.length);
+        }
+
+        void writeStringField(int field, String value) {
+            writeMessage(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writePackedField(int field, List<Integer> values) {
+            ProtoWriter packed = new ProtoWriter();
+            for (Integer v : values) {
+                // NB: all packed MVT values are uint32
+                packed.writeVarint(v & 0xFFFFFFFFL);
+            }
+            writeMessage(field, packed.toByteArray());
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.map;
+
+import org.apache.commons.lang.StringUtils;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Geometry;
+import org.niord.core.area.Area;
+import org.niord.core.area.AreaDesc;
+import org.niord.core.area.AreaService;
+import org.niord.core.aton.AtonNode;
+import org.niord.core.aton.AtonSearchParams;
+import org.niord.core.aton.AtonService;
+import org.niord.core.domain.Domain;
+import org.niord.core.domain.DomainService;
+import org.niord.core.geojson.Feature;
+import org.niord.core.geojson.GeometryLodService;
+import org.niord.core.geojson.JtsConverter;
+import org.niord.core.message.Message;
+import org.niord.core.message.MessageDesc;
+import org.niord.core.message.MessagePart;
+import org.niord.core.message.MessageSearchParams;
+import org.niord.core.message.MessageSeries;
+import org.niord.core.message.MessageService;
+import org.niord.core.metrics.Counter;
+import org.niord.core.metrics.Histogram;
+import org.niord.core.metrics.Metrics;
+import org.niord.core.util.GlobalMercator;
+import org.niord.model.DataFilter;
+import org.niord.model.message.Status;
+import org.slf4j.Logger;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Generates Mapbox Vector Tiles (MVT) for the message, area and AtoN map layers.
+ * <p>
+ * The entity geometries are simplified for the zoom level of the tile using the {@code GeometryLodService},
+ * transformed into tile coordinates and clipped to the tile. The encoded tiles are cached in the
+ * {@code VectorTileCache}, which is invalidated whenever the entities of a layer are updated.
+ */
+@Stateless
+@SuppressWarnings("unused")
+public class VectorTileService {
+
+    public static final String LAYER_MESSAGES   = "messages";
+    public static final String LAYER_AREAS      = "areas";
+    public static final String LAYER_ATONS      = "atons";
+
+    /** AtoNs are only included from this zoom level **/
+    static final int ATON_MIN_ZOOM = 8;
+
+    /** The max number of messages and AtoNs to include in a tile **/
+    static final int MAX_FEATURES = 5000;
+
+    static final GlobalMercator mercator = new GlobalMercator();
+
+    static final Histogram TILE_RENDER_TIME
+            = Metrics.histogram("niord_vector_tile_render_seconds", "Execution time of vector tile generation");
+    static final Counter TILE_CACHE_HITS
+            = Metrics.counter("niord_vector_tile_cache_hits", "Number of vector tiles served from the cache");
+
+    @Inject
+    Logger log;
+
+    @Inject
+    VectorTileCache vectorTileCache;
+
+    @Inject
+    GeometryLodService geometryLodService;
+
+    @Inject
+    MessageService messageService;
+
+    @Inject
+    AreaService areaService;
+
+    @Inject
+    AtonService atonService;
+
+    @Inject
+    DomainService domainService;
+
+
+    /** Returns if the given layer is a valid vector tile layer **/
+    public static boolean isValidLayer(String layer) {
+        return LAYER_MESSAGES.equals(layer) || LAYER_AREAS.equals(layer) || LAYER_ATONS.equals(layer);
+    }
+
+
+    /**
+     * Returns the encoded vector tile for the given layer and (Google/XYZ) tile coordinates.
+     * An empty array is returned for empty tiles.
+     *
+     * @param layer the layer
+     * @param z the zoom level
+     * @param x the tile x coordinate
+     * @param y the tile y coordinate
+     * @param domainId the optional domain used for filtering the messages and areas
+     * @param lang the optional language used for the message titles and area names
+     * @return the encoded vector tile
+     */
+    public byte[] getTile(String layer, int z, int x, int y, String domainId, String lang) {
+        if (!isValidLayer(layer)) {
+            throw new IllegalArgumentException("Invalid layer " + layer);
+        }
+
+        String key = tileCacheKey(layer, z, x, y, domainId, lang);
+        byte[] tile = vectorTileCache.getCache().get(key);
+        if (tile == null) {
+            long t0 = System.currentTimeMillis();
+            long nanoT0 = System.nanoTime();
+            tile = generateTile(layer, z, x, y, domainId, lang);
+            TILE_RENDER_TIME.recordSince(nanoT0);
+            vectorTileCache.getCache().put(key, tile);
+            log.debug("Generated vector tile " + key + " with " + tile.length + " bytes in "
+                    + (System.currentTimeMillis() - t0) + " ms");
+        } else {
+            TILE_CACHE_HITS.inc();
+        }
+        return tile;
+    }
+
+
+    /** Returns the cache key of the given tile **/
+    public String tileCacheKey(String layer, int z, int x, int y, String domainId, String lang) {
+        return layer + "/" + vectorTileCache.getLayerGeneration(layer) + "/"
+                + StringUtils.defaultString(domainId) + "/" + StringUtils.defaultString(lang) + "/"
+                + z + "/" + x + "/" + y;
+    }
+
+
+    /**
+     * Invalidates all cached tiles of the given layer
+     * @param layer the layer to invalidate
+     */
+    public void invalidateLayer(String layer) {
+        vectorTileCache.invalidateLayer(layer);
+    }
+
+
+    /**
+     * Generates the encoded vector tile for the given layer and (Google/XYZ) tile coordinates.
+     */
+    private byte[] generateTile(String layer, int z, int x, int y, String domainId, String lang) {
+        TileTransform transform = new TileTransform(z, x, y, VectorTileEncoder.DEFAULT_EXTENT);
+        VectorTileEncoder encoder = new VectorTileEncoder();
+
+        switch (layer) {
+            case LAYER_MESSAGES:
+                addMessages(encoder, transform, domainId, lang);
+                break;
+            case LAYER_AREAS:
+                addAreas(encoder, transform, domainId, lang);
+                break;
+            case LAYER_ATONS:
+                addAtons(encoder, transform);
+                break;
+        }
+
+        return encoder.isEmpty() ? new byte[0] : encoder.encode();
+    }
+
+
+    /** Adds the geometries of the published messages within the tile **/
+    private void addMessages(VectorTileEncoder encoder, TileTransform transform, String domainId, String lang) {
+        MessageSearchParams params = new MessageSearchParams()
+                .statuses(Status.PUBLISHED)
+                .extent(transform.minLat, transform.minLon, transform.maxLat, transform.maxLon)
+                .includeNoPos(false);
+        params.maxSize(MAX_FEATURES);
+
+        Domain domain = StringUtils.isNotBlank(domainId) ? domainService.findByDomainId(domainId) : null;
+        if (domain != null) {
+            params.seriesIds(domain.getMessageSeries().stream()
+                    .map(MessageSeries::getSeriesId)
+                    .collect(Collectors.toSet()));
+        }
+
+        DataFilter filter = DataFilter.get().lang(lang);
+        for (Message message : messageService.search(params).getData()) {
+            String title = message.getDescs(filter).stream()
+                    .map(MessageDesc::getTitle)
+                    .filter(StringUtils::isNotBlank)
+                    .findFirst()
+                    .orElse(null);
+
+            for (MessagePart part : message.getParts()) {
+                if (part.getGeometry() == null) {
+                    continue;
+                }
+                for (Feature feature : part.getGeometry().getFeatures()) {
+                    Map<String, Object> properties = new LinkedHashMap<>();
+                    properties.put("messageId", message.getUid());
+                    properties.put("shortId", message.getShortId());
+                    properties.put("mainType", message.getMainType());
+                    properties.put("type", message.getType());
+                    properties.put("title", title);
+                    properties.put("featureId", feature.getUid());
+                    encoder.addFeature(
+                            LAYER_MESSAGES,
+                            message.getId().longValue(),
+                            properties,
+                            transform.toTile(geometryLodService.simplify(feature.getGeometry(), transform.z)));
+                }
+            }
+        }
+    }
+
+
+    /** Adds the geometries of the areas within the tile **/
+    private void addAreas(VectorTileEncoder encoder, TileTransform transform, String domainId, String lang) {
+        // Only include sub-areas at higher zoom levels
+        int maxLevel = transform.z < 6 ? 1 : (transform.z < 9 ? 2 : 3);
+
+        Domain domain = StringUtils.isNotBlank(domainId) ? domainService.findByDomainId(domainId) : null;
+        List<String> domainLineages = domain == null ? null : domain.getAreas().stream()
+                .map(Area::getLineage)
+                .collect(Collectors.toList());
+
+        DataFilter filter = DataFilter.get().lang(lang);
+        for (Area area : areaService.getIntersectingAreas(transform.extent, maxLevel, false)) {
+            if (domainLineages != null && !domainLineages.isEmpty() &&
+                    domainLineages.stream().noneMatch(l -> area.getLineage().startsWith(l))) {
+                continue;
+            }
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("areaId", area.getId());
+            properties.put("name", area.getDescs(filter).stream()
+                    .map(AreaDesc::getName)
+                    .findFirst()
+                    .orElse(null));
+            encoder.addFeature(
+                    LAYER_AREAS,
+                    area.getId().longValue(),
+                    properties,
+                    transform.toTile(geometryLodService.simplify(area.getGeometry(), transform.z)));
+        }
+    }
+
+
+    /** Adds the AtoNs within the tile **/
+    private void addAtons(VectorTileEncoder encoder, TileTransform transform) {
+        if (transform.z < ATON_MIN_ZOOM) {
+            return;
+        }
+
+        AtonSearchParams params = new AtonSearchParams()
+                .extent(transform.minLat, transform.minLon, transform.maxLat, transform.maxLon);
+        params.maxSize(MAX_FEATURES);
+
+        for (AtonNode aton : atonService.search(params).getData()) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("atonUid", aton.getAtonUid());
+            properties.put("type", aton.getTagValue("seamark:type"));
+            encoder.addFeature(
+                    LAYER_ATONS,
+                    aton.getId().longValue(),
+                    properties,
+                    transform.toTile(aton.getGeometry()));
+        }
+    }
+
+
+    /**
+     * Transforms WGS84 geometries into the tile coordinates of a given tile
+     */
+    static class TileTransform {
+        final int z;
+        final double minLat, minLon, maxLat, maxLon;
+        final double minMx, maxMy, scale;
+        final Geometry extent;
+
+        /**
+         * Constructor
+         * @param z the zoom level
+         * @param x the Google/XYZ tile x coordinate
+         * @param y the Google/XYZ tile y coordinate
+         * @param tileExtent the extent of the tile in tile coordinates
+         */
+        TileTransform(int z, int x, int y, int tileExtent) {
+            this.z = z;
+            // NB: GlobalMercator uses TMS tile coordinates, with the y-axis pointing north
+            int tmsY = (1 << z) - 1 - y;
+            double[] bounds = mercator.TileBounds(x, tmsY, z);
+            double[] latLonBounds = mercator.TileLatLonBounds(x, tmsY, z);
+            minLat = latLonBounds[0];
+            minLon = latLonBounds[1];
+            maxLat = latLonBounds[2];
+            maxLon = latLonBounds[3];
+            minMx = bounds[0];
+            maxMy = bounds[3];
+            scale = tileExtent / (bounds[2] - bounds[0]);
+            extent = JtsConverter.toJtsExtent(minLat, minLon, maxLat, maxLon);
+        }
+
+        /** Returns a copy of the WGS84 geometry transformed into tile coordinates **/
+        Geometry toTile(Geometry geometry) {
+            if (geometry == null) {
+                return null;
+            }
+            Geometry result = geometry.copy();
+            result.apply(new CoordinateSequenceFilter() {
+                @Override
+                public void filter(CoordinateSequence seq, int i) {
+                    // Clamp latitudes to the valid Mercator range
+                    double lat = Math.max(-85.0511, Math.min(85.0511, seq.getY(i)));
+                    double[] m = mercator.LatLonToMeters(lat, seq.getX(i));
+                    seq.setOrdinate(i, 0, (m[0] - minMx) * scale);
+                    seq.setOrdinate(i, 1, (maxMy - m[1]) * scale);
+                }
+
+                @Override
+                public boolean isDone() {
+                    return false;
+                }
+
+                @Override
+                public boolean isGeometryChanged() {
+                    return true;
+                }
+            });
+            return result;
+        }
+    }
+}
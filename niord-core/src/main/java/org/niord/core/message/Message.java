@@ -103,6 +103,11 @@ import java.util.stream.Stream;
                         + " msg.publishDateFrom between :fromDate and :toDate and msg.number is not null"),
         @NamedQuery(name="Message.separatePageUids",
                 query="SELECT msg.uid FROM Message msg where msg.separatePage = true and msg.uid in (:uids)"),
+        @NamedQuery(name="Message.findUidsByStatus",
+                query="SELECT msg.uid FROM Message msg where msg.status = :status"),
+        @NamedQuery(name="Message.findUidsBySeriesIdsAndStatus",
+                query="SELECT msg.uid FROM Message msg where msg.messageSeries.seriesId in (:seriesIds) "
+                        + " and msg.status = :status"),
 })
 @SuppressWarnings("unused")
 public class Message extends VersionedEntity<Integer> implements ILocalizable<MessageDesc> {
@@ -13,17 +13,19 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+
 package org.niord.core.message;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.niord.core.conf.TextResource;
 import org.niord.core.message.vo.SystemMessageVo;
 import org.niord.core.repo.RepositoryService;
+import org.niord.core.settings.annotation.Setting;
 import org.niord.model.message.AttachmentVo;
 import org.niord.model.search.PagedSearchResultVo;
 import org.slf4j.Logger;
@@ -33,20 +35,51 @@ import javax.inject.Inject;
 import javax.ws.rs.WebApplicationException;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import static org.niord.core.settings.Setting.Type.Boolean;
+import static org.niord.core.settings.Setting.Type.Integer;
+
 /**
- * Exports a message search result as a Zip archive including attachments
+ * Exports a message search result as a Zip archive including attachments.
+ * <p>
+ * The export is streamed, so that memory consumption stays flat regardless of the size of the export:
+ * <ul>
+ *     <li>The search result is loaded page by page.</li>
+ *     <li>The messages are serialized directly to a temporary JSON file, which is subsequently copied into
+ *         the "messages.json" entry and, JavaScript-escaped, into the "messages-preview.html" entry.</li>
+ *     <li>Attachments are copied from the repository straight into the archive. Already-compressed
+ *         files, such as images and PDFs, may be stored uncompressed.</li>
+ * </ul>
  */
 @Stateless
 public class MessageExportService {
 
+    /** The number of messages to load per page **/
+    public static final int EXPORT_PAGE_SIZE = 100;
+
+    /** Placeholder in the preview HTML file, where the JavaScript-escaped messages JSON is injected **/
+    private static final String MESSAGES_JSON_PLACEHOLDER = "<<MESSAGES-JSON>>";
+
+    /** File types that are already compressed **/
+    private static final Set<String> COMPRESSED_FILE_TYPES = new HashSet<>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "pdf", "zip", "gz", "mp3", "mp4", "docx", "xlsx", "pptx"));
+
     @Inject
     Logger log;
 
@@ -58,54 +91,200 @@ public class MessageExportService {
     @TextResource("/export-messages.html")
     String messagesPreviewHtmlFile;
 
+    @Inject
+    @Setting(value = "messageExportMaxSize", defaultValue = "10000", type = Integer,
+            description = "The max number of messages to include in a message export archive")
+    Integer exportMaxSize;
+
+    @Inject
+    @Setting(value = "messageExportStoreCompressed", defaultValue = "true", type = Boolean,
+            description = "Whether to store already-compressed attachments, such as images and PDFs, uncompressed in export archives")
+    Boolean storeCompressed;
+
+
+    /**
+     * Loads a page of the message search result to export
+     */
+    @FunctionalInterface
+    public interface MessagePageLoader {
+
+        /**
+         * Loads the given page of the message search result
+         * @param page the index of the page to load
+         * @return the page of the message search result
+         */
+        PagedSearchResultVo<SystemMessageVo> loadPage(int page) throws Exception;
+    }
+
+
     /**
      * Exports the messages search result to the output stream
      * @param result the search result
      * @param os the output stream
      */
     public void export(PagedSearchResultVo<SystemMessageVo> result, OutputStream os) {
+        export(page -> page == 0 ? result : new PagedSearchResultVo<>(), os);
+    }
+
+
+    /**
+     * Exports the messages search result to the output stream.
+     * <p>
+     * Pages are loaded, starting with page 0, until an empty page is returned,
+     * the total search result count is reached or the max export size is reached.
+     *
+     * @param pageLoader loads the pages of the search result
+     * @param os the output stream
+     */
+    public void export(MessagePageLoader pageLoader, OutputStream os) {
 
         long t0 = System.currentTimeMillis();
+        Path messagesFile = null;
         try {
             ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(os));
 
-            // Rewrite links in message description to remove "/rest/repo/file/" prefix
-            result.getData().forEach(m -> m.rewriteRepoPath("\"/rest/repo/file/" + m.getRepoPath(), "\"" + m.getRepoPath()));
+            // Stream the messages to a temporary file, retaining just the file references of each message
+            messagesFile = Files.createTempFile("niord-export", ".json");
+            List<SystemMessageVo> fileRefs = new ArrayList<>();
+            int count = writeMessages(pageLoader, messagesFile, fileRefs);
 
             // Write the messages file to the Zip file
             log.debug("Adding messages.json to zip archive");
             out.putNextEntry(new ZipEntry("messages.json"));
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
-            String messages = mapper.writeValueAsString(result);
-            IOUtils.write(messages, out, "utf-8");
+            Files.copy(messagesFile, out);
             out.closeEntry();
 
             // Write the messages-preview.html file into the archive.
             // Can be used to preview the messages by someone unzipping the archive
-            String html = messagesPreviewHtmlFile.replace("<<MESSAGES-JSON>>", StringEscapeUtils.escapeJavaScript(messages));
             log.debug("Adding messages-preview.html to zip archive");
             out.putNextEntry(new ZipEntry("messages-preview.html"));
-            IOUtils.write(html, out, "utf-8");
+            writePreviewHtml(messagesFile, out);
             out.closeEntry();
 
 
             // Write the message attachments and thumbnail files to the Zip file
             Set<String> folderCache = new HashSet<>();
-            result.getData().stream()
-                    .filter(m -> m.getAttachments() != null && !m.getAttachments().isEmpty())
-                    .forEach(m -> {
-                        exportAttachments(m, out, folderCache);
-                        exportThumbnail(m, out, folderCache);
-                    });
+            fileRefs.forEach(m -> {
+                exportAttachments(m, out, folderCache);
+                exportThumbnail(m, out, folderCache);
+            });
 
 
             out.flush();
             out.close();
-            log.info("Created Zip export archive in " + (System.currentTimeMillis() - t0) + " ms");
+            log.info("Created Zip export archive with " + count + " messages in "
+                    + (System.currentTimeMillis() - t0) + " ms");
         } catch (Exception e) {
             throw new WebApplicationException("Error generating ZIP archive for messages", e);
+        } finally {
+            if (messagesFile != null) {
+                try {
+                    Files.deleteIfExists(messagesFile);
+                } catch (IOException e) {
+                    log.warn("Failed deleting temporary export file " + messagesFile);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Streams the messages of the paged search result to the given JSON file.
+     * The resulting file has the same format as a serialized {@code PagedSearchResultVo}.
+     *
+     * @param pageLoader loads the pages of the search result
+     * @param file the file to write the messages to
+     * @param fileRefs will be updated with the attachment and thumbnail references of the messages
+     * @return the number of messages written
+     */
+    private int writeMessages(MessagePageLoader pageLoader, Path file, List<SystemMessageVo> fileRefs) throws Exception {
+
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+        int count = 0;
+        long total = 0;
+        String description = null;
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file));
+             JsonGenerator gen = mapper.getFactory().createGenerator(os, JsonEncoding.UTF8)) {
+
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("data");
+
+            for (int page = 0; count < exportMaxSize; page++) {
+                PagedSearchResultVo<SystemMessageVo> result = pageLoader.loadPage(page);
+                if (result.getData() == null || result.getData().isEmpty()) {
+                    break;
+                }
+                if (page == 0) {
+                    total = result.getTotal();
+                    description = result.getDescription();
+                }
+
+                for (SystemMessageVo m : result.getData()) {
+                    if (count >= exportMaxSize) {
+                        break;
+                    }
+
+                    // Rewrite links in message description to remove "/rest/repo/file/" prefix
+                    m.rewriteRepoPath("\"/rest/repo/file/" + m.getRepoPath(), "\"" + m.getRepoPath());
+                    mapper.writeValue(gen, m);
+                    count++;
+
+                    if (m.getAttachments() != null && !m.getAttachments().isEmpty()) {
+                        fileRefs.add(fileRefs(m));
+                    }
+                }
+
+                if (count >= total) {
+                    break;
+                }
+            }
+
+            gen.writeEndArray();
+            gen.writeNumberField("total", total);
+            gen.writeNumberField("size", count);
+            gen.writeStringField("description", description);
+            gen.writeEndObject();
         }
+        return count;
+    }
+
+
+    /** Returns a copy of the message with only the fields needed for exporting attachments and thumbnails **/
+    private SystemMessageVo fileRefs(SystemMessageVo message) {
+        SystemMessageVo refs = new SystemMessageVo();
+        refs.setId(message.getId());
+        refs.setRepoPath(message.getRepoPath());
+        refs.setThumbnailPath(message.getThumbnailPath());
+        refs.setAttachments(message.getAttachments());
+        return refs;
+    }
+
+
+    /**
+     * Writes the preview HTML file with the JavaScript-escaped messages JSON injected
+     * @param messagesFile the messages JSON file
+     * @param out the output stream
+     */
+    private void writePreviewHtml(Path messagesFile, OutputStream out) throws IOException {
+        int index = messagesPreviewHtmlFile.indexOf(MESSAGES_JSON_PLACEHOLDER);
+
+        // NB: The writer must not be closed, as this would close the zip output stream
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write(messagesPreviewHtmlFile, 0, index);
+
+        // JavaScript escaping is character-based, so the JSON may be escaped chunk by chunk
+        try (Reader in = Files.newBufferedReader(messagesFile, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[8192];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                StringEscapeUtils.escapeJavaScript(writer, new String(buffer, 0, len));
+            }
+        }
+
+        writer.write(messagesPreviewHtmlFile.substring(index + MESSAGES_JSON_PLACEHOLDER.length()));
+        writer.flush();
     }
 
 
@@ -192,15 +371,40 @@ public class MessageExportService {
     }
 
 
-    /** Adds the file to the zip archive **/
+    /**
+     * Adds the file to the zip archive.
+     * Already-compressed files are stored uncompressed, if so configured
+     **/
     private void addFile(ZipOutputStream out, String path, Path file) throws IOException {
         log.debug("Adding file " + path + " to zip archive");
-        out.putNextEntry(new ZipEntry(path));
-        FileUtils.copyFile(file.toFile(), out);
+        ZipEntry entry = new ZipEntry(path);
+        if (storeCompressed &&
+                COMPRESSED_FILE_TYPES.contains(FilenameUtils.getExtension(path).toLowerCase())) {
+            // Stored entries must have the size and CRC specified up front
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(Files.size(file));
+            entry.setCrc(computeCrc(file));
+        }
+        out.putNextEntry(entry);
+        Files.copy(file, out);
         out.closeEntry();
     }
 
 
+    /** Computes the CRC-32 checksum of the file **/
+    private long computeCrc(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, len);
+            }
+        }
+        return crc.getValue();
+    }
+
+
     /** Adds folders to the zip archive that have not already been added **/
     private void addParentFolders(ZipOutputStream out, Set<String> folderCache, String folder) {
         StringBuilder parentFolder = new StringBuilder();
@@ -31,17 +31,23 @@ import javax.persistence.NamedQuery;
 import javax.persistence.PrePersist;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Transient;
 import javax.validation.constraints.NotNull;
 import java.util.Date;
 
 /**
  * The {@code MessageHistory} registers the history of a {@code Message} by storing a JSON snapshot
  * of the Message for every change, along with the changing user and time.
+ * <p>
+ * The snapshot is either a full JSON snapshot of the message, or a JSON patch relative to the
+ * snapshot of the previous history entry. Please refer to {@linkplain MessageHistoryService}.
  */
 @Entity
 @NamedQueries({
     @NamedQuery(name = "MessageHistory.findByMessageId",
                 query = "SELECT mh FROM MessageHistory mh where mh.message.id = :messageId order by mh.created desc"),
+        @NamedQuery(name = "MessageHistory.findLatestByMessageId",
+                query = "SELECT mh FROM MessageHistory mh where mh.message.id = :messageId order by mh.id desc"),
         @NamedQuery(name = "MessageHistory.findRecentChangesByUser",
                 query = "SELECT mh FROM MessageHistory mh where mh.user = :user and mh.created > :date " +
                         " and mh.message.messageSeries in (:messageSeries)" +
@@ -71,6 +77,9 @@ public class MessageHistory extends BaseEntity<Integer> {
     @Lob
     byte[] snapshot;
 
+    @Transient
+    String resolvedSnapshot;
+
     @PrePersist
     protected void onCreate() {
         if (created == null) {
@@ -88,18 +97,14 @@ public class MessageHistory extends BaseEntity<Integer> {
         }
         history.setVersion(version);
         history.setCreated(created);
-        history.setSnapshot(GzipUtils.decompressStringIgnoreError(snapshot));
+        history.setSnapshot(resolvedSnapshot != null
+                ? resolvedSnapshot
+                : GzipUtils.decompressStringIgnoreError(snapshot));
 
         return history;
     }
 
 
-    /** Sets and compresses the given snapshot **/
-    public void compressSnapshot(String snapshot) {
-        this.snapshot = GzipUtils.compressStringIgnoreError(snapshot);
-    }
-
-
     /*************************/
     /** Getters and Setters **/
     /*************************/
@@ -136,6 +141,14 @@ public class MessageHistory extends BaseEntity<Integer> {
         this.snapshot = snapshot;
     }
 
+    public String getResolvedSnapshot() {
+        return resolvedSnapshot;
+    }
+
+    public void setResolvedSnapshot(String resolvedSnapshot) {
+        this.resolvedSnapshot = resolvedSnapshot;
+    }
+
     public int getVersion() {
         return version;
     }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.message;
+
+import org.slf4j.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.MessageDriven;
+import javax.ejb.MessageDrivenContext;
+import javax.inject.Inject;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSDestinationDefinition;
+import javax.jms.MapMessage;
+import javax.jms.MessageListener;
+import javax.jms.Queue;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the message history entries queued by the {@linkplain MessageHistoryService}.
+ * <p>
+ * Upon delivery of a JMS message, the listener drains up to {@code BATCH_SIZE} further pending
+ * JMS messages from the queue, and records the whole batch in the transaction of the delivery.
+ * If recording the batch fails, the transaction is rolled back and all JMS messages of the batch re-delivered.
+ */
+@JMSDestinationDefinition(
+        name = MessageHistoryService.HISTORY_QUEUE,
+        interfaceName = "javax.jms.Queue",
+        destinationName = "MessageHistoryQueue")
+@MessageDriven(
+        name = "MessageHistoryMDB",
+        activationConfig = {
+                @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Queue"),
+                @ActivationConfigProperty(propertyName = "destination", propertyValue = MessageHistoryService.HISTORY_QUEUE),
+                @ActivationConfigProperty(propertyName = "acknowledgeMode", propertyValue = "Auto-acknowledge")
+        })
+@SuppressWarnings("unused")
+public class MessageHistoryListener implements MessageListener {
+
+    /** The maximum number of history entries recorded per transaction **/
+    static final int BATCH_SIZE = 50;
+
+    @Inject
+    Logger log;
+
+    @Inject
+    MessageHistoryService messageHistoryService;
+
+    @Inject
+    JMSContext jmsContext;
+
+    @Resource(lookup = MessageHistoryService.HISTORY_QUEUE)
+    Queue historyQueue;
+
+    @Resource
+    MessageDrivenContext context;
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onMessage(javax.jms.Message message) {
+
+        List<MapMessage> batch = new ArrayList<>();
+        batch.add((MapMessage) message);
+        try {
+            // Drain the pending history entries, received as part of the current transaction
+            try (JMSConsumer consumer = jmsContext.createConsumer(historyQueue)) {
+                javax.jms.Message next;
+                while (batch.size() < BATCH_SIZE && (next = consumer.receiveNoWait()) != null) {
+                    batch.add((MapMessage) next);
+                }
+            }
+
+            messageHistoryService.recordHistory(batch);
+        } catch (Throwable e) {
+            log.error("Failed recording a batch of " + batch.size() + " message history entries", e);
+            messageHistoryService.historyFailed();
+            context.setRollbackOnly();
+        }
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.message;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.hibernate.Session;
+import org.niord.core.message.vo.SystemMessageVo;
+import org.niord.core.metrics.Counter;
+import org.niord.core.metrics.Metrics;
+import org.niord.core.service.BaseService;
+import org.niord.core.user.User;
+import org.niord.core.util.GzipUtils;
+import org.niord.core.util.JsonPatchUtils;
+import org.niord.model.DataFilter;
+import org.niord.model.message.Status;
+import org.slf4j.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.jms.JMSContext;
+import javax.jms.MapMessage;
+import javax.jms.Queue;
+import javax.persistence.FlushModeType;
+import javax.persistence.LockModeType;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import static javax.transaction.Status.STATUS_ACTIVE;
+import static javax.transaction.Status.STATUS_COMMITTED;
+
+/**
+ * Stores and reconstructs message history snapshots.
+ * <p>
+ * Rather than storing a full JSON snapshot of the message for every change, a full snapshot is
+ * stored for every {@code FULL_SNAPSHOT_INTERVAL} history entries, and the history entries in
+ * between store a compact JSON patch relative to the snapshot of the previous history entry.
+ * <p>
+ * Full snapshots are JSON objects and deltas are JSON arrays, so the two are distinguished by
+ * their first character. Existing history entries, which all contain full snapshots, remain valid.
+ * <p>
+ * History entries are recorded asynchronously: the message transaction only queues the message ID and
+ * the history metadata on the {@code MessageHistoryQueue}. The {@linkplain MessageHistoryListener} records
+ * the queued entries in batches, where it serializes the snapshot of each message, computes the delta,
+ * compresses and persists the history entries in a single transaction.
+ * <p>
+ * Since the snapshot reflects the state of the message at the time of recording, only the latest of several
+ * entries of a message within a batch is recorded. The skipped entries would have had the same snapshot.
+ * <p>
+ * History entries that cannot be queued are recorded synchronously. Recording a history entry locks the
+ * message row, so a synchronously recorded entry is never computed concurrently with a queued entry
+ * of the same message being recorded.
+ */
+@Stateless
+public class MessageHistoryService extends BaseService {
+
+    public static final int FULL_SNAPSHOT_INTERVAL = 10;
+    public static final String HISTORY_QUEUE = "java:/jms/queue/MessageHistoryQueue";
+
+    /**
+     * Queue statistics for this node, used for monitoring back-pressure. The counters are only updated
+     * when the queueing or recording transaction has committed.
+     * <p>
+     * NB: In a cluster, an entry queued on one node may be recorded on another node, so the per-node
+     * pending count is only an approximation. The cluster-wide back-pressure is the sum of the queued
+     * counts minus the sum of the recorded counts of all nodes.
+     **/
+    private static final Counter queuedCount
+            = Metrics.counter("niord_message_history_queued", "Number of history entries queued for recording");
+    private static final Counter recordedCount
+            = Metrics.counter("niord_message_history_recorded", "Number of queued history entries recorded");
+    private static final Counter failedCount
+            = Metrics.counter("niord_message_history_failures", "Number of failed attempts at recording history entries");
+
+    static {
+        Metrics.gauge("niord_message_history_pending", "Number of queued history entries pending recording",
+                () -> Math.max(0, queuedCount.get() - recordedCount.get()));
+    }
+
+    /** Shared, pre-configured object mapper. Thread-safe once configured **/
+    private static final ObjectMapper jsonMapper = new ObjectMapper()
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false); // Use ISO-8601 format
+
+    @Inject
+    Logger log;
+
+    @Inject
+    MessageHistoryCache historyCache;
+
+    @Inject
+    JMSContext jmsContext;
+
+    @Resource(lookup = HISTORY_QUEUE)
+    Queue historyQueue;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+
+    /**
+     * Serializes the message snapshot as JSON
+     *
+     * @param snapshot the message snapshot
+     * @return the JSON snapshot
+     */
+    public String toJson(Object snapshot) throws IOException {
+        return jsonMapper.writeValueAsString(snapshot);
+    }
+
+
+    /**
+     * Returns a JSON snapshot of the current state of the message
+     *
+     * @param message the message
+     * @return the JSON snapshot
+     */
+    private String snapshot(Message message) throws IOException {
+        DataFilter dataFilter = DataFilter.get()
+                .fields("Message.details", "Message.geometry", "Message.promulgations");
+        return toJson(message.toVo(SystemMessageVo.class, dataFilter));
+    }
+
+
+    /**
+     * Queues the history entry for asynchronous recording. The JMS message is sent as part of
+     * the current transaction, and will thus only be delivered if the transaction commits.
+     * Only the message ID and the history metadata is queued, and the snapshot is serialized upon recording.
+     * <p>
+     * If the history entry cannot be queued, it is recorded synchronously.
+     *
+     * @param hist the history entity to record
+     */
+    public void queueHistory(MessageHistory hist) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("MESSAGE_ID", hist.getMessage().getId());
+        if (hist.getUser() != null) {
+            body.put("USER_ID", hist.getUser().getId());
+        }
+        body.put("STATUS", hist.getStatus().name());
+        body.put("VERSION", hist.getVersion());
+        body.put("CREATED", hist.getCreated().getTime());
+        try {
+            jmsContext.createProducer()
+                    .setProperty("JMSXGroupID", "message-" + hist.getMessage().getId())
+                    .send(historyQueue, body);
+            afterCommit(queuedCount::inc);
+        } catch (Exception e) {
+            log.warn("Failed queueing history entry for message " + hist.getMessage().getId()
+                    + ", recording it synchronously: " + e);
+            // Lock the message row, so that the entry is not recorded concurrently with queued entries
+            em.flush();
+            em.lock(hist.getMessage(), LockModeType.PESSIMISTIC_WRITE);
+            saveHistory(hist, snapshot(hist.getMessage()));
+        }
+    }
+
+
+    /**
+     * Records a batch of history entries queued by {@linkplain #queueHistory(MessageHistory)}
+     * in the current transaction. Called from the {@linkplain MessageHistoryListener}.
+     *
+     * @param batch the queued JMS message bodies
+     */
+    public void recordHistory(List<MapMessage> batch) throws Exception {
+        // Only record the latest entry of each message. Process the messages by ID, so that
+        // concurrent batches lock the message rows in the same order
+        Map<Integer, MapMessage> latest = new TreeMap<>();
+        for (MapMessage body : batch) {
+            latest.put(body.getInt("MESSAGE_ID"), body);
+        }
+
+        // Insert the history entries using JDBC batching
+        em.unwrap(Session.class).setJdbcBatchSize(latest.size());
+
+        for (MapMessage body : latest.values()) {
+            // Lock the message row, so that the entry is not recorded concurrently with a synchronously recorded entry
+            Message message = em.find(Message.class, body.getInt("MESSAGE_ID"), LockModeType.PESSIMISTIC_WRITE);
+            if (message == null) {
+                // The message may have been deleted in the mean time
+                continue;
+            }
+
+            MessageHistory hist = new MessageHistory();
+            hist.setMessage(message);
+            if (body.itemExists("USER_ID")) {
+                hist.setUser(em.find(User.class, body.getInt("USER_ID")));
+            }
+            hist.setStatus(Status.valueOf(body.getString("STATUS")));
+            hist.setVersion(body.getInt("VERSION"));
+            hist.setCreated(new Date(body.getLong("CREATED")));
+            saveHistory(hist, snapshot(message));
+        }
+        em.flush();
+
+        int count = batch.size();
+        afterCommit(() -> recordedCount.inc(count));
+    }
+
+
+    /** Registers that recording a queued history entry failed **/
+    public void historyFailed() {
+        failedCount.inc();
+    }
+
+
+    /** Returns the number of history entries queued by this node **/
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+
+    /** Returns the number of queued history entries recorded by this node **/
+    public long getRecordedCount() {
+        return recordedCount.get();
+    }
+
+
+    /** Returns the number of failed attempts at recording queued history entries on this node **/
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+
+    /**
+     * Returns the approximate number of pending history entries, i.e. the back-pressure, on this node.
+     * In a cluster, entries queued on this node may be recorded on other nodes, and vice versa,
+     * so the count is clamped at 0.
+     **/
+    public long getPendingCount() {
+        return Math.max(0, queuedCount.get() - recordedCount.get());
+    }
+
+
+    /**
+     * Saves the history entity along with the given message snapshot
+     *
+     * @param hist the history entity to save
+     * @param jsonSnapshot the JSON message snapshot
+     * @return the saved history entity
+     */
+    public MessageHistory saveHistory(MessageHistory hist, String jsonSnapshot) throws IOException {
+        JsonNode json = jsonMapper.readTree(jsonSnapshot);
+
+        // Look up the history entries since the latest full snapshot. Pending history entries of other messages
+        // do not affect the result, so do not flush them, which would defeat batched inserts
+        List<MessageHistory> previous = em.createNamedQuery("MessageHistory.findLatestByMessageId", MessageHistory.class)
+                .setParameter("messageId", hist.getMessage().getId())
+                .setMaxResults(FULL_SNAPSHOT_INTERVAL)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultList();
+        int fullIndex = indexOfFullSnapshot(previous);
+
+        String prevSnapshot = null;
+        if (fullIndex >= 0 && fullIndex < FULL_SNAPSHOT_INTERVAL - 1) {
+            MessageHistory prev = previous.get(0);
+            prevSnapshot = historyCache.getCache().get(prev.getId());
+            if (prevSnapshot == null) {
+                resolveSnapshots(new ArrayList<>(previous.subList(0, fullIndex + 1)));
+                prevSnapshot = prev.getResolvedSnapshot();
+            }
+        }
+
+        if (prevSnapshot != null) {
+            JsonNode patch = JsonPatchUtils.diff(jsonMapper.readTree(prevSnapshot), json);
+            hist.setSnapshot(GzipUtils.compressString(jsonMapper.writeValueAsString(patch)));
+        } else {
+            hist.setSnapshot(GzipUtils.compressString(jsonSnapshot));
+        }
+
+        hist = saveEntity(hist);
+        hist.setResolvedSnapshot(jsonSnapshot);
+
+        // Only cache the snapshot once the history entry has been committed
+        Integer histId = hist.getId();
+        if (histId != null) {
+            afterCommit(() -> historyCache.getCache().put(histId, jsonSnapshot));
+        }
+        return hist;
+    }
+
+
+    /**
+     * Runs the task when the current transaction has committed, or immediately if there is no active transaction
+     * @param task the task to run
+     */
+    private void afterCommit(Runnable task) {
+        if (transactionRegistry != null
+                && transactionRegistry.getTransactionStatus() == STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        task.run();
+                    }
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+
+    /**
+     * Returns the message history for the given message ID, with the snapshots resolved
+     *
+     * @param messageId the message ID
+     * @return the message history
+     */
+    public List<MessageHistory> getMessageHistory(Integer messageId) {
+        List<MessageHistory> history = em.createNamedQuery("MessageHistory.findByMessageId", MessageHistory.class)
+                .setParameter("messageId", messageId)
+                .getResultList();
+        resolveSnapshots(new ArrayList<>(history));
+        return history;
+    }
+
+
+    /**
+     * Resolves the full snapshots of the given history entries of a message.
+     * The oldest entry should contain a full snapshot.
+     *
+     * @param history the history entries of a message
+     */
+    private void resolveSnapshots(List<MessageHistory> history) {
+        history.sort(Comparator.comparing(MessageHistory::getId));
+
+        JsonNode current = null;
+        String currentSnapshot = null;
+        for (MessageHistory hist : history) {
+            try {
+                String snapshot = historyCache.getCache().get(hist.getId());
+                if (snapshot != null) {
+                    current = null;
+                } else {
+                    String data = GzipUtils.decompressString(hist.getSnapshot());
+                    if (isFullSnapshot(data)) {
+                        snapshot = data;
+                        current = null;
+                    } else {
+                        if (current == null && currentSnapshot != null) {
+                            current = jsonMapper.readTree(currentSnapshot);
+                        }
+                        if (current == null) {
+                            throw new IOException("No base snapshot for history entry " + hist.getId());
+                        }
+                        current = JsonPatchUtils.apply(current, jsonMapper.readTree(data));
+                        snapshot = jsonMapper.writeValueAsString(current);
+                    }
+                    historyCache.getCache().put(hist.getId(), snapshot);
+                }
+                hist.setResolvedSnapshot(snapshot);
+                currentSnapshot = snapshot;
+
+            } catch (Exception e) {
+                log.error("Error resolving snapshot of message history entry " + hist.getId() + ": " + e);
+                current = null;
+                currentSnapshot = null;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the index of the first history entry with a full snapshot, or -1 if none is found
+     * @param history the history entries
+     * @return the index of the first history entry with a full snapshot, or -1 if none is found
+     */
+    private int indexOfFullSnapshot(List<MessageHistory> history) {
+        for (int x = 0; x < history.size(); x++) {
+            if (isFullSnapshot(history.get(x).getSnapshot())) {
+                return x;
+            }
+        }
+        return -1;
+    }
+
+
+    /** Returns if the compressed snapshot is a full snapshot. Only decompresses the first character **/
+    private boolean isFullSnapshot(byte[] snapshot) {
+        if (snapshot == null) {
+            return false;
+        }
+        try (Reader in = new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(snapshot)), StandardCharsets.UTF_8)) {
+            int c;
+            do {
+                c = in.read();
+            } while (c != -1 && Character.isWhitespace(c));
+            return c == '{';
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+
+    /** Returns if the snapshot data is a full snapshot, rather than a JSON patch **/
+    private boolean isFullSnapshot(String data) {
+        return data != null && data.trim().startsWith("{");
+    }
+}
@@ -43,8 +43,13 @@ import org.niord.core.area.Area;
 import org.niord.core.area.AreaDesc;
 import org.niord.core.category.Category;
 import org.niord.core.category.CategoryDesc;
+import org.niord.core.metrics.Counter;
+import org.niord.core.metrics.Histogram;
+import org.niord.core.metrics.Metrics;
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.service.BaseService;
 import org.niord.core.settings.annotation.Setting;
+import org.niord.core.startup.StartupService;
 import org.niord.core.util.LuceneUtils;
 import org.niord.core.util.TextUtils;
 import org.niord.model.message.Status;
@@ -64,6 +69,7 @@ import javax.ejb.Timeout;
 import javax.ejb.TimerConfig;
 import javax.ejb.TimerService;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -81,7 +87,8 @@ import static org.niord.core.settings.Setting.Type.Boolean;
  * A Lucene index used for free-text searching all messages.
  * <p>
  * The index will initially index all messages, and subsequently check every minute
- * for changed message to add or update in the index.
+ * for changed message to add or update in the index. Additionally, the {@linkplain MessageLuceneIndexListener}
+ * triggers an update shortly after message status changes.
  * <p>
  * Note to self: Using "Hibernate Search" for message (as for AtoNs), was ruled out because it would
  * be too complex to index all related entities by language.
@@ -89,6 +96,7 @@ import static org.niord.core.settings.Setting.Type.Boolean;
 @Singleton
 @Lock(LockType.READ)
 @Startup
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class MessageLuceneIndex extends BaseService {
 
@@ -98,6 +106,14 @@ public class MessageLuceneIndex extends BaseService {
     final static int LUCENE_MAX_INDEX_COUNT         = 5000;
     final static int LUCENE_OPTIMIZE_INDEX_COUNT    = 5000;
     final static int LUCENE_MAX_NUM_SEGMENTS        = 4;
+    final static String STARTUP_PHASE               = "message-index";
+
+    static final Histogram QUERY_TIME
+            = Metrics.histogram("niord_lucene_query_seconds", "Execution time of message Lucene index queries");
+    static final Histogram INDEX_TIME
+            = Metrics.histogram("niord_lucene_index_seconds", "Execution time of message Lucene index updates");
+    static final Counter INDEXED_MESSAGES
+            = Metrics.counter("niord_lucene_indexed_messages", "Number of messages indexed in the message Lucene index");
 
     @Inject
     @Setting(value="messageIndexPath", defaultValue="${niord.home}/message-index",
@@ -126,6 +142,9 @@ public class MessageLuceneIndex extends BaseService {
     @Inject
     NiordApp app;
 
+    @Inject
+    StartupService startupService;
+
 
     DirectoryReader reader;
     int optimizeIndexCount = 0;
@@ -156,10 +175,23 @@ public class MessageLuceneIndex extends BaseService {
             }
         }
 
-        // Wait 5 seconds before initializing the message index
-        timerService.createSingleActionTimer(5000, new TimerConfig());
+        // Initialize the message index asynchronously. An existing index can serve searches whilst
+        // it is being brought up-to-date, so the phase is only critical when there is no index on disk
+        startupService.register(STARTUP_PHASE, !indexExists());
+        timerService.createSingleActionTimer(StartupService.ASYNC_START_DELAY, new TimerConfig());
     }
 
+    /** Returns if a Lucene index exists in the index folder **/
+    private boolean indexExists() {
+        try (Directory dir = FSDirectory.open(indexFolder)) {
+            return DirectoryReader.indexExists(dir);
+        } catch (IOException e) {
+            log.error("Failed checking Lucene index in folder " + indexFolder, e);
+            return false;
+        }
+    }
+
+
     /**
      * Clean up Lucene index
      */
@@ -180,13 +212,29 @@ public class MessageLuceneIndex extends BaseService {
     private int updateLuceneIndex() {
         lock.lock();
         try {
-            return updateLuceneIndex(LUCENE_MAX_INDEX_COUNT);
+            startupService.start(STARTUP_PHASE);
+            int updates = updateLuceneIndex(LUCENE_MAX_INDEX_COUNT);
+            if (allMessagesIndexed) {
+                startupService.complete(STARTUP_PHASE);
+            }
+            return updates;
         } finally {
             lock.unlock();
         }
     }
 
 
+    /**
+     * Updates the Lucene index with changed messages without waiting for the next scheduled update.
+     * Called by the {@linkplain MessageLuceneIndexListener}.
+     *
+     * @return the number of updates
+     */
+    public int indexChangedMessages() {
+        return updateLuceneIndex();
+    }
+
+
     /**
      * Returns the analyzer to use.
      * <p>
@@ -509,6 +557,7 @@ public class MessageLuceneIndex extends BaseService {
 
 
             // Create a new index writer
+            long indexT0 = System.nanoTime();
             writer = getNewWriter();
 
             // Update the index with the changes
@@ -535,6 +584,8 @@ public class MessageLuceneIndex extends BaseService {
                 optimizeIndexCount = 0;
             }
 
+            INDEX_TIME.recordSince(indexT0);
+            INDEXED_MESSAGES.inc(updatedMessages.size());
             log.info("Indexed " + updatedMessages.size() + " messages in "
                     + (System.currentTimeMillis() - t0) + " ms");
 
@@ -655,6 +706,7 @@ public class MessageLuceneIndex extends BaseService {
      */
     public List<Long> searchIndex(String freeTextSearch, String language, int maxHits) throws IOException, ParseException {
 
+        long t0 = System.nanoTime();
         Query query;
         if (StringUtils.isNotBlank(freeTextSearch)) {
             // Normalize query text
@@ -682,6 +734,7 @@ public class MessageLuceneIndex extends BaseService {
             Document d = searcher.doc(hit.doc);
             ids.add(Long.valueOf(d.get(LUCENE_ID_FIELD)));
         }
+        QUERY_TIME.recordSince(t0);
         return ids;
     }
 
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.message;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Used for listening for message status updates via the message status event bus and
+ * updating the message Lucene index
+ */
+@ApplicationScoped
+@SuppressWarnings("unused")
+public class MessageLuceneIndexListener implements MessageStatusEventListener {
+
+    @Inject
+    MessageLuceneIndex messageLuceneIndex;
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBatchWindow() {
+        return 2000L;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onMessageStatusEvents(List<MessageStatusEvent> events) {
+        messageLuceneIndex.indexChangedMessages();
+    }
+}
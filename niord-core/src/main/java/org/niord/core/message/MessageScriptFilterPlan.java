@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.message;
+
+import org.apache.commons.lang.StringUtils;
+import org.niord.model.message.MainType;
+import org.niord.model.message.Status;
+import org.niord.model.message.Type;
+
+import javax.script.Invocable;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates a list of message filters in one go.
+ * <p>
+ * All filters are compiled into a single script, which evaluates a message against every filter
+ * with one script invocation. Each filter is passed its own "data" parameter.
+ * Blank filters are replaced by the default filter, if defined.
+ * The filters share a script engine, so they are evaluated in strict mode, which prevents a filter from
+ * assigning global variables visible to the other filters.
+ * Invalid filters, or filters that fail for a given message, exclude the message.
+ * <p>
+ * Message filter example:
+ * "(msg.type == Type.TEMPORARY_NOTICE || msg.type == Type.PRELIMINARY_NOTICE) && msg.status == Status.PUBLISHED"
+ */
+@SuppressWarnings("unused")
+public class MessageScriptFilterPlan {
+
+    private static Class<?>[] FILTER_ENUMS = { MainType.class, Type.class, Status.class };
+
+    private final List<String> filters;
+    private final List<String> invalidFilters = new ArrayList<>();
+    private final Invocable planFunction;
+
+
+    /**
+     * Constructor
+     * @param filters the message filters
+     */
+    public MessageScriptFilterPlan(List<String> filters) throws Exception {
+        this(filters, null);
+    }
+
+
+    /**
+     * Constructor
+     * @param filters the message filters
+     * @param defaultFilter the filter used in place of blank filters. If blank, blank filters exclude all messages
+     */
+    public MessageScriptFilterPlan(List<String> filters, String defaultFilter) throws Exception {
+        this.filters = Collections.unmodifiableList(resolveFilters(filters, defaultFilter));
+
+        ScriptEngine jsEngine = new ScriptEngineManager()
+                .getEngineByName("Nashorn");
+        if (jsEngine == null) {
+            throw new Exception("No Nashorn script engine available");
+        }
+
+        // Import the enums using the official Nashorn mechanism. See MessageScriptFilterEvaluator
+        StringBuilder js = new StringBuilder(getNashornImports());
+
+        // Wrap each valid filter in a strict mode function of its own
+        for (int x = 0; x < this.filters.size(); x++) {
+            String filter = this.filters.get(x);
+            String filterFunction = String.format("function filter%d(msg, data) { 'use strict'; return %s; }%n",
+                    x, filter == null || filter.trim().isEmpty() ? "false" : filter);
+            try {
+                jsEngine.eval("(function() {" + filterFunction + "})");
+            } catch (Exception e) {
+                invalidFilters.add(filter);
+                filterFunction = String.format("function filter%d(msg, data) { return false; }%n", x);
+            }
+            js.append(filterFunction);
+        }
+
+        // The plan function evaluates all filters and stores the results in the result array
+        js.append("function includeMessage(msg, data, result) {\n");
+        for (int x = 0; x < this.filters.size(); x++) {
+            js.append(String.format("  try { result[%d] = filter%d(msg, data[%d]) === true; } catch (e) { result[%d] = false; }%n",
+                    x, x, x, x));
+        }
+        js.append("}\n");
+
+        jsEngine.eval(js.toString());
+        planFunction = (Invocable)jsEngine;
+    }
+
+
+    /**
+     * Returns the filters with blank filters replaced by the default filter, or by the empty string
+     * if no default filter is defined
+     * @param filters the message filters
+     * @param defaultFilter the filter used in place of blank filters
+     * @return the resolved filters
+     */
+    public static List<String> resolveFilters(List<String> filters, String defaultFilter) {
+        String blankFilter = StringUtils.defaultIfBlank(defaultFilter, "");
+        return filters.stream()
+                .map(f -> StringUtils.defaultIfBlank(f, blankFilter))
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Returns a scrip to prefix the message filter containing imports of various enums.
+     * Example "var Status = Java.type('org.niord.model.message.Status');"
+     */
+    private String getNashornImports() {
+        return Arrays.stream(FILTER_ENUMS)
+                .map(type -> String.format("var %s = Java.type('%s');%n", type.getSimpleName(), type.getCanonicalName()))
+                .collect(Collectors.joining());
+    }
+
+
+    /**
+     * Evaluates the message against all filters of the plan
+     * @param message the message to check
+     * @param data the data objects passed on to the filter functions, one per filter
+     * @return for each filter, if the message is included in the filter or not
+     */
+    public boolean[] includeMessage(Message message, Object[] data) {
+        boolean[] result = new boolean[filters.size()];
+        if (!filters.isEmpty()) {
+            try {
+                planFunction.invokeFunction("includeMessage", message, data, result);
+            } catch (Exception ignored) {
+                // Do not include
+                Arrays.fill(result, false);
+            }
+        }
+        return result;
+    }
+
+
+    public List<String> getFilters() {
+        return filters;
+    }
+
+    public List<String> getInvalidFilters() {
+        return invalidFilters;
+    }
+}
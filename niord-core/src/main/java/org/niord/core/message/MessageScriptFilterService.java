@@ -24,6 +24,8 @@ import javax.ejb.Lock;
 import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.inject.Inject;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -39,12 +41,25 @@ import java.util.concurrent.ConcurrentHashMap;
 @SuppressWarnings("unused")
 public class MessageScriptFilterService extends BaseService {
 
+    /** The maximum number of cached filter plans **/
+    static final int MAX_CACHED_PLANS = 20;
+
     @Inject
     private Logger log;
 
     // Cache of MessageTagFilterEvaluator
     final Map<String, MessageScriptFilterEvaluator> filters = new ConcurrentHashMap<>();
 
+    // LRU cache of MessageScriptFilterPlan. Each plan holds a script engine, and plans of edited filters are never
+    // looked up again, so only keep the recently used plans
+    final Map<List<String>, MessageScriptFilterPlan> plans
+            = new LinkedHashMap<List<String>, MessageScriptFilterPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, MessageScriptFilterPlan> eldest) {
+            return size() > MAX_CACHED_PLANS;
+        }
+    };
+
 
     /**
      * Check if the message is included in the filter or not
@@ -77,5 +92,38 @@ public class MessageScriptFilterService extends BaseService {
         return evaluator.includeMessage(message, data);
     }
 
+
+    /**
+     * Returns the compiled evaluation plan for the given list of filters
+     * @param filters the filters
+     * @param defaultFilter the filter used in place of blank filters
+     * @return the evaluation plan for the filters
+     */
+    public MessageScriptFilterPlan getFilterPlan(List<String> filters, String defaultFilter) {
+        List<String> key = MessageScriptFilterPlan.resolveFilters(filters, defaultFilter);
+
+        synchronized (plans) {
+            MessageScriptFilterPlan plan = plans.get(key);
+            if (plan != null) {
+                return plan;
+            }
+        }
+
+        // Compile the plan outside the lock. Concurrent callers may compile the same plan, but only one is cached
+        MessageScriptFilterPlan plan;
+        try {
+            plan = new MessageScriptFilterPlan(key);
+            plan.getInvalidFilters().forEach(f -> log.error("Invalid message script filter " + f));
+            log.info("instantiated message script filter plan with " + key.size() + " filters");
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Error instantiating message script filter plan", ex);
+        }
+
+        synchronized (plans) {
+            MessageScriptFilterPlan cached = plans.putIfAbsent(key, plan);
+            return cached != null ? cached : plan;
+        }
+    }
+
 }
 
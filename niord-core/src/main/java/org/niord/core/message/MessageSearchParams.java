@@ -99,6 +99,8 @@ public class MessageSearchParams extends PagedSearchParamsVo {
     Set<String> publications = new HashSet<>();
     Set<String> promulgationTypes = new HashSet<>();
     String viewMode;
+    // In map view mode, the zoom level used for selecting the level-of-detail of geometries
+    Integer zoom;
 
     Geometry extent;
     // If an extent is specified, use this to fetch messages with no geometry
@@ -158,6 +160,7 @@ public class MessageSearchParams extends PagedSearchParamsVo {
                 .userType(checkNull(getParameterValues(reqParams, "userType"), UserType::valueOf))
                 .commentsType(checkNull(getParameterValues(reqParams, "comments"), CommentsType::valueOf))
                 .viewMode(getParameterValues(reqParams, "viewMode"))
+                .zoom(checkNull(getParameterValues(reqParams, "zoom"), Integer::valueOf))
 
                 // Extent parameters
                 .extent(checkNull(getParameterValues(reqParams, "minLat"), Double::valueOf),
@@ -554,4 +557,13 @@ public class MessageSearchParams extends PagedSearchParamsVo {
         this.viewMode = viewMode;
         return this;
     }
+
+    public Integer getZoom() {
+        return zoom;
+    }
+
+    public MessageSearchParams zoom(Integer zoom) {
+        this.zoom = zoom;
+        return this;
+    }
 }
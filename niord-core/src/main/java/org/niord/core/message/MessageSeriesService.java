@@ -25,6 +25,7 @@ import org.niord.core.sequence.Sequence;
 import org.niord.core.sequence.SequenceService;
 import org.niord.core.service.BaseService;
 import org.niord.core.util.TimeUtils;
+import org.niord.core.web.SiteBundleVersion;
 import org.niord.model.message.MainType;
 import org.niord.model.message.Type;
 import org.slf4j.Logger;
@@ -67,6 +68,9 @@ public class MessageSeriesService extends BaseService {
     @Inject
     NiordApp app;
 
+    @Inject
+    SiteBundleVersion siteBundleVersion;
+
     /**
      * Returns the message series with the given series identifier
      * @param seriesId the series identifier
@@ -184,6 +188,10 @@ public class MessageSeriesService extends BaseService {
         }
 
         log.info("Creating new message series " + series.getSeriesId());
+
+        // Domains, as emitted in the site-config bundle, include the message series
+        siteBundleVersion.changed();
+
         return saveEntity(series);
     }
 
@@ -211,6 +219,7 @@ public class MessageSeriesService extends BaseService {
         original.setExcludeFromMessageIndex(series.getExcludeFromMessageIndex());
 
         log.info("Updating message series " + series.getSeriesId());
+        siteBundleVersion.changed();
         return saveEntity(original);
     }
 
@@ -228,6 +237,7 @@ public class MessageSeriesService extends BaseService {
         if (original != null) {
             log.info("Removing message series " + seriesId);
             remove(original);
+            siteBundleVersion.changed();
             return true;
         }
         return false;
@@ -15,8 +15,6 @@
  */
 package org.niord.core.message;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import org.apache.commons.lang.StringUtils;
 import org.locationtech.jts.geom.Geometry;
 import org.niord.core.area.Area;
@@ -33,12 +31,18 @@ import org.niord.core.geojson.Feature;
 import org.niord.core.geojson.FeatureCollection;
 import org.niord.core.geojson.FeatureService;
 import org.niord.core.geojson.JtsConverter;
+import org.niord.core.mailinglist.MailingListMessageListener;
+import org.niord.core.map.VectorTileCache;
+import org.niord.core.map.VectorTileService;
 import org.niord.core.message.MessageSearchParams.DateType;
 import org.niord.core.message.MessageSearchParams.UserType;
 import org.niord.core.message.vo.SystemMessageVo;
+import org.niord.core.metrics.Histogram;
+import org.niord.core.metrics.Metrics;
 import org.niord.core.promulgation.BaseMessagePromulgation;
 import org.niord.core.promulgation.PromulgationManager;
 import org.niord.core.promulgation.PromulgationType;
+import org.niord.core.promulgation.TwitterMessageListener;
 import org.niord.core.publication.PublicationService;
 import org.niord.core.repo.RepositoryService;
 import org.niord.core.service.BaseService;
@@ -50,7 +54,6 @@ import org.niord.model.message.AreaVo;
 import org.niord.model.message.CategoryVo;
 import org.niord.model.message.ChartVo;
 import org.niord.model.message.MainType;
-import org.niord.model.message.MessageVo;
 import org.niord.model.message.ReferenceType;
 import org.niord.model.message.Status;
 import org.niord.model.search.PagedSearchResultVo;
@@ -62,6 +65,8 @@ import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.Queue;
 import javax.jms.Topic;
 import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
@@ -115,6 +120,9 @@ public class MessageService extends BaseService {
     }
 
 
+    private static final Histogram SEARCH_TIME
+            = Metrics.histogram("niord_message_search_seconds", "Execution time of message searches");
+
     @Inject
     private Logger log;
 
@@ -124,6 +132,15 @@ public class MessageService extends BaseService {
     @Resource(mappedName = "java:/jms/topic/MessageStatusTopic")
     Topic messageStatusTopic;
 
+    @Resource(lookup = MailingListMessageListener.STATUS_QUEUE)
+    Queue mailingListStatusQueue;
+
+    @Resource(lookup = TwitterMessageListener.PUBLISHED_QUEUE)
+    Queue twitterPublishedQueue;
+
+    @Inject
+    MessageStatusEventBus messageStatusEventBus;
+
     @Inject
     UserService userService;
 
@@ -160,6 +177,12 @@ public class MessageService extends BaseService {
     @Inject
     PromulgationManager promulgationManager;
 
+    @Inject
+    VectorTileCache vectorTileCache;
+
+    @Inject
+    MessageHistoryService messageHistoryService;
+
 
     /***************************************/
     /** Message Look-up                   **/
@@ -356,6 +379,11 @@ public class MessageService extends BaseService {
         // Save a MessageHistory entity for the message
         saveHistory(message);
 
+        // Invalidate the cached message vector tiles. Only published messages are included in the tiles
+        if (message.getStatus() == Status.PUBLISHED) {
+            vectorTileCache.invalidateLayer(VectorTileService.LAYER_MESSAGES);
+        }
+
         return message;
     }
 
@@ -672,6 +700,11 @@ public class MessageService extends BaseService {
 
         message = saveMessage(message);
 
+        // Un-published messages must be removed from the cached message vector tiles
+        if (prevStatus == Status.PUBLISHED) {
+            vectorTileCache.invalidateLayer(VectorTileService.LAYER_MESSAGES);
+        }
+
         // Broadcast the status change to any listener
         sendStatusUpdate(message, prevStatus);
 
@@ -699,18 +732,33 @@ public class MessageService extends BaseService {
 
 
     /**
-     * Broadcasts a JMS message to indicate that the message status has changed
+     * Publishes a message status event to the local listeners, and broadcasts a JMS message,
+     * to indicate that the message status has changed.
+     * <p>
+     * The status update is also queued on the durable queues of the mailing list and Twitter listeners,
+     * as part of the current transaction, since their side effects must not be lost upon a crash or redeploy.
      * @param message the message
      * @param prevStatus the previous status
      */
     private void sendStatusUpdate(Message message, Status prevStatus) {
+        messageStatusEventBus.publish(new MessageStatusEvent(
+                message.getId(),
+                message.getUid(),
+                message.getStatus(),
+                prevStatus));
+
         Map<String, Object> body = new HashMap<>();
         body.put("ID", message.getId());
         body.put("UID", message.getUid());
         body.put("STATUS", message.getStatus().name());
         body.put("PREV_STATUS", prevStatus.name());
         try {
-            jmsContext.createProducer().send(messageStatusTopic, body);
+            JMSProducer producer = jmsContext.createProducer();
+            producer.send(messageStatusTopic, body);
+            producer.send(mailingListStatusQueue, body);
+            if (message.getStatus() == Status.PUBLISHED) {
+                producer.send(twitterPublishedQueue, body);
+            }
         } catch (Exception e) {
             log.error("Failed sending JMS: " + e, e);
         }
@@ -923,6 +971,7 @@ public class MessageService extends BaseService {
 
         PagedSearchResultVo<Message> result = new PagedSearchResultVo<>();
 
+        long t0 = System.nanoTime();
         try {
 
             List<Integer> pagedMsgIds = searchPagedMessageIds(params, result);
@@ -934,6 +983,8 @@ public class MessageService extends BaseService {
 
         } catch (Exception e) {
             log.error("Error performing search " + params + ": " + e, e);
+        } finally {
+            SEARCH_TIME.recordSince(t0);
         }
 
         return result;
@@ -1390,15 +1441,8 @@ public class MessageService extends BaseService {
             hist.setCreated(new Date());
             hist.setVersion(message.getVersion() + 1);
 
-            // Create a snapshot of the message
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false); // Use ISO-8601 format
-            DataFilter dataFilter = DataFilter.get()
-                    .fields("Message.details", "Message.geometry", "Message.promulgations");
-            MessageVo snapshot = message.toVo(SystemMessageVo.class, dataFilter);
-            hist.compressSnapshot(jsonMapper.writeValueAsString(snapshot));
-
-            saveEntity(hist);
+            // Queue the entry for asynchronous recording. The snapshot is serialized upon recording
+            messageHistoryService.queueHistory(hist);
 
         } catch (Exception e) {
             log.error("Error saving a history entry for message " + message.getId(), e);
@@ -1413,9 +1457,7 @@ public class MessageService extends BaseService {
      * @return the message history
      */
     public List<MessageHistory> getMessageHistory(Integer messageId) {
-        return em.createNamedQuery("MessageHistory.findByMessageId", MessageHistory.class)
-                .setParameter("messageId", messageId)
-                .getResultList();
+        return messageHistoryService.getMessageHistory(messageId);
     }
 
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.message;
+
+import org.niord.model.message.Status;
+
+/**
+ * Event signalling that the status of a message has changed.
+ * <p>
+ * Events are published via the {@linkplain MessageStatusEventBus} and delivered to the registered
+ * {@linkplain MessageStatusEventListener} listeners once the transaction has committed.
+ */
+public class MessageStatusEvent {
+
+    private final Integer id;
+    private final String uid;
+    private final Status status;
+    private final Status prevStatus;
+
+    /** Constructor **/
+    public MessageStatusEvent(Integer id, String uid, Status status, Status prevStatus) {
+        this.id = id;
+        this.uid = uid;
+        this.status = status;
+        this.prevStatus = prevStatus;
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public String toString() {
+        return "MessageStatusEvent{" +
+                "uid='" + uid + '\'' +
+                ", status=" + status +
+                ", prevStatus=" + prevStatus +
+                '}';
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Status getPrevStatus() {
+        return prevStatus;
+    }
+}
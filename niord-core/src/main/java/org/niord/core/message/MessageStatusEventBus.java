@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.message;
+
+import org.niord.core.settings.annotation.Setting;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.niord.core.settings.Setting.Type.Integer;
+
+/**
+ * Dispatches message status events to the registered {@linkplain MessageStatusEventListener} listeners.
+ * <p>
+ * Events published within a transaction are collected and only dispatched if the transaction commits.
+ * Each listener has its own batching window, and listeners are executed in parallel in a worker pool,
+ * so that e.g. a bulk status update results in a single batched callback per listener rather than
+ * per-message work in every listener.
+ */
+@ApplicationScoped
+public class MessageStatusEventBus {
+
+    private static final String TX_EVENTS_KEY = MessageStatusEventBus.class.getName() + ".events";
+
+    @Inject
+    Logger log;
+
+    @Inject
+    @Setting(value = "messageEventPoolSize", defaultValue = "4", type = Integer,
+            description = "The number of worker threads used for notifying message status listeners")
+    Integer poolSize;
+
+    @Inject
+    @Any
+    Instance<MessageStatusEventListener> listenerBeans;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final List<ListenerQueue> listeners = new ArrayList<>();
+
+    private ScheduledExecutorService processPool;
+
+    @PostConstruct
+    private void init() {
+        processPool = Executors.newScheduledThreadPool(Math.max(1, poolSize));
+        for (MessageStatusEventListener listener : listenerBeans) {
+            listeners.add(new ListenerQueue(listener));
+        }
+        log.info("Registered " + listeners.size() + " message status listeners");
+    }
+
+    @PreDestroy
+    private void closeDown() {
+        if (processPool != null && !processPool.isShutdown()) {
+            processPool.shutdown();
+            processPool = null;
+        }
+    }
+
+
+    /**
+     * Publishes the message status event.
+     * <p>
+     * If called within a transaction, the event is dispatched when the transaction has committed,
+     * along with all other events published in the same transaction.
+     *
+     * @param event the event to publish
+     */
+    @SuppressWarnings("unchecked")
+    public void publish(MessageStatusEvent event) {
+        if (transactionRegistry == null
+                || transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            dispatch(Collections.singletonList(event));
+            return;
+        }
+
+        List<MessageStatusEvent> events = (List<MessageStatusEvent>) transactionRegistry.getResource(TX_EVENTS_KEY);
+        if (events == null) {
+            List<MessageStatusEvent> txEvents = new ArrayList<>();
+            transactionRegistry.putResource(TX_EVENTS_KEY, txEvents);
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        dispatch(txEvents);
+                    }
+                }
+            });
+            events = txEvents;
+        }
+        events.add(event);
+    }
+
+
+    /**
+     * Dispatches the committed events to all listeners
+     * @param events the events to dispatch
+     */
+    private void dispatch(List<MessageStatusEvent> events) {
+        if (events.isEmpty() || processPool == null) {
+            return;
+        }
+        for (ListenerQueue listener : listeners) {
+            listener.add(events);
+        }
+    }
+
+
+    /**
+     * Collects the pending events of a listener and schedules the listener execution.
+     * At most one execution of a listener is scheduled or running at any time.
+     */
+    private class ListenerQueue {
+
+        final MessageStatusEventListener listener;
+        List<MessageStatusEvent> pending = new ArrayList<>();
+        boolean scheduled;
+
+        ListenerQueue(MessageStatusEventListener listener) {
+            this.listener = listener;
+        }
+
+        /** Adds the events and schedules an execution of the listener, unless one is pending already **/
+        synchronized void add(List<MessageStatusEvent> events) {
+            pending.addAll(events);
+            if (!scheduled) {
+                schedule();
+            }
+        }
+
+        /** Schedules an execution of the listener after the batching window **/
+        private void schedule() {
+            scheduled = true;
+            processPool.schedule(this::execute, Math.max(0L, listener.getBatchWindow()), TimeUnit.MILLISECONDS);
+        }
+
+        /** Returns and resets the pending events **/
+        synchronized List<MessageStatusEvent> drain() {
+            List<MessageStatusEvent> events = pending;
+            pending = new ArrayList<>();
+            return events;
+        }
+
+        /** Called after an execution. Re-schedules the listener if more events have been added meanwhile **/
+        synchronized void executed() {
+            if (pending.isEmpty() || processPool == null) {
+                scheduled = false;
+            } else {
+                schedule();
+            }
+        }
+
+        /** Executes the listener with the pending events **/
+        void execute() {
+            List<MessageStatusEvent> events = drain();
+            long t0 = System.currentTimeMillis();
+            try {
+                listener.onMessageStatusEvents(events);
+                log.debug("Notified " + listener.getClass().getSimpleName() + " about " + events.size()
+                        + " message status events in " + (System.currentTimeMillis() - t0) + " ms");
+            } catch (Throwable e) {
+                log.error("Failed notifying " + listener.getClass().getSimpleName()
+                        + " about message status events " + events, e);
+            } finally {
+                executed();
+            }
+        }
+    }
+}
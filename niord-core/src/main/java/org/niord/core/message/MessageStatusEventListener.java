@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.message;
+
+import java.util.List;
+
+/**
+ * Interface to be implemented by CDI beans that should be notified about message status changes.
+ * <p>
+ * Listeners are called by the {@linkplain MessageStatusEventBus} in a background thread, outside
+ * the transaction that changed the status, with all events of the batching window.
+ * A listener is never called concurrently with itself, and the events are passed on in the order
+ * they were committed.
+ * <p>
+ * NB: Events are held in memory and are lost if the server stops before the listener has been called.
+ * Only use it for listeners that can be recovered, such as caches and indexes. Listeners with
+ * side effects, such as sending mails, should use a durable JMS queue instead.
+ */
+public interface MessageStatusEventListener {
+
+    /**
+     * Returns the number of milliseconds to collect events before the listener is called.
+     * With a zero window, the listener is called once per committed transaction.
+     *
+     * @return the batching window in milliseconds
+     */
+    default long getBatchWindow() {
+        return 0L;
+    }
+
+    /**
+     * Called with a batch of committed message status changes
+     *
+     * @param events the message status events
+     */
+    void onMessageStatusEvents(List<MessageStatusEvent> events);
+}
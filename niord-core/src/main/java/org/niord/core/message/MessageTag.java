@@ -16,6 +16,7 @@
 package org.niord.core.message;
 
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.Hibernate;
 import org.niord.core.domain.Domain;
 import org.niord.core.message.vo.MessageTagVo;
 import org.niord.core.message.vo.MessageTagVo.MessageTagType;
@@ -61,6 +62,11 @@ import java.util.UUID;
                 query="SELECT t FROM MessageTag t where t.tagId in (:tagIds)"),
         @NamedQuery(name= "MessageTag.findTagsByMessageUid",
                 query="SELECT t FROM MessageTag t join t.messages m where m.uid = :messageUid and t.type <> 'TEMP'"),
+        @NamedQuery(name= "MessageTag.findMessageUidsByTagId",
+                query="SELECT m.uid FROM MessageTag t join t.messages m where t.id = :id order by m.id"),
+        @NamedQuery(name= "MessageTag.findTagMembership",
+                query="SELECT t.tagId, m.uid FROM MessageTag t join t.messages m where t.tagId in (:tagIds) "
+                        + " and m.uid in (:uids)"),
         @NamedQuery(name= "MessageTag.findExpiredMessageTags",
                 query="SELECT t FROM MessageTag t where t.expiryDate is not null and t.expiryDate < current_timestamp"),
 })
@@ -137,7 +143,11 @@ public class MessageTag extends VersionedEntity<Integer> implements Comparable<M
     }
 
 
-    /** Update the number of messages */
+    /**
+     * Update the number of messages.
+     * If the messages have not been loaded, the message count is assumed to be maintained
+     * incrementally, e.g. by the bulk operations of the MessageTagService.
+     */
     @PrePersist
     @PreUpdate
     public void updateMessageCount() {
@@ -145,7 +155,9 @@ public class MessageTag extends VersionedEntity<Integer> implements Comparable<M
         if (StringUtils.isBlank(name)) {
             name = UUID.randomUUID().toString();
         }
-        messageCount = messages.size();
+        if (Hibernate.isInitialized(messages)) {
+            messageCount = messages.size();
+        }
     }
 
 
@@ -228,4 +240,8 @@ public class MessageTag extends VersionedEntity<Integer> implements Comparable<M
     public int getMessageCount() {
         return messageCount;
     }
+
+    public void setMessageCount(int messageCount) {
+        this.messageCount = messageCount;
+    }
 }
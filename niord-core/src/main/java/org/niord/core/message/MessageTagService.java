@@ -16,10 +16,16 @@
 package org.niord.core.message;
 
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.query.NativeQuery;
 import org.niord.core.db.CriteriaHelper;
 import org.niord.core.domain.Domain;
 import org.niord.core.domain.DomainService;
 import org.niord.core.message.vo.MessageTagVo.MessageTagType;
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.service.BaseService;
 import org.niord.core.user.User;
 import org.niord.core.user.UserService;
@@ -28,6 +34,8 @@ import org.slf4j.Logger;
 import javax.ejb.Schedule;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
+import javax.persistence.EntityManager;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Expression;
@@ -39,10 +47,13 @@ import javax.persistence.criteria.Root;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -57,6 +68,7 @@ import static org.niord.model.search.PagedSearchParamsVo.SortOrder.DESC;
  * that a specific user can work on, is her own tags + the shared tags.
  */
 @Stateless
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class MessageTagService extends BaseService {
 
@@ -386,9 +398,11 @@ public class MessageTagService extends BaseService {
         MessageTag original = findTag(tagId);
         if (original != null) {
             log.info("Clearing message tag " + tagId);
-            original.getMessages().clear();
-            original.updateMessageCount();
-            saveEntity(original);
+            JoinTable joinTable = messageTagJoinTable();
+            joinTable.nativeQuery(em, "DELETE FROM " + joinTable.table + " WHERE " + joinTable.tagColumn + " = :tagId")
+                    .setParameter("tagId", original.getId())
+                    .executeUpdate();
+            updateMessageCount(original, -original.getMessageCount());
             return true;
         }
         return false;
@@ -396,7 +410,11 @@ public class MessageTagService extends BaseService {
 
 
     /**
-     * Adds messages to the given tag
+     * Adds messages to the given tag.
+     * <p>
+     * The messages are added using a set-based statement against the join table,
+     * so the messages of the tag are not loaded.
+     *
      * @param tagId the ID of the message tag to add the message to
      * @param messageUids the UIDs of the messages to add
      * @return the updated message tag
@@ -406,18 +424,25 @@ public class MessageTagService extends BaseService {
         if (tag == null) {
             throw new IllegalArgumentException("No message tag with ID " + tagId);
         }
-
-        int prevMsgCnt = tag.getMessages().size();
-        for (Message message : messagesForUids(messageUids)) {
-            if (!tag.getMessages().contains(message)) {
-                tag.getMessages().add(message);
-            }
+        if (messageUids == null || messageUids.isEmpty()) {
+            return tag;
         }
 
-        if (tag.getMessages().size() != prevMsgCnt) {
-            tag.updateMessageCount();
-            tag = saveEntity(tag);
-            log.info("Added " + (tag.getMessages().size() - prevMsgCnt) + " messages to tag " + tag.getName());
+        JoinTable joinTable = messageTagJoinTable();
+        String sql = "INSERT INTO " + joinTable.table + " (" + joinTable.tagColumn + ", " + joinTable.messageColumn + ")"
+                + " SELECT DISTINCT :tagId, m." + joinTable.messageIdColumn + " FROM " + joinTable.messageTable + " m"
+                + " WHERE m." + joinTable.messageUidColumn + " IN (:uids)"
+                + " AND NOT EXISTS (SELECT 1 FROM " + joinTable.table + " x"
+                + " WHERE x." + joinTable.tagColumn + " = :tagId"
+                + " AND x." + joinTable.messageColumn + " = m." + joinTable.messageIdColumn + ")";
+        int added = joinTable.nativeQuery(em, sql)
+                .setParameter("tagId", tag.getId())
+                .setParameterList("uids", new HashSet<>(messageUids))
+                .executeUpdate();
+
+        if (added > 0) {
+            tag = updateMessageCount(tag, added);
+            log.info("Added " + added + " messages to tag " + tag.getName());
         }
 
         return tag;
@@ -425,7 +450,11 @@ public class MessageTagService extends BaseService {
 
 
     /**
-     * Removes messages from the given tag
+     * Removes messages from the given tag.
+     * <p>
+     * The messages are removed using a set-based statement against the join table,
+     * so the messages of the tag are not loaded.
+     *
      * @param tagId the ID of the message tag to remove the message from
      * @param messageUids the UIDs the messages to remove
      * @return the updated message tag
@@ -435,25 +464,136 @@ public class MessageTagService extends BaseService {
         if (tag == null) {
             throw new IllegalArgumentException("No message tag with ID " + tagId);
         }
-
-        int prevMsgCnt = tag.getMessages().size();
-        for (Message message : messagesForUids(messageUids)) {
-            if (tag.getMessages().contains(message)) {
-                tag.getMessages().remove(message);
-                message.getTags().remove(tag);
-            }
+        if (messageUids == null || messageUids.isEmpty()) {
+            return tag;
         }
 
-        if (tag.getMessages().size() != prevMsgCnt) {
-            tag.updateMessageCount();
-            tag = saveEntity(tag);
-            log.info("Removed " + (prevMsgCnt - tag.getMessages().size()) + " messages from tag " + tag.getName());
+        JoinTable joinTable = messageTagJoinTable();
+        String sql = "DELETE FROM " + joinTable.table
+                + " WHERE " + joinTable.tagColumn + " = :tagId"
+                + " AND " + joinTable.messageColumn + " IN (SELECT m." + joinTable.messageIdColumn
+                + " FROM " + joinTable.messageTable + " m WHERE m." + joinTable.messageUidColumn + " IN (:uids))";
+        int removed = joinTable.nativeQuery(em, sql)
+                .setParameter("tagId", tag.getId())
+                .setParameterList("uids", new HashSet<>(messageUids))
+                .executeUpdate();
+
+        if (removed > 0) {
+            tag = updateMessageCount(tag, -removed);
+            log.info("Removed " + removed + " messages from tag " + tag.getName());
         }
 
         return tag;
     }
 
 
+    /**
+     * Returns a page of the UIDs of the messages of the given tag.
+     * Use this rather than loading the messages of the tag, which may contain thousands of messages.
+     *
+     * @param tagId the ID of the message tag
+     * @param offset the index of the first message UID to return
+     * @param maxSize the max number of message UIDs to return
+     * @return the page of message UIDs
+     */
+    public List<String> findTagMessageUids(String tagId, int offset, int maxSize) {
+        MessageTag tag = findTag(tagId);
+        if (tag == null) {
+            throw new IllegalArgumentException("No message tag with ID " + tagId);
+        }
+
+        return em.createNamedQuery("MessageTag.findMessageUidsByTagId", String.class)
+                .setParameter("id", tag.getId())
+                .setFirstResult(Math.max(0, offset))
+                .setMaxResults(maxSize)
+                .getResultList();
+    }
+
+
+    /**
+     * Returns which of the given messages are members of which of the given tags.
+     * Use this rather than loading the messages of the tags, which may contain thousands of messages.
+     *
+     * @param tagIds the IDs of the message tags
+     * @param messageUids the UIDs of the messages
+     * @return the UIDs of the member messages, indexed by tag ID
+     */
+    public Map<String, Set<String>> findTagMembership(Collection<String> tagIds, Collection<String> messageUids) {
+        Map<String, Set<String>> result = new HashMap<>();
+        tagIds.forEach(tagId -> result.put(tagId, new HashSet<>()));
+        if (tagIds.isEmpty() || messageUids.isEmpty()) {
+            return result;
+        }
+
+        em.createNamedQuery("MessageTag.findTagMembership", Object[].class)
+                .setParameter("tagIds", tagIds)
+                .setParameter("uids", messageUids)
+                .getResultList()
+                .forEach(row -> result.get((String) row[0]).add((String) row[1]));
+        return result;
+    }
+
+
+    /**
+     * Updates the message count of the tag after a bulk operation on the join table
+     * @param tag the tag to update
+     * @param delta the change in message count
+     * @return the updated tag
+     */
+    private MessageTag updateMessageCount(MessageTag tag, int delta) {
+        if (Hibernate.isInitialized(tag.getMessages())) {
+            // The loaded messages are outdated by the bulk operation
+            em.refresh(tag);
+        }
+        tag.setMessageCount(Math.max(0, tag.getMessageCount() + delta));
+        return saveEntity(tag);
+    }
+
+
+    /**
+     * Returns the physical table and column names of the message tag - message join table.
+     * These are resolved from the Hibernate mapping, rather than hard-coding the implicit names.
+     */
+    private JoinTable messageTagJoinTable() {
+        SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        AbstractCollectionPersister messages = (AbstractCollectionPersister) sessionFactory.getMetamodel()
+                .collectionPersister(MessageTag.class.getName() + ".messages");
+        AbstractEntityPersister message = (AbstractEntityPersister) sessionFactory.getMetamodel()
+                .entityPersister(Message.class);
+
+        JoinTable joinTable = new JoinTable();
+        joinTable.table = messages.getTableName();
+        joinTable.tagColumn = messages.getKeyColumnNames()[0];
+        joinTable.messageColumn = messages.getElementColumnNames()[0];
+        joinTable.messageTable = message.getTableName();
+        joinTable.messageIdColumn = message.getIdentifierColumnNames()[0];
+        joinTable.messageUidColumn = message.getPropertyColumnNames("uid")[0];
+        return joinTable;
+    }
+
+
+    /** The physical names of the message tag - message join table **/
+    private static class JoinTable {
+        String table;
+        String tagColumn;
+        String messageColumn;
+        String messageTable;
+        String messageIdColumn;
+        String messageUidColumn;
+
+        /**
+         * Creates a native query, which will only invalidate the second-level cache of the join table
+         * rather than the entire second-level cache.
+         */
+        @SuppressWarnings("unchecked")
+        NativeQuery<?> nativeQuery(EntityManager em, String sql) {
+            return em.createNativeQuery(sql)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace(table);
+        }
+    }
+
+
     /**
      * Returns the messages with the given UIDs
      *
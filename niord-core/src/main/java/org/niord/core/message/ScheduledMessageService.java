@@ -17,6 +17,7 @@ package org.niord.core.message;
 
 import org.niord.core.domain.Domain;
 import org.niord.core.domain.DomainService;
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.service.BaseService;
 import org.niord.core.util.TimeUtils;
 import org.niord.model.message.Status;
@@ -26,6 +27,7 @@ import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -45,6 +47,7 @@ import static org.niord.model.message.Status.VERIFIED;
  */
 @Singleton
 @Startup
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class ScheduledMessageService extends BaseService {
 
@@ -15,29 +15,32 @@
  */
 package org.niord.core.message.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.niord.core.batch.AbstractItemHandler;
 import org.niord.core.message.vo.SystemMessageVo;
 import org.niord.core.repo.RepositoryService;
-import org.niord.model.search.PagedSearchResultVo;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -49,6 +52,11 @@ import java.util.zip.ZipFile;
  * This is because of a class-loading bug in the Wildfly implementation. See e.g.
  * https://issues.jboss.org/browse/WFLY-4988
  * <p>
+ * The archive is never extracted as a whole. The messages.json entry is parsed one message at a time, and the
+ * attachments of each message are extracted on demand, in parallel, from the zip file into a temporary repository
+ * folder. The checkpoint is the index of the next message to read, so restarting a failed import just skips
+ * past the messages already imported.
+ * <p>
  * Format of json file is defined by the PagedSearchResultVo<SystemMessageVo> class. Example:
  * <pre>
  * {
@@ -75,7 +83,16 @@ import java.util.zip.ZipFile;
 @Named
 public class BatchMsgArchiveImportReader extends AbstractItemHandler {
 
-    List<ExtractedArchiveMessageVo> messages;
+    /** The number of threads used for extracting attachments **/
+    private static final int EXTRACT_POOL_SIZE = 4;
+
+    ZipFile zipFile;
+    long messagesFileSize;
+    JsonParser parser;
+    ObjectMapper mapper = new ObjectMapper();
+    NavigableSet<String> entryNames = new TreeSet<>();
+    ExecutorService extractPool;
+    String tempArchiveRepoPath;
     int messageNo = 0;
 
     @Inject
@@ -92,69 +109,112 @@ public class BatchMsgArchiveImportReader extends AbstractItemHandler {
             throw new Exception("Missing seriesId batch property");
         }
 
-        // Extract the zip archive and get hold of the messages
-        messages = extractMessageArchive();
+        // Open the zip archive and position the parser at the start of the messages
+        openMessageArchive();
 
         if (prevCheckpointInfo != null) {
             messageNo = (Integer) prevCheckpointInfo;
+            skipMessages(messageNo);
         }
 
-        getLog().info("Start processing " + messages.size() + " messages from index " + messageNo);
+        getLog().info("Start processing messages from index " + messageNo);
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public void close() throws Exception {
+        if (extractPool != null) {
+            extractPool.shutdownNow();
+        }
+        if (parser != null) {
+            parser.close();
+        }
+        if (zipFile != null) {
+            zipFile.close();
+        }
     }
 
 
-    /** Extracts the message archive and reads in the batch import messages */
-    protected List<ExtractedArchiveMessageVo> extractMessageArchive() throws Exception {
+    /**
+     * Opens the message archive and positions the JSON parser at the start of the "data" array
+     * of the messages.json entry
+     */
+    protected void openMessageArchive() throws Exception {
 
         // Default implementation reads the messages from a message.json batch file
         Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
+        zipFile = new ZipFile(path.toFile());
 
-        // Extract the archive into a temporary repository path
-        String tempArchiveRepoPath = repositoryService.getNewTempDir().getPath();
-        Path dest = repositoryService.getRepoRoot().resolve(tempArchiveRepoPath);
-        extractMessageArchive(path, dest);
-        getLog().info("Extracted message archive to " + dest);
+        // Index the names of the zip entries, used for looking up message attachments
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory()) {
+                entryNames.add(entry.getName());
+            }
+        }
 
-        // Fetch the messages.json from the root of the extracted archive
-        Path messageFilePath = dest.resolve("messages.json");
-        if (!Files.exists(messageFilePath)) {
+        // Fetch the messages.json from the root of the archive
+        ZipEntry messagesEntry = zipFile.getEntry("messages.json");
+        if (messagesEntry == null) {
             getLog().log(Level.SEVERE, "No valid messages.json file found in the archive");
             throw new Exception("No valid messages.json file found in the archive");
         }
+        messagesFileSize = messagesEntry.getSize();
 
-        // Read the messages.json file
-        PagedSearchResultVo<SystemMessageVo> messages;
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            messages = mapper.readValue(
-                    messageFilePath.toFile(),
-                    new TypeReference<PagedSearchResultVo<SystemMessageVo>>() {});
-        } catch (IOException e) {
+        // Position the parser at the start of the "data" array
+        parser = mapper.getFactory().createParser(zipFile.getInputStream(messagesEntry));
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            getLog().log(Level.SEVERE, "Invalid messages.json file");
+            throw new Exception("Invalid messages.json file");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            JsonToken value = parser.nextToken();
+            if ("data".equals(parser.getCurrentName()) && value == JsonToken.START_ARRAY) {
+                break;
+            }
+            parser.skipChildren();
+        }
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
             getLog().log(Level.SEVERE, "Invalid messages.json file");
             throw new Exception("Invalid messages.json file");
         }
 
-        // Wrap the messages as ExtractedArchiveMessageVo with the "editRepoPath" pointing to the extracted archive
-        return messages.getData().stream()
-                .map(m -> new ExtractedArchiveMessageVo(m, tempArchiveRepoPath + "/" + m.getRepoPath()))
-                .collect(Collectors.toList());
+        // Attachments are extracted into a temporary repository path
+        tempArchiveRepoPath = repositoryService.getNewTempDir().getPath();
+        extractPool = Executors.newFixedThreadPool(EXTRACT_POOL_SIZE);
+    }
+
+
+    /** Skips the given number of messages without binding them **/
+    private void skipMessages(int count) throws IOException {
+        for (int x = 0; x < count && parser.nextToken() == JsonToken.START_OBJECT; x++) {
+            parser.skipChildren();
+        }
     }
 
 
     /** {@inheritDoc} **/
     @Override
     public Object readItem() throws Exception {
-        if (messageNo < messages.size()) {
-
-            // For every 5 read messages, update the progress
-            if (messageNo % 5 == 0) {
-                updateProgress((int)(100.0 * messageNo / messages.size()));
-            }
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
 
-            getLog().info("Reading message no " + messageNo);
-            return messages.get(messageNo++);
+        // For every 5 read messages, update the progress based on the position in the messages file
+        if (messageNo % 5 == 0 && messagesFileSize > 0) {
+            long offset = parser.getCurrentLocation().getByteOffset();
+            updateProgress((int)Math.min(100L, 100L * offset / messagesFileSize));
         }
-        return null;
+
+        getLog().info("Reading message no " + messageNo);
+        SystemMessageVo message = mapper.readValue(parser, SystemMessageVo.class);
+        messageNo++;
+
+        // Extract the attachments of the message and point the "editRepoPath" to the extracted folder
+        extractMessageFiles(message);
+        return new ExtractedArchiveMessageVo(message, tempArchiveRepoPath + "/" + message.getRepoPath());
     }
 
 
@@ -165,24 +225,47 @@ public class BatchMsgArchiveImportReader extends AbstractItemHandler {
     }
 
 
-    /** Utility method that extracts the given zip file to a given destination **/
-    @SuppressWarnings("all")
-    private void extractMessageArchive(Path path, Path destination) throws IOException {
-        try (ZipFile zipFile = new ZipFile(path.toFile())) {
-            Enumeration<? extends ZipEntry> entries = zipFile.entries();
-            while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
-                File entryDestination = new File(destination.toFile(),  entry.getName());
-                if (entry.isDirectory()) {
-                    entryDestination.mkdirs();
-                } else {
-                    entryDestination.getParentFile().mkdirs();
-                    try (InputStream in = zipFile.getInputStream(entry);
-                         OutputStream out = new FileOutputStream(entryDestination)) {
-                        IOUtils.copy(in, out);
-                    }
-                }
+    /**
+     * Extracts the files of the message repository folder from the zip archive to the temporary
+     * repository folder. The files are extracted in parallel.
+     *
+     * @param message the message to extract the files for
+     */
+    private void extractMessageFiles(SystemMessageVo message) throws Exception {
+        if (StringUtils.isBlank(message.getRepoPath())) {
+            return;
+        }
+
+        Path dest = repositoryService.getRepoRoot().resolve(tempArchiveRepoPath).normalize();
+        String prefix = message.getRepoPath() + "/";
+        List<Future<?>> extractions = new ArrayList<>();
+        for (String name : entryNames.subSet(prefix, prefix + Character.MAX_VALUE)) {
+            Path file = dest.resolve(name).normalize();
+            if (!file.startsWith(dest)) {
+                getLog().warning("Skipping invalid zip entry " + name);
+                continue;
+            }
+            extractions.add(extractPool.submit(() -> {
+                extractFile(name, file);
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> extraction : extractions) {
+                extraction.get();
             }
+        } catch (ExecutionException e) {
+            throw new Exception("Error extracting attachments for message " + message.getId(), e.getCause());
+        }
+    }
+
+
+    /** Extracts the given zip entry to the destination file **/
+    private void extractFile(String name, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name))) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, monotonically increasing counter.
+ * <p>
+ * Counters are created and registered via {@linkplain Metrics#counter(String, String, String...)}.
+ */
+public class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    /** Constructor **/
+    Counter() {
+    }
+
+    /** Increments the counter by one **/
+    public void inc() {
+        count.increment();
+    }
+
+    /** Increments the counter by the given amount **/
+    public void inc(long amount) {
+        count.add(amount);
+    }
+
+    /** Returns the current count **/
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with a fixed memory footprint.
+ * <p>
+ * In the style of HDR histograms, values are recorded in log-linear buckets: each power of two is
+ * divided into {@code 2^SUB_BUCKET_BITS} linear sub-buckets, which bounds the relative error of the
+ * reported quantiles to about 12%, regardless of the magnitude of the value.
+ * Recording a value amounts to a few bit operations and two atomic increments.
+ * <p>
+ * Histograms are created and registered via {@linkplain Metrics#histogram(String, String, String...)},
+ * and values are recorded in nanoseconds:
+ * <pre>
+ *     long t0 = System.nanoTime();
+ *     ...
+ *     histogram.recordSince(t0);
+ * </pre>
+ */
+public class Histogram {
+
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+
+    /** Constructor **/
+    Histogram() {
+    }
+
+
+    /** Returns the bucket index of the given non-negative value **/
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) Math.max(0L, value);
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exp - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + sub;
+    }
+
+
+    /** Returns the largest value that falls in the bucket with the given index **/
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exp = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (exp - SUB_BUCKET_BITS);
+        return lower + (1L << (exp - SUB_BUCKET_BITS)) - 1;
+    }
+
+
+    /**
+     * Records the given value
+     * @param nanos the value in nanoseconds
+     */
+    public void record(long nanos) {
+        buckets.incrementAndGet(bucketIndex(nanos));
+        sum.add(nanos);
+    }
+
+
+    /**
+     * Records the time elapsed since the given start time
+     * @param t0 the start time, as returned by {@code System.nanoTime()}
+     */
+    public void recordSince(long t0) {
+        record(System.nanoTime() - t0);
+    }
+
+
+    /** Returns a snapshot of the histogram **/
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        return new Snapshot(counts, count, sum.sum());
+    }
+
+
+    /**
+     * A point-in-time snapshot of the histogram
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        Snapshot(long[] counts, long count, long sum) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+        }
+
+        /**
+         * Returns the value at the given quantile, or 0 if no values have been recorded
+         * @param quantile the quantile, between 0 and 1
+         * @return the value at the given quantile
+         */
+        public long getValueAtQuantile(double quantile) {
+            if (count == 0) {
+                return 0L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return getMax();
+        }
+
+        /** Returns the (approximate) max value, or 0 if no values have been recorded **/
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return 0L;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Registry of the application metrics, i.e. counters, latency histograms and gauges.
+ * <p>
+ * Metrics are meant to be looked up once, typically as static final fields, and then recorded on the
+ * hot paths. Recording is lock-free and does not allocate memory, so the metrics are always enabled.
+ * <p>
+ * The metrics are exposed in the Prometheus text format via the "/rest/monitor/metrics" endpoint.
+ * Histograms are exported as Prometheus summaries, with the values converted from nanoseconds to seconds.
+ */
+public final class Metrics {
+
+    static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private static final ConcurrentMap<String, Family<?>> families = new ConcurrentHashMap<>();
+
+    /** Prevent instantiation **/
+    private Metrics() {
+    }
+
+
+    /**
+     * Returns the counter with the given name and labels, creating it if it does not exist
+     *
+     * @param name the metric name
+     * @param help the metric description
+     * @param labels optional label name-value pairs
+     * @return the counter
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return family(name, help, "counter", Counter.class).get(labels, l -> new Counter());
+    }
+
+
+    /**
+     * Returns the histogram with the given name and labels, creating it if it does not exist
+     *
+     * @param name the metric name
+     * @param help the metric description
+     * @param labels optional label name-value pairs
+     * @return the histogram
+     */
+    public static Histogram histogram(String name, String help, String... labels) {
+        return family(name, help, "summary", Histogram.class).get(labels, l -> new Histogram());
+    }
+
+
+    /**
+     * Registers a gauge with the given name and labels. Replaces any existing gauge.
+     *
+     * @param name the metric name
+     * @param help the metric description
+     * @param value the supplier of the gauge value
+     * @param labels optional label name-value pairs
+     */
+    public static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge", DoubleSupplier.class).put(labels, value);
+    }
+
+
+    /** Returns the metric family with the given name, creating it if it does not exist **/
+    @SuppressWarnings("unchecked")
+    private static <T> Family<T> family(String name, String help, String type, Class<T> metricClass) {
+        Family<?> family = families.computeIfAbsent(name, n -> new Family<>(n, help, type, metricClass));
+        if (family.metricClass != metricClass) {
+            throw new IllegalArgumentException("Metric " + name + " already registered as " + family.type);
+        }
+        return (Family<T>) family;
+    }
+
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format
+     *
+     * @param out the writer to write the metrics to
+     */
+    public static void writePrometheus(Writer out) throws IOException {
+        for (Family<?> family : new TreeMap<>(families).values()) {
+            out.write("# HELP " + family.name + " " + family.help.replace("\n", " ") + "\n");
+            out.write("# TYPE " + family.name + " " + family.type + "\n");
+            for (Map.Entry<String, ?> metric : family.metrics.entrySet()) {
+                String labels = metric.getKey();
+                Object value = metric.getValue();
+
+                if (value instanceof Counter) {
+                    writeSample(out, family.name + "_total", labels, ((Counter) value).get());
+
+                } else if (value instanceof DoubleSupplier) {
+                    writeSample(out, family.name, labels, ((DoubleSupplier) value).getAsDouble());
+
+                } else if (value instanceof Histogram) {
+                    Histogram.Snapshot snapshot = ((Histogram) value).snapshot();
+                    for (double quantile : QUANTILES) {
+                        String quantileLabels = join(labels, "quantile=\"" + quantile + "\"");
+                        writeSample(out, family.name, quantileLabels, snapshot.getValueAtQuantile(quantile) / 1e9);
+                    }
+                    writeSample(out, family.name + "_sum", labels, snapshot.getSum() / 1e9);
+                    writeSample(out, family.name + "_count", labels, snapshot.getCount());
+                }
+            }
+        }
+    }
+
+
+    /** Writes a single sample line **/
+    private static void writeSample(Writer out, String name, String labels, double value) throws IOException {
+        out.write(name);
+        if (!labels.isEmpty()) {
+            out.write("{" + labels + "}");
+        }
+        out.write(" ");
+        out.write(value == Math.rint(value) && !Double.isInfinite(value)
+                ? String.valueOf((long) value)
+                : String.format(Locale.US, "%.9g", value));
+        out.write("\n");
+    }
+
+
+    /** Joins the two label strings **/
+    private static String join(String labels1, String labels2) {
+        return labels1.isEmpty() ? labels2 : labels1 + "," + labels2;
+    }
+
+
+    /** Formats the label name-value pairs in the Prometheus format **/
+    static String formatLabels(String... labels) {
+        if (labels == null || labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be specified as name-value pairs");
+        }
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                result.append(',');
+            }
+            String value = String.valueOf(labels[i + 1])
+                    .replace("\\", "\\\\")
+                    .replace("\"", "\\\"")
+                    .replace("\n", "\\n");
+            result.append(labels[i]).append("=\"").append(value).append('"');
+        }
+        return result.toString();
+    }
+
+
+    /**
+     * A family of metrics with the same name and type, but different labels
+     */
+    private static class Family<T> {
+
+        final String name;
+        final String help;
+        final String type;
+        final Class<T> metricClass;
+        final ConcurrentMap<String, T> metrics = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type, Class<T> metricClass) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.metricClass = metricClass;
+        }
+
+        T get(String[] labels, Function<String, T> factory) {
+            return metrics.computeIfAbsent(formatLabels(labels), factory);
+        }
+
+        void put(String[] labels, T metric) {
+            metrics.put(formatLabels(labels), metric);
+        }
+    }
+}
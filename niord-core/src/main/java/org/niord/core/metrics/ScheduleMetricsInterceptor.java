@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.metrics;
+
+import javax.interceptor.AroundTimeout;
+import javax.interceptor.InvocationContext;
+
+/**
+ * EJB interceptor that records the execution time of scheduled timer methods.
+ * <p>
+ * Add it to services with {@code @Schedule} methods using:
+ * <pre>
+ *     &#64;Interceptors(ScheduleMetricsInterceptor.class)
+ * </pre>
+ */
+public class ScheduleMetricsInterceptor {
+
+    /** Records the execution time of the timer method **/
+    @AroundTimeout
+    public Object recordScheduleRun(InvocationContext ctx) throws Exception {
+        String task = ctx.getMethod().getDeclaringClass().getSimpleName() + "." + ctx.getMethod().getName();
+        long t0 = System.nanoTime();
+        try {
+            return ctx.proceed();
+        } catch (Exception e) {
+            Metrics.counter("niord_scheduler_failures", "Number of failed scheduled task runs", "task", task).inc();
+            throw e;
+        } finally {
+            Metrics.histogram("niord_scheduler_run_seconds", "Execution time of scheduled tasks", "task", task)
+                    .recordSince(t0);
+        }
+    }
+}
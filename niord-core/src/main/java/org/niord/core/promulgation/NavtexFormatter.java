@@ -0,0 +1,442 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.promulgation;
+
+import org.apache.commons.lang.StringUtils;
+import org.jsoup.parser.Parser;
+import org.niord.core.util.PositionAssembler;
+import org.niord.core.util.PositionUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Formats HTML message descriptions as NAVTEX text in a single pass.
+ * <p>
+ * Rather than converting the full HTML to plain text and applying a chain of regular expressions
+ * and string transformations, each of which copies the entire text, the formatter streams the
+ * text tokens of the HTML directly into the resulting NAVTEX text, and for each paragraph:
+ * <ul>
+ *     <li>Formats any positions using the NAVTEX position format.</li>
+ *     <li>Removes superfluous words and phrases, such as "the", using a pre-compiled automaton.</li>
+ *     <li>Wraps the words into lines of at most the maximum line length, and converts them to uppercase.</li>
+ * </ul>
+ * Blank lines are omitted, and the number of characters and lines of the result is reported, e.g. for billing.
+ * <p>
+ * A formatter is immutable and thread-safe. Initialize the builder by calling NavtexFormatter.newBuilder().
+ */
+@SuppressWarnings("unused")
+public class NavtexFormatter {
+
+    private static final String[] BLOCK_TAGS = { "p", "div", "br", "li", "dd", "dt", "tr", "h1", "h2", "h3", "h4", "h5", "h6" };
+    private static final String[] CELL_TAGS = { "td", "th" };
+    private static final String[] SKIPPED_TAGS = { "script", "style" };
+
+    private final int lineLength;
+    private final boolean formatPositions;
+    private final PhraseAutomaton superfluousPhrases;
+
+    /** Constructor **/
+    private NavtexFormatter(NavtexFormatterBuilder builder) {
+        this.lineLength = builder.lineLength;
+        this.formatPositions = builder.formatPositions;
+        this.superfluousPhrases = new PhraseAutomaton(builder.superfluousPhrases);
+    }
+
+
+    /** Factory method for returning a NavtexFormatterBuilder **/
+    public static NavtexFormatterBuilder newBuilder() {
+        return new NavtexFormatterBuilder();
+    }
+
+
+    /**
+     * Formats the HTML as NAVTEX text
+     * @param html the HTML to format
+     * @return the NAVTEX text
+     */
+    public NavtexText format(String html) {
+        NavtexTextWriter writer = new NavtexTextWriter();
+        if (StringUtils.isBlank(html)) {
+            return writer.result();
+        }
+
+        StringBuilder paragraph = new StringBuilder();
+        int len = html.length();
+        int i = 0;
+        while (i < len) {
+            char c = html.charAt(i);
+
+            if (c == '<' && isTagStart(html, i + 1)) {
+                int end = html.indexOf('>', i);
+                if (end == -1) {
+                    // Not a tag - treat the remaining HTML as text
+                    for (; i < len; i++) {
+                        appendChar(paragraph, html.charAt(i));
+                    }
+                    break;
+                }
+
+                if (html.startsWith("<!--", i)) {
+                    int commentEnd = html.indexOf("-->", i + 4);
+                    i = commentEnd == -1 ? len : commentEnd + 3;
+                    continue;
+                }
+
+                int nameStart = html.charAt(i + 1) == '/' ? i + 2 : i + 1;
+                if (tagIn(html, nameStart, end, BLOCK_TAGS)) {
+                    endParagraph(paragraph, writer);
+                    if (nameStart == i + 1 && tagIn(html, nameStart, end, "li")) {
+                        paragraph.append("* ");
+                    }
+                } else if (tagIn(html, nameStart, end, CELL_TAGS)) {
+                    appendChar(paragraph, ' ');
+                } else if (nameStart == i + 1 && tagIn(html, nameStart, end, SKIPPED_TAGS)) {
+                    int closeTag = html.indexOf("</", end);
+                    end = closeTag == -1 ? len - 1 : Math.max(end, html.indexOf('>', closeTag));
+                }
+                i = end + 1;
+
+            } else if (c == '&') {
+                int semicolon = html.indexOf(';', i);
+                if (semicolon != -1 && semicolon - i <= 10) {
+                    String entity = Parser.unescapeEntities(html.substring(i, semicolon + 1), false);
+                    for (int x = 0; x < entity.length(); x++) {
+                        appendChar(paragraph, entity.charAt(x));
+                    }
+                    i = semicolon + 1;
+                } else {
+                    appendChar(paragraph, c);
+                    i++;
+                }
+
+            } else {
+                appendChar(paragraph, c);
+                i++;
+            }
+        }
+        endParagraph(paragraph, writer);
+
+        return writer.result();
+    }
+
+
+    /** Appends the character to the paragraph, collapsing whitespace **/
+    private void appendChar(StringBuilder paragraph, char c) {
+        if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+            if (paragraph.length() > 0 && paragraph.charAt(paragraph.length() - 1) != ' ') {
+                paragraph.append(' ');
+            }
+        } else {
+            paragraph.append(c);
+        }
+    }
+
+
+    /** Returns if the character at the given index may start a tag, i.e. a tag name, end tag, comment or declaration **/
+    private static boolean isTagStart(String html, int index) {
+        if (index >= html.length()) {
+            return false;
+        }
+        char c = html.charAt(index);
+        return Character.isLetter(c) || c == '/' || c == '!';
+    }
+
+
+    /** Returns if the tag name starting at the given index is one of the given tags **/
+    private static boolean tagIn(String html, int nameStart, int tagEnd, String... tags) {
+        for (String tag : tags) {
+            int nameEnd = nameStart + tag.length();
+            if (nameEnd <= tagEnd && html.regionMatches(true, nameStart, tag, 0, tag.length())) {
+                char next = html.charAt(nameEnd);
+                if (next == '>' || next == '/' || Character.isWhitespace(next)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    /** Writes the words of the paragraph to the NAVTEX text and resets the paragraph **/
+    private void endParagraph(StringBuilder paragraph, NavtexTextWriter writer) {
+        if (paragraph.length() == 0) {
+            return;
+        }
+
+        CharSequence text = paragraph;
+        if (formatPositions && paragraph.indexOf("°") != -1) {
+            String txt = PositionUtils.replaceSeparator(paragraph.toString(), " ");
+            text = PositionUtils.updatePositionFormat(txt, PositionAssembler.newNavtexPositionAssembler());
+        }
+
+        int len = text.length();
+        int pos = 0;
+        while (pos < len) {
+            if (text.charAt(pos) == ' ') {
+                pos++;
+                continue;
+            }
+
+            // Skip superfluous phrases
+            int phraseEnd = superfluousPhrases.match(text, pos);
+            if (phraseEnd != -1) {
+                pos = phraseEnd;
+                continue;
+            }
+
+            int wordEnd = pos;
+            while (wordEnd < len && text.charAt(wordEnd) != ' ') {
+                wordEnd++;
+            }
+            writer.appendWord(text, pos, wordEnd);
+            pos = wordEnd;
+        }
+        writer.endLine();
+
+        paragraph.setLength(0);
+    }
+
+
+    /*************************/
+    /** Helper classes      **/
+    /*************************/
+
+
+    /**
+     * Writes words to the NAVTEX text, wrapping lines at the line length
+     */
+    private class NavtexTextWriter {
+        final StringBuilder text = new StringBuilder();
+        int lineStart = 0;
+        int characterCount = 0;
+        int lineCount = 0;
+
+        /** Appends the word to the current line, or a new line if the word does not fit **/
+        void appendWord(CharSequence src, int start, int end) {
+            while (start < end) {
+                int currentLength = text.length() - lineStart;
+                int wordLength = end - start;
+
+                if (currentLength > 0 && (lineLength <= 0 || currentLength + 1 + wordLength <= lineLength)) {
+                    text.append(' ');
+                    characterCount++;
+                } else if (currentLength > 0) {
+                    endLine();
+                }
+
+                // Words longer than the line length are split
+                int chunkEnd = lineLength > 0 ? Math.min(end, start + lineLength) : end;
+                for (int x = start; x < chunkEnd; x++) {
+                    text.append(Character.toUpperCase(src.charAt(x)));
+                }
+                characterCount += chunkEnd - start;
+                start = chunkEnd;
+            }
+        }
+
+        /** Ends the current line **/
+        void endLine() {
+            if (text.length() > lineStart) {
+                text.append('\n');
+                lineStart = text.length();
+                lineCount++;
+            }
+        }
+
+        /** Returns the resulting NAVTEX text **/
+        NavtexText result() {
+            endLine();
+            String result = text.length() > 0 ? text.substring(0, text.length() - 1) : "";
+            return new NavtexText(result, characterCount, lineCount);
+        }
+    }
+
+
+    /**
+     * A pre-compiled automaton matching whole-word phrases, case-insensitively
+     */
+    private static class PhraseAutomaton {
+        final Node root = new Node();
+
+        /** Constructor **/
+        PhraseAutomaton(List<String> phrases) {
+            for (String phrase : phrases) {
+                Node node = root;
+                for (char c : phrase.trim().replaceAll("\\s+", " ").toLowerCase().toCharArray()) {
+                    node = node.checkCreateChild(c);
+                }
+                node.terminal = node != root;
+            }
+        }
+
+        /**
+         * Returns the end index of the longest phrase starting at the given index and ending at a word boundary,
+         * or -1 if no phrase matches
+         */
+        int match(CharSequence text, int start) {
+            int result = -1;
+            Node node = root;
+            for (int x = start; x < text.length(); x++) {
+                node = node.child(Character.toLowerCase(text.charAt(x)));
+                if (node == null) {
+                    break;
+                }
+                if (node.terminal && (x + 1 == text.length() || text.charAt(x + 1) == ' ')) {
+                    result = x + 1;
+                }
+            }
+            return result;
+        }
+
+        /** A node of the automaton **/
+        static class Node {
+            char[] keys = new char[0];
+            Node[] children = new Node[0];
+            boolean terminal;
+
+            Node child(char c) {
+                for (int x = 0; x < keys.length; x++) {
+                    if (keys[x] == c) {
+                        return children[x];
+                    }
+                }
+                return null;
+            }
+
+            Node checkCreateChild(char c) {
+                Node child = child(c);
+                if (child == null) {
+                    child = new Node();
+                    keys = Arrays.copyOf(keys, keys.length + 1);
+                    children = Arrays.copyOf(children, children.length + 1);
+                    keys[keys.length - 1] = c;
+                    children[children.length - 1] = child;
+                }
+                return child;
+            }
+        }
+    }
+
+
+    /**
+     * The formatted NAVTEX text, along with the character and line counts
+     */
+    public static class NavtexText {
+        final String text;
+        final int characterCount;
+        final int lineCount;
+
+        /** Constructor **/
+        public NavtexText(String text, int characterCount, int lineCount) {
+            this.text = text;
+            this.characterCount = characterCount;
+            this.lineCount = lineCount;
+        }
+
+        /**
+         * Counts the characters and non-empty lines of an already formatted, possibly manually edited, NAVTEX text
+         * @param text the NAVTEX text, with lines separated by line feeds
+         * @return the NAVTEX text along with the character and line counts
+         */
+        public static NavtexText of(String text) {
+            int characterCount = 0;
+            int lineCount = 0;
+            if (text != null) {
+                for (String line : text.split("\n")) {
+                    if (!line.isEmpty()) {
+                        characterCount += line.length();
+                        lineCount++;
+                    }
+                }
+            }
+            return new NavtexText(text, characterCount, lineCount);
+        }
+
+        /** Returns the NAVTEX text, with lines separated by line feeds **/
+        public String getText() {
+            return text;
+        }
+
+        /** Returns the number of characters, excluding line separators **/
+        public int getCharacterCount() {
+            return characterCount;
+        }
+
+        /** Returns the number of lines **/
+        public int getLineCount() {
+            return lineCount;
+        }
+    }
+
+
+    /**
+     * Builder for NAVTEX formatters.
+     * Initialize the builder by calling NavtexFormatter.newBuilder()
+     */
+    public static class NavtexFormatterBuilder {
+
+        int lineLength = NavtexPromulgationService.NAVTEX_LINE_LENGTH;
+        boolean formatPositions = true;
+        List<String> superfluousPhrases = new ArrayList<>();
+
+        /** Constructor **/
+        private NavtexFormatterBuilder() {
+        }
+
+        /** Sets the max line length. A value of 0 or less disables line wrapping **/
+        public NavtexFormatterBuilder lineLength(int lineLength) {
+            this.lineLength = lineLength;
+            return this;
+        }
+
+        /** Sets whether or not to format positions using the NAVTEX position format **/
+        public NavtexFormatterBuilder formatPositions(boolean formatPositions) {
+            this.formatPositions = formatPositions;
+            return this;
+        }
+
+        /** Adds superfluous words or phrases to remove from the text **/
+        public NavtexFormatterBuilder removePhrases(String... phrases) {
+            for (String phrase : phrases) {
+                if (StringUtils.isNotBlank(phrase)) {
+                    superfluousPhrases.add(phrase);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds superfluous words to remove from the text, specified as the pipe-separated and
+         * regex-escaped format used by {@code TextUtils.removeWords()}, e.g. "the|in pos\\.|is"
+         */
+        public NavtexFormatterBuilder removeWords(String words) {
+            if (StringUtils.isNotBlank(words)) {
+                for (String word : words.split("\\|")) {
+                    removePhrases(word.replaceAll("\\\\(.)", "$1"));
+                }
+            }
+            return this;
+        }
+
+        /** Builds the NAVTEX formatter **/
+        public NavtexFormatter build() {
+            return new NavtexFormatter(this);
+        }
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.niord.core.promulgation;
 
+import org.apache.commons.lang.StringUtils;
+import org.niord.core.promulgation.NavtexFormatter.NavtexText;
 import org.niord.core.promulgation.vo.NavtexMessagePromulgationVo;
 
 import javax.persistence.DiscriminatorValue;
@@ -63,6 +65,12 @@ public class NavtexMessagePromulgation
     @Lob
     String text;
 
+    /** The number of characters of the text, excluding line separators. Used for billing **/
+    Integer characterCount;
+
+    /** The number of lines of the text. Used for billing **/
+    Integer lineCount;
+
     /** Constructor **/
     public NavtexMessagePromulgation() {
         super();
@@ -80,6 +88,7 @@ public class NavtexMessagePromulgation
                 .collect(Collectors.toList());
         this.text = promulgation.getText();
         this.preamble = promulgation.getPreamble();
+        updateCounts();
     }
 
 
@@ -94,6 +103,8 @@ public class NavtexMessagePromulgation
             .collect(Collectors.toMap(NavtexTransmitter::getName, t -> Boolean.TRUE)));
         data.setText(text);
         data.setPreamble(preamble);
+        data.setCharacterCount(characterCount);
+        data.setLineCount(lineCount);
         return data;
     }
 
@@ -110,6 +121,23 @@ public class NavtexMessagePromulgation
             this.transmitters.addAll(p.getTransmitters());
             this.text = p.getText();
             this.preamble = p.getPreamble();
+            this.characterCount = p.getCharacterCount();
+            this.lineCount = p.getLineCount();
+        }
+    }
+
+
+    /**
+     * Updates the character and line counts from the current text
+     */
+    public void updateCounts() {
+        if (StringUtils.isBlank(text)) {
+            characterCount = null;
+            lineCount = null;
+        } else {
+            NavtexText navtexText = NavtexText.of(text);
+            characterCount = navtexText.getCharacterCount();
+            lineCount = navtexText.getLineCount();
         }
     }
 
@@ -160,4 +188,20 @@ public class NavtexMessagePromulgation
     public void setPreamble(String preamble) {
         this.preamble = preamble;
     }
+
+    public Integer getCharacterCount() {
+        return characterCount;
+    }
+
+    public void setCharacterCount(Integer characterCount) {
+        this.characterCount = characterCount;
+    }
+
+    public Integer getLineCount() {
+        return lineCount;
+    }
+
+    public void setLineCount(Integer lineCount) {
+        this.lineCount = lineCount;
+    }
 }
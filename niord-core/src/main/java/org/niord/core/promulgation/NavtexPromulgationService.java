@@ -27,11 +27,10 @@ import org.niord.core.message.vo.SystemMessageVo;
 import org.niord.core.promulgation.PromulgationType.Requirement;
 import org.niord.core.promulgation.vo.BaseMessagePromulgationVo;
 import org.niord.core.promulgation.vo.NavtexMessagePromulgationVo;
-import org.niord.core.util.PositionAssembler;
-import org.niord.core.util.PositionUtils;
 import org.niord.core.util.TextUtils;
 import org.niord.core.util.TimeUtils;
 import org.niord.model.DataFilter;
+import org.niord.model.message.AreaVo;
 import org.niord.model.message.Status;
 
 import javax.ejb.Lock;
@@ -45,7 +44,10 @@ import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -64,12 +66,21 @@ public class NavtexPromulgationService extends BasePromulgationService {
     public static int NAVTEX_LINE_LENGTH = 40;
     public static final String SUPERFLUOUS_WORDS = "the|in pos\\.|is";
 
+    private static final NavtexFormatter NAVTEX_FORMATTER = NavtexFormatter.newBuilder()
+            .lineLength(NAVTEX_LINE_LENGTH)
+            .removeWords(SUPERFLUOUS_WORDS)
+            .formatPositions(true)
+            .build();
+
     @Inject
     PromulgationTypeService promulgationTypeService;
 
     @Inject
     MessageSeriesService messageSeriesService;
 
+    @Inject
+    PromulgationCoverageIndex coverageIndex;
+
     /***************************************/
     /** Promulgation Service Handling     **/
     /***************************************/
@@ -107,9 +118,9 @@ public class NavtexPromulgationService extends BasePromulgationService {
         checkNavtexPreamble(message, navtex);
 
         // Add all active transmitters not already added
-        for (NavtexTransmitter transmitter : findTransmittersByAreas(type.getTypeId(), null, true)) {
-            if (!navtex.getTransmitters().containsKey(transmitter.getName())) {
-                navtex.getTransmitters().put(transmitter.getName(), Boolean.FALSE);
+        for (String transmitter : findActiveTransmitterNames(type.getTypeId(), null)) {
+            if (!navtex.getTransmitters().containsKey(transmitter)) {
+                navtex.getTransmitters().put(transmitter, Boolean.FALSE);
             }
         }
     }
@@ -166,6 +177,7 @@ public class NavtexPromulgationService extends BasePromulgationService {
                         .toUpperCase()
                         .trim();
                 navtex.setText(text);
+                navtex.updateCounts();
             }
         }
     }
@@ -223,6 +235,9 @@ public class NavtexPromulgationService extends BasePromulgationService {
                     && StringUtils.isNotBlank(message.getMessageSeries().getNavtexFormat())) {
                 navtex.setPreamble(message.getMessageSeries().getNavtexFormat());
             }
+
+            // The text may have been edited manually, so re-compute the billing counts
+            navtex.updateCounts();
         }
         return navtex;
     }
@@ -240,30 +255,44 @@ public class NavtexPromulgationService extends BasePromulgationService {
         NavtexMessagePromulgationVo navtex = new NavtexMessagePromulgationVo(type.toVo(DataFilter.get()));
 
         // Add all active transmitters - by default, not selected
-        findTransmittersByAreas(type.getTypeId(), null, true)
-                .forEach(t -> navtex.getTransmitters().put(t.getName(), Boolean.FALSE));
+        findActiveTransmitterNames(type.getTypeId(), null)
+                .forEach(t -> navtex.getTransmitters().put(t, Boolean.FALSE));
 
         // Select transmitters associated with the current message areas
         if (message.getAreas() != null && !message.getAreas().isEmpty()) {
-            List<Area> areas = message.getAreas().stream()
-                    .map(Area::new)
-                    .collect(Collectors.toList());
-            findTransmittersByAreas(type.getTypeId(), areas, true)
-                    .forEach(t -> navtex.getTransmitters().put(t.getName(), Boolean.TRUE));
+            Set<Integer> areaIds = message.getAreas().stream()
+                    .map(AreaVo::getId)
+                    .collect(Collectors.toSet());
+            findActiveTransmitterNames(type.getTypeId(), areaIds)
+                    .forEach(t -> navtex.getTransmitters().put(t, Boolean.TRUE));
         }
 
         String language = getLanguage(type);
         StringBuilder text = new StringBuilder();
-        message.getParts().stream()
+        int characterCount = 0;
+        int lineCount = 0;
+        List<NavtexFormatter.NavtexText> navtexTexts = message.getParts().stream()
             .flatMap(p -> p.getDescs().stream())
             .filter(d -> d.getLang().equals(language))
             .filter(d -> StringUtils.isNotBlank(d.getDetails()))
-            .map(d -> html2navtex(d.getDetails(), type.getLanguage()))
-            .forEach(d -> text.append(d).append(System.lineSeparator()));
+            .map(d -> NAVTEX_FORMATTER.format(d.getDetails()))
+            .filter(t -> t.getLineCount() > 0)
+            .collect(Collectors.toList());
+        for (NavtexFormatter.NavtexText navtexText : navtexTexts) {
+            if (text.length() > 0) {
+                text.append("\n");
+            }
+            text.append(navtexText.getText());
+            characterCount += navtexText.getCharacterCount();
+            lineCount += navtexText.getLineCount();
+        }
 
         if (text.length() > 0) {
+            log.debug("Generated NAVTEX text with " + characterCount + " characters in " + lineCount + " lines");
             navtex.setPromulgate(true);
-            navtex.setText(text.toString().toUpperCase().trim());
+            navtex.setText(text.toString());
+            navtex.setCharacterCount(characterCount);
+            navtex.setLineCount(lineCount);
         } else {
             navtex.setPromulgate(type.getRequirement() == Requirement.MANDATORY);
         }
@@ -272,29 +301,6 @@ public class NavtexPromulgationService extends BasePromulgationService {
     }
 
 
-    /** Transforms a HTML description to a NAVTEX description **/
-    private String html2navtex(String text, String language) {
-
-        // Convert from html to plain text
-        text = TextUtils.html2txt(text, true);
-
-        // Remove separator between positions
-        text = PositionUtils.replaceSeparator(text, " ");
-
-        // Replace positions with NAVTEX versions
-        PositionAssembler navtexPosAssembler = PositionAssembler.newNavtexPositionAssembler();
-        text = PositionUtils.updatePositionFormat(text, navtexPosAssembler);
-
-        // Remove verbose words, such as "the", from the text
-        text = TextUtils.removeWords(text, SUPERFLUOUS_WORDS);
-
-        // Split into 40-character lines
-        text = TextUtils.maxLineLength(text, NAVTEX_LINE_LENGTH);
-
-        return text.toUpperCase();
-    }
-
-
     /** {@inheritDoc} */
     @Override
     public void messagePromulgationGenerated(SystemMessageVo message, PromulgationType type) throws PromulgationException {
@@ -311,17 +317,22 @@ public class NavtexPromulgationService extends BasePromulgationService {
                         .trim();
 
                 navtex.setText(text);
+
+                // The text may have been edited manually, so re-compute the billing counts
+                NavtexFormatter.NavtexText navtexText = NavtexFormatter.NavtexText.of(text);
+                navtex.setCharacterCount(navtexText.getCharacterCount());
+                navtex.setLineCount(navtexText.getLineCount());
+            } else {
+                navtex.setCharacterCount(null);
+                navtex.setLineCount(null);
             }
 
             // Compute the active transmitters from the message areas
             if (message.getAreas() != null && !message.getAreas().isEmpty()) {
-                List<Area> areas = message.getAreas().stream()
-                        .map(Area::new)
-                        .collect(Collectors.toList());
-                String typeId = type.getTypeId();
-                Set<String> enabledTransmitters = findTransmittersByAreas(typeId, areas, true).stream()
-                        .map(NavtexTransmitter::getName)
+                Set<Integer> areaIds = message.getAreas().stream()
+                        .map(AreaVo::getId)
                         .collect(Collectors.toSet());
+                Set<String> enabledTransmitters = new HashSet<>(findActiveTransmitterNames(type.getTypeId(), areaIds));
 
                 // Add transmitters manually selected to the enabled-list
                 enabledTransmitters.addAll(navtex.getTransmitters().entrySet().stream()
@@ -343,8 +354,8 @@ public class NavtexPromulgationService extends BasePromulgationService {
         if (navtex != null) {
             navtex.reset();
             checkNavtexPreamble(message, navtex);
-            findTransmittersByAreas(type.getTypeId(), null, true)
-                    .forEach(t -> navtex.getTransmitters().put(t.getName(), Boolean.FALSE));
+            findActiveTransmitterNames(type.getTypeId(), null)
+                    .forEach(t -> navtex.getTransmitters().put(t, Boolean.FALSE));
         }
     }
 
@@ -419,6 +430,43 @@ public class NavtexPromulgationService extends BasePromulgationService {
     }
 
 
+    /**
+     * Returns the names of the active NAVTEX transmitters, ordered by name.
+     * If areas are specified, only the transmitters associated with any of the areas, or their
+     * ancestor areas, are included.
+     * <p>
+     * Unlike {@linkplain #findTransmittersByAreas(String, List, boolean)}, the result is looked up
+     * in the pre-computed transmitter coverage, rather than queried from the database.
+     *
+     * @param typeId the promulgation type
+     * @param areaIds the IDs of the areas to match, or null for all active transmitters
+     * @return the names of the matching active NAVTEX transmitters
+     */
+    public List<String> findActiveTransmitterNames(String typeId, Collection<Integer> areaIds) {
+        NavtexTransmitterCoverage coverage = coverageIndex.getCoverage(
+                getServiceId() + "." + typeId,
+                () -> computeTransmitterCoverage(typeId));
+        return coverage.getTransmitterNames(areaIds);
+    }
+
+
+    /**
+     * Computes the coverage of the active NAVTEX transmitters of the given type, i.e. a look-up
+     * of the transmitters that cover each area, by being associated with the area or any of its ancestors.
+     *
+     * @param typeId the promulgation type
+     * @return the coverage of the active NAVTEX transmitters
+     */
+    private NavtexTransmitterCoverage computeTransmitterCoverage(String typeId) {
+        Map<Integer, String> areaLineages = new HashMap<>();
+        em.createNamedQuery("Area.findLineages", Object[].class)
+                .getResultList()
+                .forEach(row -> areaLineages.put((Integer) row[0], (String) row[1]));
+
+        return NavtexTransmitterCoverage.compute(findTransmittersByAreas(typeId, null, true), areaLineages);
+    }
+
+
     /** Returns all transmitters associated with the given NAVTEX promulgation type */
     public List<NavtexTransmitter> getTransmitters(String typeId) {
         return em.createNamedQuery("NavtexTransmitter.findByType", NavtexTransmitter.class)
@@ -435,6 +483,7 @@ public class NavtexPromulgationService extends BasePromulgationService {
 
         transmitter.setPromulgationType(promulgationTypeService.getPromulgationType(typeId));
         transmitter.setAreas(persistedList(Area.class, transmitter.getAreas()));
+        coverageIndex.invalidate();
         return saveEntity(transmitter);
     }
 
@@ -448,6 +497,7 @@ public class NavtexPromulgationService extends BasePromulgationService {
         NavtexTransmitter original = findTransmitterByName(typeId, transmitter.getName());
         original.setActive(transmitter.isActive());
         original.setAreas(persistedList(Area.class, transmitter.getAreas()));
+        coverageIndex.invalidate();
         return saveEntity(original);
     }
 
@@ -461,9 +511,9 @@ public class NavtexPromulgationService extends BasePromulgationService {
         NavtexTransmitter original = findTransmitterByName(typeId, name);
         if (original != null) {
             remove(original);
+            coverageIndex.invalidate();
             return true;
         }
         return false;
     }
-
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.promulgation;
+
+import org.apache.commons.lang.StringUtils;
+import org.niord.core.area.Area;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The pre-computed coverage of the active NAVTEX transmitters of a promulgation type.
+ * <p>
+ * A transmitter covers the areas it is associated with, along with all their sub-areas. Hence, the coverage
+ * of an area is computed by walking the lineage of the area upwards and collecting the transmitters
+ * associated with the area itself or any of its ancestor areas.
+ */
+public class NavtexTransmitterCoverage {
+
+    private final List<String> transmitters = new ArrayList<>();
+    private final Map<Integer, Set<String>> transmittersByArea = new HashMap<>();
+
+
+    /**
+     * Computes the coverage of the given transmitters
+     *
+     * @param transmitters the active transmitters
+     * @param areaLineages the lineage of all areas, indexed by area ID
+     * @return the coverage of the transmitters
+     */
+    public static NavtexTransmitterCoverage compute(List<NavtexTransmitter> transmitters, Map<Integer, String> areaLineages) {
+        NavtexTransmitterCoverage coverage = new NavtexTransmitterCoverage();
+
+        // Index the transmitters by their own areas
+        Map<Integer, Set<String>> transmittersByTransmitterArea = new HashMap<>();
+        for (NavtexTransmitter transmitter : transmitters) {
+            coverage.transmitters.add(transmitter.getName());
+            for (Area area : transmitter.getAreas()) {
+                transmittersByTransmitterArea
+                        .computeIfAbsent(area.getId(), i -> new HashSet<>())
+                        .add(transmitter.getName());
+            }
+        }
+
+        // Associate each area with the transmitters of the area itself and its ancestor areas
+        Map<Integer, String> lineages = new HashMap<>(areaLineages);
+        transmittersByTransmitterArea.keySet().forEach(id -> lineages.putIfAbsent(id, null));
+        lineages.forEach((areaId, lineage) -> {
+            Set<String> areaTransmitters = lineageIds(areaId, lineage).stream()
+                    .map(transmittersByTransmitterArea::get)
+                    .filter(Objects::nonNull)
+                    .flatMap(Set::stream)
+                    .collect(Collectors.toSet());
+            if (!areaTransmitters.isEmpty()) {
+                coverage.transmittersByArea.put(areaId, areaTransmitters);
+            }
+        });
+
+        return coverage;
+    }
+
+
+    /** Returns the IDs of the area and its ancestor areas, as defined by the lineage of the area **/
+    private static List<Integer> lineageIds(Integer areaId, String lineage) {
+        if (StringUtils.isBlank(lineage)) {
+            return Collections.singletonList(areaId);
+        }
+        return Arrays.stream(lineage.split("/"))
+                .filter(StringUtils::isNotEmpty)
+                .filter(StringUtils::isNumeric)
+                .map(Integer::valueOf)
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Returns the names of the transmitters, in the original order.
+     * If areas are specified, only the transmitters that cover any of the areas are included.
+     *
+     * @param areaIds the IDs of the areas to match, or null for all transmitters
+     * @return the names of the matching transmitters
+     */
+    public List<String> getTransmitterNames(Collection<Integer> areaIds) {
+        if (areaIds == null) {
+            return new ArrayList<>(transmitters);
+        }
+
+        Set<String> areaTransmitters = new HashSet<>();
+        areaIds.stream()
+                .map(transmittersByArea::get)
+                .filter(Objects::nonNull)
+                .forEach(areaTransmitters::addAll);
+        return transmitters.stream()
+                .filter(areaTransmitters::contains)
+                .collect(Collectors.toList());
+    }
+}
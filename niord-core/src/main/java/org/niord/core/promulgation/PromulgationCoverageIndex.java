@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.promulgation;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches the pre-computed coverage of the promulgation services, such as the active NAVTEX transmitters
+ * by area and the active SafetyNET areas by message type, so that loading or generating message
+ * promulgations does not involve any database queries.
+ * <p>
+ * The coverage is computed lazily, per promulgation service and type, by the promulgation services themselves.
+ * When transmitters, SafetyNET areas or areas change, the index is invalidated by incrementing the generation,
+ * both immediately and when the changing transaction has committed, and the outdated coverage is re-computed
+ * upon the next request.
+ */
+@ApplicationScoped
+public class PromulgationCoverageIndex {
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Map<String, Coverage> coverages = new ConcurrentHashMap<>();
+
+
+    /**
+     * Returns the coverage with the given key. If the coverage is not computed or outdated,
+     * it is re-computed using the given supplier.
+     *
+     * @param key the coverage key
+     * @param supplier computes the coverage
+     * @return the coverage with the given key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getCoverage(String key, Supplier<T> supplier) {
+        long currentGeneration = generation.get();
+        Coverage coverage = coverages.get(key);
+        if (coverage == null || coverage.generation != currentGeneration) {
+            coverage = new Coverage(currentGeneration, supplier.get());
+            coverages.put(key, coverage);
+        }
+        return (T) coverage.data;
+    }
+
+
+    /**
+     * Invalidates all coverages
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+
+        if (transactionRegistry != null
+                && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                }
+            });
+        }
+    }
+
+
+    /** A computed coverage along with the generation it was computed from **/
+    private static class Coverage {
+        final long generation;
+        final Object data;
+
+        Coverage(long generation, Object data) {
+            this.generation = generation;
+            this.data = data;
+        }
+    }
+}
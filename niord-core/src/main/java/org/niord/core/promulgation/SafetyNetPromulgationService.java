@@ -34,7 +34,12 @@ import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -52,6 +57,9 @@ public class SafetyNetPromulgationService
     @Inject
     PromulgationTypeService promulgationTypeService;
 
+    @Inject
+    PromulgationCoverageIndex coverageIndex;
+
     /***************************************/
     /** Promulgation Service Handling     **/
     /***************************************/
@@ -124,9 +132,7 @@ public class SafetyNetPromulgationService
     public void checkSafetyNetArea(SafetyNetMessagePromulgationVo safetynet, Type messageType) {
 
         // Get all active areas for the given message type
-        List<SafetyNetAreaVo> areas = findAreasByMessageType(safetynet.getType().getTypeId(), messageType, true).stream()
-                .map(a -> a.toVo(DataFilter.get()))
-                .collect(Collectors.toList());
+        List<SafetyNetAreaVo> areas = findActiveAreaVosByMessageType(safetynet.getType().getTypeId(), messageType);
         safetynet.setAreas(areas);
 
         // Get the selected area - found by matching the selected area name against the list of areas
@@ -277,6 +283,46 @@ public class SafetyNetPromulgationService
     }
 
 
+    /**
+     * Returns the active SafetyNET areas matching the given message type as value objects.
+     * <p>
+     * Unlike {@linkplain #findAreasByMessageType(String, Type, boolean)}, the result is looked up
+     * in the pre-computed SafetyNET area coverage, rather than queried from the database.
+     * The returned value objects are shared and should not be modified.
+     *
+     * @param typeId the promulgation type
+     * @param messageType the message type to match
+     * @return the active SafetyNET areas matching the given message type
+     */
+    public List<SafetyNetAreaVo> findActiveAreaVosByMessageType(String typeId, Type messageType) {
+        Map<Type, List<SafetyNetAreaVo>> coverage = coverageIndex.getCoverage(
+                getServiceId() + "." + typeId,
+                () -> computeAreaCoverage(typeId));
+        return new ArrayList<>(coverage.getOrDefault(messageType, Collections.emptyList()));
+    }
+
+
+    /**
+     * Computes the coverage of the active SafetyNET areas of the given type, i.e. a look-up
+     * of the active SafetyNET areas supporting each message type.
+     *
+     * @param typeId the promulgation type
+     * @return the coverage of the active SafetyNET areas
+     */
+    private Map<Type, List<SafetyNetAreaVo>> computeAreaCoverage(String typeId) {
+        Map<Type, List<SafetyNetAreaVo>> coverage = new HashMap<>();
+        for (SafetyNetArea area : getAreas(typeId)) {
+            if (area.isActive()) {
+                SafetyNetAreaVo areaVo = area.toVo(DataFilter.get());
+                Arrays.stream(Type.values())
+                        .filter(area::supportsMessageType)
+                        .forEach(messageType -> coverage.computeIfAbsent(messageType, t -> new ArrayList<>()).add(areaVo));
+            }
+        }
+        return coverage;
+    }
+
+
     /** Returns all SafetyNET areas associated with the given SafetyNET promulgation type */
     public List<SafetyNetArea> getAreas(String typeId) {
         return em.createNamedQuery("SafetyNetArea.findByType", SafetyNetArea.class)
@@ -292,6 +338,7 @@ public class SafetyNetPromulgationService
         log.info("Creating SafetyNET area " + area.getName() + " for promulgation type " + typeId);
 
         area.setPromulgationType(promulgationTypeService.getPromulgationType(typeId));
+        coverageIndex.invalidate();
         return saveEntity(area);
     }
 
@@ -305,6 +352,7 @@ public class SafetyNetPromulgationService
         SafetyNetArea original = findAreaByName(typeId, area.getName());
         original.update(area);
 
+        coverageIndex.invalidate();
         return saveEntity(original);
     }
 
@@ -318,6 +366,7 @@ public class SafetyNetPromulgationService
         SafetyNetArea original = findAreaByName(typeId, name);
         if (original != null) {
             remove(original);
+            coverageIndex.invalidate();
             return true;
         }
         return false;
@@ -16,34 +16,61 @@
 
 package org.niord.core.promulgation;
 
-import org.niord.model.message.Status;
 import org.slf4j.Logger;
 
+import javax.annotation.Resource;
 import javax.ejb.ActivationConfigProperty;
 import javax.ejb.MessageDriven;
 import javax.inject.Inject;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSDestinationDefinition;
+import javax.jms.JMSException;
 import javax.jms.MapMessage;
 import javax.jms.MessageListener;
+import javax.jms.Queue;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
- * Used for listening for message status updates via JMS
+ * Used for listening for published messages via JMS.
+ * <p>
+ * The {@linkplain org.niord.core.message.MessageService} queues the UIDs of published messages on a
+ * durable queue as part of the status-update transaction, so that no update is lost upon a crash or redeploy.
+ * Upon delivery of a JMS message, the listener drains up to {@code BATCH_SIZE} further pending
+ * JMS messages from the queue, and promulgates each of the published messages once.
  */
+@JMSDestinationDefinition(
+        name = TwitterMessageListener.PUBLISHED_QUEUE,
+        interfaceName = "javax.jms.Queue",
+        destinationName = "TwitterPublishedQueue")
 @MessageDriven(
         name = "TwitterPromulgationMDB",
         activationConfig = {
-                @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Topic"),
-                @ActivationConfigProperty(propertyName = "destination", propertyValue = "java:/jms/topic/MessageStatusTopic"),
+                @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Queue"),
+                @ActivationConfigProperty(propertyName = "destination", propertyValue = TwitterMessageListener.PUBLISHED_QUEUE),
                 @ActivationConfigProperty(propertyName = "acknowledgeMode", propertyValue = "Auto-acknowledge")
         })
 @SuppressWarnings("unused")
 public class TwitterMessageListener implements MessageListener {
 
+    public static final String PUBLISHED_QUEUE = "java:/jms/queue/TwitterPublishedQueue";
+
+    /** The maximum number of published messages handled in a batch **/
+    static final int BATCH_SIZE = 50;
+
     @Inject
     Logger log;
 
     @Inject
     TwitterPromulgationService twitterPromulgationService;
 
+    @Inject
+    JMSContext jmsContext;
+
+    @Resource(lookup = PUBLISHED_QUEUE)
+    Queue publishedQueue;
+
 
     /**
      * {@inheritDoc}
@@ -51,17 +78,30 @@ public class TwitterMessageListener implements MessageListener {
     @Override
     public void onMessage(javax.jms.Message message) {
 
+        Set<String> uids = new LinkedHashSet<>();
         try {
-            MapMessage msg = (MapMessage) message;
+            uids.add(((MapMessage) message).getString("UID"));
 
-            // Check if this is a published message
-            if (Status.PUBLISHED.name().equals(msg.getString("STATUS"))) {
-                log.info("Received PUBLISHED message status update for UID: " + msg.getString("UID"));
-
-                twitterPromulgationService.checkPromulgateMessage(msg.getString("UID"));
+            // Drain the pending published messages, received as part of the current transaction
+            try (JMSConsumer consumer = jmsContext.createConsumer(publishedQueue)) {
+                javax.jms.Message next;
+                int count = 1;
+                while (count++ < BATCH_SIZE && (next = consumer.receiveNoWait()) != null) {
+                    uids.add(((MapMessage) next).getString("UID"));
+                }
             }
-        } catch (Throwable e) {
+        } catch (JMSException e) {
             log.error("Failed processing JMS message " + message, e);
         }
+
+        for (String uid : uids) {
+            try {
+                log.info("Received PUBLISHED message status update for UID: " + uid);
+
+                twitterPromulgationService.checkPromulgateMessage(uid);
+            } catch (Throwable e) {
+                log.error("Failed promulgating message " + uid, e);
+            }
+        }
     }
 }
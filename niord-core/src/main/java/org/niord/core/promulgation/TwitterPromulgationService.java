@@ -35,7 +35,6 @@ import twitter4j.TwitterException;
 import twitter4j.TwitterFactory;
 import twitter4j.auth.AccessToken;
 
-import javax.ejb.Asynchronous;
 import javax.ejb.Lock;
 import javax.ejb.LockType;
 import javax.ejb.Singleton;
@@ -199,10 +198,9 @@ public class TwitterPromulgationService extends BasePromulgationService {
 
 
     /**
-     * Handle Twitter promulgation for the message
+     * Handle Twitter promulgation for the message. Called from the TwitterMessageListener MDB listener.
      * @param messageUid the UID of the message
      */
-    @Asynchronous
     public void checkPromulgateMessage(String messageUid) {
 
         Message message = messageService.findByUid(messageUid);
@@ -36,6 +36,8 @@ public class NavtexMessagePromulgationVo extends BaseMessagePromulgationVo<Navte
 
     String text;
     String preamble;
+    Integer characterCount;
+    Integer lineCount;
 
 
     /** Constructor **/
@@ -69,6 +71,8 @@ public class NavtexMessagePromulgationVo extends BaseMessagePromulgationVo<Navte
     public NavtexMessagePromulgationVo reset() {
         transmitters.clear();
         text = null;
+        characterCount = null;
+        lineCount = null;
         priority = NavtexPriority.ROUTINE;
         return this;
     }
@@ -111,4 +115,20 @@ public class NavtexMessagePromulgationVo extends BaseMessagePromulgationVo<Navte
     public void setPreamble(String preamble) {
         this.preamble = preamble;
     }
+
+    public Integer getCharacterCount() {
+        return characterCount;
+    }
+
+    public void setCharacterCount(Integer characterCount) {
+        this.characterCount = characterCount;
+    }
+
+    public Integer getLineCount() {
+        return lineCount;
+    }
+
+    public void setLineCount(Integer lineCount) {
+        this.lineCount = lineCount;
+    }
 }
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.publication;
+
+import org.apache.commons.lang.StringUtils;
+import org.niord.core.message.Message;
+import org.niord.core.message.MessageScriptFilterPlan;
+import org.niord.core.message.MessageScriptFilterService;
+import org.niord.core.message.MessageSeries;
+import org.niord.core.message.MessageTagService;
+import org.niord.core.service.BaseService;
+import org.slf4j.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.niord.core.publication.vo.PublicationStatus.RECORDING;
+import static org.niord.model.message.Status.PUBLISHED;
+
+/**
+ * Maintains the message tags of publications in the RECORDING status.
+ * <p>
+ * The message tag filters of all recording publications are compiled into a single
+ * {@linkplain MessageScriptFilterPlan}, so that each message is evaluated against all filters in one pass.
+ * Tag membership is looked up for the whole batch of messages in one query, and changes are applied
+ * as set-based updates of the tag - message join table, i.e. without loading the messages of the tags.
+ */
+@Stateless
+@SuppressWarnings("unused")
+public class PublicationRecordingService extends BaseService {
+
+    public static final String PHASE_START_RECORDING       = "start-recording";
+    public static final String PHASE_MESSAGE_STATUS_CHANGE = "msg-status-change";
+    public static final String PHASE_RE_RECORDING          = "re-recording";
+
+    /**
+     * The message tag filter is only ever evaluated for messages that is PUBLISHED or was PUBLISHED (status changes),
+     * hence, the filter below will add all messages that gets published after recording starts, but not remove
+     * them again.
+     */
+    static final String DEFAULT_MESSAGE_TAG_FILTER
+            = "data.phase == 'msg-status-change' && (msg.status == Status.PUBLISHED || data.isIncluded)";
+
+    /** The number of messages evaluated by each parallel task when (re-)recording a publication **/
+    private static final int RECORDING_CHUNK_SIZE = 200;
+
+    @Inject
+    private Logger log;
+
+    @Resource
+    SessionContext ctx;
+
+    @Inject
+    MessageTagService messageTagService;
+
+    @Inject
+    MessageScriptFilterService messageScriptFilterService;
+
+
+    /**
+     * Returns the message-recording publications
+     *
+     * @param series the message series to find recording publications fro
+     * @return the message-recording publications
+     */
+    public List<Publication> findRecordingPublications(MessageSeries series) {
+        return em.createNamedQuery("Publication.findRecordingPublications", Publication.class)
+                .setParameter("series", series)
+                .getResultList();
+    }
+
+
+    /**
+     * Checks the batch of messages against the message tag filters of all publications in the RECORDING status,
+     * and adds or removes the messages from the associated message tags
+     *
+     * @param messages the messages to check
+     * @param phase the phase passed on to the filters
+     */
+    public void recordMessages(List<Message> messages, String phase) {
+
+        // Recording publications depend on the message series of the messages
+        Map<MessageSeries, List<Message>> seriesMessages = messages.stream()
+                .filter(m -> m.getMessageSeries() != null)
+                .collect(Collectors.groupingBy(Message::getMessageSeries, LinkedHashMap::new, Collectors.toList()));
+
+        seriesMessages.forEach((series, msgs) -> {
+            List<Publication> publications = findRecordingPublications(series);
+            if (!publications.isEmpty()) {
+                recordMessages(publications, msgs, phase);
+            }
+        });
+    }
+
+
+    /**
+     * Checks the batch of messages against the message tag filters of the publications,
+     * and adds or removes the messages from the associated message tags
+     *
+     * @param publications the recording publications
+     * @param messages the messages to check
+     * @param phase the phase passed on to the filters
+     */
+    private void recordMessages(List<Publication> publications, List<Message> messages, String phase) {
+
+        List<String> tagIds = publications.stream()
+                .map(p -> p.getMessageTag().getTagId())
+                .collect(Collectors.toList());
+        Set<String> uids = messages.stream()
+                .map(Message::getUid)
+                .collect(Collectors.toSet());
+
+        List<String> filters = publications.stream()
+                .map(Publication::getMessageTagFilter)
+                .collect(Collectors.toList());
+
+        Map<String, Set<String>> membership = messageTagService.findTagMembership(new HashSet<>(tagIds), uids);
+        List<Set<String>> included = evaluate(filters, tagIds, messages, membership, phase);
+
+        for (int x = 0; x < publications.size(); x++) {
+            applyChanges(tagIds.get(x), uids, membership.get(tagIds.get(x)), included.get(x));
+        }
+    }
+
+
+    /**
+     * Evaluates the messages against the message tag filters
+     *
+     * @param filters the message tag filters. Blank filters are replaced by the default filter
+     * @param tagIds the IDs of the message tags associated with the filters
+     * @param messages the messages to check
+     * @param membership the current message tag members amongst the messages, indexed by tag ID
+     * @param phase the phase passed on to the filters
+     * @return for each filter, the UIDs of the messages that should be included in the message tag
+     */
+    private List<Set<String>> evaluate(
+            List<String> filters,
+            List<String> tagIds,
+            Collection<Message> messages,
+            Map<String, Set<String>> membership,
+            String phase) {
+
+        MessageScriptFilterPlan plan = messageScriptFilterService.getFilterPlan(filters, DEFAULT_MESSAGE_TAG_FILTER);
+
+        List<Set<String>> result = new ArrayList<>();
+        filters.forEach(f -> result.add(new HashSet<>()));
+
+        Object[] data = new Object[filters.size()];
+        for (Message message : messages) {
+
+            // "data" parameter for the message tag filter functions
+            for (int x = 0; x < filters.size(); x++) {
+                Set<String> members = membership.get(tagIds.get(x));
+                Map<String, Object> filterData = new HashMap<>();
+                filterData.put("phase", phase);
+                filterData.put("isIncluded", members != null && members.contains(message.getUid()));
+                data[x] = filterData;
+            }
+
+            boolean[] includeMessage = plan.includeMessage(message, data);
+            for (int x = 0; x < filters.size(); x++) {
+                if (includeMessage[x]) {
+                    result.get(x).add(message.getUid());
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Applies the changes to the message tag as set-based updates
+     *
+     * @param tagId the message tag ID
+     * @param uids the UIDs of the evaluated messages
+     * @param members the current message tag members amongst the evaluated messages
+     * @param included the evaluated messages that should be included in the message tag
+     */
+    private void applyChanges(String tagId, Collection<String> uids, Set<String> members, Set<String> included) {
+        List<String> added = included.stream()
+                .filter(uid -> !members.contains(uid))
+                .collect(Collectors.toList());
+        List<String> removed = uids.stream()
+                .filter(uid -> members.contains(uid) && !included.contains(uid))
+                .collect(Collectors.toList());
+
+        if (!added.isEmpty()) {
+            messageTagService.addMessageToTag(tagId, added);
+            log.info("Added " + added.size() + " messages to tag: " + tagId);
+        }
+        if (!removed.isEmpty()) {
+            messageTagService.removeMessageFromTag(tagId, removed);
+            log.info("Removed " + removed.size() + " messages from tag: " + tagId);
+        }
+    }
+
+
+    /**
+     * When a publication enters the RECORDING status, check if any of the currently published messages
+     * should be assigned to the associated message tag.
+     *
+     * @param publication the publication
+     */
+    public void startRecording(Publication publication) {
+        if (isRecording(publication)) {
+            recordPublication(publication, publishedMessageUids(publication), PHASE_START_RECORDING);
+        }
+    }
+
+
+    /**
+     * Replays the currently published messages, as well as the current members of the message tag,
+     * through the message tag filter of the publication. Should be called after the filter has been edited.
+     *
+     * @param publication the publication
+     */
+    public void reRecord(Publication publication) {
+        if (!isRecording(publication)) {
+            throw new IllegalArgumentException("Publication " + publication.getPublicationId()
+                    + " is not recording messages using a message tag filter");
+        }
+
+        Set<String> uids = new LinkedHashSet<>(publishedMessageUids(publication));
+        uids.addAll(messageTagService.findTagMessageUids(publication.getMessageTag().getTagId(), 0, Integer.MAX_VALUE));
+        recordPublication(publication, uids, PHASE_RE_RECORDING);
+    }
+
+
+    /** Returns if the publication is recording messages using a message tag filter **/
+    private boolean isRecording(Publication publication) {
+        return publication.getStatus() == RECORDING && publication.getMessageTag() != null &&
+                StringUtils.isNotBlank(publication.getMessageTagFilter());
+    }
+
+
+    /** Returns the UIDs of the currently published messages of the publication domain **/
+    private List<String> publishedMessageUids(Publication publication) {
+        if (publication.getDomain() == null) {
+            return em.createNamedQuery("Message.findUidsByStatus", String.class)
+                    .setParameter("status", PUBLISHED)
+                    .getResultList();
+        }
+
+        Set<String> seriesIds = publication.getDomain().getMessageSeries().stream()
+                .map(MessageSeries::getSeriesId)
+                .collect(Collectors.toSet());
+        if (seriesIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return em.createNamedQuery("Message.findUidsBySeriesIdsAndStatus", String.class)
+                .setParameter("seriesIds", seriesIds)
+                .setParameter("status", PUBLISHED)
+                .getResultList();
+    }
+
+
+    /**
+     * Evaluates the messages against the message tag filter of the publication in parallel,
+     * and updates the message tag accordingly
+     *
+     * @param publication the publication
+     * @param uids the UIDs of the messages to evaluate
+     * @param phase the phase passed on to the filter
+     */
+    private void recordPublication(Publication publication, Collection<String> uids, String phase) {
+        long t0 = System.currentTimeMillis();
+        String tagId = publication.getMessageTag().getTagId();
+        Set<String> members = new HashSet<>(messageTagService.findTagMessageUids(tagId, 0, Integer.MAX_VALUE));
+
+        // Evaluate the messages in parallel chunks. Each chunk loads its messages in a transaction of its own
+        PublicationRecordingService self = ctx.getBusinessObject(PublicationRecordingService.class);
+        List<String> uidList = new ArrayList<>(uids);
+        List<Future<Set<String>>> chunks = new ArrayList<>();
+        for (int x = 0; x < uidList.size(); x += RECORDING_CHUNK_SIZE) {
+            List<String> chunk = new ArrayList<>(uidList.subList(x, Math.min(uidList.size(), x + RECORDING_CHUNK_SIZE)));
+            Set<String> chunkMembers = chunk.stream().filter(members::contains).collect(Collectors.toSet());
+            chunks.add(self.evaluateChunk(publication.getMessageTagFilter(), tagId, chunk, chunkMembers, phase));
+        }
+
+        Set<String> included = new HashSet<>();
+        try {
+            for (Future<Set<String>> chunk : chunks) {
+                included.addAll(chunk.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error recording messages for publication " + publication.getPublicationId(), e);
+        }
+
+        applyChanges(tagId, uidList, members, included);
+        log.info("Recorded " + uidList.size() + " messages for publication " + publication.getPublicationId()
+                + " in " + (System.currentTimeMillis() - t0) + " ms");
+    }
+
+
+    /**
+     * Evaluates a chunk of messages against the message tag filter.
+     * <p>
+     * Called asynchronously, so the messages are loaded in a transaction and persistence context of its own.
+     *
+     * @param filter the message tag filter
+     * @param tagId the message tag ID
+     * @param uids the UIDs of the messages to evaluate
+     * @param members the current message tag members amongst the messages
+     * @param phase the phase passed on to the filter
+     * @return the UIDs of the messages that should be included in the message tag
+     */
+    @Asynchronous
+    public Future<Set<String>> evaluateChunk(String filter, String tagId, List<String> uids, Set<String> members, String phase) {
+        Map<String, Set<String>> membership = Collections.singletonMap(tagId, members);
+        List<Message> messages = messageTagService.messagesForUids(uids);
+        List<Set<String>> included = evaluate(
+                Collections.singletonList(filter), Collections.singletonList(tagId), messages, membership, phase);
+        return new AsyncResult<>(included.get(0));
+    }
+}
@@ -21,11 +21,8 @@ import org.niord.core.db.CriteriaHelper;
 import org.niord.core.domain.Domain;
 import org.niord.core.domain.DomainService;
 import org.niord.core.message.Message;
-import org.niord.core.message.MessageScriptFilterService;
-import org.niord.core.message.MessageSearchParams;
 import org.niord.core.message.MessageSeries;
 import org.niord.core.message.MessageService;
-import org.niord.core.message.MessageTag;
 import org.niord.core.message.MessageTagService;
 import org.niord.core.publication.vo.PublicationMainType;
 import org.niord.core.publication.vo.PublicationStatus;
@@ -52,10 +49,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -78,18 +73,6 @@ import static org.niord.model.publication.PublicationType.REPOSITORY;
 @SuppressWarnings("unused")
 public class PublicationService extends BaseService {
 
-    private static final String PHASE_START_RECORDING       = "start-recording";
-    private static final String PHASE_MESSAGE_STATUS_CHANGE = "msg-status-change";
-
-    /**
-     * The message tag filter is only ever evaluated for messages that is PUBLISHED or was PUBLISHED (status changes),
-     * hence, the filter below will add all messages that gets published after recording starts, but not remove
-     * them again.
-     */
-    private static final String DEFAULT_MESSAGE_TAG_FILTER
-            = "data.phase == 'msg-status-change' && (msg.status == Status.PUBLISHED || data.isIncluded)";
-
-
     @Inject
     private Logger log;
 
@@ -109,7 +92,7 @@ public class PublicationService extends BaseService {
     RepositoryService repositoryService;
 
     @Inject
-    MessageScriptFilterService messageScriptFilterService;
+    PublicationRecordingService publicationRecordingService;
 
 
     /**
@@ -208,9 +191,7 @@ public class PublicationService extends BaseService {
      * @return the message-recording publications
      */
     public List<Publication> findRecordingPublications(MessageSeries series) {
-        return em.createNamedQuery("Publication.findRecordingPublications", Publication.class)
-                .setParameter("series", series)
-                .getResultList();
+        return publicationRecordingService.findRecordingPublications(series);
     }
 
 
@@ -542,77 +523,13 @@ public class PublicationService extends BaseService {
 
         // If the status is RECORDING, check if any published messages should be assigned to the associated message tag
         if (pub.getStatus() == RECORDING) {
-            startRecordingPublication(pub);
+            publicationRecordingService.startRecording(pub);
         }
 
         return savePublication(pub);
     }
 
 
-    /**
-     * When a publication enters the RECORDING status, check if any of the currently published messages
-     * should be assigned to the associated message tag.
-      * @param publication the publication
-     */
-    private void startRecordingPublication(Publication publication) {
-
-        // Sanity checks
-        if (publication.getStatus() != RECORDING || publication.getMessageTag() == null ||
-                StringUtils.isBlank(publication.getMessageTagFilter())) {
-            return;
-        }
-
-        Set<String> seriesIds = publication.getDomain() != null
-                ? publication.getDomain().getMessageSeries().stream().map(MessageSeries::getSeriesId).collect(Collectors.toSet())
-                : Collections.EMPTY_SET;
-
-        // Look up all published messages
-        MessageSearchParams params = new MessageSearchParams()
-                .seriesIds(seriesIds)
-                .statuses(PUBLISHED);
-        List<Message> messages = messageService.search(params).getData();
-
-        // For each message, check if it should be included in the associated message tag
-        messages.forEach(m -> checkMessageForRecordingPublication(publication, m, PHASE_START_RECORDING));
-    }
-
-
-    /**
-     * Check if the message should be assigned to the associated message tag of the recording publication
-     * @param publication the publication
-     * @param message the message
-     * @param phase the phase
-     */
-    private void checkMessageForRecordingPublication(Publication publication, Message message, String phase) {
-
-        MessageTag tag = publication.getMessageTag();
-        boolean isIncluded = tag.getMessages().contains(message);
-
-        // "data" parameter for the message tag filter function
-        Map<String, Object> data = new HashMap<>();
-        data.put("phase", phase);
-        data.put("isIncluded", isIncluded);
-
-        // Determine the message tag filter to test
-        String messageTagFilter = StringUtils.defaultIfBlank(
-                publication.getMessageTagFilter(),
-                DEFAULT_MESSAGE_TAG_FILTER);
-
-        // Check if the message should be included in the associated message tag
-        boolean includeMessage = messageScriptFilterService.includeMessage(messageTagFilter, message, data);
-
-        if (includeMessage && !isIncluded) {
-            tag.getMessages().add(message);
-            tag.updateMessageCount();
-            log.info("Added message " + message.getUid() + " to tag: " + tag.getName());
-        } else if (!includeMessage && isIncluded) {
-            tag.getMessages().remove(message);
-            tag.updateMessageCount();
-            log.info("Removed message " + message.getUid() + " from tag: " + tag.getName());
-        }
-    }
-
-
     /**
      * Will update all message tags for publications in the RECORDING status
      * @param message the message to update recording publications for
@@ -626,9 +543,29 @@ public class PublicationService extends BaseService {
         }
 
         // Find publications that are recording messages, and check them against their filter
-        for (Publication publication : findRecordingPublications(message.getMessageSeries())) {
-            checkMessageForRecordingPublication(publication, message, PHASE_MESSAGE_STATUS_CHANGE);
+        publicationRecordingService.recordMessages(
+                Collections.singletonList(message),
+                PublicationRecordingService.PHASE_MESSAGE_STATUS_CHANGE);
+    }
+
+
+    /**
+     * Replays the published messages and current message tag members through the message tag filter
+     * of the recording publication with the given ID. Should be called after the filter has been edited.
+     *
+     * @param publicationId the ID of the publication
+     * @return the updated publication
+     */
+    public Publication reRecordPublication(String publicationId) throws Exception {
+
+        Publication pub = findByPublicationId(publicationId);
+        if (pub == null) {
+            throw new IllegalArgumentException("Non-existing publication " + publicationId);
         }
+
+        log.info("Re-recording messages for publication " + publicationId);
+        publicationRecordingService.reRecord(pub);
+        return pub;
     }
 
 
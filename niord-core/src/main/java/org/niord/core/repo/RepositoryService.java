@@ -27,6 +27,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jboss.resteasy.annotations.cache.NoCache;
 import org.jboss.ejb3.annotation.SecurityDomain;
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
 import org.niord.core.settings.annotation.Setting;
 import org.niord.core.user.Roles;
 import org.niord.core.util.WebUtils;
@@ -40,6 +41,7 @@ import javax.ejb.LockType;
 import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -77,6 +79,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 import static org.niord.core.settings.Setting.Type;
 
@@ -98,9 +101,16 @@ import static org.niord.core.settings.Setting.Type;
 @Lock(LockType.READ)
 @SecurityDomain("keycloak")
 @PermitAll
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class RepositoryService {
 
+    /** Seconds a client should wait before re-requesting a pending thumbnail **/
+    private static final int THUMBNAIL_RETRY_AFTER = 1;
+
+    /** Message map images, including custom map thumbnails **/
+    private static final Pattern MAP_IMAGE_NAME = Pattern.compile("(map|custom_thumb)_\\d{1,3}\\.png");
+
     @Context
     ServletContext servletContext;
 
@@ -306,6 +316,7 @@ public class RepositoryService {
         }
 
         Files.delete(f);
+        thumbnailService.deleteThumbnails(f);
         log.info("Deleted file " + f);
 
         return Response
@@ -314,7 +325,11 @@ public class RepositoryService {
     }
 
     /**
-     * Returns the thumbnail to use for the file specified by the path
+     * Returns the thumbnail to use for the file specified by the path.
+     * <p>
+     * If the thumbnail of an image is still being generated, the file type icon is
+     * returned as a placeholder along with a "Retry-After" header.
+     *
      * @param path the path
      * @param size the icon size, either 32, 64 or 128
      * @return the thumbnail to use for the file specified by the path
@@ -335,20 +350,26 @@ public class RepositoryService {
                     .build();
         }
 
-        // Check if we can generate a thumbnail for image files
-        String thumbUri;
+        // Check if a thumbnail has been generated for image files
         Path thumbFile = thumbnailService.getThumbnail(f, iconSize);
         if (thumbFile != null) {
-            thumbUri = "../" + getRepoUri(thumbFile);
-        } else {
-            // Fall back to file type icons
-            thumbUri = "../" + fileTypes.getIcon(f, iconSize);
+            String thumbUri = "../" + getRepoUri(thumbFile);
+            log.trace("Redirecting to thumbnail: " + thumbUri);
+            return Response
+                    .temporaryRedirect(new URI(thumbUri))
+                    .build();
         }
 
-        log.trace("Redirecting to thumbnail: " + thumbUri);
-        return Response
-                .temporaryRedirect(new URI(thumbUri))
-                .build();
+        // Fall back to file type icons
+        String thumbUri = "../" + fileTypes.getIcon(f, iconSize);
+        Response.ResponseBuilder response = Response.temporaryRedirect(new URI(thumbUri));
+        if (thumbnailService.isPending(f)) {
+            // The icon is just a placeholder whilst the thumbnail is being generated
+            log.trace("Thumbnail pending, redirecting to placeholder: " + thumbUri);
+            response.header("Retry-After", THUMBNAIL_RETRY_AFTER)
+                    .header("Cache-Control", "no-cache");
+        }
+        return response.build();
     }
 
     /**
@@ -369,10 +390,10 @@ public class RepositoryService {
 
             // Filter out directories, hidden files, thumbnails and map images
             DirectoryStream.Filter<Path> filter = file ->
-                    Files.isRegularFile(file) &&
                     !file.getFileName().toString().startsWith(".") &&
-                    !file.getFileName().toString().matches(".+_thumb_\\d{1,3}\\.\\w+") && // Thumbnails
-                    !file.getFileName().toString().matches("map_\\d{1,3}\\.png"); // Map image
+                    !MAP_IMAGE_NAME.matcher(file.getFileName().toString()).matches() &&
+                    !thumbnailService.isThumbnail(file) &&
+                    Files.isRegularFile(file);
 
             try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, filter)) {
                 stream.forEach(f -> {
@@ -441,6 +462,9 @@ public class RepositoryService {
                     out.flush();
                 }
 
+                // Generate the thumbnails of uploaded images up front
+                thumbnailService.scheduleThumbnails(destFile.toPath());
+
                 // Return the repo-relative path as a result
                 result.add(Paths.get(path, destFile.getName()).toString());
             }
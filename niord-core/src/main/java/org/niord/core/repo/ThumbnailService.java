@@ -30,31 +30,57 @@ import javax.ejb.Singleton;
 import javax.imageio.ImageIO;
 import javax.inject.Inject;
 import java.awt.*;
-import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import static org.niord.core.settings.Setting.Type.Integer;
 
 /**
  * Creates thumbnails
  * <p>
- *     An ExecutorService is used to limit load on the system
+ *     Thumbnails are generated asynchronously in a shared worker pool, which also limits the load on the system.
+ *     All {@linkplain IconSize} variants of an image are generated in one go, either when the image is uploaded
+ *     to the repository, or when a thumbnail is first requested.
+ * </p>
+ * <p>
+ *     The thumbnails of each repository folder are registered in a hidden {@code .thumbnails} index file,
+ *     so that looking up a thumbnail, or filtering thumbnails from a folder listing, does not require
+ *     any file system checks of the thumbnail files themselves.
  * </p>
  */
 @Singleton
 @Lock(LockType.READ)
 public class ThumbnailService {
 
-    private static final int EXECUTOR_POOL_SIZE = 2;
+    /** The name of the per-folder thumbnail index file **/
+    public static final String INDEX_FILE = ".thumbnails";
+
+    /** The max number of folder indexes to cache in memory **/
+    private static final int MAX_CACHED_INDEXES = 1000;
+
+    /** Used for bootstrapping the index of folders with thumbnails generated prior to the index **/
+    private static final Pattern THUMB_NAME = Pattern.compile(".+_thumb_\\d{1,3}\\.\\w+");
 
     @Inject
     Logger log;
@@ -63,16 +89,32 @@ public class ThumbnailService {
     @Setting(value = "vipsPath", description = "Path to vips command on Linux. Use for faster thumbnail generation.")
     String vipsCmd;
 
+    @Inject
+    @Setting(value = "thumbnailPoolSize", defaultValue = "2", type = Integer,
+            description = "The number of worker threads used for generating thumbnails")
+    Integer poolSize;
+
     Set<String> vipsFileTypes = new HashSet<>();
 
     @Inject
     FileTypes fileTypes;
 
+    /** The image files with pending thumbnail generation **/
+    private final Set<Path> pendingFiles = ConcurrentHashMap.newKeySet();
+
+    /** LRU cache of the thumbnail indexes of recently accessed folders **/
+    private final Map<Path, ThumbnailIndex> indexes = new LinkedHashMap<Path, ThumbnailIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, ThumbnailIndex> eldest) {
+            return size() > MAX_CACHED_INDEXES;
+        }
+    };
+
     private ExecutorService processPool;
 
     @PostConstruct
     private void init() {
-        processPool = Executors.newFixedThreadPool(EXECUTOR_POOL_SIZE);
+        processPool = Executors.newFixedThreadPool(Math.max(1, poolSize));
 
         // Enlist image types supported by vips (avoid gif)
         vipsFileTypes.add("image/bmp");
@@ -93,83 +135,161 @@ public class ThumbnailService {
 
 
     /**
-     * Returns or creates the a thumbnail for the given file if it is an image.
-     * Otherwise, null is returned
+     * Returns the thumbnail for the given file if it has already been generated.
+     * <p>
+     * Otherwise, if the file is an image, the generation of its thumbnails is scheduled and null is returned.
+     * Use {@linkplain #isPending(Path)} to test if the thumbnail will become available.
      *
-     * @param file the file to create a thumbnail for
+     * @param file the file to return a thumbnail for
      * @param size the size of the thumbnail
-     * @return the thumbnail file or null if none was found or created
+     * @return the thumbnail file or null if none is available (yet)
      */
     public Path getThumbnail(final Path file, final IconSize size) {
 
-        // Check that the file exists
-        if (!Files.isRegularFile(file)) {
+        try {
+            Path thumbFile = getThumbnailFile(file, size);
+            Long stamp = getIndex(file.getParent()).get(thumbFile.getFileName().toString());
+            if (stamp != null && stamp >= Files.getLastModifiedTime(file).toMillis()) {
+                return thumbFile;
+            }
+        } catch (IOException e) {
             log.warn("File does not exist: " + file);
             return null;
         }
 
+        scheduleThumbnails(file);
+        return null;
+    }
+
+
+    /**
+     * Returns if the generation of thumbnails for the given file is pending
+     *
+     * @param file the image file
+     * @return if the generation of thumbnails is pending
+     */
+    public boolean isPending(Path file) {
+        return pendingFiles.contains(file);
+    }
+
+
+    /**
+     * Schedules the generation of all thumbnail sizes for the given file, if it is an image.
+     * If a generation is already pending for the file, the request is ignored.
+     *
+     * @param file the file to create thumbnails for
+     */
+    public void scheduleThumbnails(final Path file) {
+
         final String type = fileTypes.getContentType(file);
         if (type == null || !type.startsWith("image")) {
             log.debug("File not an image: " + file);
-            return null;
+            return;
         }
 
-        // Submit the thumbnail creation job to the process pool.
-        // Please note, this is used as a way of restricting load on the system,
-        // not per se as a way of executing the task asynchronously.
-        try {
-            return processPool.submit(() -> createThumbnail(file, type, size)).get();
-        } catch (InterruptedException | ExecutionException e) {
-            log.debug("Error creating thumbnail");
+        if (processPool == null || !pendingFiles.add(file)) {
+            return;
         }
 
-        return null;
+        processPool.submit(() -> {
+            try {
+                createThumbnails(file, type);
+            } catch (Exception e) {
+                log.warn("Error creating thumbnails for " + file + ": " + e);
+            } finally {
+                pendingFiles.remove(file);
+            }
+        });
     }
 
+
     /**
-     * Returns or creates the a thumbnail for the given file if it is an image.
-     * Otherwise, null is returned
+     * Returns if the given file is a thumbnail registered in the thumbnail index of its folder
      *
-     * @param file the file to create a thumbnail for
-     * @param type the type of image
-     * @param size the size of the thumbnail
-     * @return the thumbnail file or null if none was found or created
+     * @param file the file to check
+     * @return if the given file is a thumbnail
      */
-    public Path createThumbnail(Path file, String type, IconSize size) {
+    public boolean isThumbnail(Path file) {
+        return getIndex(file.getParent()).contains(file.getFileName().toString());
+    }
 
-        try {
-            // Construct the thumbnail name by appending "_thumb_size" to the file name
-            String thumbName = String.format("%s_thumb_%d.%s",
-                    FilenameUtils.removeExtension(file.getFileName().toString()),
-                    size.getSize(),
-                    FilenameUtils.getExtension(file.getFileName().toString()));
-
-            // Check if the thumbnail already exists
-            Path thumbFile = file.getParent().resolve(thumbName);
-            if (Files.isRegularFile(thumbFile) &&
-                    Files.getLastModifiedTime(thumbFile).toMillis() >= Files.getLastModifiedTime(file).toMillis()) {
-                return thumbFile;
+
+    /**
+     * Deletes all thumbnails of the given file and removes them from the thumbnail index
+     *
+     * @param file the file to delete the thumbnails for
+     */
+    public void deleteThumbnails(Path file) {
+        ThumbnailIndex index = getIndex(file.getParent());
+        for (IconSize size : IconSize.values()) {
+            Path thumbFile = getThumbnailFile(file, size);
+            try {
+                Files.deleteIfExists(thumbFile);
+            } catch (IOException e) {
+                log.warn("Failed deleting thumbnail " + thumbFile + ": " + e);
             }
+            index.remove(thumbFile.getFileName().toString());
+        }
+        index.save();
+    }
+
+
+    /**
+     * Returns the thumbnail file of the given size for the file.
+     * The thumbnail name is constructed by appending "_thumb_size" to the file name
+     *
+     * @param file the file
+     * @param size the size of the thumbnail
+     * @return the thumbnail file
+     */
+    private Path getThumbnailFile(Path file, IconSize size) {
+        String thumbName = String.format("%s_thumb_%d.%s",
+                FilenameUtils.removeExtension(file.getFileName().toString()),
+                size.getSize(),
+                FilenameUtils.getExtension(file.getFileName().toString()));
+        return file.getParent().resolve(thumbName);
+    }
+
 
-            // Check whether to use VIPS or java
-            if (StringUtils.isNotBlank(vipsCmd) &&
-                    vipsFileTypes.contains(type.toLowerCase())) {
-                // Use VIPS
-                createThumbnailUsingVips(file, thumbFile, size);
+    /**
+     * Creates all thumbnail sizes for the given image file and registers them in the thumbnail index
+     *
+     * @param file the image file to create thumbnails for
+     * @param type the type of image
+     */
+    private void createThumbnails(Path file, String type) throws IOException {
+
+        long t0 = System.currentTimeMillis();
+        if (!Files.isRegularFile(file)) {
+            log.warn("File does not exist: " + file);
+            return;
+        }
 
-            } else {
-                // Use java APIs
-                createThumbnailUsingJava(file, thumbFile, size);
+        // Check whether to use VIPS or java
+        if (StringUtils.isNotBlank(vipsCmd) &&
+                vipsFileTypes.contains(type.toLowerCase())) {
+            // Use VIPS
+            for (IconSize size : IconSize.values()) {
+                createThumbnailUsingVips(file, getThumbnailFile(file, size), size);
             }
 
-            return thumbFile;
+        } else {
+            // Use java APIs
+            createThumbnailsUsingJava(file);
+        }
 
-        } catch (IOException e) {
-            // Alas, no thumbnail
-            return null;
+        // Register the thumbnails in the index
+        ThumbnailIndex index = getIndex(file.getParent());
+        for (IconSize size : IconSize.values()) {
+            Path thumbFile = getThumbnailFile(file, size);
+            index.put(thumbFile.getFileName().toString(), Files.getLastModifiedTime(thumbFile).toMillis());
         }
+        index.save();
+
+        log.debug("Created thumbnails for " + file + " in " + (System.currentTimeMillis() - t0) + " ms");
     }
 
+
     /**
      * Creates a thumbnail for the image file using libvips
      *
@@ -211,54 +331,188 @@ public class ThumbnailService {
         }
     }
 
+
     /**
-     * Creates a thumbnail for the image file using plain old java
+     * Creates all thumbnail sizes for the image file using plain old java.
+     * <p>
+     * The image is read once, and the thumbnails are produced from the largest to the smallest size,
+     * each one scaled down from the previous one.
+     *
      * @param file the image file
-     * @param thumbFile the resulting thumbnail file
-     * @param size the size of the thumbnail
      */
-    private void createThumbnailUsingJava(Path file, Path thumbFile, IconSize size) throws IOException {
+    private void createThumbnailsUsingJava(Path file) throws IOException {
 
         try {
             BufferedImage image = ImageIO.read(file.toFile());
-
-            int w = image.getWidth();
-            int h = image.getHeight();
-
-            // Never scale up
-            if (w <= size.getSize() && h <= size.getSize()) {
-                FileUtils.copyFile(file.toFile(), thumbFile.toFile());
-
-            } else {
-                // Compute the scale factor
-                double dx = (double)size.getSize() / (double)w;
-                double dy = (double)size.getSize() / (double)h;
-                double d = Math.min(dx, dy);
-
-                // Create the thumbnail
-                BufferedImage thumbImage = new BufferedImage(
-                        (int)Math.round(w * d),
-                        (int)Math.round(h * d),
-                        BufferedImage.TYPE_INT_RGB);
-                Graphics2D g2d = thumbImage.createGraphics();
-                AffineTransform at = AffineTransform.getScaleInstance(d, d);
-                g2d.drawRenderedImage(image, at);
-                g2d.dispose();
-
-                // Save the thumbnail
-                ImageIO.write(
-                        thumbImage,
-                        FilenameUtils.getExtension(thumbFile.getFileName().toString()),
-                        thumbFile.toFile());
-
-                // Releas resources
-                image.flush();
-                thumbImage.flush();
+            if (image == null) {
+                throw new IOException("Unsupported image format");
             }
+            String format = FilenameUtils.getExtension(file.getFileName().toString());
+
+            IconSize[] sizes = IconSize.values();
+            Arrays.sort(sizes, Comparator.comparingInt(IconSize::getSize).reversed());
+
+            BufferedImage img = image;
+            for (IconSize size : sizes) {
+                Path thumbFile = getThumbnailFile(file, size);
+
+                // Never scale up
+                if (img.getWidth() <= size.getSize() && img.getHeight() <= size.getSize()) {
+                    if (img == image) {
+                        FileUtils.copyFile(file.toFile(), thumbFile.toFile());
+                    } else {
+                        ImageIO.write(img, format, thumbFile.toFile());
+                    }
+
+                } else {
+                    img = scaleDown(img, size.getSize());
+                    ImageIO.write(img, format, thumbFile.toFile());
+                }
+            }
+
+            // Release resources
+            image.flush();
+            img.flush();
 
         } catch (Exception e) {
             log.error("Error creating thumbnail for image " + file, e);
             throw new IOException(e);
         }
     }
+
+
+    /**
+     * Scales down the image to fit within the given size using progressive bilinear scaling,
+     * i.e. the image is halved repeatedly until the final step is less than a factor 2.
+     * This gives a much better quality than a single bilinear or nearest-neighbour scaling.
+     *
+     * @param image the image to scale down
+     * @param size the max width and height of the result
+     * @return the scaled image
+     */
+    static BufferedImage scaleDown(BufferedImage image, int size) {
+        double d = Math.min((double)size / (double)image.getWidth(), (double)size / (double)image.getHeight());
+        int tw = Math.max(1, (int)Math.round(image.getWidth() * d));
+        int th = Math.max(1, (int)Math.round(image.getHeight() * d));
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage img = image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        do {
+            w = Math.max(tw, w / 2);
+            h = Math.max(th, h / 2);
+
+            BufferedImage step = new BufferedImage(w, h, type);
+            Graphics2D g2d = step.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.drawImage(img, 0, 0, w, h, null);
+            g2d.dispose();
+
+            if (img != image) {
+                img.flush();
+            }
+            img = step;
+        } while (w != tw || h != th);
+
+        return img;
+    }
+
+
+    /**
+     * Returns the thumbnail index of the given folder
+     *
+     * @param folder the folder
+     * @return the thumbnail index of the folder
+     */
+    private ThumbnailIndex getIndex(Path folder) {
+        synchronized (indexes) {
+            return indexes.computeIfAbsent(folder, f -> new ThumbnailIndex(f, log));
+        }
+    }
+
+
+    /**
+     * The thumbnail index of a repository folder.
+     * <p>
+     * Maps the file names of the thumbnails in the folder to their last-modified time stamps.
+     * A thumbnail is up-to-date if the time stamp is not older than that of the image file.
+     */
+    private static class ThumbnailIndex {
+
+        final Path folder;
+        final Logger log;
+        final Map<String, Long> thumbs = new ConcurrentHashMap<>();
+
+        /** Constructor - loads the index file, or bootstraps the index from the existing thumbnail files **/
+        ThumbnailIndex(Path folder, Logger log) {
+            this.folder = folder;
+            this.log = log;
+
+            Path indexFile = folder.resolve(INDEX_FILE);
+            if (Files.isRegularFile(indexFile)) {
+                Properties props = new Properties();
+                try (Reader in = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+                    props.load(in);
+                    props.stringPropertyNames().forEach(name -> thumbs.put(name, Long.valueOf(props.getProperty(name))));
+                } catch (Exception e) {
+                    log.warn("Failed loading thumbnail index " + indexFile + ": " + e);
+                }
+
+            } else if (Files.isDirectory(folder)) {
+                DirectoryStream.Filter<Path> filter = file ->
+                        THUMB_NAME.matcher(file.getFileName().toString()).matches() &&
+                        Files.isRegularFile(file);
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, filter)) {
+                    for (Path file : stream) {
+                        thumbs.put(file.getFileName().toString(), Files.getLastModifiedTime(file).toMillis());
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed scanning folder for thumbnails " + folder + ": " + e);
+                }
+                if (!thumbs.isEmpty()) {
+                    save();
+                }
+            }
+        }
+
+        Long get(String name) {
+            return thumbs.get(name);
+        }
+
+        boolean contains(String name) {
+            return thumbs.containsKey(name);
+        }
+
+        void put(String name, long stamp) {
+            thumbs.put(name, stamp);
+        }
+
+        void remove(String name) {
+            thumbs.remove(name);
+        }
+
+        /**
+         * Saves the index. The index is written to a temporary file first,
+         * to ensure that concurrent readers never see a partially written index.
+         */
+        synchronized void save() {
+            if (!Files.isDirectory(folder)) {
+                return;
+            }
+            Properties props = new Properties();
+            thumbs.forEach((name, stamp) -> props.setProperty(name, String.valueOf(stamp)));
+            Path indexFile = folder.resolve(INDEX_FILE);
+            try {
+                Path tmpFile = Files.createTempFile(folder, INDEX_FILE, ".tmp");
+                try (Writer out = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                    props.store(out, "Niord thumbnail index");
+                }
+                Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("Failed saving thumbnail index " + indexFile + ": " + e);
+            }
+        }
+    }
 }
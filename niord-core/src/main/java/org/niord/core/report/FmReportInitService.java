@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.report;
+
+import org.niord.core.startup.StartupService;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+
+/**
+ * Checks that the standard and draft reports have been defined.
+ * <p>
+ * The check is non-critical, since the reports are otherwise created upon first use.
+ */
+@Singleton
+@Startup
+@SuppressWarnings("unused")
+public class FmReportInitService {
+
+    @Inject
+    FmReportService fmReportService;
+
+    @Inject
+    StartupService startupService;
+
+
+    /** Called when the web application boots up **/
+    @PostConstruct
+    void init() {
+        startupService.run("standard-reports", false, () -> {
+            fmReportService.getStandardReport();
+            fmReportService.getDraftReport();
+        });
+    }
+
+}
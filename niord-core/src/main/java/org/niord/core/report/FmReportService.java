@@ -23,7 +23,6 @@ import org.niord.core.service.BaseService;
 import org.niord.core.util.TimeUtils;
 import org.slf4j.Logger;
 
-import javax.annotation.PostConstruct;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import java.util.ArrayList;
@@ -53,14 +52,6 @@ public class FmReportService extends BaseService {
     /***************************************/
 
 
-    /** Upon start-up, check that the standard report is defined **/
-    @PostConstruct
-    private void init() {
-        getStandardReport();
-        getDraftReport();
-    }
-
-
     /**
      * Returns the standard report used for generating PDFs from message lists
      * @return the standard report used for generating PDFs from message lists
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.schedule;
+
+import org.niord.core.message.MessageStatusEvent;
+import org.niord.core.message.MessageStatusEventListener;
+import org.niord.model.message.Status;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Used for listening for message status updates via the message status event bus, and
+ * marking the firing areas of published or withdrawn firing area messages as changed,
+ * so that their firing exercise messages are updated.
+ */
+@ApplicationScoped
+@SuppressWarnings("unused")
+public class FiringAreaMessageListener implements MessageStatusEventListener {
+
+    @Inject
+    Logger log;
+
+    @Inject
+    FiringScheduleService firingScheduleService;
+
+    @Inject
+    FiringExerciseChangeTracker changeTracker;
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBatchWindow() {
+        return 2000L;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onMessageStatusEvents(List<MessageStatusEvent> events) {
+        Set<Integer> messageIds = events.stream()
+                .filter(e -> e.getStatus() == Status.PUBLISHED || e.getPrevStatus() == Status.PUBLISHED)
+                .map(MessageStatusEvent::getId)
+                .collect(Collectors.toSet());
+
+        if (!messageIds.isEmpty()) {
+            try {
+                changeTracker.firingAreasChanged(firingScheduleService.findFiringAreaIdsForMessages(messageIds));
+            } catch (Exception e) {
+                log.error("Error checking firing area messages: " + e.getMessage(), e);
+            }
+        }
+    }
+}
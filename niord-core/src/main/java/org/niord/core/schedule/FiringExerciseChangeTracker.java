@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.schedule;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps track of the firing areas whose firing exercise messages may need to be re-computed.
+ * <p>
+ * Firing areas are marked as changed when their firing periods are added, updated or deleted, and when
+ * the published firing area template messages change. Changes made within a transaction are only
+ * registered when the transaction commits, so that the {@linkplain FiringExerciseService} never
+ * processes an area before the changes are visible to it.
+ * <p>
+ * Conversely, changes drained within a transaction are restored if the transaction does not commit,
+ * so that they are processed by the next update.
+ * <p>
+ * Initially, and whenever a firing schedule has been changed, a full update of all firing areas is required.
+ */
+@ApplicationScoped
+public class FiringExerciseChangeTracker {
+
+    private static final String TX_CHANGES_KEY = FiringExerciseChangeTracker.class.getName() + ".changes";
+    private static final String TX_DRAINED_KEY = FiringExerciseChangeTracker.class.getName() + ".drained";
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final Set<Integer> changedAreaIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean fullUpdateRequired = new AtomicBoolean(true);
+
+
+    /**
+     * Marks the given firing area as changed
+     * @param areaId the ID of the firing area
+     */
+    public void firingAreaChanged(Integer areaId) {
+        if (areaId != null) {
+            firingAreasChanged(Collections.singleton(areaId));
+        }
+    }
+
+
+    /**
+     * Marks the given firing areas as changed
+     * @param areaIds the IDs of the firing areas
+     */
+    public void firingAreasChanged(Collection<Integer> areaIds) {
+        if (areaIds != null && !areaIds.isEmpty()) {
+            PendingChanges changes = pendingChanges();
+            if (changes != null) {
+                changes.areaIds.addAll(areaIds);
+            } else {
+                changedAreaIds.addAll(areaIds);
+            }
+        }
+    }
+
+
+    /**
+     * Flags that a firing schedule has been changed, which requires a full update
+     */
+    public void firingScheduleChanged() {
+        PendingChanges changes = pendingChanges();
+        if (changes != null) {
+            changes.scheduleChanged = true;
+        } else {
+            fullUpdateRequired.set(true);
+        }
+    }
+
+
+    /**
+     * Returns and resets the set of changed firing area IDs.
+     * If called within a transaction, the firing areas are restored unless the transaction commits.
+     * @return the set of changed firing area IDs
+     */
+    public Set<Integer> drainChangedAreas() {
+        Set<Integer> result = new HashSet<>();
+        for (Integer areaId : changedAreaIds) {
+            if (changedAreaIds.remove(areaId)) {
+                result.add(areaId);
+            }
+        }
+        PendingChanges drained = drainedChanges();
+        if (drained != null) {
+            drained.areaIds.addAll(result);
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns and resets the flag indicating if a full update is required.
+     * If called within a transaction, the flag is restored unless the transaction commits.
+     * @return if a full update is required
+     */
+    public boolean drainFullUpdateRequired() {
+        boolean result = fullUpdateRequired.getAndSet(false);
+        PendingChanges drained = drainedChanges();
+        if (drained != null && result) {
+            drained.scheduleChanged = true;
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the changes of the current transaction, or null if not called within an active transaction.
+     * The changes are registered if the transaction commits.
+     * @return the changes of the current transaction
+     */
+    private PendingChanges pendingChanges() {
+        return transactionChanges(TX_CHANGES_KEY, true);
+    }
+
+
+    /**
+     * Returns the changes drained by the current transaction, or null if not called within an active transaction.
+     * The changes are restored unless the transaction commits.
+     * @return the changes drained by the current transaction
+     */
+    private PendingChanges drainedChanges() {
+        return transactionChanges(TX_DRAINED_KEY, false);
+    }
+
+
+    /**
+     * Returns the changes stored under the given key in the current transaction, or null if not called
+     * within an active transaction. The changes are registered if the transaction commits, or, if
+     * the commit flag is false, if it does not commit.
+     * @param key the transaction resource key
+     * @param commit whether to register the changes upon commit or upon rollback
+     * @return the changes of the current transaction
+     */
+    private PendingChanges transactionChanges(String key, boolean commit) {
+        if (transactionRegistry == null
+                || transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            return null;
+        }
+
+        PendingChanges changes = (PendingChanges) transactionRegistry.getResource(key);
+        if (changes == null) {
+            PendingChanges txChanges = new PendingChanges();
+            transactionRegistry.putResource(key, txChanges);
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if ((status == Status.STATUS_COMMITTED) == commit) {
+                        changedAreaIds.addAll(txChanges.areaIds);
+                        if (txChanges.scheduleChanged) {
+                            fullUpdateRequired.set(true);
+                        }
+                    }
+                }
+            });
+            changes = txChanges;
+        }
+        return changes;
+    }
+
+
+    /** The changes registered within a transaction **/
+    private static class PendingChanges {
+        final Set<Integer> areaIds = new HashSet<>();
+        boolean scheduleChanged;
+    }
+}
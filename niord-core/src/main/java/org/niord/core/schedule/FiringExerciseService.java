@@ -32,7 +32,10 @@ import org.niord.core.message.MessageSearchParams;
 import org.niord.core.message.MessageSeries;
 import org.niord.core.message.MessageService;
 import org.niord.core.message.vo.SystemMessageVo;
-import org.niord.core.model.BaseEntity;
+import org.niord.core.metrics.ScheduleMetricsInterceptor;
+import org.niord.core.schedule.vo.FiringAreaPeriodsVo;
+import org.niord.core.schedule.vo.FiringExerciseDiffVo;
+import org.niord.core.schedule.vo.FiringExerciseDiffVo.Action;
 import org.niord.core.service.BaseService;
 import org.niord.core.settings.annotation.Setting;
 import org.niord.core.util.TimeUtils;
@@ -44,17 +47,24 @@ import org.niord.model.message.Status;
 import org.niord.model.message.Type;
 import org.slf4j.Logger;
 
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TimeZone;
@@ -65,19 +75,28 @@ import static org.niord.core.settings.Setting.Type.Integer;
 /**
  * The Firing Exercise service generates firing exercise messages based on firing schedules.
  * <p>
- * The service will periodically load all active schedules and perform the following steps:
+ * For each active schedule, the service will perform the following steps:
  * <ul>
- *     <li>Load all firing area messages from the source domain.</li>
- *     <li>Load all future firing periods for the firing areas of the source domain.</li>
- *     <li>Combine the firing area messages and firing periods to generate firing exercise message templates
- *          for the target message series.</li>
- *     <li>Fill out a textual time part of the firing exercise messages based on the time zone of the target domain.</li>
- *     <li>Compare the list of firing exercise message templates with the ones already published in the target domain,
- *          and cancel and publish new messages accordingly.</li>
+ *     <li>Load the firing area messages from the source domain.</li>
+ *     <li>Load the future firing periods for the firing areas of the source domain.</li>
+ *     <li>Compare the firing periods of each firing area with the event dates of the firing exercise
+ *          message currently published in the target message series, and compute a diff. A firing exercise
+ *          message is also updated if its firing area message has been updated since it was generated.</li>
+ *     <li>For changed firing areas, combine the firing area message and firing periods to generate a new
+ *          firing exercise message, with a textual time part based on the time zone of the target domain.</li>
+ *     <li>Publish all new firing exercise messages, and then cancel the messages they replace.</li>
  * </ul>
+ * <p>
+ * The update is incremental. The {@linkplain FiringExerciseChangeTracker} keeps track of the firing areas whose
+ * firing periods or firing area messages have changed, and only these areas are re-computed,
+ * along with the firing areas affected by the schedule window moving on to a new day.
+ * A full update is performed at start-up, when a firing schedule changes and every night, where
+ * the latter also picks up e.g. textual changes to published firing area messages, which are not
+ * tracked by the change tracker.
  */
 @Singleton
 @Startup
+@Interceptors(ScheduleMetricsInterceptor.class)
 @SuppressWarnings("unused")
 public class FiringExerciseService extends BaseService {
 
@@ -95,6 +114,9 @@ public class FiringExerciseService extends BaseService {
     @Inject
     FiringScheduleService firingScheduleService;
 
+    @Inject
+    FiringExerciseChangeTracker changeTracker;
+
     @Inject
     MessageService messageService;
 
@@ -107,133 +129,353 @@ public class FiringExerciseService extends BaseService {
     @Inject
     DictionaryService dictionaryService;
 
+    // The date of the most recent update. Used for detecting when the schedule window moves on to a new day
+    private Date lastUpdateDate;
+
+
     /**
-     * Every hour, firing exercises are created and updated according to the active schedules.
-     * TODO: Hourly update are used when the schedule is imported from a legacy system.
-     * TODO: Once Niord is used for scheduling, chang to run every night at 3 AM
+     * Every night at 3 AM, all firing exercises are re-computed according to the active schedules.
      */
-    //@Schedule(persistent = false, hour = "3")
-    @Schedule(persistent=false, second="50", minute="21", hour="*/1")
+    @Schedule(persistent=false, second="50", minute="21", hour="3")
     public void updateFiringExercises() {
+        // The full update covers all pending changes. The tracker restores them if the update is rolled back
+        changeTracker.drainFullUpdateRequired();
+        changeTracker.drainChangedAreas();
+        updateFiringExercises(null, null);
+    }
 
-        Date today = TimeUtils.resetTime(new Date());
 
-        // Get active schedules
-        List<FiringSchedule> activeSchedules = firingScheduleService.getFiringSchedules().stream()
-                .filter(FiringSchedule::isActive)
-                .collect(Collectors.toList());
+    /**
+     * Every five minutes, the firing exercises of changed firing areas are updated according to the active schedules.
+     */
+    @Schedule(persistent=false, second="50", minute="*/5", hour="*")
+    public void checkFiringExercises() {
 
-        log.debug("Processing " + activeSchedules.size() + " active firing schedules");
+        // Drain the changes once. The tracker restores them if the update is rolled back
+        boolean fullUpdate = changeTracker.drainFullUpdateRequired();
+        Set<Integer> changedAreaIds = changeTracker.drainChangedAreas();
 
-        for (FiringSchedule schedule : activeSchedules) {
+        if (lastUpdateDate == null || fullUpdate) {
+            updateFiringExercises(null, null);
+            return;
+        }
 
-            // Get hold of the relevant firing areas
-            List<Area> firingAreas = getFiringAreas(schedule.getDomain());
+        Date today = TimeUtils.resetTime(new Date());
+        Date previousDate = today.after(lastUpdateDate) ? lastUpdateDate : null;
+        if (changedAreaIds.isEmpty() && previousDate == null) {
+            return;
+        }
 
-            // Get firing area message templates
-            List<Message> firingAreaMessages = getFiringAreaMessages(
-                    schedule.getDomain(),
-                    null,
-                    firingAreas);
+        updateFiringExercises(changedAreaIds, previousDate);
+    }
 
-            // Find the firing periods
-            int days = schedule.getScheduleDays() != null ? schedule.getScheduleDays() : firingExerciseScheduleDays;
-            Date endDate = TimeUtils.add(today, Calendar.DATE, days);
-            List<FiringPeriod> firingPeriods = em.createNamedQuery("FiringPeriod.findByAreasAndDateInterval", FiringPeriod.class)
-                    .setParameter("areas", firingAreas)
-                    .setParameter("fromDate", today)
-                    .setParameter("toDate", TimeUtils.endOfDay(endDate))
-                    .getResultList();
 
+    /**
+     * Updates the firing exercises of the active schedules
+     * @param changedAreaIds the changed firing areas to update, or null for a full update
+     * @param previousDate if the schedule window has moved on to a new day, the date of the previous update
+     */
+    private void updateFiringExercises(Set<Integer> changedAreaIds, Date previousDate) {
+        long t0 = System.currentTimeMillis();
+        Date today = TimeUtils.resetTime(new Date());
 
-            // Create (un-persisted) firing exercise messages from the firing area templates and the firing periods
-            List<Message> newFiringExerciseMessages = generateFiringExerciseMessages(
-                    schedule,
-                    firingAreaMessages,
-                    firingPeriods);
+        List<FiringSchedule> activeSchedules = getActiveFiringSchedules();
 
+        List<FiringExerciseUpdate> updates = new ArrayList<>();
+        for (FiringSchedule schedule : activeSchedules) {
 
-            // Get the currently published firing exercise messages
-            List<Message> currentFiringExerciseMessages = getFiringAreaMessages(
-                    schedule.getTargetDomain(),
-                    schedule.getTargetMessageSeries(),
-                    firingAreas);
+            Set<Integer> areaIds = null;
+            if (changedAreaIds != null) {
+                areaIds = new HashSet<>(changedAreaIds);
+                if (previousDate != null) {
+                    areaIds.addAll(getRolledOverAreaIds(schedule, previousDate, today));
+                }
+                if (areaIds.isEmpty()) {
+                    continue;
+                }
+            }
 
+            updates.addAll(computeFiringExerciseUpdates(schedule, areaIds, null, today));
+        }
+
+        int changes = applyFiringExerciseUpdates(updates);
+        lastUpdateDate = today;
+
+        log.info(String.format("Processed %d firing areas of %d active firing schedules (%s) with %d changes in %d ms",
+                updates.size(),
+                activeSchedules.size(),
+                changedAreaIds == null ? "full update" : "incremental update",
+                changes,
+                System.currentTimeMillis() - t0));
+    }
 
-            // Persist new messages if they are not already published
-            newFiringExerciseMessages.forEach(message
-                    ->  checkCreateFiringExerciseMessage(message, currentFiringExerciseMessages));
 
-            // The messages left in the currentFiringExerciseMessages should be cancelled
-            currentFiringExerciseMessages.forEach(this::cancelCurrentFiringExerciseMessage);
+    /**
+     * Computes the changes that an update of the firing exercises would result in, without changing any messages.
+     * <p>
+     * If a list of firing area periods is specified, these replace the current firing periods of the firing areas,
+     * which may be used for previewing the effect of e.g. a schedule import.
+     *
+     * @param areaIds the firing areas to compute the diff for, or null for all firing areas
+     * @param proposedPeriods optionally, the proposed firing periods of a list of firing areas
+     * @return the diff for the firing areas
+     */
+    @Lock(LockType.READ)
+    public List<FiringExerciseDiffVo> computeFiringExerciseDiff(Set<Integer> areaIds, List<FiringAreaPeriodsVo> proposedPeriods) {
+
+        Map<Integer, List<FiringPeriod>> proposedAreaPeriods = null;
+        if (proposedPeriods != null) {
+            proposedAreaPeriods = new HashMap<>();
+            for (FiringAreaPeriodsVo areaPeriods : proposedPeriods) {
+                Area area = areaPeriods.getArea() != null ? getByPrimaryKey(Area.class, areaPeriods.getArea().getId()) : null;
+                if (area == null) {
+                    throw new IllegalArgumentException("Invalid firing area " + areaPeriods.getArea());
+                }
+                List<FiringPeriod> fps = proposedAreaPeriods.computeIfAbsent(area.getId(), id -> new ArrayList<>());
+                areaPeriods.getFiringPeriods().stream()
+                        .map(fp -> new FiringPeriod(area, fp))
+                        .filter(FiringPeriod::firingPeriodDefined)
+                        .forEach(fps::add);
+            }
+            areaIds = areaIds != null ? new HashSet<>(areaIds) : new HashSet<>();
+            areaIds.addAll(proposedAreaPeriods.keySet());
         }
+
+        Date today = TimeUtils.resetTime(new Date());
+        List<FiringExerciseDiffVo> result = new ArrayList<>();
+        for (FiringSchedule schedule : getActiveFiringSchedules()) {
+            computeFiringExerciseUpdates(schedule, areaIds, proposedAreaPeriods, today)
+                    .forEach(u -> result.add(u.diff));
+        }
+        return result;
     }
 
 
     /**
-     * Checks if the firing exercise message should be created by looking at any existing
-     * messages.
-     * Also, if an existing message exists, this is removed from the list of current messages.
-     * @param message the message to create if it has been updated
+     * Computes the firing exercise updates for the given schedule and firing areas
+     *
+     * @param schedule the firing schedule
+     * @param areaIds the firing areas to compute updates for, or null for all firing areas
+     * @param proposedAreaPeriods optionally, firing periods that replace the current firing periods of the areas
+     * @param today the current date
+     * @return the firing exercise updates
      */
-    private void checkCreateFiringExerciseMessage(Message message, List<Message> currentFiringExerciseMessages) {
-        Area firingArea = getFiringAreaForMessage(message);
+    private List<FiringExerciseUpdate> computeFiringExerciseUpdates(
+            FiringSchedule schedule,
+            Set<Integer> areaIds,
+            Map<Integer, List<FiringPeriod>> proposedAreaPeriods,
+            Date today) {
 
-        Message currentFiringExerciseMessage = currentFiringExerciseMessages.stream()
-                .filter(m -> Objects.equals(firingArea.getId(), getFiringAreaForMessage(m).getId()))
-                .findFirst()
-                .orElse(null);
+        // Get hold of the relevant firing areas
+        List<Area> firingAreas = getFiringAreas(schedule.getDomain()).stream()
+                .filter(a -> areaIds == null || areaIds.contains(a.getId()))
+                .collect(Collectors.toList());
+        if (firingAreas.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        try {
-            if (currentFiringExerciseMessage == null || !sameFiringPeriods(message, currentFiringExerciseMessage)) {
-                log.info("Creating firing exercise message for area " + firingArea.getDescs().get(0).getName());
-                Message msg = messageService.createMessage(message);
+        // Get firing area message templates
+        List<Message> firingAreaMessages = getFiringAreaMessages(
+                schedule.getDomain(),
+                null,
+                firingAreas);
+
+        // A firing area message may cover several firing areas, so include the firing periods of all of them
+        Map<Integer, Area> periodAreas = new LinkedHashMap<>();
+        firingAreas.forEach(a -> periodAreas.put(a.getId(), a));
+        firingAreaMessages.stream()
+                .flatMap(m -> m.getAreas().stream())
+                .filter(a -> a.getType() == AreaType.FIRING_AREA)
+                .forEach(a -> periodAreas.putIfAbsent(a.getId(), a));
+
+        // Find the firing periods
+        Date endDate = TimeUtils.endOfDay(TimeUtils.add(today, Calendar.DATE, getScheduleDays(schedule)));
+        List<FiringPeriod> firingPeriods = em.createNamedQuery("FiringPeriod.findByAreasAndDateInterval", FiringPeriod.class)
+                .setParameter("areas", periodAreas.values())
+                .setParameter("fromDate", today)
+                .setParameter("toDate", endDate)
+                .getResultList();
+
+        // Substitute any proposed firing periods
+        if (proposedAreaPeriods != null) {
+            firingPeriods = firingPeriods.stream()
+                    .filter(fp -> !proposedAreaPeriods.containsKey(fp.getArea().getId()))
+                    .collect(Collectors.toList());
+            proposedAreaPeriods.values().stream()
+                    .flatMap(Collection::stream)
+                    .filter(fp -> periodAreas.containsKey(fp.getArea().getId()))
+                    .filter(fp -> !fp.getFromDate().after(endDate) && !fp.getToDate().before(today))
+                    .forEach(firingPeriods::add);
+        }
 
-                if (currentFiringExerciseMessage != null) {
-                    currentFiringExerciseMessages.remove(currentFiringExerciseMessage);
-                    cancelCurrentFiringExerciseMessage(currentFiringExerciseMessage);
-                }
+        // Get the currently published firing exercise messages within the scope of the update
+        Set<Integer> scopeAreaIds = firingAreas.stream().map(Area::getId).collect(Collectors.toSet());
+        firingAreaMessages.stream()
+                .map(this::getFiringAreaForMessage)
+                .filter(Objects::nonNull)
+                .forEach(a -> scopeAreaIds.add(a.getId()));
+        List<Message> currentFiringExerciseMessages = getFiringAreaMessages(
+                schedule.getTargetDomain(),
+                schedule.getTargetMessageSeries(),
+                new ArrayList<>(periodAreas.values())).stream()
+                .filter(m -> getFiringAreaForMessage(m) != null
+                        && scopeAreaIds.contains(getFiringAreaForMessage(m).getId()))
+                .collect(Collectors.toList());
 
+        List<FiringExerciseUpdate> result = new ArrayList<>();
+        for (Message firingAreaMessage : firingAreaMessages) {
+
+            Area firingArea = getFiringAreaForMessage(firingAreaMessage);
+            Set<Integer> messageAreaIds = firingAreaMessage.getAreas().stream()
+                    .filter(a -> a.getType() == AreaType.FIRING_AREA)
+                    .map(Area::getId)
+                    .collect(Collectors.toSet());
+
+            // Get firing periods for the message
+            List<FiringPeriod> fps = firingPeriods.stream()
+                    .filter(fp -> messageAreaIds.contains(fp.getArea().getId()))
+                    .sorted()
+                    .collect(Collectors.toList());
+
+            if (fps.isEmpty()) {
+                continue;
+            }
+
+            Message currentFiringExerciseMessage = currentFiringExerciseMessages.stream()
+                    .filter(m -> Objects.equals(firingArea.getId(), getFiringAreaForMessage(m).getId()))
+                    .findFirst()
+                    .orElse(null);
+            currentFiringExerciseMessages.remove(currentFiringExerciseMessage);
+
+            List<DateInterval> eventDates = fps.stream()
+                    .map(FiringPeriod::toDateInterval)
+                    .collect(Collectors.toList());
+
+            Action action;
+            if (currentFiringExerciseMessage == null) {
+                action = Action.CREATE;
+            } else if (sameFiringPeriods(eventDates, getEventDates(currentFiringExerciseMessage))
+                    && !updatedSince(firingAreaMessage, currentFiringExerciseMessage)) {
+                action = Action.UNCHANGED;
             } else {
-                currentFiringExerciseMessages.remove(currentFiringExerciseMessage);
+                action = Action.UPDATE;
+            }
+
+            FiringExerciseUpdate update = new FiringExerciseUpdate(schedule, firingArea, action, currentFiringExerciseMessage);
+            update.firingAreaMessage = firingAreaMessage;
+            update.firingPeriods = fps;
+            eventDates.forEach(di -> update.diff.getNewEventDates().add(di.toVo()));
+            result.add(update);
+        }
+
+        // The messages left in the currentFiringExerciseMessages should be cancelled
+        currentFiringExerciseMessages.forEach(m -> result.add(
+                new FiringExerciseUpdate(schedule, getFiringAreaForMessage(m), Action.CANCEL, m)));
+
+        return result;
+    }
+
+
+    /**
+     * Applies the firing exercise updates.
+     * <p>
+     * All new firing exercise messages are published before the messages they replace are cancelled.
+     *
+     * @param updates the updates to apply
+     * @return the number of changes applied
+     */
+    private int applyFiringExerciseUpdates(List<FiringExerciseUpdate> updates) {
+
+        Date now = new Date();
+        int changes = 0;
+        List<Message> cancelledMessages = new ArrayList<>();
+
+        for (FiringExerciseUpdate update : updates) {
+            Action action = update.diff.getAction();
+            if (action == Action.CREATE || action == Action.UPDATE) {
+                try {
+                    log.info("Creating firing exercise message for area " + update.diff.getAreaName());
+                    Message message = generateFiringExerciseMessage(
+                            update.schedule,
+                            update.firingAreaMessage,
+                            update.firingPeriods,
+                            now);
+                    messageService.createMessage(message);
+                    changes++;
+
+                    if (update.currentMessage != null) {
+                        cancelledMessages.add(update.currentMessage);
+                    }
+                } catch (Exception e) {
+                    log.error("Error creating new firing exercise message for area " + update.diff.getAreaName(), e);
+                }
+
+            } else if (action == Action.CANCEL) {
+                cancelledMessages.add(update.currentMessage);
             }
-        } catch (Exception e) {
-            log.error("Error creating new firing exercise message for area "
-                    + firingArea.getDescs().get(0).getName(), e);
         }
+
+        for (Message message : cancelledMessages) {
+            if (cancelCurrentFiringExerciseMessage(message)) {
+                changes++;
+            }
+        }
+
+        return changes;
     }
 
 
     /**
      * Cancels the given firing exercise message
      * @param message the message to cancel
+     * @return if the message was cancelled
      */
-    private void cancelCurrentFiringExerciseMessage(Message message) {
+    private boolean cancelCurrentFiringExerciseMessage(Message message) {
         try {
             log.info("Cancelling firing exercise message " + message.getUid());
             messageService.updateStatus(message.getUid(), Status.CANCELLED);
+            return true;
         } catch (Exception e) {
             log.error("Error cancelling existing firing exercise message", e);
+            return false;
         }
     }
 
 
     /**
-     * Checks if the two messages defines the same firing periods
-     * @param m1 the first message
-     * @param m2 the second message
-     * @return if the two messages defines the same firing periods
+     * Returns the IDs of the firing areas affected by the schedule window moving on from the previous date
+     * to today, i.e. the firing areas with firing periods that have left or entered the schedule window.
+     *
+     * @param schedule the firing schedule
+     * @param previousDate the date of the previous update
+     * @param today the current date
+     * @return the IDs of the affected firing areas
      */
-    private boolean sameFiringPeriods(Message m1, Message m2) {
-        List<DateInterval> d1 = m1.getParts().stream()
-                .flatMap(p -> p.getEventDates().stream())
-                .sorted()
-                .collect(Collectors.toList());
-        List<DateInterval> d2 = m2.getParts().stream()
-                .flatMap(p -> p.getEventDates().stream())
-                .sorted()
-                .collect(Collectors.toList());
+    private Set<Integer> getRolledOverAreaIds(FiringSchedule schedule, Date previousDate, Date today) {
+        int days = getScheduleDays(schedule);
+        Date previousEndDate = TimeUtils.endOfDay(TimeUtils.add(previousDate, Calendar.DATE, days));
+        Date endDate = TimeUtils.endOfDay(TimeUtils.add(today, Calendar.DATE, days));
+
+        Set<Integer> areaIds = new HashSet<>();
+        areaIds.addAll(em.createNamedQuery("FiringPeriod.findAreaIdsByDateInterval", Integer.class)
+                .setParameter("fromDate", previousDate)
+                .setParameter("toDate", new Date(today.getTime() - 1L))
+                .getResultList());
+        areaIds.addAll(em.createNamedQuery("FiringPeriod.findAreaIdsByDateInterval", Integer.class)
+                .setParameter("fromDate", new Date(previousEndDate.getTime() + 1L))
+                .setParameter("toDate", endDate)
+                .getResultList());
+        return areaIds;
+    }
 
+
+    /**
+     * Checks if the two lists of date intervals defines the same firing periods
+     * @param d1 the first list of date intervals
+     * @param d2 the second list of date intervals
+     * @return if the two lists of date intervals defines the same firing periods
+     */
+    private boolean sameFiringPeriods(List<DateInterval> d1, List<DateInterval> d2) {
         if (d1.size() == d2.size()) {
             for (int x = 0; x < d1.size(); x++) {
                 if (d1.get(x).compareTo(d2.get(x)) != 0) {
@@ -246,94 +488,93 @@ public class FiringExerciseService extends BaseService {
     }
 
 
-    /** Based on the firing area message templates and the firing periods, generate new firing exercise messages **/
-    private List<Message> generateFiringExerciseMessages(
-            FiringSchedule schedule,
-            List<Message> firingAreaMessages,
-            List<FiringPeriod> firingPeriods) {
-
-        List<Message> result = new ArrayList<>();
-        Date now = new Date();
-
-        for (Message firingAreaMessage : firingAreaMessages) {
-
-            Set<Integer> areaIds = firingAreaMessage.getAreas().stream()
-                    .filter(a -> a.getType() == AreaType.FIRING_AREA)
-                    .map(BaseEntity::getId)
-                    .collect(Collectors.toSet());
-
-            // Get firing periods for the message
-            List<FiringPeriod> fps = firingPeriods.stream()
-                    .filter(fp -> areaIds.contains(fp.getArea().getId()))
-                    .sorted()
-                    .collect(Collectors.toList());
-
-            if (fps.isEmpty()) {
-                continue;
-            }
+    /**
+     * Checks if the firing area message has been updated after the firing exercise message was generated
+     * @param firingAreaMessage the firing area message
+     * @param firingExerciseMessage the firing exercise message generated from the firing area message
+     * @return if the firing area message has been updated after the firing exercise message was generated
+     */
+    private boolean updatedSince(Message firingAreaMessage, Message firingExerciseMessage) {
+        return firingAreaMessage.getUpdated() != null
+                && firingExerciseMessage.getCreated() != null
+                && firingAreaMessage.getUpdated().after(firingExerciseMessage.getCreated());
+    }
 
-            // Construct the firing exercise message from the firing area message and firing periods
-            Message message = new Message();
-            message.assignNewUid();
-            message.setMainType(schedule.getTargetMessageSeries().getMainType());
-            message.setType(message.getMainType() == MainType.NW ? Type.LOCAL_WARNING : Type.TEMPORARY_NOTICE);
-            message.setMessageSeries(schedule.getTargetMessageSeries());
-            message.setStatus(Status.PUBLISHED);
-            message.getAreas().addAll(firingAreaMessage.getAreas());
-            message.getCategories().addAll(firingAreaMessage.getCategories());
-            message.getCharts().addAll(firingAreaMessage.getCharts());
-
-            // Copy message description entities and message parts
-            MessageVo firingAreaMessageVo = firingAreaMessage.toVo(SystemMessageVo.class, Message.MESSAGE_DETAILS_FILTER);
-            firingAreaMessageVo.getDescs().forEach(d -> message.addDesc(new MessageDesc(d)));
-            firingAreaMessageVo.getParts()
-                    .forEach(p -> {
-                        if (p.getGeometry() != null) {
-                            p.setGeometry(featureService.copyFeatureCollection(p.getGeometry()));
-                        }
-                        // Remove any event date interval
-                        p.setEventDates(null);
-                        // Add the part to the new firing exercise message
-                        message.addPart(new MessagePart(p));
-                    });
-
-            // Get hold of the "time" message part, or add it as the very first message part
-            if (message.partsByType(MessagePartType.TIME).isEmpty()) {
-                MessagePart timePart = new MessagePart(MessagePartType.TIME);
-                message.getParts().add(0, timePart);
-                timePart.setMessage(message);
-            }
-            MessagePart timePart = message.partsByType(MessagePartType.TIME).get(0);
 
-            // Copy firing periods to event dates
-            fps.forEach(fp -> timePart.addEventDates(fp.toDateInterval()));
+    /** Returns the sorted event dates of the message **/
+    private List<DateInterval> getEventDates(Message message) {
+        return message.getParts().stream()
+                .flatMap(p -> p.getEventDates().stream())
+                .sorted()
+                .collect(Collectors.toList());
+    }
 
-            // Make sure the message expires after last event date
-            message.updateAggregateEventDateInterval();
-            message.setPublishDateFrom(now);
-            message.setPublishDateTo(message.getEventDateTo());
 
-            // Format the firing periods as text
-            formatTimeDescription(timePart, message.computeLanguages(), schedule.targetTimeZone());
+    /** Based on the firing area message template and the firing periods, generate a new firing exercise message **/
+    private Message generateFiringExerciseMessage(
+            FiringSchedule schedule,
+            Message firingAreaMessage,
+            List<FiringPeriod> fps,
+            Date now) {
+
+        // Construct the firing exercise message from the firing area message and firing periods
+        Message message = new Message();
+        message.assignNewUid();
+        message.setMainType(schedule.getTargetMessageSeries().getMainType());
+        message.setType(message.getMainType() == MainType.NW ? Type.LOCAL_WARNING : Type.TEMPORARY_NOTICE);
+        message.setMessageSeries(schedule.getTargetMessageSeries());
+        message.setStatus(Status.PUBLISHED);
+        message.getAreas().addAll(firingAreaMessage.getAreas());
+        message.getCategories().addAll(firingAreaMessage.getCategories());
+        message.getCharts().addAll(firingAreaMessage.getCharts());
+
+        // Copy message description entities and message parts
+        MessageVo firingAreaMessageVo = firingAreaMessage.toVo(SystemMessageVo.class, Message.MESSAGE_DETAILS_FILTER);
+        firingAreaMessageVo.getDescs().forEach(d -> message.addDesc(new MessageDesc(d)));
+        firingAreaMessageVo.getParts()
+                .forEach(p -> {
+                    if (p.getGeometry() != null) {
+                        p.setGeometry(featureService.copyFeatureCollection(p.getGeometry()));
+                    }
+                    // Remove any event date interval
+                    p.setEventDates(null);
+                    // Add the part to the new firing exercise message
+                    message.addPart(new MessagePart(p));
+                });
+
+        // Get hold of the "time" message part, or add it as the very first message part
+        if (message.partsByType(MessagePartType.TIME).isEmpty()) {
+            MessagePart timePart = new MessagePart(MessagePartType.TIME);
+            message.getParts().add(0, timePart);
+            timePart.setMessage(message);
+        }
+        MessagePart timePart = message.partsByType(MessagePartType.TIME).get(0);
 
-            // Get hold of the "details" message part, or create it
-            if (message.partsByType(MessagePartType.DETAILS).isEmpty()) {
-                MessagePart detailsPart = message.addPart(new MessagePart(MessagePartType.DETAILS));
-            }
-            MessagePart detailsPart = message.partsByType(MessagePartType.DETAILS).get(0);
+        // Copy firing periods to event dates
+        fps.forEach(fp -> timePart.addEventDates(fp.toDateInterval()));
 
-            // Format the message subject
-            formatSubject(detailsPart, message.computeLanguages());
+        // Make sure the message expires after last event date
+        message.updateAggregateEventDateInterval();
+        message.setPublishDateFrom(now);
+        message.setPublishDateTo(message.getEventDateTo());
 
-            // Update the message title
-            message.setAutoTitle(true);
-            message.updateMessageTitle();
+        // Format the firing periods as text
+        formatTimeDescription(timePart, message.computeLanguages(), schedule.targetTimeZone());
 
-            result.add(message);
+        // Get hold of the "details" message part, or create it
+        if (message.partsByType(MessagePartType.DETAILS).isEmpty()) {
+            MessagePart detailsPart = message.addPart(new MessagePart(MessagePartType.DETAILS));
         }
+        MessagePart detailsPart = message.partsByType(MessagePartType.DETAILS).get(0);
 
+        // Format the message subject
+        formatSubject(detailsPart, message.computeLanguages());
 
-        return result;
+        // Update the message title
+        message.setAutoTitle(true);
+        message.updateMessageTitle();
+
+        return message;
     }
 
 
@@ -444,4 +685,48 @@ public class FiringExerciseService extends BaseService {
     }
 
 
+    /** Returns the active firing schedules **/
+    private List<FiringSchedule> getActiveFiringSchedules() {
+        return firingScheduleService.getFiringSchedules().stream()
+                .filter(FiringSchedule::isActive)
+                .collect(Collectors.toList());
+    }
+
+
+    /** Returns the number of days to include in the firing exercise messages of the schedule **/
+    private int getScheduleDays(FiringSchedule schedule) {
+        return schedule.getScheduleDays() != null ? schedule.getScheduleDays() : firingExerciseScheduleDays;
+    }
+
+
+    /** Returns the name of the area **/
+    private String getAreaName(Area area) {
+        return area != null && !area.getDescs().isEmpty() ? area.getDescs().get(0).getName() : null;
+    }
+
+
+    /**
+     * Encapsulates the update of the firing exercise message of a single firing area
+     */
+    private class FiringExerciseUpdate {
+        final FiringSchedule schedule;
+        final Message currentMessage;
+        final FiringExerciseDiffVo diff = new FiringExerciseDiffVo();
+        Message firingAreaMessage;
+        List<FiringPeriod> firingPeriods;
+
+        /** Constructor **/
+        FiringExerciseUpdate(FiringSchedule schedule, Area firingArea, Action action, Message currentMessage) {
+            this.schedule = schedule;
+            this.currentMessage = currentMessage;
+            diff.setScheduleId(schedule.getId());
+            diff.setAreaId(firingArea != null ? firingArea.getId() : null);
+            diff.setAreaName(getAreaName(firingArea));
+            diff.setAction(action);
+            if (currentMessage != null) {
+                diff.setCurrentMessageUid(currentMessage.getUid());
+                getEventDates(currentMessage).forEach(di -> diff.getCurrentEventDates().add(di.toVo()));
+            }
+        }
+    }
 }
@@ -53,7 +53,9 @@ import java.util.Date;
         @NamedQuery(name="FiringPeriod.findByAreasAndDateInterval",
                 query = "select distinct fp FROM FiringPeriod fp where fp.fromDate <= :toDate and fp.toDate >= :fromDate "
                         + " and fp.area in (:areas) "
-                        + " order by fp.area, fp.fromDate, fp.toDate")
+                        + " order by fp.area, fp.fromDate, fp.toDate"),
+        @NamedQuery(name="FiringPeriod.findAreaIdsByDateInterval",
+                query = "select distinct fp.area.id FROM FiringPeriod fp where fp.fromDate <= :toDate and fp.toDate >= :fromDate ")
 })
 @SuppressWarnings("unused")
 public class FiringPeriod extends VersionedEntity<Integer> implements Comparable<FiringPeriod> {
@@ -39,6 +39,7 @@ import org.niord.core.model.BaseEntity;
 import org.niord.core.schedule.vo.FiringAreaPeriodsVo;
 import org.niord.core.service.BaseService;
 import org.niord.core.util.TimeUtils;
+import org.niord.core.web.SiteBundleVersion;
 import org.niord.model.DataFilter;
 import org.niord.core.area.AreaType;
 import org.niord.model.message.MessagePartType;
@@ -96,6 +97,12 @@ public class FiringScheduleService extends BaseService {
     @Inject
     MessageSeriesService messageSeriesService;
 
+    @Inject
+    FiringExerciseChangeTracker changeTracker;
+
+    @Inject
+    SiteBundleVersion siteBundleVersion;
+
 
     /***************************************/
     /** Firing Schedules                  **/
@@ -146,6 +153,10 @@ public class FiringScheduleService extends BaseService {
         domain.setFiringSchedule(schedule);
 
         schedule = saveEntity(schedule);
+        changeTracker.firingScheduleChanged();
+
+        // Domains, as emitted in the site-config bundle, flag if they have a firing schedule
+        siteBundleVersion.changed();
 
         return schedule;
     }
@@ -180,6 +191,8 @@ public class FiringScheduleService extends BaseService {
         original.setScheduleDays(schedule.getScheduleDays());
         original.setActive(schedule.isActive());
 
+        changeTracker.firingScheduleChanged();
+        siteBundleVersion.changed();
         return saveEntity(original);
     }
 
@@ -196,6 +209,8 @@ public class FiringScheduleService extends BaseService {
         if (schedule != null) {
             schedule.getDomain().setFiringSchedule(null);
             remove(schedule);
+            changeTracker.firingScheduleChanged();
+            siteBundleVersion.changed();
             return true;
         }
         return false;
@@ -361,6 +376,7 @@ public class FiringScheduleService extends BaseService {
             throw new IllegalArgumentException("Firing period must defined area, from- and to-dates");
         }
 
+        changeTracker.firingAreaChanged(templatePeriod.getArea().getId());
         return saveEntity(templatePeriod);
     }
 
@@ -380,6 +396,9 @@ public class FiringScheduleService extends BaseService {
         }
 
         FiringPeriod originalFp = getByPrimaryKey(FiringPeriod.class, templatePeriod.getId());
+        if (originalFp.hasChanged(templatePeriod)) {
+            changeTracker.firingAreaChanged(originalFp.getArea().getId());
+        }
         originalFp.updateFiringPeriod(templatePeriod);
 
         return saveEntity(originalFp);
@@ -394,6 +413,7 @@ public class FiringScheduleService extends BaseService {
 
         FiringPeriod firingPeriod = getByPrimaryKey(FiringPeriod.class, id);
         if (firingPeriod != null) {
+            changeTracker.firingAreaChanged(firingPeriod.getArea().getId());
             remove(firingPeriod);
             return true;
         }
@@ -406,6 +426,27 @@ public class FiringScheduleService extends BaseService {
     /***************************************/
 
 
+    /**
+     * Returns the IDs of the firing areas of the given messages, provided that the messages
+     * belong to the source domain of an active firing schedule, i.e. are firing area message templates.
+     * @param messageIds the message IDs
+     * @return the IDs of the firing areas of the firing area messages
+     */
+    public List<Integer> findFiringAreaIdsForMessages(Set<Integer> messageIds) {
+        if (messageIds == null || messageIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return em.createQuery("select distinct a.id from Message m join m.areas a "
+                + " where m.id in (:ids) and a.type = :type and m.messageSeries in "
+                + " (select ms from FiringSchedule s join s.domain d join d.messageSeries ms where s.active = true)",
+                Integer.class)
+                .setParameter("ids", messageIds)
+                .setParameter("type", AreaType.FIRING_AREA)
+                .getResultList();
+    }
+
+
+
     /**
      * Generates a firing area message template for all active firing areas.
      * @param messageSeries the message series to use
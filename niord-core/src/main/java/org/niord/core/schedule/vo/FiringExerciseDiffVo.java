@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.schedule.vo;
+
+import org.niord.model.IJsonSerializable;
+import org.niord.model.message.DateIntervalVo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes the effect that a firing exercise update has, or would have, on the
+ * firing exercise message of a single firing area
+ */
+@SuppressWarnings("unused")
+public class FiringExerciseDiffVo implements IJsonSerializable {
+
+    /** The action to perform for the firing area **/
+    public enum Action {
+        /** A new firing exercise message is published **/
+        CREATE,
+        /** The current firing exercise message is cancelled and a new one is published **/
+        UPDATE,
+        /** The current firing exercise message is cancelled **/
+        CANCEL,
+        /** The current firing exercise message is left as is **/
+        UNCHANGED
+    }
+
+    Integer scheduleId;
+    Integer areaId;
+    String areaName;
+    Action action;
+    String currentMessageUid;
+    List<DateIntervalVo> currentEventDates = new ArrayList<>();
+    List<DateIntervalVo> newEventDates = new ArrayList<>();
+
+
+    /** Returns if the action implies changes to the firing exercise messages **/
+    public boolean impliesChange() {
+        return action != null && action != Action.UNCHANGED;
+    }
+
+
+    /*************************/
+    /** Getters and Setters **/
+    /*************************/
+
+    public Integer getScheduleId() {
+        return scheduleId;
+    }
+
+    public void setScheduleId(Integer scheduleId) {
+        this.scheduleId = scheduleId;
+    }
+
+    public Integer getAreaId() {
+        return areaId;
+    }
+
+    public void setAreaId(Integer areaId) {
+        this.areaId = areaId;
+    }
+
+    public String getAreaName() {
+        return areaName;
+    }
+
+    public void setAreaName(String areaName) {
+        this.areaName = areaName;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public String getCurrentMessageUid() {
+        return currentMessageUid;
+    }
+
+    public void setCurrentMessageUid(String currentMessageUid) {
+        this.currentMessageUid = currentMessageUid;
+    }
+
+    public List<DateIntervalVo> getCurrentEventDates() {
+        return currentEventDates;
+    }
+
+    public void setCurrentEventDates(List<DateIntervalVo> currentEventDates) {
+        this.currentEventDates = currentEventDates;
+    }
+
+    public List<DateIntervalVo> getNewEventDates() {
+        return newEventDates;
+    }
+
+    public void setNewEventDates(List<DateIntervalVo> newEventDates) {
+        this.newEventDates = newEventDates;
+    }
+}
@@ -26,6 +26,8 @@ import org.niord.core.NiordApp;
 import org.niord.core.dictionary.DictionaryService;
 import org.niord.core.domain.Domain;
 import org.niord.core.domain.DomainService;
+import org.niord.core.metrics.Histogram;
+import org.niord.core.metrics.Metrics;
 import org.niord.core.script.directive.MultiResourceBundleModel;
 import org.niord.core.script.pdf.HtmlToPdfRenderer;
 import org.niord.core.service.BaseService;
@@ -66,6 +68,11 @@ public class FmTemplateService extends BaseService {
 
     public enum ProcessFormat { TEXT, PDF }
 
+    static final Histogram TEMPLATE_RENDER_TIME
+            = Metrics.histogram("niord_template_render_seconds", "Execution time of Freemarker template processing");
+    static final Histogram PDF_RENDER_TIME
+            = Metrics.histogram("niord_pdf_render_seconds", "Execution time of HTML to PDF rendering");
+
     @Inject
     @Setting(value = "pdfEncryptionEnabled", description = "Whether PDF reports should be encrypted or not",
             defaultValue = "false", type = Boolean)
@@ -242,8 +249,10 @@ public class FmTemplateService extends BaseService {
             try {
                 Template fmTemplate = templateService.constructFmTemplate(this);
 
+                long t0 = System.nanoTime();
                 StringWriter result = new StringWriter();
                 fmTemplate.process(data, result);
+                TEMPLATE_RENDER_TIME.recordSince(t0);
 
                 return result.toString();
             } catch (IOException e) {
@@ -277,6 +286,7 @@ public class FmTemplateService extends BaseService {
 
                 } else if (format == ProcessFormat.PDF) {
 
+                    long pdfT0 = System.nanoTime();
                     HtmlToPdfRenderer.newBuilder()
                             .baseUri(templateService.getBaseUri())
                             .html(result)
@@ -284,6 +294,7 @@ public class FmTemplateService extends BaseService {
                             .pdf(out)
                             .build()
                             .render();
+                    PDF_RENDER_TIME.recordSince(pdfT0);
 
                     log.info("Completed Freemarker PDF generation for " + getTemplatePath()
                             + " in " + (System.currentTimeMillis() - t0) + " ms");
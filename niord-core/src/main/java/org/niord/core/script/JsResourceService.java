@@ -16,7 +16,6 @@
 
 package org.niord.core.script;
 
-import jdk.nashorn.api.scripting.JSObject;
 import org.apache.commons.lang.StringUtils;
 import org.niord.core.NiordApp;
 import org.niord.core.message.MessageService;
@@ -32,16 +31,10 @@ import org.slf4j.LoggerFactory;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
-import javax.script.Bindings;
-import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.SimpleBindings;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
@@ -54,6 +47,8 @@ import java.util.stream.Collectors;
  *     load('niord:templates/tmpl/common.js')
  * </pre>
  * Inspiration from https://bugs.openjdk.java.net/secure/attachment/54881/LoaderTest.java
+ * <p>
+ * The scripts are executed by the {@linkplain JsScriptRuntime}, which pools and caches compiled scripts.
  */
 @Stateless
 public class JsResourceService extends BaseService {
@@ -74,6 +69,9 @@ public class JsResourceService extends BaseService {
     @Inject
     NiordApp app;
 
+    @Inject
+    JsScriptRuntime scriptRuntime;
+
     @Inject
     Logger log;
 
@@ -145,53 +143,24 @@ public class JsResourceService extends BaseService {
         }
 
 
-        // Construct and configure a Nashorn JavaScript Engine.
+        // Evaluate the script using a pooled Nashorn JavaScript engine.
         // The JavaScripts will support loading of other JavaScripts using the "load()" command
         // and prefixing the path with the "niord" scheme. Example: load('niord:templates/tmpl/common.js')
-        // Inspiration from https://bugs.openjdk.java.net/secure/attachment/54881/LoaderTest.java
         try {
-            ScriptEngine jsEngine = new ScriptEngineManager()
-                    .getEngineByName("Nashorn");
-
             // Make the entity manager available to the script as "em"
-            Bindings bindings = new SimpleBindings();
+            Map<String, Object> bindings = new HashMap<>();
             bindings.put(EM_PROPERTY, em);
             bindings.put(MSG_SERVICE_PROPERTY, messageService);
 
             // Add other bindings from the builder data map
-            resourceBuilder.getData().entrySet().forEach(e -> bindings.put(e.getKey(), e.getValue()));
-            jsEngine.setBindings(bindings, ScriptContext.GLOBAL_SCOPE); // NB: Custom load only works with global scope!
-
-            // Get original load function
-            final JSObject origLoadFn = (JSObject)jsEngine.get("load");
-
-            // Get global. Not really necessary as we could use null too, just for completeness.
-            final JSObject thisRef = (JSObject)jsEngine.eval("(function() { return this; })()");
-
-            // Define a new "load" function
-            final Function<Object, Object> newLoadFn = (source) -> {
-                if (source instanceof String) {
-                    final String strSource = (String)source;
-                    if (strSource.startsWith(NIORD_LOAD_SCHEME)) {
-                        // handle "niord:" scheme
-                        String path = strSource.substring(NIORD_LOAD_SCHEME.length());
-
-                        Object customSource = createCustomSource(path);
-                        if (customSource != null) {
-                            return origLoadFn.call(thisRef, customSource);
-                        }
-                    }
-                }
-                // Fall back to original load for everything else
-                return origLoadFn.call(thisRef, source);
-            };
-
-            // Replace built-in load with our load
-            jsEngine.put("load", newLoadFn);
+            bindings.putAll(resourceBuilder.getData());
 
             // Evaluate the JavaScript
-            String javaScript = updateScript(script.getContent());
-            return jsEngine.eval(javaScript);
+            return scriptRuntime.evaluate(
+                    script,
+                    updateScript(script.getContent()),
+                    bindings,
+                    this::findJsScriptResource);
 
         } catch (Exception e) {
             log.error("Error executing script:\n" + resourceBuilder.getResourcePath(), e);
@@ -201,17 +170,11 @@ public class JsResourceService extends BaseService {
 
 
     /**
-     * A custom source must define a "name" and a "script" property
+     * Returns the JavaScript resource with the given path, or null if not found
      */
-    public Object createCustomSource(final String path) {
+    private ScriptResource findJsScriptResource(String path) {
         ScriptResource script = findScriptResource(path);
-        if (script != null && script.getType() == ScriptResource.Type.JS) {
-            final Map<String, String> sourceMap = new HashMap<>();
-            sourceMap.put("name", path);
-            sourceMap.put("script", script.getContent());
-            return sourceMap;
-        }
-        return null;
+        return script != null && script.getType() == ScriptResource.Type.JS ? script : null;
     }
 
 
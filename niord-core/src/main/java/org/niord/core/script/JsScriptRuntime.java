@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.script;
+
+import jdk.nashorn.api.scripting.JSObject;
+import org.niord.core.metrics.Histogram;
+import org.niord.core.metrics.Metrics;
+import org.niord.core.settings.annotation.Setting;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import javax.script.SimpleScriptContext;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.niord.core.script.JsResourceService.NIORD_LOAD_SCHEME;
+import static org.niord.core.settings.Setting.Type.Integer;
+
+/**
+ * Executes JavaScript resources using a pool of pre-warmed Nashorn engines.
+ * <p>
+ * Creating a Nashorn engine and compiling scripts is expensive, so rather than creating a new engine
+ * for every evaluation, the engines are pooled, and the scripts, including the libraries loaded using
+ * <code>load('niord:...')</code>, are compiled once per engine and cached by path and version.
+ * <p>
+ * Each evaluation takes place in a new, isolated Nashorn global, so scripts cannot leak
+ * state into subsequent evaluations.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class JsScriptRuntime {
+
+    static final long ENGINE_TIMEOUT_SECONDS = 60;
+
+    @Inject
+    Logger log;
+
+    @Inject
+    @Setting(value = "scriptEnginePoolSize", defaultValue = "4", type = Integer,
+            description = "The number of pooled JavaScript engines used for executing script resources")
+    Integer poolSize;
+
+    /** The pooled engines **/
+    private BlockingQueue<PooledEngine> engines;
+
+    /** The engine used by the current thread, which is re-used for nested evaluations **/
+    private final ThreadLocal<PooledEngine> currentEngine = new ThreadLocal<>();
+
+    /** The execution time histogram per script path, exposed via {@linkplain Metrics} with a "script" label **/
+    private final Map<String, Histogram> evalTimes = new ConcurrentHashMap<>();
+
+
+    /** Creates and pre-warms the pooled engines **/
+    @PostConstruct
+    private void init() {
+        long t0 = System.currentTimeMillis();
+        int size = Math.max(1, poolSize);
+        engines = new ArrayBlockingQueue<>(size);
+        for (int x = 0; x < size; x++) {
+            engines.add(new PooledEngine());
+        }
+        log.info("Created " + size + " JavaScript engines in " + (System.currentTimeMillis() - t0) + " ms");
+    }
+
+
+    /**
+     * Evaluates the given script.
+     *
+     * @param script the script resource to evaluate
+     * @param source the source of the script, i.e. the script content with any prefix
+     * @param data the data to make available to the script as global variables
+     * @param libraryResolver resolves the script resources loaded using <code>load('niord:path')</code>
+     * @return the result of the evaluation
+     */
+    public Object evaluate(
+            ScriptResource script,
+            String source,
+            Map<String, Object> data,
+            Function<String, ScriptResource> libraryResolver) throws ScriptException {
+
+        // Nested evaluations will re-use the engine of the current thread
+        PooledEngine engine = currentEngine.get();
+        boolean acquired = engine == null;
+        if (acquired) {
+            try {
+                engine = engines.poll(ENGINE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (engine == null) {
+                throw new ScriptException("No JavaScript engine available for " + script.getPath());
+            }
+            currentEngine.set(engine);
+        }
+
+        long t0 = System.nanoTime();
+        try {
+            return engine.evaluate(script, source, data, libraryResolver);
+        } finally {
+            evalTimes.computeIfAbsent(script.getPath(), p -> Metrics.histogram(
+                    "niord_script_eval_seconds", "Execution time of JavaScript resource evaluations", "script", p))
+                    .record(System.nanoTime() - t0);
+            if (acquired) {
+                currentEngine.remove();
+                engines.add(engine);
+            }
+        }
+    }
+
+
+    /**
+     * A pooled Nashorn engine along with the scripts compiled by the engine
+     */
+    private static class PooledEngine {
+
+        final ScriptEngine engine;
+        final Map<String, CompiledResource> compiledScripts = new ConcurrentHashMap<>();
+
+        /** Constructor **/
+        PooledEngine() {
+            engine = new ScriptEngineManager().getEngineByName("Nashorn");
+            try {
+                // Pre-warm the engine
+                engine.eval("(function() { return this; })()");
+            } catch (ScriptException ignored) {
+            }
+        }
+
+
+        /** Evaluates the script in a new global **/
+        Object evaluate(
+                ScriptResource script,
+                String source,
+                Map<String, Object> data,
+                Function<String, ScriptResource> libraryResolver) throws ScriptException {
+
+            // Create a new global for the evaluation, and make the data available in the global scope.
+            ScriptContext context = new SimpleScriptContext();
+            Bindings global = engine.createBindings();
+            context.setBindings(global, ScriptContext.ENGINE_SCOPE);
+            context.setBindings(new SimpleBindings(data), ScriptContext.GLOBAL_SCOPE);
+
+            // Replace the built-in "load" function with one that loads compiled "niord:" scripts
+            final JSObject origLoadFn = (JSObject) global.get("load");
+            final JSObject thisRef = (JSObject) global;
+            final Function<Object, Object> newLoadFn = (src) -> {
+                if (src instanceof String && ((String) src).startsWith(NIORD_LOAD_SCHEME)) {
+                    String path = ((String) src).substring(NIORD_LOAD_SCHEME.length());
+                    ScriptResource library = libraryResolver.apply(path);
+                    if (library != null) {
+                        try {
+                            return compile("load:", library, library.getContent()).eval(context);
+                        } catch (ScriptException e) {
+                            throw new RuntimeException("Error loading script " + path, e);
+                        }
+                    }
+                }
+                // Fall back to original load for everything else
+                return origLoadFn.call(thisRef, src);
+            };
+            global.put("load", newLoadFn);
+
+            return compile("eval:", script, source).eval(context);
+        }
+
+
+        /** Returns the compiled script, and compiles it if it is not compiled already **/
+        CompiledScript compile(String prefix, ScriptResource script, String source) throws ScriptException {
+            String key = prefix + script.getPath();
+            String version = script.getId() + ":" + script.getVersion();
+
+            CompiledResource compiled = compiledScripts.get(key);
+            if (compiled == null || !compiled.version.equals(version)) {
+                // Report the resource path in script errors
+                engine.getContext().setAttribute(ScriptEngine.FILENAME, script.getPath(), ScriptContext.ENGINE_SCOPE);
+                compiled = new CompiledResource(version, ((Compilable) engine).compile(source));
+                compiledScripts.put(key, compiled);
+            }
+            return compiled.script;
+        }
+    }
+
+
+    /** A compiled script resource **/
+    private static class CompiledResource {
+        final String version;
+        final CompiledScript script;
+
+        CompiledResource(String version, CompiledScript script) {
+            this.version = version;
+            this.script = script;
+        }
+    }
+}
@@ -20,7 +20,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang.StringUtils;
 import org.niord.core.cache.CacheElement;
 import org.niord.core.service.BaseService;
+import org.niord.core.startup.StartupService;
 import org.niord.core.util.JsonUtils;
+import org.niord.core.web.SiteBundleVersion;
 import org.slf4j.Logger;
 
 import javax.annotation.PostConstruct;
@@ -61,6 +63,12 @@ public class SettingsService extends BaseService {
     @Inject
     SettingsCache settingsCache;
 
+    @Inject
+    SiteBundleVersion siteBundleVersion;
+
+    @Inject
+    StartupService startupService;
+
     /**
      * Called when the system starts up.
      *
@@ -70,36 +78,41 @@ public class SettingsService extends BaseService {
      * and add these to the list of loaded settings.<br>
      *
      * Lastly, persists all the loaded settings that do not already exists in the database.
+     * <p>
+     * NB: Unlike the other start-up phases, this runs synchronously, since other start-up phases
+     * depend on the settings.
      */
     @PostConstruct
     public void loadSettingsFromPropertiesFile() {
-        try {
-
-            // Read the settings from the "/niord.json" classpath file
-            Map<String, Setting> settingMap = loadSettingsFromClasspath();
-
-            // Read the settings from the "${niord.home}/niord.json" file
-            settingMap = loadSettingsFromNiordHome(settingMap);
-
-            // Determine the keys that are not yet persisted to the database
-            em.createNamedQuery("Setting.findSettingsWithKeys", Setting.class)
-                    .setParameter("keys", settingMap.keySet())
-                    .getResultList()
-                    .stream()
-                    .map(Setting::getKey)
-                    .forEach(settingMap::remove);
-
-            // Persist all settings not yet persisted to the database
-            settingMap.values().forEach(s -> {
-                s.updateType();
-                em.persist(s);
-                log.info(String.format("Loaded setting %s from niord.json", s.getKey()));
-            });
-
-        } catch (Exception e) {
-            // Stop the application starting up
-            throw new RuntimeException("Error loading settings from niord.json", e);
-        }
+        startupService.run("settings", true, () -> {
+            try {
+
+                // Read the settings from the "/niord.json" classpath file
+                Map<String, Setting> settingMap = loadSettingsFromClasspath();
+
+                // Read the settings from the "${niord.home}/niord.json" file
+                settingMap = loadSettingsFromNiordHome(settingMap);
+
+                // Determine the keys that are not yet persisted to the database
+                em.createNamedQuery("Setting.findSettingsWithKeys", Setting.class)
+                        .setParameter("keys", settingMap.keySet())
+                        .getResultList()
+                        .stream()
+                        .map(Setting::getKey)
+                        .forEach(settingMap::remove);
+
+                // Persist all settings not yet persisted to the database
+                settingMap.values().forEach(s -> {
+                    s.updateType();
+                    em.persist(s);
+                    log.info(String.format("Loaded setting %s from niord.json", s.getKey()));
+                });
+
+            } catch (Exception e) {
+                // Stop the application starting up
+                throw new RuntimeException("Error loading settings from niord.json", e);
+            }
+        });
     }
 
 
@@ -284,6 +297,11 @@ public class SettingsService extends BaseService {
         // Invalidate the cache
         evictFromCache(setting.getKey());
 
+        // Flag that the site-config bundle must be re-generated
+        if (setting.isWeb()) {
+            siteBundleVersion.changed();
+        }
+
         return setting;
     }
 
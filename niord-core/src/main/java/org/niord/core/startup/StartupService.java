@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.startup;
+
+import org.niord.core.startup.vo.StartupPhaseVo;
+import org.niord.core.startup.vo.StartupPhaseVo.State;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Orchestrates and profiles the start-up of the application.
+ * <p>
+ * Start-up initialisers, such as the {@code @PostConstruct} methods of {@code @Startup} singletons,
+ * record their work as named phases. Phases running synchronously during deployment can use
+ * {@linkplain #run(String, boolean, Runnable)}. Phases that are executed asynchronously, e.g. via
+ * an EJB timer, should be {@linkplain #register(String, boolean) registered} upon deployment, and
+ * then either be executed via {@linkplain #run(String, boolean, Runnable)} or flagged using
+ * {@linkplain #start(String)} and {@linkplain #complete(String)}.
+ * <p>
+ * Asynchronous phases should be started with the {@linkplain #ASYNC_START_DELAY} delay, so that
+ * they run concurrently once the deployment has completed.
+ * <p>
+ * The application is ready, i.e. able to serve traffic, once all critical phases have completed.
+ * Non-critical initialisation should rather be deferred until first use.
+ * <p>
+ * A failed phase may be started again. Asynchronous phases should re-schedule themselves upon failure
+ * with the {@linkplain #getRetryDelay(String)} delay, so that a transient error, e.g. a database
+ * time-out, does not leave the application unready. A failed synchronous phase fails the deployment.
+ */
+@ApplicationScoped
+@SuppressWarnings("unused")
+public class StartupService {
+
+    /** The delay in ms before asynchronous start-up phases are executed **/
+    public static final long ASYNC_START_DELAY = 1000L;
+
+    /** The initial and maximum delay in ms before a failed start-up phase is retried **/
+    public static final long RETRY_DELAY = 10 * 1000L;
+    public static final long MAX_RETRY_DELAY = 5 * 60 * 1000L;
+
+    @Inject
+    Logger log;
+
+    private final long created = System.currentTimeMillis();
+    private final Map<String, StartupPhaseVo> phases = new LinkedHashMap<>();
+    private boolean profileLogged;
+
+
+    /**
+     * Registers a pending, asynchronous start-up phase
+     * @param name the name of the phase
+     * @param critical whether the phase must complete before the application is ready
+     */
+    public void register(String name, boolean critical) {
+        register(name, critical, true);
+    }
+
+
+    /** Registers a pending start-up phase **/
+    private synchronized void register(String name, boolean critical, boolean async) {
+        if (!phases.containsKey(name)) {
+            StartupPhaseVo phase = new StartupPhaseVo();
+            phase.setName(name);
+            phase.setCritical(critical);
+            phase.setAsync(async);
+            phase.setState(State.PENDING);
+            phases.put(name, phase);
+        }
+    }
+
+
+    /**
+     * Flags that the registered start-up phase has started. Ignored unless the phase is pending or has failed.
+     * @param name the name of the phase
+     */
+    public synchronized void start(String name) {
+        StartupPhaseVo phase = phases.get(name);
+        if (phase != null && (phase.getState() == State.PENDING || phase.getState() == State.FAILED)) {
+            phase.setState(State.RUNNING);
+            phase.setStarted(new Date());
+            phase.setDuration(null);
+            phase.setThread(Thread.currentThread().getName());
+            phase.setError(null);
+            phase.setAttempts(phase.getAttempts() + 1);
+        }
+    }
+
+
+    /**
+     * Flags that the start-up phase has completed. Ignored unless the phase is running.
+     * @param name the name of the phase
+     */
+    public void complete(String name) {
+        done(name, State.COMPLETED, null);
+    }
+
+
+    /**
+     * Flags that the start-up phase has failed. Ignored unless the phase is running.
+     * @param name the name of the phase
+     * @param error the error
+     */
+    public void fail(String name, Throwable error) {
+        done(name, State.FAILED, error);
+    }
+
+
+    /** Flags that the start-up phase has completed or failed **/
+    private void done(String name, State state, Throwable error) {
+        synchronized (this) {
+            StartupPhaseVo phase = phases.get(name);
+            if (phase == null || phase.getState() != State.RUNNING) {
+                return;
+            }
+            phase.setState(state);
+            phase.setDuration(System.currentTimeMillis() - phase.getStarted().getTime());
+            if (error != null) {
+                phase.setError(error.toString());
+            }
+            log.info("Start-up phase " + name + " " + state.name().toLowerCase() + " in " + phase.getDuration() + " ms");
+        }
+        checkLogProfile();
+    }
+
+
+    /**
+     * Executes the given start-up phase, and records the timing of the phase
+     * @param name the name of the phase
+     * @param critical whether the phase must complete before the application is ready
+     * @param task the task to execute
+     */
+    public void run(String name, boolean critical, Runnable task) {
+        run(name, critical, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+
+    /**
+     * Executes the given start-up phase, and records the timing of the phase
+     * @param name the name of the phase
+     * @param critical whether the phase must complete before the application is ready
+     * @param task the task to execute
+     * @return the result of the task
+     */
+    public <T> T run(String name, boolean critical, Supplier<T> task) {
+        register(name, critical, false);
+        start(name);
+        try {
+            T result = task.get();
+            complete(name);
+            return result;
+        } catch (RuntimeException e) {
+            fail(name, e);
+            throw e;
+        }
+    }
+
+
+    /**
+     * Returns if the start-up phase has been registered but not yet started
+     * @param name the name of the phase
+     * @return if the start-up phase is pending
+     */
+    public synchronized boolean isPending(String name) {
+        StartupPhaseVo phase = phases.get(name);
+        return phase != null && phase.getState() == State.PENDING;
+    }
+
+
+    /**
+     * Returns the delay in ms before a failed start-up phase should be retried.
+     * The delay doubles with each attempt, up to {@linkplain #MAX_RETRY_DELAY}.
+     * @param name the name of the phase
+     * @return the delay before the phase should be retried
+     */
+    public synchronized long getRetryDelay(String name) {
+        StartupPhaseVo phase = phases.get(name);
+        int attempts = phase != null ? Math.max(1, phase.getAttempts()) : 1;
+        return Math.min(MAX_RETRY_DELAY, RETRY_DELAY << Math.min(attempts - 1, 16));
+    }
+
+
+    /**
+     * Returns if the application is ready to serve traffic, i.e. if all critical phases have completed
+     * @return if the application is ready
+     */
+    public synchronized boolean isReady() {
+        return phases.values().stream()
+                .filter(StartupPhaseVo::isCritical)
+                .allMatch(p -> p.getState() == State.COMPLETED);
+    }
+
+
+    /**
+     * Returns the start-up phase profile, sorted by start time
+     * @return the start-up phase profile
+     */
+    public synchronized List<StartupPhaseVo> getPhases() {
+        return phases.values().stream()
+                .map(StartupPhaseVo::new)
+                .sorted(Comparator.comparing(p -> p.getStarted() != null ? p.getStarted().getTime() : Long.MAX_VALUE))
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Logs the start-up phase profile once all phases have completed.
+     * Synchronous phases complete during deployment, so wait for the asynchronous phases.
+     */
+    private void checkLogProfile() {
+        String profile;
+        synchronized (this) {
+            if (profileLogged
+                    || phases.values().stream().noneMatch(StartupPhaseVo::isAsync)
+                    || !phases.values().stream().allMatch(StartupPhaseVo::isDone)) {
+                return;
+            }
+            profileLogged = true;
+            profile = phases.values().stream()
+                    .sorted(Comparator.comparing(StartupPhaseVo::getDuration).reversed())
+                    .map(p -> String.format("%n  %-24s %8d ms %s", p.getName(), p.getDuration(),
+                            p.getState() == State.FAILED ? "(failed)" : ""))
+                    .collect(Collectors.joining());
+        }
+        log.info("Start-up completed in " + (System.currentTimeMillis() - created) + " ms:" + profile);
+    }
+}
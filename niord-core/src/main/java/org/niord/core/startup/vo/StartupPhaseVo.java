@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.startup.vo;
+
+import org.niord.model.IJsonSerializable;
+
+import java.util.Date;
+
+/**
+ * Describes the state and timing of an application start-up phase
+ */
+@SuppressWarnings("unused")
+public class StartupPhaseVo implements IJsonSerializable {
+
+    /** The state of a start-up phase **/
+    public enum State { PENDING, RUNNING, COMPLETED, FAILED }
+
+    String name;
+    boolean critical;
+    boolean async;
+    State state;
+    Date started;
+    Long duration;
+    String thread;
+    String error;
+    int attempts;
+
+
+    /** Constructor **/
+    public StartupPhaseVo() {
+    }
+
+
+    /** Copy constructor **/
+    public StartupPhaseVo(StartupPhaseVo phase) {
+        this.name = phase.getName();
+        this.critical = phase.isCritical();
+        this.async = phase.isAsync();
+        this.state = phase.getState();
+        this.started = phase.getStarted();
+        this.duration = phase.getDuration();
+        this.thread = phase.getThread();
+        this.error = phase.getError();
+        this.attempts = phase.getAttempts();
+    }
+
+
+    /** Returns if the phase has completed or failed **/
+    public boolean isDone() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    /*************************/
+    /** Getters and Setters **/
+    /*************************/
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public boolean isCritical() {
+        return critical;
+    }
+
+    public void setCritical(boolean critical) {
+        this.critical = critical;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public Date getStarted() {
+        return started;
+    }
+
+    public void setStarted(Date started) {
+        this.started = started;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Long duration) {
+        this.duration = duration;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public void setThread(String thread) {
+        this.thread = thread;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
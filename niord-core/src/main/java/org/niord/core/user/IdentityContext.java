@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.user;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.function.Supplier;
+
+/**
+ * Caches the resolved identity of the caller, i.e. current user, domain and roles, for the
+ * duration of the current transaction.
+ * <p>
+ * The current user and domain are looked up many times during e.g. a message search, and
+ * resolving them involves database look-ups. By storing the resolved values as resources of
+ * the current transaction, they are only resolved once per transaction.
+ * <p>
+ * Outside of a transaction, the values are resolved upon every call.
+ */
+@ApplicationScoped
+public class IdentityContext {
+
+    private static final String KEY_PREFIX = "niord.identity.";
+    private static final Object NULL_VALUE = new Object();
+    private static final Object UNRESOLVED = new Object();
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+
+    /**
+     * Returns the value with the given key for the current transaction. If the value has not
+     * been resolved yet, it is resolved using the given resolver.
+     *
+     * @param key the key of the value
+     * @param resolver resolves the value, if it is not cached already
+     * @return the resolved value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T resolve(String key, Supplier<T> resolver) {
+        if (!inTransaction()) {
+            return resolver.get();
+        }
+
+        Object value = transactionRegistry.getResource(KEY_PREFIX + key);
+        if (value == null || value == UNRESOLVED) {
+            value = resolver.get();
+            transactionRegistry.putResource(KEY_PREFIX + key, value != null ? value : NULL_VALUE);
+        }
+        return value == NULL_VALUE ? null : (T) value;
+    }
+
+
+    /**
+     * Evicts the value with the given key from the current transaction
+     * @param key the key of the value
+     */
+    public void evict(String key) {
+        if (inTransaction()) {
+            transactionRegistry.putResource(KEY_PREFIX + key, UNRESOLVED);
+        }
+    }
+
+
+    /** Returns if there is an active transaction **/
+    private boolean inTransaction() {
+        return transactionRegistry != null
+                && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE;
+    }
+}
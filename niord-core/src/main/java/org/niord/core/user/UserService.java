@@ -67,6 +67,9 @@ public class UserService extends BaseService {
     @Inject
     KeycloakIntegrationService keycloakIntegrationService;
 
+    @Inject
+    IdentityContext identityContext;
+
 
     /************************/
     /** Current User       **/
@@ -134,11 +137,24 @@ public class UserService extends BaseService {
 
     /**
      * Returns the currently authenticated user.
-     * If necessary the user is created and updated in the database
+     * If necessary the user is created and updated in the database.
+     * <p>
+     * The current user is only resolved, and synchronized with the access token, once per transaction.
      *
      * @return the currently authenticated user
      */
     public User currentUser() {
+        return identityContext.resolve("currentUser", this::resolveCurrentUser);
+    }
+
+
+    /**
+     * Resolves the currently authenticated user.
+     * If necessary the user is created and updated in the database
+     *
+     * @return the currently authenticated user
+     */
+    private User resolveCurrentUser() {
 
         // Get the current Keycloak principal
         KeycloakPrincipal keycloakPrincipal = getCallerPrincipal();
@@ -190,8 +206,9 @@ public class UserService extends BaseService {
      * @return True if the caller has the specified role.
      */
     public boolean isCallerInRole(String role) {
-        return ctx.isCallerInRole(role) ||
-                ticketService.validateRolesForCurrentThread(role);
+        return identityContext.resolve("role." + role, () ->
+                ctx.isCallerInRole(role) ||
+                ticketService.validateRolesForCurrentThread(role));
     }
 
 
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Utility methods for writing files atomically, so that concurrent readers never see a partially written file
+ */
+public class AtomicFileUtils {
+
+    /**
+     * Don't instantiate this class
+     */
+    private AtomicFileUtils() {
+    }
+
+
+    /**
+     * Writes the file by having the writer write to a temporary file in the same folder,
+     * which is then moved atomically to the target file. Missing parent folders are created.
+     *
+     * @param file the file to write
+     * @param writer writes the file content to the given temporary file
+     */
+    public static void writeAtomically(Path file, FileContentWriter writer) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            writer.write(tmpFile);
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+
+    /**
+     * Writes the data to the file atomically
+     *
+     * @param file the file to write
+     * @param data the data to write
+     */
+    public static void writeAtomically(Path file, byte[] data) throws IOException {
+        writeAtomically(file, tmpFile -> Files.write(tmpFile, data));
+    }
+
+
+    /** Writes the content of a file **/
+    @FunctionalInterface
+    public interface FileContentWriter {
+        void write(Path file) throws IOException;
+    }
+}
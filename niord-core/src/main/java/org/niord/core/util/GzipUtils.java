@@ -39,9 +39,18 @@ public class GzipUtils {
     /** GZIP compresses the data **/
     public static byte[] compressString(String data) throws IOException {
         if (data != null) {
-            try (ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length())) {
+            return compress(data.getBytes("UTF-8"));
+        }
+        return null;
+    }
+
+
+    /** GZIP compresses the data **/
+    public static byte[] compress(byte[] data) throws IOException {
+        if (data != null) {
+            try (ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length)) {
                 GZIPOutputStream gzip = new GZIPOutputStream(bos);
-                gzip.write(data.getBytes("UTF-8"));
+                gzip.write(data);
                 gzip.close();
                 return bos.toByteArray();
             }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Computes and applies JSON patches, as defined by RFC 6902.
+ * <p>
+ * Only the "add", "remove" and "replace" operations are produced and supported.
+ * Arrays are compared element by element, which works well for snapshots of the same entity,
+ * where arrays rarely change more than a few elements between versions.
+ */
+public class JsonPatchUtils {
+
+    private JsonPatchUtils() {
+    }
+
+
+    /**
+     * Computes the JSON patch that transforms the source into the target
+     *
+     * @param source the source JSON
+     * @param target the target JSON
+     * @return the JSON patch
+     */
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode patch = JsonNodeFactory.instance.arrayNode();
+        diff(source, target, "", patch);
+        return patch;
+    }
+
+
+    /** Adds the operations that transforms the source into the target to the patch **/
+    private static void diff(JsonNode source, JsonNode target, String path, ArrayNode patch) {
+        if (source.equals(target)) {
+            return;
+        }
+
+        if (source.isObject() && target.isObject()) {
+            Iterator<String> sourceFields = source.fieldNames();
+            while (sourceFields.hasNext()) {
+                String field = sourceFields.next();
+                if (!target.has(field)) {
+                    addOperation(patch, "remove", path + "/" + escape(field), null);
+                }
+            }
+            Iterator<Map.Entry<String, JsonNode>> targetFields = target.fields();
+            while (targetFields.hasNext()) {
+                Map.Entry<String, JsonNode> field = targetFields.next();
+                String fieldPath = path + "/" + escape(field.getKey());
+                if (!source.has(field.getKey())) {
+                    addOperation(patch, "add", fieldPath, field.getValue());
+                } else {
+                    diff(source.get(field.getKey()), field.getValue(), fieldPath, patch);
+                }
+            }
+
+        } else if (source.isArray() && target.isArray()) {
+            int common = Math.min(source.size(), target.size());
+            for (int x = 0; x < common; x++) {
+                diff(source.get(x), target.get(x), path + "/" + x, patch);
+            }
+            for (int x = common; x < target.size(); x++) {
+                addOperation(patch, "add", path + "/" + x, target.get(x));
+            }
+            // Remove trailing elements from the end, so that the indexes remain valid
+            for (int x = source.size() - 1; x >= common; x--) {
+                addOperation(patch, "remove", path + "/" + x, null);
+            }
+
+        } else {
+            addOperation(patch, "replace", path, target);
+        }
+    }
+
+
+    /** Adds an operation to the patch **/
+    private static void addOperation(ArrayNode patch, String op, String path, JsonNode value) {
+        ObjectNode operation = patch.addObject();
+        operation.put("op", op);
+        operation.put("path", path);
+        if (value != null) {
+            operation.set("value", value);
+        }
+    }
+
+
+    /**
+     * Applies the JSON patch to a copy of the given JSON
+     *
+     * @param source the source JSON
+     * @param patch the JSON patch to apply
+     * @return the patched JSON
+     */
+    public static JsonNode apply(JsonNode source, JsonNode patch) {
+        JsonNode result = source.deepCopy();
+        for (JsonNode operation : patch) {
+            String op = operation.path("op").asText();
+            String path = operation.path("path").asText();
+            JsonNode value = operation.get("value");
+
+            if (path.isEmpty()) {
+                // Operations on the root
+                if (!op.equals("replace") && !op.equals("add")) {
+                    throw new IllegalArgumentException("Unsupported operation on root: " + op);
+                }
+                result = value.deepCopy();
+                continue;
+            }
+
+            int index = path.lastIndexOf('/');
+            JsonNode parent = result.at(path.substring(0, index));
+            String key = unescape(path.substring(index + 1));
+
+            if (parent.isObject()) {
+                ObjectNode obj = (ObjectNode) parent;
+                switch (op) {
+                    case "add":
+                    case "replace":
+                        obj.set(key, value.deepCopy());
+                        break;
+                    case "remove":
+                        obj.remove(key);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported operation: " + op);
+                }
+
+            } else if (parent.isArray()) {
+                ArrayNode arr = (ArrayNode) parent;
+                int i = key.equals("-") ? arr.size() : Integer.parseInt(key);
+                switch (op) {
+                    case "add":
+                        arr.insert(i, value.deepCopy());
+                        break;
+                    case "replace":
+                        arr.set(i, value.deepCopy());
+                        break;
+                    case "remove":
+                        arr.remove(i);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported operation: " + op);
+                }
+
+            } else {
+                throw new IllegalArgumentException("Invalid patch path: " + path);
+            }
+        }
+        return result;
+    }
+
+
+    /** Escapes a JSON pointer reference token **/
+    private static String escape(String token) {
+        return token.replace("~", "~0").replace("/", "~1");
+    }
+
+
+    /** Un-escapes a JSON pointer reference token **/
+    private static String unescape(String token) {
+        return token.replace("~1", "/").replace("~0", "~");
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.web;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the version of the data, i.e. web settings, domains and dictionaries,
+ * that is included in the generated site-config and site-texts bundles.
+ * <p>
+ * Services that update the data should call {@linkplain #changed()}, which will cause
+ * the bundles to be re-generated upon the next request.
+ */
+@ApplicationScoped
+public class SiteBundleVersion {
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final AtomicLong version = new AtomicLong();
+
+
+    /** Returns the current version **/
+    public long getVersion() {
+        return version.get();
+    }
+
+
+    /**
+     * Flags that the bundle data has changed.
+     * <p>
+     * If called within a transaction, the version is incremented when the transaction has completed,
+     * to ensure that a re-generated bundle does not contain the data from before the change.
+     */
+    public void changed() {
+        if (transactionRegistry != null
+                && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                }
+            });
+        } else {
+            version.incrementAndGet();
+        }
+    }
+}
@@ -21,13 +21,17 @@ import org.apache.commons.lang.StringUtils;
 import org.junit.Test;
 import org.locationtech.jts.geom.Geometry;
 import org.niord.core.geojson.GeoJsonUtils;
+import org.niord.core.geojson.GeometryLodService;
 import org.niord.core.geojson.JtsConverter;
 import org.niord.core.geojson.PlainTextConverter;
+import org.niord.core.map.VectorTileEncoder;
 import org.niord.model.geojson.FeatureCollectionVo;
 import org.niord.model.geojson.FeatureVo;
 import org.niord.model.geojson.GeoJsonVo;
 import org.niord.model.geojson.GeometryVo;
 import org.niord.model.geojson.MultiPointVo;
+import org.niord.model.geojson.MultiPolygonVo;
+import org.niord.model.geojson.PackedCoordinates;
 import org.niord.model.geojson.PointVo;
 import org.niord.model.geojson.PolygonVo;
 
@@ -78,6 +82,110 @@ public class GeoJsonTest {
     }
 
 
+    @Test
+    public void packedCoordinatesTest() throws Exception {
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        double[][][][] coords = {
+                { { { 10, 55 }, { 11, 55 }, { 11, 56 }, { 10, 55 } } },
+                { { { 12, 54 }, { 14, 54 }, { 14, 57 }, { 12, 54 } }, { { 13, 55 }, { 13.5, 55 }, { 13.5, 55.5 }, { 13, 55 } } }
+        };
+        MultiPolygonVo nested = new MultiPolygonVo(coords);
+        String json = mapper.writeValueAsString(nested);
+
+        // Packed geometries serialize to the same GeoJson as nested ones
+        MultiPolygonVo packed = new MultiPolygonVo(PackedCoordinates.pack(coords));
+        assertEquals(json, mapper.writeValueAsString(packed));
+        assertArrayEquals(nested.computeBBox(), packed.computeBBox(), 0.0);
+
+        // JTS round trip produces packed geometries, and caches the JTS geometry
+        Geometry jts = JtsConverter.toJts(nested);
+        GeometryVo geometry = JtsConverter.fromJts(jts);
+        assertNotNull(geometry.getPackedCoordinates());
+        assertSame(jts, JtsConverter.toJts(geometry));
+        assertEquals(json, mapper.writeValueAsString(geometry));
+        assertTrue(jts.equalsExact(JtsConverter.toJts(packed)));
+
+        // Deserialized packed geometries use nested coordinates
+        GeometryVo parsed = mapper.readValue(mapper.writeValueAsString(geometry), GeometryVo.class);
+        assertNull(parsed.getPackedCoordinates());
+        assertEquals(json, mapper.writeValueAsString(parsed));
+
+        // Visiting the coordinates keeps the packed geometry, and only resets the cached JTS geometry upon updates
+        GeoJsonUtils.computeCoordinate(geometry, 1);
+        assertSame(jts, JtsConverter.toJts(geometry));
+        assertNotSame(jts, JtsConverter.toJtsCopy(geometry));
+        GeoJsonUtils.swapCoordinates(geometry);
+        assertNotNull(geometry.getPackedCoordinates());
+        assertNull(geometry.getCachedGeometry());
+        GeoJsonUtils.swapCoordinates(geometry);
+        geometry = JtsConverter.fromJts(jts);
+
+        // Accessing the nested coordinates returns a copy, and leaves the geometry and cached JTS geometry unchanged
+        JtsConverter.toJts(geometry);
+        ((MultiPolygonVo) geometry).getCoordinates()[1][0][1][0] = 14.25;
+        assertNotNull(geometry.getPackedCoordinates());
+        assertSame(jts, geometry.getCachedGeometry());
+        assertEquals(json, mapper.writeValueAsString(geometry));
+
+        // Rounding packed coordinates
+        PolygonVo polygon = new PolygonVo(PackedCoordinates.pack(new double[][][] { { { 10.123456, 55.987654 } } }));
+        GeoJsonUtils.roundCoordinates(polygon, 2);
+        assertNotNull(polygon.getPackedCoordinates());
+        assertArrayEquals(new double[] { 10.12, 55.99 }, polygon.getCoordinates()[0][0], 0.0);
+    }
+
+
+    @Test
+    public void geometryLodTest() throws Exception {
+        // Half a pixel at zoom level 0 is 360 / 512 degrees
+        assertEquals(360.0 / 512.0, GeometryLodService.toleranceForZoom(0), 0.0000001);
+        assertEquals(GeometryLodService.toleranceForZoom(5) / 2.0, GeometryLodService.toleranceForZoom(6), 0.0000001);
+
+        // A 10 by 10 degree extent displayed in a 1024 pixel map is roughly zoom level 7
+        assertEquals(Integer.valueOf(7), GeometryLodService.zoomForExtent(JtsConverter.toJtsExtent(50.0, 5.0, 60.0, 15.0)));
+        assertNull(GeometryLodService.zoomForExtent(null));
+    }
+
+
+    @Test
+    public void vectorTileEncoderTest() throws Exception {
+        // Example from the vector tile specification: a point at (25, 17) is encoded as [9, 50, 34]
+        VectorTileEncoder encoder = new VectorTileEncoder();
+        encoder.addFeature("test", 1L, null, JtsConverter.wktToJts("POINT (25 17)"));
+        assertTrue(indexOf(encoder.encode(), new byte[] { 0x22, 0x03, 0x09, 0x32, 0x22 }) >= 0);
+
+        // Example from the vector tile specification: a multi-point (5, 7), (3, 2) is encoded as [17, 10, 14, 3, 9]
+        encoder = new VectorTileEncoder();
+        encoder.addFeature("test", 1L, null, JtsConverter.wktToJts("MULTIPOINT ((5 7), (3 2))"));
+        assertTrue(indexOf(encoder.encode(), new byte[] { 0x22, 0x05, 0x11, 0x0A, 0x0E, 0x03, 0x09 }) >= 0);
+
+        // Geometries outside the buffered tile are skipped, and geometries crossing the tile are clipped
+        encoder = new VectorTileEncoder();
+        encoder.addFeature("test", 1L, null, JtsConverter.wktToJts("POINT (-1000 17)"));
+        assertTrue(encoder.isEmpty());
+        encoder.addFeature("test", 1L, null, JtsConverter.wktToJts("POLYGON ((-1000 -1000, 5000 -1000, 5000 5000, -1000 5000, -1000 -1000))"));
+        assertFalse(encoder.isEmpty());
+        // The clipped polygon is encoded as a clockwise ring from (4160, -64), i.e. MoveTo, then LineTo(3) down along the y-axis
+        assertTrue(indexOf(encoder.encode(), new byte[] { 0x09, (byte) 0x80, 0x41, 0x7F, 0x1A, 0x00, (byte) 0x80, 0x42 }) >= 0);
+    }
+
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            boolean match = true;
+            for (int j = 0; j < pattern.length && match; j++) {
+                match = data[i + j] == pattern[j];
+            }
+            if (match) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
     @Test
     public void serializeGeoJson() {
 
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.niord.core.util.JsonPatchUtils;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * JSON patch test
+ */
+public class JsonPatchTest {
+
+    @Test
+    public void testDiffAndApply() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        JsonNode v1 = mapper.readTree("{\"id\":1,\"status\":\"DRAFT\",\"a/b\":\"x\",\"parts\":[{\"n\":1},{\"n\":2},{\"n\":3}],\"old\":true}");
+        JsonNode v2 = mapper.readTree("{\"id\":1,\"status\":\"PUBLISHED\",\"a/b\":\"y\",\"parts\":[{\"n\":1},{\"n\":5}],\"new\":[1,2]}");
+
+        JsonNode patch = JsonPatchUtils.diff(v1, v2);
+        assertEquals(v2, JsonPatchUtils.apply(v1, patch));
+        assertEquals(v1, JsonPatchUtils.apply(v2, JsonPatchUtils.diff(v2, v1)));
+
+        // Unchanged fields should not be part of the patch
+        assertEquals(0, JsonPatchUtils.diff(v1, v1).size());
+        assertEquals(6, patch.size());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.niord.core.message.Message;
+import org.niord.core.message.MessageScriptFilterPlan;
+import org.niord.model.message.Status;
+
+import javax.script.ScriptEngineManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNotNull;
+import static org.niord.model.message.Type.TEMPORARY_NOTICE;
+
+/**
+ * Testing the MessageScriptFilterPlan
+ */
+public class MessageScriptFilterPlanTest {
+
+    Message msg;
+
+    @Before
+    public void init() {
+        // Nashorn is not available in all JDKs
+        assumeNotNull(new ScriptEngineManager().getEngineByName("Nashorn"));
+
+        msg = new Message();
+        msg.setStatus(Status.PUBLISHED);
+        msg.setType(TEMPORARY_NOTICE);
+    }
+
+
+    @Test
+    public void testFilterIsolation() throws Exception {
+
+        // Each filter is evaluated with its own data, and a filter cannot assign global variables
+        MessageScriptFilterPlan plan = new MessageScriptFilterPlan(Arrays.asList(
+                "data.phase == 'start-recording' && msg.status == Status.PUBLISHED",
+                "data.phase == 'start-recording' && msg.status == Status.PUBLISHED",
+                "(x = 1) == 1",
+                "typeof x === 'undefined' && msg.type == Type.TEMPORARY_NOTICE"
+        ));
+
+        Object[] data = { phase("start-recording"), phase("re-recording"), null, null };
+        assertArrayEquals(new boolean[] { true, false, false, true }, plan.includeMessage(msg, data));
+    }
+
+
+    @Test
+    public void testInvalidFilter() throws Exception {
+
+        // An invalid filter, or a filter failing for the message, only excludes the message from that filter
+        MessageScriptFilterPlan plan = new MessageScriptFilterPlan(Arrays.asList(
+                "msg.status == Status.PUBLISHED",
+                "msg.status == (",
+                "data.phase.length > 0",
+                "msg.type == Type.TEMPORARY_NOTICE"
+        ));
+
+        assertEquals(Collections.singletonList("msg.status == ("), plan.getInvalidFilters());
+        Object[] data = { null, null, null, null };
+        assertArrayEquals(new boolean[] { true, false, false, true }, plan.includeMessage(msg, data));
+    }
+
+
+    @Test
+    public void testBlankFilter() throws Exception {
+
+        String defaultFilter = "msg.status == Status.PUBLISHED";
+
+        // Blank filters are replaced by the default filter
+        MessageScriptFilterPlan plan = new MessageScriptFilterPlan(Arrays.asList(
+                null, " ", "msg.status == Status.DRAFT"), defaultFilter);
+
+        assertEquals(Arrays.asList(defaultFilter, defaultFilter, "msg.status == Status.DRAFT"), plan.getFilters());
+        Object[] data = { null, null, null };
+        assertArrayEquals(new boolean[] { true, true, false }, plan.includeMessage(msg, data));
+
+        // Without a default filter, blank filters exclude all messages
+        plan = new MessageScriptFilterPlan(Arrays.asList(null, ""));
+        assertArrayEquals(new boolean[] { false, false }, plan.includeMessage(msg, new Object[2]));
+    }
+
+
+    /** Returns a filter "data" parameter with the given phase **/
+    private Map<String, Object> phase(String phase) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("phase", phase);
+        return data;
+    }
+}
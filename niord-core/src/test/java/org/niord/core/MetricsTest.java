@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core;
+
+import org.junit.Test;
+import org.niord.core.metrics.Histogram;
+import org.niord.core.metrics.Metrics;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Metrics test
+ */
+public class MetricsTest {
+
+    @Test
+    public void testHistogram() throws Exception {
+        Histogram histogram = Metrics.histogram("test_histogram_seconds", "Test histogram");
+        for (long v = 1; v <= 1000; v++) {
+            histogram.record(v * 1000000L);
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500500L * 1000000L, snapshot.getSum());
+
+        // Quantiles are accurate within the bucket precision
+        assertEquals(500e6, snapshot.getValueAtQuantile(0.5), 500e6 / 8);
+        assertEquals(990e6, snapshot.getValueAtQuantile(0.99), 990e6 / 8);
+        assertEquals(1000e6, snapshot.getMax(), 1000e6 / 8);
+        assertTrue(snapshot.getValueAtQuantile(0.5) >= 500e6);
+
+        Metrics.counter("test_counter", "Test counter", "type", "a\"b").inc(3);
+        StringWriter out = new StringWriter();
+        Metrics.writePrometheus(out);
+        String result = out.toString();
+        assertTrue(result.contains("# TYPE test_histogram_seconds summary"));
+        assertTrue(result.contains("test_histogram_seconds_count 1000"));
+        assertTrue(result.contains("test_counter_total{type=\"a\\\"b\"} 3"));
+    }
+}
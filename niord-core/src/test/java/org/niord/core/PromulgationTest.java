@@ -20,10 +20,20 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import org.junit.Assert;
 import org.junit.Test;
+import org.niord.core.area.Area;
+import org.niord.core.promulgation.NavtexFormatter.NavtexText;
+import org.niord.core.promulgation.NavtexFormatter;
+import org.niord.core.promulgation.NavtexPromulgationService;
+import org.niord.core.promulgation.NavtexTransmitter;
+import org.niord.core.promulgation.NavtexTransmitterCoverage;
 import org.niord.core.promulgation.vo.BaseMessagePromulgationVo;
 import org.niord.core.promulgation.vo.TwitterMessagePromulgationVo;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Promulgation tests
@@ -50,4 +60,80 @@ public class PromulgationTest {
         Assert.assertEquals(TwitterMessagePromulgationVo.class, result.getClass());
     }
 
+
+    @Test
+    public void testNavtexFormatter() {
+
+        NavtexFormatter formatter = NavtexFormatter.newBuilder()
+                .lineLength(NavtexPromulgationService.NAVTEX_LINE_LENGTH)
+                .removeWords(NavtexPromulgationService.SUPERFLUOUS_WORDS)
+                .build();
+
+        NavtexText result = formatter.format("<p>The light in pos. 56° 09,2'N - 010° 13,6'E is unlit.</p>");
+        Assert.assertEquals("LIGHT 56-09.2N 010-13.6E UNLIT.", result.getText());
+        Assert.assertEquals(1, result.getLineCount());
+        Assert.assertEquals(result.getText().length(), result.getCharacterCount());
+
+        result = formatter.format("<p>Dredging works are in progress in the fairway to Esbjerg harbour.</p>"
+                + "<p></p><p>Mariners are requested to pass with moderate&nbsp;speed &amp; caution.</p>");
+        Assert.assertEquals("DREDGING WORKS ARE IN PROGRESS IN\n"
+                + "FAIRWAY TO ESBJERG HARBOUR.\n"
+                + "MARINERS ARE REQUESTED TO PASS WITH\n"
+                + "MODERATE SPEED & CAUTION.", result.getText());
+        Assert.assertEquals(4, result.getLineCount());
+        Assert.assertEquals(result.getText().length() - 3, result.getCharacterCount());
+
+        // A "<" not followed by a tag name is text
+        result = formatter.format("<p>Depth < 5 m and > 3 m.<br/>Depth <5 m.</p>");
+        Assert.assertEquals("DEPTH < 5 M AND > 3 M.\nDEPTH <5 M.", result.getText());
+
+        // Counting a formatted, and possibly manually edited, text yields the same counts
+        NavtexText counted = NavtexText.of(result.getText());
+        Assert.assertEquals(result.getCharacterCount(), counted.getCharacterCount());
+        Assert.assertEquals(result.getLineCount(), counted.getLineCount());
+        Assert.assertEquals(3, NavtexText.of(result.getText() + "\n\nDEPTH 7 M.").getLineCount());
+    }
+
+
+    @Test
+    public void testNavtexTransmitterCoverage() {
+
+        // Area 1 is the parent of area 2
+        Area parent = createArea(1, "/1/");
+        Area child = createArea(2, "/1/2/");
+        Area other = createArea(3, "/3/");
+        Map<Integer, String> areaLineages = new HashMap<>();
+        Arrays.asList(parent, child, other).forEach(a -> areaLineages.put(a.getId(), a.getLineage()));
+
+        NavtexTransmitter parentTransmitter = new NavtexTransmitter("Parent");
+        parentTransmitter.getAreas().add(parent);
+        NavtexTransmitter childTransmitter = new NavtexTransmitter("Child");
+        childTransmitter.getAreas().add(child);
+
+        NavtexTransmitterCoverage coverage = NavtexTransmitterCoverage.compute(
+                Arrays.asList(parentTransmitter, childTransmitter),
+                areaLineages);
+
+        // A transmitter on a parent area covers messages in the child areas
+        Assert.assertEquals(Arrays.asList("Parent", "Child"),
+                coverage.getTransmitterNames(Collections.singleton(child.getId())));
+
+        // A transmitter on a child area does not cover messages in the parent area
+        Assert.assertEquals(Collections.singletonList("Parent"),
+                coverage.getTransmitterNames(Collections.singleton(parent.getId())));
+
+        Assert.assertEquals(Collections.emptyList(),
+                coverage.getTransmitterNames(Collections.singleton(other.getId())));
+        Assert.assertEquals(Arrays.asList("Parent", "Child"), coverage.getTransmitterNames(null));
+    }
+
+
+    /** Creates an area with the given ID and lineage **/
+    private Area createArea(Integer id, String lineage) {
+        Area area = new Area();
+        area.setId(id);
+        area.setLineage(lineage);
+        return area;
+    }
+
 }
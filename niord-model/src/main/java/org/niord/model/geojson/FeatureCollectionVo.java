@@ -57,6 +57,17 @@ public class FeatureCollectionVo extends GeoJsonVo {
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public double[] extendBBox(double[] bbox) {
+        if (features != null) {
+            for (FeatureVo feature : features) {
+                feature.extendBBox(bbox);
+            }
+        }
+        return bbox;
+    }
+
     /**
      * Returns a combined geometry for the whole feature collection. If no feature is defined, null is returned.
      * If a single feature is defined, the geometry feature is returned.
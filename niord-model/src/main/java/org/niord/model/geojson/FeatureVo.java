@@ -55,6 +55,12 @@ public class FeatureVo extends GeoJsonVo {
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public double[] extendBBox(double[] bbox) {
+        return geometry != null ? geometry.extendBBox(bbox) : bbox;
+    }
+
     public Object getId() {
         return id;
     }
@@ -103,7 +103,15 @@ public abstract class GeoJsonVo implements IJsonSerializable {
     /** Computes the bounding box of the geometry **/
     public double[] computeBBox() {
         // TODO: Naive implementation - cater with border cases later...
-        double[] bbox = { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE };
+        return extendBBox(new double[] { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE });
+    }
+
+    /**
+     * Extends the given bounding box with the coordinates of the geometry
+     * @param bbox the bounding box to extend, in the format [minX, minY, maxX, maxY]
+     * @return the updated bounding box
+     */
+    public double[] extendBBox(double[] bbox) {
         visitCoordinates(xy -> {
             bbox[0] = Math.min(bbox[0], xy[0]);
             bbox[1] = Math.min(bbox[1], xy[1]);
@@ -55,6 +55,17 @@ public class GeometryCollectionVo extends GeometryVo {
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public double[] extendBBox(double[] bbox) {
+        if (geometries != null) {
+            for (GeometryVo geometry : geometries) {
+                geometry.extendBBox(bbox);
+            }
+        }
+        return bbox;
+    }
+
     @XmlElementRef
     public GeometryVo[] getGeometries() {
         return geometries;
@@ -15,8 +15,13 @@
  */
 package org.niord.model.geojson;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.xml.bind.annotation.XmlSeeAlso;
+import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.XmlType;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Base Geometry object as defined in the specification:
@@ -26,4 +31,73 @@ import javax.xml.bind.annotation.XmlType;
 @XmlSeeAlso({ PointVo.class, MultiPointVo.class, LineStringVo.class, MultiLineStringVo.class,
         PolygonVo.class, MultiPolygonVo.class, GeometryCollectionVo.class })
 public abstract class GeometryVo extends GeoJsonVo {
+
+    private PackedCoordinates packedCoordinates;
+    private volatile Object cachedGeometry;
+
+    /**
+     * Returns the coordinates in the packed representation, or null if the geometry uses nested
+     * coordinate arrays. Only geometries created via the packed constructors use the packed representation,
+     * and they keep using it until the coordinates are explicitly replaced via a setter.
+     * <p>
+     * Geometries may be shared between threads, e.g. via cached message VOs, so the representation is
+     * never changed by getters.
+     * @return the packed coordinates or null
+     */
+    @JsonIgnore
+    @XmlTransient
+    public PackedCoordinates getPackedCoordinates() {
+        return packedCoordinates;
+    }
+
+    /** Sets the packed coordinates. Resets any cached geometry **/
+    protected void setPackedCoordinates(PackedCoordinates packedCoordinates) {
+        this.packedCoordinates = packedCoordinates;
+        this.cachedGeometry = null;
+    }
+
+    /**
+     * Returns a cached materialised version of this geometry, e.g. a JTS geometry, or null if undefined.
+     * The cached geometry is only retained while the geometry uses the packed representation, since the
+     * nested coordinate arrays may be updated in place.
+     * @return the cached materialised geometry
+     */
+    @JsonIgnore
+    @XmlTransient
+    public Object getCachedGeometry() {
+        return cachedGeometry;
+    }
+
+    /**
+     * Returns the cached materialised version of this geometry. If undefined, it is computed using the
+     * given function and cached, if the geometry uses the packed representation.
+     * @param type the type of the materialised geometry
+     * @param materializer computes the materialised geometry
+     * @return the cached materialised geometry
+     */
+    public <T> T computeCachedGeometryIfAbsent(Class<T> type, Function<? super GeometryVo, ? extends T> materializer) {
+        if (type.isInstance(cachedGeometry)) {
+            return type.cast(cachedGeometry);
+        }
+        T result = materializer.apply(this);
+        cachedGeometry = packedCoordinates != null ? result : null;
+        return result;
+    }
+
+    /**
+     * Visits the packed coordinates without unpacking them. Coordinates updated by the handler
+     * are written back to the packed coordinates, in which case any cached geometry is reset.
+     * @param handler the handler
+     */
+    protected void visitPackedCoordinates(Consumer<double[]> handler) {
+        if (packedCoordinates.visitCoordinates(handler)) {
+            cachedGeometry = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double[] extendBBox(double[] bbox) {
+        return packedCoordinates != null ? packedCoordinates.extendBBox(bbox) : super.extendBBox(bbox);
+    }
 }
@@ -15,9 +15,13 @@
  */
 package org.niord.model.geojson;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
 
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 import java.util.function.Consumer;
 
 /**
@@ -44,18 +48,40 @@ public class MultiPolygonVo extends GeometryVo {
         this.coordinates = coordinates;
     }
 
+    public MultiPolygonVo(PackedCoordinates packedCoordinates) {
+        this();
+        setPackedCoordinates(packedCoordinates);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void visitCoordinates(Consumer<double[]> handler) {
-        visitCoordinates(coordinates, handler);
+        if (getPackedCoordinates() != null) {
+            visitPackedCoordinates(handler);
+        } else {
+            visitCoordinates(coordinates, handler);
+        }
     }
 
+    /** Returns the coordinates. Packed coordinates are unpacked into new arrays, leaving the geometry unchanged **/
+    @JsonIgnore
     public double[][][][] getCoordinates() {
-        return coordinates;
+        PackedCoordinates packedCoordinates = getPackedCoordinates();
+        return packedCoordinates != null ? packedCoordinates.unpack4() : coordinates;
     }
 
+    @JsonProperty("coordinates")
     public void setCoordinates(double[][][][] coordinates) {
         this.coordinates = coordinates;
+        setPackedCoordinates(null);
+    }
+
+    /** Returns the coordinates to serialize as JSON. Packed coordinates are not unpacked **/
+    @JsonProperty("coordinates")
+    @XmlTransient
+    @ApiModelProperty(name = "coordinates", dataType = "[[[[D")
+    public Object getJsonCoordinates() {
+        return getPackedCoordinates() != null ? getPackedCoordinates() : coordinates;
     }
 }
 
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.model.geojson;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.function.Consumer;
+
+/**
+ * A packed representation of the coordinates of a GeoJson geometry.
+ * <p>
+ * Rather than storing the coordinates as nested arrays, with one {@code double[]} per coordinate,
+ * all x-y coordinates are stored in a single flat array. The structure of the geometry is defined by:
+ * <ul>
+ *     <li>The ring offsets: the index of the first coordinate of each ring or line string.</li>
+ *     <li>The part offsets: the index of the first ring of each part, i.e. polygon of a multi-polygon.</li>
+ * </ul>
+ * Both offset arrays have an additional trailing element, which is the total number of coordinates
+ * and rings respectively.
+ * <p>
+ * The depth is the nesting depth of the GeoJson coordinates array that the packed coordinates represent,
+ * i.e. 2 for LineString and MultiPoint, 3 for Polygon and MultiLineString and 4 for MultiPolygon.
+ */
+@JsonSerialize(using = PackedCoordinatesSerializer.class)
+public class PackedCoordinates {
+
+    private final int depth;
+    private final double[] coords;
+    private final int[] ringOffsets;
+    private final int[] partOffsets;
+
+
+    /**
+     * Constructor
+     * @param depth the nesting depth of the corresponding GeoJson coordinates array
+     * @param coords the flat x-y coordinates
+     * @param ringOffsets the index of the first coordinate of each ring, plus the total number of coordinates
+     * @param partOffsets the index of the first ring of each part, plus the total number of rings
+     */
+    public PackedCoordinates(int depth, double[] coords, int[] ringOffsets, int[] partOffsets) {
+        if (depth < 2 || depth > 4) {
+            throw new IllegalArgumentException("Invalid depth " + depth);
+        }
+        this.depth = depth;
+        this.coords = coords;
+        this.ringOffsets = ringOffsets;
+        this.partOffsets = partOffsets;
+    }
+
+
+    /** Packs the coordinates of a LineString or MultiPoint **/
+    public static PackedCoordinates pack(double[][] coordinates) {
+        return pack(new double[][][][] { { coordinates } }, 2);
+    }
+
+
+    /** Packs the coordinates of a Polygon or MultiLineString **/
+    public static PackedCoordinates pack(double[][][] coordinates) {
+        return pack(new double[][][][] { coordinates }, 3);
+    }
+
+
+    /** Packs the coordinates of a MultiPolygon **/
+    public static PackedCoordinates pack(double[][][][] coordinates) {
+        return pack(coordinates, 4);
+    }
+
+
+    /** Packs the coordinates, which must be wrapped in a 4-dimensional array **/
+    private static PackedCoordinates pack(double[][][][] parts, int depth) {
+        int ringCount = 0, coordCount = 0;
+        for (double[][][] part : parts) {
+            ringCount += part.length;
+            for (double[][] ring : part) {
+                coordCount += ring.length;
+            }
+        }
+
+        double[] coords = new double[2 * coordCount];
+        int[] ringOffsets = new int[ringCount + 1];
+        int[] partOffsets = new int[parts.length + 1];
+        int r = 0, c = 0;
+        for (int p = 0; p < parts.length; p++) {
+            partOffsets[p] = r;
+            for (double[][] ring : parts[p]) {
+                ringOffsets[r++] = c;
+                for (double[] xy : ring) {
+                    coords[2 * c] = xy[0];
+                    coords[2 * c + 1] = xy[1];
+                    c++;
+                }
+            }
+        }
+        ringOffsets[ringCount] = coordCount;
+        partOffsets[parts.length] = ringCount;
+        return new PackedCoordinates(depth, coords, ringOffsets, partOffsets);
+    }
+
+
+    /*************************/
+    /** Unpacking           **/
+    /*************************/
+
+
+    /** Unpacks the coordinates of the given ring **/
+    private double[][] unpackRing(int ring) {
+        int from = ringOffsets[ring], to = ringOffsets[ring + 1];
+        double[][] result = new double[to - from][];
+        for (int c = from; c < to; c++) {
+            result[c - from] = new double[] { coords[2 * c], coords[2 * c + 1] };
+        }
+        return result;
+    }
+
+
+    /** Unpacks the rings of the given part **/
+    private double[][][] unpackPart(int part) {
+        int from = partOffsets[part], to = partOffsets[part + 1];
+        double[][][] result = new double[to - from][][];
+        for (int r = from; r < to; r++) {
+            result[r - from] = unpackRing(r);
+        }
+        return result;
+    }
+
+
+    /** Unpacks the coordinates of a LineString or MultiPoint **/
+    public double[][] unpack2() {
+        return getRingCount() > 0 ? unpackRing(0) : new double[0][];
+    }
+
+
+    /** Unpacks the coordinates of a Polygon or MultiLineString **/
+    public double[][][] unpack3() {
+        return getPartCount() > 0 ? unpackPart(0) : new double[0][][];
+    }
+
+
+    /** Unpacks the coordinates of a MultiPolygon **/
+    public double[][][][] unpack4() {
+        double[][][][] result = new double[getPartCount()][][][];
+        for (int p = 0; p < result.length; p++) {
+            result[p] = unpackPart(p);
+        }
+        return result;
+    }
+
+
+    /*************************/
+    /** Operations          **/
+    /*************************/
+
+
+    /**
+     * Extends the given bounding box with the coordinates. Does not allocate any memory.
+     * @param bbox the bounding box to extend, in the format [minX, minY, maxX, maxY]
+     * @return the updated bounding box
+     */
+    public double[] extendBBox(double[] bbox) {
+        for (int i = 0; i < coords.length; i += 2) {
+            bbox[0] = Math.min(bbox[0], coords[i]);
+            bbox[1] = Math.min(bbox[1], coords[i + 1]);
+            bbox[2] = Math.max(bbox[2], coords[i]);
+            bbox[3] = Math.max(bbox[3], coords[i + 1]);
+        }
+        return bbox;
+    }
+
+
+    /** Computes the bounding box of the coordinates **/
+    public double[] computeBBox() {
+        return extendBBox(new double[] { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE });
+    }
+
+
+    /** Computes the center of the bounding box of the coordinates **/
+    public double[] computeCenter() {
+        double[] bbox = computeBBox();
+        return new double[]{(bbox[0] + bbox[2]) / 2.0, (bbox[1] + bbox[3]) / 2.0};
+    }
+
+
+    /**
+     * Visits all coordinates and executes the handler. The handler is passed a copy of each x-y coordinate,
+     * and updates to the copy are written back to the packed coordinates.
+     * @param handler the handler
+     * @return if any coordinates were updated
+     */
+    public boolean visitCoordinates(Consumer<double[]> handler) {
+        boolean updated = false;
+        for (int i = 0; i < coords.length; i += 2) {
+            double[] xy = { coords[i], coords[i + 1] };
+            handler.accept(xy);
+            if (xy[0] != coords[i] || xy[1] != coords[i + 1]) {
+                coords[i] = xy[0];
+                coords[i + 1] = xy[1];
+                updated = true;
+            }
+        }
+        return updated;
+    }
+
+
+    /*************************/
+    /** Getters             **/
+    /*************************/
+
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /** Returns the flat x-y coordinate array. NB: Not a copy **/
+    public double[] getCoords() {
+        return coords;
+    }
+
+    public int getCoordCount() {
+        return coords.length / 2;
+    }
+
+    public int getRingCount() {
+        return ringOffsets.length - 1;
+    }
+
+    public int getPartCount() {
+        return partOffsets.length - 1;
+    }
+
+    /** Returns the index of the first coordinate of the given ring. Use ringCount as index for the total count **/
+    public int getRingOffset(int ring) {
+        return ringOffsets[ring];
+    }
+
+    /** Returns the index of the first ring of the given part. Use partCount as index for the total count **/
+    public int getPartOffset(int part) {
+        return partOffsets[part];
+    }
+
+    public double getX(int coord) {
+        return coords[2 * coord];
+    }
+
+    public double getY(int coord) {
+        return coords[2 * coord + 1];
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.model.geojson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes packed coordinates directly as nested GeoJson coordinate arrays,
+ * without unpacking them into intermediate {@code double[]} arrays first.
+ */
+public class PackedCoordinatesSerializer extends StdSerializer<PackedCoordinates> {
+
+    /** Constructor **/
+    public PackedCoordinatesSerializer() {
+        super(PackedCoordinates.class);
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public void serialize(PackedCoordinates value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        switch (value.getDepth()) {
+            case 2:
+                writeRing(value, 0, gen);
+                break;
+            case 3:
+                writePart(value, 0, gen);
+                break;
+            default:
+                gen.writeStartArray();
+                for (int p = 0; p < value.getPartCount(); p++) {
+                    writePart(value, p, gen);
+                }
+                gen.writeEndArray();
+        }
+    }
+
+    /** Writes the rings of the given part as an array **/
+    private void writePart(PackedCoordinates value, int part, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        if (part < value.getPartCount()) {
+            for (int r = value.getPartOffset(part); r < value.getPartOffset(part + 1); r++) {
+                writeRing(value, r, gen);
+            }
+        }
+        gen.writeEndArray();
+    }
+
+    /** Writes the coordinates of the given ring as an array **/
+    private void writeRing(PackedCoordinates value, int ring, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        if (ring < value.getRingCount()) {
+            double[] coords = value.getCoords();
+            for (int c = value.getRingOffset(ring); c < value.getRingOffset(ring + 1); c++) {
+                gen.writeArray(coords, 2 * c, 2);
+            }
+        }
+        gen.writeEndArray();
+    }
+}
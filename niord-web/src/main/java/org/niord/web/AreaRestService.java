@@ -24,10 +24,12 @@ import org.niord.core.area.AreaSearchParams;
 import org.niord.core.area.AreaService;
 import org.niord.core.area.vo.SystemAreaVo;
 import org.niord.core.batch.AbstractBatchableRestService;
+import org.niord.core.geojson.GeometryLodService;
 import org.niord.core.geojson.JtsConverter;
 import org.niord.core.user.Roles;
 import org.niord.model.DataFilter;
 import org.niord.model.IJsonSerializable;
+import org.niord.model.message.AreaVo;
 import org.niord.model.geojson.FeatureCollectionVo;
 import org.niord.model.geojson.GeometryVo;
 import org.slf4j.Logger;
@@ -72,6 +74,9 @@ public class AreaRestService extends AbstractBatchableRestService {
     @Inject
     AreaService areaService;
 
+    @Inject
+    GeometryLodService geometryLodService;
+
     /**
      * Searches for areas matching the given name in the given language
      *
@@ -79,6 +84,7 @@ public class AreaRestService extends AbstractBatchableRestService {
      * @param name  the search name
      * @param domain  if defined, restricts the search to the areas of the given domain
      * @param geometry  if true, only return areas with geometries
+     * @param zoom  if defined, the area geometries are simplified for display at the given zoom level
      * @param limit the maximum number of results
      * @return the search result
      */
@@ -94,6 +100,7 @@ public class AreaRestService extends AbstractBatchableRestService {
             @QueryParam("geometry") @DefaultValue("false") boolean geometry,
             @QueryParam("messageSorting") @DefaultValue("false") boolean messageSorting,
             @QueryParam("inactive") @DefaultValue("false") boolean inactive,
+            @QueryParam("zoom") Integer zoom,
             @QueryParam("limit") int limit) {
 
         if (StringUtils.isBlank(name)) {
@@ -117,7 +124,7 @@ public class AreaRestService extends AbstractBatchableRestService {
         DataFilter filter = (geometry) ? f.fields(DataFilter.GEOMETRY) : f;
 
         return areaService.searchAreas(params).stream()
-                .map(a -> a.toVo(SystemAreaVo.class, filter))
+                .map(a -> simplifyGeometry(a.toVo(SystemAreaVo.class, filter), zoom))
                 .collect(Collectors.toList());
     }
 
@@ -302,6 +309,7 @@ public class AreaRestService extends AbstractBatchableRestService {
      * Returns the list of active areas intersecting with the given geometry down to the given level.
      * The result will be pruned, so that parent areas are not included
      * @param maxLevel the max level in the area tree. Root level is level 1.
+     * @param zoom if defined, the area geometries are simplified for display at the given zoom level
      * @return the list of active charts intersecting with the given geometry
      */
     @POST
@@ -316,6 +324,7 @@ public class AreaRestService extends AbstractBatchableRestService {
             @QueryParam("geometry") @DefaultValue("false") boolean geometry,
             @QueryParam("domain") @DefaultValue("false") boolean domain,
             @QueryParam("maxLevel") @DefaultValue("2") int maxLevel,
+            @QueryParam("zoom") Integer zoom,
             FeatureCollectionVo featureCollection) {
 
         GeometryVo geometryVo = featureCollection.toGeometry();
@@ -329,11 +338,34 @@ public class AreaRestService extends AbstractBatchableRestService {
         DataFilter filter = (geometry) ? f.fields(DataFilter.GEOMETRY) : f;
 
         return areaService.getIntersectingAreas(JtsConverter.toJts(geometryVo), maxLevel, domain).stream()
-                .map(a -> a.toVo(SystemAreaVo.class, filter))
+                .map(a -> simplifyGeometry(a.toVo(SystemAreaVo.class, filter), zoom))
                 .collect(Collectors.toList());
     }
 
 
+    /**
+     * Replaces the geometries of the area, and its parent and child areas, with the
+     * level-of-detail variants for the given zoom level
+     *
+     * @param area the area to update
+     * @param zoom the zoom level. If undefined, the area is returned unchanged
+     * @return the updated area
+     */
+    private SystemAreaVo simplifyGeometry(SystemAreaVo area, Integer zoom) {
+        if (area != null && zoom != null) {
+            area.setGeometry(geometryLodService.simplify(area.getGeometry(), zoom));
+            if (area.getChildren() != null) {
+                area.getChildren().forEach(child -> simplifyGeometry(child, zoom));
+            }
+            AreaVo parent = area.getParent();
+            if (parent instanceof SystemAreaVo) {
+                simplifyGeometry((SystemAreaVo) parent, zoom);
+            }
+        }
+        return area;
+    }
+
+
     /**
      * ******************
      * Helper classes
@@ -16,7 +16,7 @@
 
 package org.niord.web;
 
-import org.apache.commons.lang.StringUtils;
+import org.niord.web.StaticAssetManager.StaticAsset;
 import org.slf4j.Logger;
 
 import javax.inject.Inject;
@@ -33,9 +33,6 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.File;
 import java.io.IOException;
-import java.net.URLDecoder;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -47,36 +44,56 @@ import java.util.Objects;
  * "cachers", such as Chrome, may not update partial HTML files (loaded e.g. from directives),
  * because of the usual caching handling.
  * <p>
+ * The ETags are content hashes, looked up in the in-memory table of the {@linkplain StaticAssetManager},
+ * so conditional requests are answered without touching the file system. Likewise, pre-compressed
+ * assets are served directly from memory to clients that accept gzip.
+ * <p>
  * Please refer to {@code dk.dma.embryo.common.servlet.ETagFilter} of the Embryo project.
  */
 @WebFilter(urlPatterns = {
-    "/app/*", "/index.html"
+    "/app/*", "/ext/*", "/css/*", "/img/*"
 })
 public class ETagServletFilter implements Filter {
 
-    static final String HEADER_USER_AGENT           = "User-Agent";
     static final String HEADER_IF_MODIFIED_SINCE    = "If-Modified-Since";
     static final String HEADER_LAST_MODIFIED        = "Last-Modified";
     static final String HEADER_IF_NONE_MATCH        = "If-None-Match";
     static final String HEADER_ETAG                 = "ETag";
+    static final String HEADER_ACCEPT_ENCODING      = "Accept-Encoding";
+    static final String HEADER_CONTENT_ENCODING     = "Content-Encoding";
+    static final String HEADER_VARY                 = "Vary";
+
+    static final String GZIP_ETAG_SUFFIX            = "-gzip";
 
     @Inject
     Logger log;
 
-    private String basePath;
+    private StaticAssetManager staticAssetManager;
 
 
     /** {@inheritDoc} */
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
-        basePath = filterConfig.getServletContext().getRealPath(File.separator);
+        String basePath = filterConfig.getServletContext().getRealPath(File.separator);
         log.info("Initialized with base path {} ", basePath);
+
+        // If the web application is not deployed as an exploded archive, ETags are not supported
+        if (basePath != null) {
+            staticAssetManager = new StaticAssetManager(
+                    Paths.get(basePath),
+                    filterConfig.getServletContext()::getMimeType);
+            staticAssetManager.start();
+        }
     }
 
 
     /** {@inheritDoc} */
     @Override
     public void destroy() {
+        if (staticAssetManager != null) {
+            staticAssetManager.stop();
+            staticAssetManager = null;
+        }
     }
 
 
@@ -92,20 +109,29 @@ public class ETagServletFilter implements Filter {
         HttpServletRequest request = (HttpServletRequest) req;
         HttpServletResponse response = (HttpServletResponse) res;
 
-        // Initially, we only use the ETag mechanism for Chrome, which caches aggressively
-        if (isChrome(request) && !isAppConfFile(request)) {
+        if (staticAssetManager != null && !isAppConfFile(request)) {
             String servletPath = request.getServletPath();
 
-            // Return the file associated with the servlet path
-            Path file = getFile(servletPath);
+            // Look up the static asset associated with the servlet path
+            StaticAsset asset = staticAssetManager.getAsset(servletPath);
 
-            if (file != null) {
-                EntityTag etag = etagForFile(file);
+            if (asset != null) {
+                // The gzipped and identity representations must have distinct strong ETags
+                boolean gzip = asset.getGzipData() != null && acceptsGzip(request);
+                EntityTag etag = new EntityTag(gzip ? asset.getHash() + GZIP_ETAG_SUFFIX : asset.getHash());
+                if (asset.getGzipData() != null) {
+                    response.setHeader(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+                }
 
                 if (evaluatePreconditions(etag, request, response)) {
                     log.trace("ETag match for path " + servletPath);
                     return;
 
+                } else if (gzip) {
+                    log.trace("Serving pre-compressed asset for path " + servletPath);
+                    writeGzipData(asset, request, response);
+                    return;
+
                 } else if (request.getHeader(HEADER_IF_MODIFIED_SINCE) != null) {
                     request = new IgnoreHeaderRequestWrapper(request, HEADER_IF_MODIFIED_SINCE);
                 }
@@ -130,34 +156,26 @@ public class ETagServletFilter implements Filter {
     }
 
 
-    /** Returns if the request is issued by a chrome browser **/
-    private boolean isChrome(HttpServletRequest request) {
-        String userAgent = request.getHeader(HEADER_USER_AGENT);
-        return StringUtils.isNotBlank(userAgent) && userAgent.contains("Chrome");
+    /** Returns if the client accepts gzip-compressed responses **/
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HEADER_ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
     }
 
 
-    /** Returns the file path associated with the given servlet path; otherwise return null **/
-    private Path getFile(String servletPath) {
-
-        try {
-            Path file = Paths.get(basePath, URLDecoder.decode(servletPath, "UTF-8"));
-
-            // Ensure that this is a valid file
-            if (Files.isRegularFile(file)) {
-                return file;
-            }
-        } catch (Exception ignored) {
+    /** Writes the pre-compressed data of the asset to the response **/
+    private void writeGzipData(StaticAsset asset, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] data = asset.getGzipData();
+        if (asset.getContentType() != null) {
+            response.setContentType(asset.getContentType());
+            // Compressed assets are textual, and the web application files are UTF-8 encoded
+            response.setCharacterEncoding("UTF-8");
+        }
+        response.setHeader(HEADER_CONTENT_ENCODING, "gzip");
+        response.setContentLength(data.length);
+        if (!"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(data);
         }
-
-        // No joy
-        return null;
-    }
-
-
-    /** Returns the etag for the given file **/
-    private EntityTag etagForFile(Path f) throws IOException {
-        return new EntityTag("" + Files.getLastModifiedTime(f).toMillis() + "_" + Files.size(f), true);
     }
 
 
@@ -177,8 +195,9 @@ public class ETagServletFilter implements Filter {
 
         boolean match = Collections.list(request.getHeaders(HEADER_IF_NONE_MATCH))
                 .stream()
-                .map(this::trimEtagValue) // Strip any "-gzip" suffix added by Apache modules
-                .anyMatch(val -> val.equals(etag.toString()));
+                .anyMatch(val -> val.equals(etag.toString())
+                        // Strip any "-gzip" suffix added by Apache modules
+                        || trimEtagValue(val).equals(etag.toString()));
 
         if (match) {
             response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
@@ -192,8 +211,8 @@ public class ETagServletFilter implements Filter {
 
     /** Some Apache modules will add an "-gzip" suffix within the quoted ETag value **/
     private String trimEtagValue(String etag) {
-        if (etag != null && etag.contains("-gzip")) {
-            etag = etag.replace("-gzip", "");
+        if (etag != null && etag.contains(GZIP_ETAG_SUFFIX)) {
+            etag = etag.replace(GZIP_ETAG_SUFFIX, "");
         }
         return etag;
     }
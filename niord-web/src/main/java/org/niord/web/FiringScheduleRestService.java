@@ -29,6 +29,7 @@ import org.niord.core.schedule.FiringExerciseService;
 import org.niord.core.schedule.FiringSchedule;
 import org.niord.core.schedule.FiringScheduleService;
 import org.niord.core.schedule.vo.FiringAreaPeriodsVo;
+import org.niord.core.schedule.vo.FiringExerciseDiffVo;
 import org.niord.core.schedule.vo.FiringScheduleVo;
 import org.niord.core.user.Roles;
 import org.niord.model.IJsonSerializable;
@@ -176,6 +177,68 @@ public class FiringScheduleRestService {
     }
 
 
+    /**
+     * Computes the changes that an update of the firing exercises would result in, without changing any messages
+     *
+     * @param areaIds the firing areas to compute the diff for. If undefined, all firing areas are included
+     * @param changesOnly whether to only include firing areas where the firing exercise message would change
+     * @return the firing exercise diff
+     */
+    @GET
+    @Path("/firing-exercise-diff")
+    @Produces("application/json;charset=UTF-8")
+    @GZIP
+    @NoCache
+    @RolesAllowed(Roles.EDITOR)
+    public List<FiringExerciseDiffVo> computeFiringExerciseDiff(
+            @QueryParam("area") Set<Integer> areaIds,
+            @QueryParam("changesOnly") @DefaultValue("true") boolean changesOnly) {
+
+        List<FiringExerciseDiffVo> diff = firingExerciseService.computeFiringExerciseDiff(
+                areaIds == null || areaIds.isEmpty() ? null : areaIds,
+                null);
+        return filterFiringExerciseDiff(diff, changesOnly);
+    }
+
+
+    /**
+     * Computes the changes to the firing exercises that would result from replacing the firing periods
+     * of the given firing areas, e.g. as part of a schedule import, without changing any firing periods or messages
+     *
+     * @param changesOnly whether to only include firing areas where the firing exercise message would change
+     * @param firingAreaPeriods the proposed firing periods of the firing areas
+     * @return the firing exercise diff
+     */
+    @POST
+    @Path("/firing-exercise-diff")
+    @Consumes("application/json;charset=UTF-8")
+    @Produces("application/json;charset=UTF-8")
+    @GZIP
+    @NoCache
+    @RolesAllowed(Roles.EDITOR)
+    public List<FiringExerciseDiffVo> previewFiringExerciseDiff(
+            @QueryParam("changesOnly") @DefaultValue("true") boolean changesOnly,
+            List<FiringAreaPeriodsVo> firingAreaPeriods) {
+
+        Objects.requireNonNull(firingAreaPeriods, "The firing area periods must be specified");
+
+        try {
+            List<FiringExerciseDiffVo> diff = firingExerciseService.computeFiringExerciseDiff(null, firingAreaPeriods);
+            return filterFiringExerciseDiff(diff, changesOnly);
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e.getMessage(), 400);
+        }
+    }
+
+
+    /** Filters the firing exercise diff **/
+    private List<FiringExerciseDiffVo> filterFiringExerciseDiff(List<FiringExerciseDiffVo> diff, boolean changesOnly) {
+        return diff.stream()
+                .filter(d -> !changesOnly || d.impliesChange())
+                .collect(Collectors.toList());
+    }
+
+
     /***************************************/
     /** Firing Area Periods               **/
     /***************************************/
@@ -16,7 +16,8 @@
 
 package org.niord.web;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.lang.StringUtils;
@@ -88,17 +89,20 @@ public class MessageExportRestService extends AbstractBatchableRestService {
     @NoCache
     public Response generateZipArchiveForSearch(@Context HttpServletRequest request) throws Exception {
 
-        // Perform a search for at most 1000 messages
+        // The search is performed page by page whilst the archive is being streamed
         MessageSearchParams params = MessageSearchParams.instantiate(domainService.currentDomain(), request);
         params.language(null)
-                .maxSize(1000)
-                .page(0);
+                .maxSize(MessageExportService.EXPORT_PAGE_SIZE);
 
-        PagedSearchResultVo<SystemMessageVo> result = messageSearchRestService.searchSystemMessages(params);
-        result.getData().forEach(m -> m.sort(params.getLanguage()));
+        MessageExportService.MessagePageLoader pageLoader = page -> {
+            params.page(page);
+            PagedSearchResultVo<SystemMessageVo> result = messageSearchRestService.searchSystemMessages(params);
+            result.getData().forEach(m -> m.sort(params.getLanguage()));
+            return result;
+        };
 
         try {
-            StreamingOutput stream = os -> messageExportService.export(result, os);
+            StreamingOutput stream = os -> messageExportService.export(pageLoader, os);
 
             return Response.ok(stream)
                     .type("application/zip")
@@ -175,12 +179,18 @@ public class MessageExportRestService extends AbstractBatchableRestService {
             ZipEntry entry;
             while ((entry = zipFile.getNextEntry()) != null) {
                 if ("messages.json".equals(entry.getName())) {
-                    try {
-                        ObjectMapper mapper = new ObjectMapper();
-                        PagedSearchResultVo<SystemMessageVo> messages = mapper.readValue(
-                                zipFile,
-                                new TypeReference<PagedSearchResultVo<SystemMessageVo>>() {});
-                        return  messages != null;
+                    // Validate the JSON syntax without binding the - possibly huge - list of messages
+                    try (JsonParser parser = new ObjectMapper().getFactory().createParser(zipFile)) {
+                        if (parser.nextToken() != JsonToken.START_OBJECT) {
+                            return false;
+                        }
+                        boolean data = false;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            JsonToken value = parser.nextToken();
+                            data |= "data".equals(parser.getCurrentName()) && value == JsonToken.START_ARRAY;
+                            parser.skipChildren();
+                        }
+                        return data && parser.getCurrentToken() == JsonToken.END_OBJECT;
                     } catch (Exception e) {
                         return false;
                     }
@@ -57,6 +57,7 @@ import org.niord.model.message.ReferenceType;
 import org.niord.model.message.ReferenceVo;
 import org.niord.model.message.Status;
 import org.niord.model.search.PagedSearchResultVo;
+import org.niord.web.map.MessageMapImageService;
 import org.slf4j.Logger;
 
 import javax.annotation.security.PermitAll;
@@ -136,6 +137,9 @@ public class MessageRestService  {
     @Inject
     PromulgationManager promulgationManager;
 
+    @Inject
+    MessageMapImageService messageMapImageService;
+
     /***************************
      * Message access functions
      ***************************/
@@ -555,6 +559,9 @@ public class MessageRestService  {
         message.setId(msg.getUid());
         messageService.updateMessageFromTempRepoFolder(message);
 
+        // Generate the message map image in the background once the transaction has committed
+        messageMapImageService.scheduleMessageMapImage(msg.getUid());
+
         return getMessage(msg.getUid(), null);
     }
 
@@ -592,6 +599,9 @@ public class MessageRestService  {
         // Copy resources from the temporary editing message folder to the message repository folder
         messageService.updateMessageFromTempRepoFolder(message);
 
+        // Generate the message map image in the background once the transaction has committed
+        messageMapImageService.scheduleMessageMapImage(msg.getUid());
+
         return getMessage(msg.getUid(), null);
     }
 
@@ -22,6 +22,7 @@ import org.jboss.resteasy.annotations.cache.NoCache;
 import org.jboss.ejb3.annotation.SecurityDomain;
 import org.niord.core.domain.Domain;
 import org.niord.core.domain.DomainService;
+import org.niord.core.geojson.GeometryLodService;
 import org.niord.core.message.Message;
 import org.niord.core.message.MessageIdMatch;
 import org.niord.core.message.MessageSearchParams;
@@ -83,6 +84,9 @@ public class MessageSearchRestService {
     @Inject
     UserService userService;
 
+    @Inject
+    GeometryLodService geometryLodService;
+
 
     /** Returns the domain used for searching messages **/
     private Domain searchDomain(MessageSearchParams params) {
@@ -217,7 +221,8 @@ public class MessageSearchRestService {
         DataFilter filter = ("map".equalsIgnoreCase(params.getViewMode()))
                 ? Message.MESSAGE_MAP_FILTER.lang(params.getLanguage())
                 : Message.MESSAGE_DETAILS_FILTER.lang(params.getLanguage()).user(userService.userResolver());
-        return search(params).map(m -> m.toVo(MessageVo.class, filter));
+        Integer zoom = getLodZoom(params);
+        return search(params).map(m -> simplifyGeometry(m.toVo(MessageVo.class, filter), zoom));
     }
 
 
@@ -233,7 +238,41 @@ public class MessageSearchRestService {
         DataFilter filter = ("map".equalsIgnoreCase(params.getViewMode()))
                 ? Message.MESSAGE_MAP_FILTER.lang(params.getLanguage())
                 : Message.MESSAGE_DETAILS_AND_PROMULGATIONS_FILTER.lang(params.getLanguage()).user(userService.userResolver());
-        return search(params).map(m -> m.toVo(SystemMessageVo.class, filter));
+        Integer zoom = getLodZoom(params);
+        return search(params).map(m -> simplifyGeometry(m.toVo(SystemMessageVo.class, filter), zoom));
+    }
+
+
+    /**
+     * Returns the zoom level used for selecting the level-of-detail of message geometries.
+     * Geometries are only simplified in map view mode, where either the zoom level or
+     * the current map extent should be specified.
+     *
+     * @param params the search parameters
+     * @return the zoom level, or null if the geometries should not be simplified
+     */
+    private Integer getLodZoom(MessageSearchParams params) {
+        if (!"map".equalsIgnoreCase(params.getViewMode())) {
+            return null;
+        }
+        return params.getZoom() != null
+                ? params.getZoom()
+                : GeometryLodService.zoomForExtent(params.getExtent());
+    }
+
+
+    /**
+     * Replaces the message part geometries with the level-of-detail variants for the given zoom level
+     *
+     * @param message the message to update
+     * @param zoom the zoom level. If undefined, the message is returned unchanged
+     * @return the updated message
+     */
+    private <M extends MessageVo> M simplifyGeometry(M message, Integer zoom) {
+        if (zoom != null && message.getParts() != null) {
+            message.getParts().forEach(part -> geometryLodService.simplify(part.getGeometry(), zoom));
+        }
+        return message;
     }
 
 
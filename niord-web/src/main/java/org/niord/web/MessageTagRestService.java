@@ -196,6 +196,20 @@ public class MessageTagRestService {
     }
 
 
+    /** Returns a page of the UIDs of the messages of the given tag */
+    @GET
+    @Path("/tag/{tagId}/messages")
+    @Produces("application/json;charset=UTF-8")
+    @GZIP
+    @NoCache
+    public List<String> getTagMessageUids(
+            @PathParam("tagId") String tagId,
+            @QueryParam("offset") @DefaultValue("0") int offset,
+            @QueryParam("limit") @DefaultValue("1000") int limit) {
+        return messageTagService.findTagMessageUids(tagId, offset, limit);
+    }
+
+
     /** Clears messages from the given tag */
     @DELETE
     @Path("/tag/{tagId}/messages")
@@ -16,15 +16,30 @@
 
 package org.niord.web;
 
+import org.jboss.resteasy.annotations.cache.NoCache;
+import org.niord.core.metrics.Metrics;
+import org.niord.core.startup.StartupService;
+import org.niord.core.startup.vo.StartupPhaseVo;
+
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
- * An extremely simple REST endpoint that can be used to monitor the basic dead-or-alive state of the Niord service
+ * An extremely simple REST endpoint that can be used to monitor the basic dead-or-alive state of the Niord service,
+ * the readiness of the service, along with the application metrics.
+ * <p>
+ * Load balancers should use "/monitor/ping" as the liveness check and "/monitor/ready" as the readiness check.
  */
 @Path("/monitor")
 public class MonitorRestService {
@@ -32,8 +47,11 @@ public class MonitorRestService {
     @Inject
     protected EntityManager em;
 
+    @Inject
+    StartupService startupService;
+
 
-    /** Can be used to see if Niord is running at all **/
+    /** Can be used to see if Niord is running at all, i.e. the liveness of Niord **/
     @GET
     @Path("/ping")
     @Produces("text/plain")
@@ -60,4 +78,40 @@ public class MonitorRestService {
         }
     }
 
+
+    /** Verifies that Niord has completed all critical start-up phases and is ready to serve traffic **/
+    @GET
+    @Path("/ready")
+    @Produces("text/plain")
+    @NoCache
+    public Response ready() {
+        return startupService.isReady()
+                ? Response.ok("ready").build()
+                : Response.status(Response.Status.SERVICE_UNAVAILABLE).entity("starting").build();
+    }
+
+
+    /** Returns the timed profile of the start-up phases **/
+    @GET
+    @Path("/startup")
+    @Produces("application/json;charset=UTF-8")
+    @NoCache
+    public List<StartupPhaseVo> startup() {
+        return startupService.getPhases();
+    }
+
+
+    /** Returns the application metrics in the Prometheus text format **/
+    @GET
+    @Path("/metrics")
+    @Produces("text/plain; version=0.0.4; charset=utf-8")
+    @NoCache
+    public StreamingOutput metrics() {
+        return os -> {
+            Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+            Metrics.writePrometheus(out);
+            out.flush();
+        };
+    }
+
 }
@@ -443,6 +443,35 @@ public class PublicationRestService extends AbstractBatchableRestService {
 
 
 
+    /**
+     * Replays the published messages and current message tag members through the message tag filter
+     * of a recording publication. Should be called after the filter has been edited.
+     *
+     * @param publicationId the ID of the publication
+     * @return the updated publication
+     */
+    @PUT
+    @Path("/re-record/{publicationId}")
+    @Produces("application/json;charset=UTF-8")
+    @GZIP
+    @NoCache
+    @RolesAllowed(Roles.ADMIN)
+    public SystemPublicationVo reRecordPublication(@PathParam("publicationId") String publicationId) throws Exception {
+
+        log.info("Re-recording publication " + publicationId);
+
+        try {
+            return publicationService
+                    .reRecordPublication(publicationId)
+                    .toVo(SystemPublicationVo.class, DataFilter.get());
+
+        } catch (Exception e) {
+            log.error("Error re-recording publication " + e.getMessage(), e);
+            throw new WebApplicationException(e.getMessage(), 400);
+        }
+    }
+
+
     /**
      * Generates a publication report based on the PDF print parameters passed along
      *
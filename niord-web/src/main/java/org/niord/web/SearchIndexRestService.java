@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web;
+
+import org.jboss.ejb3.annotation.SecurityDomain;
+import org.jboss.resteasy.annotations.GZIP;
+import org.jboss.resteasy.annotations.cache.NoCache;
+import org.niord.core.db.HibernateSearchIndexService;
+import org.niord.core.db.vo.SearchIndexStatusVo;
+import org.niord.core.user.Roles;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import java.util.List;
+
+/**
+ * REST interface for monitoring the Hibernate Search indexes
+ */
+@Path("/search-index")
+@Stateless
+@SecurityDomain("keycloak")
+@RolesAllowed(Roles.SYSADMIN)
+public class SearchIndexRestService {
+
+    @Inject
+    HibernateSearchIndexService hibernateSearchIndexService;
+
+
+    /**
+     * Returns the freshness of the Hibernate Search indexes of all indexed entity types
+     * @return the freshness of the Hibernate Search indexes
+     */
+    @GET
+    @Path("/status")
+    @Produces("application/json;charset=UTF-8")
+    @GZIP
+    @NoCache
+    public List<SearchIndexStatusVo> getIndexStatus() {
+        return hibernateSearchIndexService.getIndexStatus();
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.web;
+
+import org.niord.core.util.GzipUtils;
+import org.niord.core.util.HashUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Maintains an in-memory table of the static assets of the web application.
+ * <p>
+ * The web root is scanned upon start-up, and a content hash is computed for each file, along
+ * with a pre-compressed gzip variant for compressible files, such as html, javascript and css.
+ * Subsequently, the web root is monitored using a {@linkplain WatchService}, and the table is
+ * updated when files are added, changed or deleted.
+ * <p>
+ * This allows {@linkplain ETagServletFilter} to answer conditional requests, and serve gzipped
+ * assets, without touching the file system.
+ */
+public class StaticAssetManager {
+
+    static final int MIN_COMPRESS_SIZE = 256;
+    static final int MAX_COMPRESS_SIZE = 2 * 1024 * 1024;
+
+    private final static Logger log = LoggerFactory.getLogger(StaticAssetManager.class);
+
+    private final Path root;
+    private final Function<String, String> mimeTypes;
+    private final Map<String, StaticAsset> assets = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+
+    private ExecutorService watchPool;
+    private WatchService watchService;
+
+
+    /**
+     * Constructor
+     * @param root the web root
+     * @param mimeTypes resolves the MIME type of a file name
+     */
+    public StaticAssetManager(Path root, Function<String, String> mimeTypes) {
+        this.root = root;
+        this.mimeTypes = mimeTypes;
+    }
+
+
+    /**
+     * Starts scanning and monitoring the web root in a background thread
+     */
+    public void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            log.warn("Unable to monitor web root " + root + " for changes: " + e);
+        }
+
+        watchPool = Executors.newSingleThreadExecutor();
+        watchPool.submit(() -> {
+            long t0 = System.currentTimeMillis();
+            scan(root);
+            log.info("Indexed " + assets.size() + " static assets in "
+                    + (System.currentTimeMillis() - t0) + " ms");
+
+            if (watchService != null) {
+                watch();
+            }
+        });
+    }
+
+
+    /**
+     * Stops monitoring the web root
+     */
+    public void stop() {
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException ignored) {
+        }
+        if (watchPool != null && !watchPool.isShutdown()) {
+            watchPool.shutdownNow();
+            watchPool = null;
+        }
+    }
+
+
+    /**
+     * Returns the static asset for the given servlet path, or null if not found
+     * @param servletPath the servlet path
+     * @return the static asset, or null if not found
+     */
+    public StaticAsset getAsset(String servletPath) {
+        return assets.get(servletPath);
+    }
+
+
+    /** Indexes all files below the given directory and registers the directories with the watch service **/
+    private void scan(Path dir) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                    if (d.getFileName() != null && d.getFileName().toString().equals("WEB-INF")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    register(d);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    index(file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Error scanning static assets in " + dir + ": " + e);
+        }
+    }
+
+
+    /** Registers the directory with the watch service **/
+    private void register(Path dir) {
+        if (watchService != null) {
+            try {
+                WatchKey key = dir.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirs.put(key, dir);
+            } catch (IOException e) {
+                log.debug("Unable to monitor directory " + dir + ": " + e);
+            }
+        }
+    }
+
+
+    /** Monitors the web root and updates the static asset table upon changes **/
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Path dir = watchedDirs.get(key);
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events may have been lost - re-scan the entire web root
+                        scan(root);
+                    } else if (dir != null) {
+                        Path file = dir.resolve((Path) event.context());
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                            String prefix = servletPath(file);
+                            assets.keySet().removeIf(p -> p.equals(prefix) || p.startsWith(prefix + "/"));
+                        } else if (Files.isDirectory(file)) {
+                            scan(file);
+                        } else {
+                            index(file);
+                        }
+                    }
+                }
+
+                if (!key.reset()) {
+                    watchedDirs.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // Stopped
+        }
+    }
+
+
+    /** Computes and stores the static asset for the given file **/
+    private void index(Path file) {
+        String path = servletPath(file);
+        try {
+            if (!Files.isRegularFile(file)) {
+                assets.remove(path);
+                return;
+            }
+
+            byte[] data = Files.readAllBytes(file);
+            String contentType = mimeTypes.apply(file.getFileName().toString());
+
+            byte[] gzipData = null;
+            if (isCompressible(contentType) && data.length >= MIN_COMPRESS_SIZE && data.length <= MAX_COMPRESS_SIZE) {
+                gzipData = GzipUtils.compress(data);
+                // Only keep the gzipped variant if it is a real improvement
+                if (gzipData.length > data.length * 9 / 10) {
+                    gzipData = null;
+                }
+            }
+
+            assets.put(path, new StaticAsset(HashUtils.sha1Hex(data), data.length, contentType, gzipData));
+        } catch (IOException e) {
+            // The file may e.g. be in the process of being written
+            assets.remove(path);
+            log.debug("Error indexing static asset " + file + ": " + e);
+        }
+    }
+
+
+    /** Returns the servlet path of the given file **/
+    private String servletPath(Path file) {
+        StringBuilder path = new StringBuilder();
+        for (Path p : root.relativize(file)) {
+            path.append("/").append(p.toString());
+        }
+        return path.toString();
+    }
+
+
+    /** Returns if the given content type should be compressed **/
+    private boolean isCompressible(String contentType) {
+        return contentType != null &&
+                (contentType.startsWith("text/")
+                || contentType.contains("javascript")
+                || contentType.contains("json")
+                || contentType.contains("xml")
+                || contentType.contains("svg"));
+    }
+
+
+    /**
+     * An indexed static asset
+     */
+    public static class StaticAsset {
+        final String hash;
+        final long size;
+        final String contentType;
+        final byte[] gzipData;
+
+        /** Constructor **/
+        StaticAsset(String hash, long size, String contentType, byte[] gzipData) {
+            this.hash = hash;
+            this.size = size;
+            this.contentType = contentType;
+            this.gzipData = gzipData;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getGzipData() {
+            return gzipData;
+        }
+    }
+}
@@ -33,11 +33,16 @@ import java.util.Arrays;
  * Renders the AtoN as either PNG or SVG.
  *
  * Based on the JSOM searchart Jicons class.
+ * <p>
+ * NB: The seachart {@code Renderer} keeps its state in static fields, so the actual rendering is serialized.
+ * The PNG and SVG encoding, however, may run in parallel.
  */
 public class AtonIconRenderer {
 
     public static final String SVG_NS = "http://www.w3.org/2000/svg";
 
+    private static final Object RENDER_LOCK = new Object();
+
 	public static void renderIcon(AtonNodeVo aton, String format, OutputStream out, int w, int h, int x, int y, double s) throws IOException {
 
 		// First, generate the map from the AtoN tags
@@ -51,13 +56,16 @@ public class AtonIconRenderer {
             BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
             Graphics2D g2 = img.createGraphics();
 
-			Renderer.reRender(
-                    g2,
-                    new Rectangle(x, y, w, h),
-                    16,
-                    s / Renderer.symbolScale[16],
-                    map,
-                    new Context(w, h, x, y));
+            synchronized (RENDER_LOCK) {
+                Renderer.reRender(
+                        g2,
+                        new Rectangle(x, y, w, h),
+                        16,
+                        s / Renderer.symbolScale[16],
+                        map,
+                        new Context(w, h, x, y));
+            }
+            g2.dispose();
 
             ImageIO.write(img, "png", out);
 
@@ -70,13 +78,15 @@ public class AtonIconRenderer {
 				SVGGraphics2D svgGenerator = new SVGGraphics2D(document);
 				svgGenerator.setSVGCanvasSize(new Dimension(w, h));
 
-				Renderer.reRender(
-                        svgGenerator,
-                        new Rectangle(x, y, w, h),
-                        16,
-                        s / Renderer.symbolScale[16],
-                        map,
-                        new Context(w, h, x, y));
+				synchronized (RENDER_LOCK) {
+					Renderer.reRender(
+							svgGenerator,
+							new Rectangle(x, y, w, h),
+							16,
+							s / Renderer.symbolScale[16],
+							map,
+							new Context(w, h, x, y));
+				}
 
 				try {
 					svgGenerator.stream(new OutputStreamWriter(out), true);
@@ -15,14 +15,14 @@
  */
 package org.niord.web.aton;
 
-import org.apache.commons.lang.StringUtils;
 import org.jboss.resteasy.annotations.GZIP;
 import org.jboss.resteasy.annotations.cache.NoCache;
-import org.niord.core.aton.AtonNode;
 import org.niord.core.aton.vo.AtonNodeVo;
 import org.niord.core.repo.RepositoryService;
 import org.slf4j.Logger;
 
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 import javax.inject.Inject;
@@ -30,32 +30,29 @@ import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
-import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.net.URI;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
- * Creates and caches AtoN icons
+ * Creates and caches AtoN icons.
+ * <p>
+ * The actual rendering and caching of the icons is handled by the {@code AtonIconService}.
  */
 @javax.ws.rs.Path("/aton-icon")
 @Startup
 @Singleton
+@Lock(LockType.READ)
 public class AtonIconRestService {
 
-    static final String OVERVIEW_ICON_REPO = "aton_icons";
-    static final int OVERVIEW_ICON_HEIGHT = 90;
-    static final int OVERVIEW_ICON_WIDTH = 60;
-    static final double OVERVIEW_ICON_SCALE = 0.3;
-
     @Inject
     Logger log;
 
     @Inject
     RepositoryService repositoryService;
 
+    @Inject
+    AtonIconService atonIconService;
+
 
     @POST
     @javax.ws.rs.Path("/svg")
@@ -69,13 +66,9 @@ public class AtonIconRestService {
             @QueryParam("scale") @DefaultValue("0.4") double scale,
             AtonNodeVo aton) throws Exception {
 
-        long t0 = System.currentTimeMillis();
-
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        AtonIconRenderer.renderIcon(
+        byte[] svg = atonIconService.getIcon(
                 aton,
                 "svg",
-                out,
                 width,       // width
                 height,      // height
                 width/2,     // x
@@ -83,10 +76,8 @@ public class AtonIconRestService {
                 scale        // scale
         );
 
-        log.trace("Generated AtoN SVG in " + (System.currentTimeMillis() - t0) + " ms");
-
         return Response
-                .ok(out.toByteArray())
+                .ok(svg)
                 .build();
     }
 
@@ -97,97 +88,17 @@ public class AtonIconRestService {
     @NoCache
     public Response getAtonOverviewIcon(@Context HttpServletRequest request) throws Exception {
 
-        long t0 = System.currentTimeMillis();
-
-        String type = request.getParameter("seamark:type");
-        if (StringUtils.isBlank(type)) {
+        Path path = atonIconService.getOverviewIcon(request::getParameter);
+        if (path == null) {
             return Response
                     .temporaryRedirect(new URI("/img/aton/aton.png"))
                     .build();
         }
 
-        // Prepare an AtoN to use as a template for icon construction
-        AtonNode aton = new AtonNode();
-
-        // Construct a repository path to the icon
-        Path path = repositoryService
-                .getRepoRoot()
-                .resolve(OVERVIEW_ICON_REPO);
-
-        path = addParam(aton, path, request, "seamark:type");
-        path = addParam(aton, path, request, "seamark:" + type + ":category");
-        path = addParam(aton, path, request, "seamark:" + type + ":shape");
-        path = addParam(aton, path, request, "seamark:" + type + ":colour");
-        path = addParam(aton, path, request, "seamark:" + type + ":colour_pattern");
-        path = addParam(aton, path, request, "seamark:topmark:shape");
-        path = addParam(aton, path, request, "seamark:topmark:colour");
-        path = addParam(aton, path, request, "seamark:light:character");
-        path = addParam(aton, path, request, "seamark:light:colour");
-
-        // And the actual icon file
-        path = path.resolve("aton_icon_" + OVERVIEW_ICON_WIDTH + "x" + OVERVIEW_ICON_HEIGHT + ".png");
-
-        if (!Files.isRegularFile(path)) {
-            checkCreateParentDirs(path);
-
-            try (FileOutputStream out = new FileOutputStream(path.toFile())) {
-                AtonIconRenderer.renderIcon(
-                        aton.toVo(),
-                        "png",
-                        out,
-                        OVERVIEW_ICON_WIDTH,            // width
-                        OVERVIEW_ICON_HEIGHT,           // height
-                        OVERVIEW_ICON_WIDTH / 3,        // x
-                        2 * OVERVIEW_ICON_HEIGHT / 3,   // y
-                        OVERVIEW_ICON_SCALE             // scale
-                );
-
-                log.trace("Generated AtoN PNG " + path + " in " + (System.currentTimeMillis() - t0) + " ms");
-            }
-        }
-
         // Redirect to the icon
         String iconUri = repositoryService.getRepoUri(path);
         return Response
                 .temporaryRedirect(new URI("../" + iconUri))
                 .build();
     }
-
-
-    /**
-     * If the parameter is well-defined, add a sub-folder to the path
-     *
-     * @param aton an AtoN template to update with the parameter tags
-     * @param path the path to update
-     * @param request the servlet request
-     * @param param the param to check for
-     * @return the potentially updated path
-     */
-    private Path addParam(AtonNode aton, Path path, HttpServletRequest request, String param) {
-        String val = request.getParameter(param);
-        if (StringUtils.isNotBlank(val)) {
-            aton.updateTag(param, val);
-            path = path.resolve(escape(val));
-        }
-        return path;
-    }
-
-
-    /** Escape naughty file name characters **/
-    private String escape(String name) {
-        return name.replaceAll("[^a-zA-Z0-9.-]", "_");
-    }
-
-
-    /**
-     * Ensures that parent directories are created
-     * @param file the file whose parent directories will be created
-     */
-    private void checkCreateParentDirs(Path file) throws IOException {
-        if (!Files.exists(file.getParent())) {
-            Files.createDirectories(file.getParent());
-        }
-    }
-
 }
-
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.aton;
+
+import org.apache.commons.lang.StringUtils;
+import org.niord.core.aton.AtonService;
+import org.niord.core.aton.AtonTag;
+import org.niord.core.aton.vo.AtonNodeVo;
+import org.niord.core.aton.vo.AtonTagVo;
+import org.niord.core.repo.RepositoryService;
+import org.niord.core.settings.annotation.Setting;
+import org.niord.core.util.AtomicFileUtils;
+import org.niord.core.util.HashUtils;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.niord.core.settings.Setting.Type.Integer;
+
+/**
+ * Renders and caches AtoN icons.
+ * <p>
+ * Icons are cached by a signature made up from the normalized AtoN tags, the format and the icon geometry.
+ * The cache has two tiers: A bounded in-memory cache and a disk cache in the repository.
+ * <p>
+ * After AtoNs have been imported, the icons of all distinct AtoN tag signatures may be pre-rendered
+ * in the background using {@code preRenderIcons()}.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class AtonIconService {
+
+    static final String ICON_CACHE_REPO = "aton_icons/cache";
+    static final String OVERVIEW_ICON_REPO = "aton_icons";
+    static final int OVERVIEW_ICON_HEIGHT = 90;
+    static final int OVERVIEW_ICON_WIDTH = 60;
+    static final double OVERVIEW_ICON_SCALE = 0.3;
+
+    /** The default SVG parameters used by the AtoN editor **/
+    static final int SVG_ICON_WIDTH = 400;
+    static final int SVG_ICON_HEIGHT = 200;
+    static final double SVG_ICON_SCALE = 0.4;
+
+    /** Custom Niord AtoN tags, which do not affect the rendering of the AtoN icon **/
+    static final Set<String> IGNORED_TAGS = new HashSet<>(Arrays.asList(
+            AtonTag.TAG_ATON_UID,
+            AtonTag.TAG_LIGHT_NUMBER,
+            AtonTag.TAG_INT_LIGHT_NUMBER,
+            AtonTag.TAG_LOCALITY,
+            AtonTag.TAG_AIS_NUMBER,
+            AtonTag.TAG_RACON_NUMBER,
+            AtonTag.TAG_INT_RACON_NUMBER));
+
+    @Inject
+    Logger log;
+
+    @Inject
+    @Setting(value = "atonIconPoolSize", defaultValue = "4", type = Integer,
+            description = "The number of worker threads used for pre-rendering AtoN icons")
+    Integer poolSize;
+
+    @Inject
+    AtonIconCache atonIconCache;
+
+    @Inject
+    AtonService atonService;
+
+    @Inject
+    RepositoryService repositoryService;
+
+    private final AtomicBoolean preRendering = new AtomicBoolean(false);
+
+    private ExecutorService processPool;
+
+    @PostConstruct
+    private void init() {
+        processPool = Executors.newFixedThreadPool(Math.max(1, poolSize));
+    }
+
+    @PreDestroy
+    private void closeDown() {
+        if (processPool != null && !processPool.isShutdown()) {
+            processPool.shutdownNow();
+            processPool = null;
+        }
+    }
+
+
+    /***************************************/
+    /** Icon rendering                    **/
+    /***************************************/
+
+
+    /**
+     * Returns the AtoN icon with the given format and geometry.
+     * The icon is looked up in the memory and disk caches before being rendered.
+     *
+     * @param aton the AtoN
+     * @param format the format, either "png" or "svg"
+     * @param w the width of the icon
+     * @param h the height of the icon
+     * @param x the x-coordinate of the AtoN within the icon
+     * @param y the y-coordinate of the AtoN within the icon
+     * @param s the symbol scale
+     * @return the encoded icon
+     */
+    public byte[] getIcon(AtonNodeVo aton, String format, int w, int h, int x, int y, double s) throws IOException {
+        format = format.toLowerCase();
+        String key = iconSignature(aton, format, w, h, x, y, s);
+
+        // Check the memory cache
+        byte[] icon = atonIconCache.getCache().get(key);
+        if (icon != null) {
+            return icon;
+        }
+
+        // Check the disk cache
+        Path file = iconCacheFile(key, format);
+        if (Files.isRegularFile(file)) {
+            icon = Files.readAllBytes(file);
+        } else {
+            long t0 = System.currentTimeMillis();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            AtonIconRenderer.renderIcon(normalize(aton), format, out, w, h, x, y, s);
+            icon = out.toByteArray();
+            writeCachedIcon(icon, file);
+            log.trace("Generated AtoN " + format + " in " + (System.currentTimeMillis() - t0) + " ms");
+        }
+
+        atonIconCache.getCache().put(key, icon);
+        return icon;
+    }
+
+
+    /**
+     * Returns the repository path to the overview icon for the AtoN with the given tag values.
+     * The icon is rendered if it does not exist already.
+     *
+     * @param tagValues returns the tag value for a given tag key
+     * @return the path to the overview icon, or null if the AtoN type is undefined
+     */
+    public Path getOverviewIcon(Function<String, String> tagValues) throws IOException {
+        String type = tagValues.apply("seamark:type");
+        if (StringUtils.isBlank(type)) {
+            return null;
+        }
+
+        // Prepare an AtoN to use as a template for icon construction
+        List<AtonTagVo> tags = new ArrayList<>();
+
+        // Construct a repository path to the icon
+        Path path = repositoryService
+                .getRepoRoot()
+                .resolve(OVERVIEW_ICON_REPO);
+
+        for (String key : overviewTagKeys(type)) {
+            String val = tagValues.apply(key);
+            if (StringUtils.isNotBlank(val)) {
+                tags.add(new AtonTagVo(key, val));
+                path = path.resolve(escape(val));
+            }
+        }
+
+        // And the actual icon file
+        path = path.resolve("aton_icon_" + OVERVIEW_ICON_WIDTH + "x" + OVERVIEW_ICON_HEIGHT + ".png");
+
+        if (!Files.isRegularFile(path)) {
+            AtonNodeVo aton = new AtonNodeVo();
+            aton.setTags(tags.toArray(new AtonTagVo[tags.size()]));
+
+            long t0 = System.currentTimeMillis();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            AtonIconRenderer.renderIcon(
+                    aton,
+                    "png",
+                    out,
+                    OVERVIEW_ICON_WIDTH,            // width
+                    OVERVIEW_ICON_HEIGHT,           // height
+                    OVERVIEW_ICON_WIDTH / 3,        // x
+                    2 * OVERVIEW_ICON_HEIGHT / 3,   // y
+                    OVERVIEW_ICON_SCALE             // scale
+            );
+            writeCachedIcon(out.toByteArray(), path);
+            log.trace("Generated AtoN PNG " + path + " in " + (System.currentTimeMillis() - t0) + " ms");
+        }
+
+        return path;
+    }
+
+
+    /** Returns the tag keys used for the overview icon of the given AtoN type **/
+    private List<String> overviewTagKeys(String type) {
+        return Arrays.asList(
+                "seamark:type",
+                "seamark:" + type + ":category",
+                "seamark:" + type + ":shape",
+                "seamark:" + type + ":colour",
+                "seamark:" + type + ":colour_pattern",
+                "seamark:topmark:shape",
+                "seamark:topmark:colour",
+                "seamark:light:character",
+                "seamark:light:colour");
+    }
+
+
+    /***************************************/
+    /** Pre-rendering                     **/
+    /***************************************/
+
+
+    /**
+     * Pre-renders the editor SVG icon and the overview icon of all distinct AtoN tag signatures
+     * in the background. If a pre-rendering is already in progress, the request is ignored.
+     */
+    public void preRenderIcons() {
+        if (processPool == null || !preRendering.compareAndSet(false, true)) {
+            return;
+        }
+
+        processPool.submit(() -> {
+            long t0 = System.currentTimeMillis();
+            try {
+                // Compute the distinct tag signatures
+                Map<String, Map<String, String>> signatures = new LinkedHashMap<>();
+                for (Map<String, String> tags : atonService.getAllAtonTags()) {
+                    IGNORED_TAGS.forEach(tags::remove);
+                    signatures.putIfAbsent(tagSignature(tags), tags);
+                }
+
+                // Render the icons in parallel.
+                // NB: This task does not block waiting for the renderings, which would dead-lock a pool of size 1
+                CompletableFuture.allOf(signatures.values().stream()
+                        .map(tags -> CompletableFuture.runAsync(() -> preRenderIcons(tags), processPool))
+                        .toArray(CompletableFuture[]::new))
+                        .whenComplete((result, error) -> {
+                            preRendering.set(false);
+                            log.info("Pre-rendered AtoN icons for " + signatures.size() + " distinct AtoN signatures in "
+                                    + (System.currentTimeMillis() - t0) + " ms");
+                        });
+            } catch (Exception e) {
+                preRendering.set(false);
+                log.error("Error pre-rendering AtoN icons", e);
+            }
+        });
+    }
+
+
+    /** Pre-renders the icons for the AtoN with the given tags **/
+    private void preRenderIcons(Map<String, String> tags) {
+        try {
+            getOverviewIcon(tags::get);
+
+            AtonNodeVo aton = new AtonNodeVo();
+            aton.setTags(tags.entrySet().stream()
+                    .map(t -> new AtonTagVo(t.getKey(), t.getValue()))
+                    .toArray(AtonTagVo[]::new));
+            getIcon(aton, "svg", SVG_ICON_WIDTH, SVG_ICON_HEIGHT, SVG_ICON_WIDTH / 2, SVG_ICON_HEIGHT / 2, SVG_ICON_SCALE);
+        } catch (Exception e) {
+            log.debug("Failed pre-rendering AtoN icon for " + tags + ": " + e);
+        }
+    }
+
+
+    /***************************************/
+    /** Utility methods                   **/
+    /***************************************/
+
+
+    /** Returns a copy of the AtoN with normalized tags, i.e. sorted and without non-rendered tags **/
+    private AtonNodeVo normalize(AtonNodeVo aton) {
+        AtonNodeVo result = new AtonNodeVo();
+        result.setTags(normalizedTags(aton.getTags()).stream()
+                .map(t -> new AtonTagVo(t.getK(), t.getV()))
+                .toArray(AtonTagVo[]::new));
+        return result;
+    }
+
+
+    /** Returns the sorted list of tags that affect the rendering of the AtoN **/
+    private static List<AtonTagVo> normalizedTags(AtonTagVo[] tags) {
+        if (tags == null) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(tags)
+                .filter(t -> StringUtils.isNotBlank(t.getK()) && StringUtils.isNotBlank(t.getV()))
+                .filter(t -> !IGNORED_TAGS.contains(t.getK()))
+                .sorted(Comparator.comparing(AtonTagVo::getK))
+                .collect(Collectors.toList());
+    }
+
+
+    /** Returns the tag signature of the given tags **/
+    private static String tagSignature(Map<String, String> tags) {
+        return normalizedTags(tags.entrySet().stream()
+                    .map(t -> new AtonTagVo(t.getKey(), t.getValue()))
+                    .toArray(AtonTagVo[]::new)).stream()
+                .map(t -> t.getK() + "=" + t.getV())
+                .collect(Collectors.joining(";"));
+    }
+
+
+    /** Returns the signature of the icon **/
+    static String iconSignature(AtonNodeVo aton, String format, int w, int h, int x, int y, double s) {
+        return format + ":" + w + "x" + h + ":" + x + "," + y + ":" + s + ":" +
+                normalizedTags(aton.getTags()).stream()
+                        .map(t -> t.getK() + "=" + t.getV())
+                        .collect(Collectors.joining(";"));
+    }
+
+
+    /** Returns the disk cache file for the icon with the given signature **/
+    private Path iconCacheFile(String signature, String format) throws IOException {
+        String hash = HashUtils.sha1Hex(signature);
+        return repositoryService
+                .getHashedSubfolder(ICON_CACHE_REPO, hash, false)
+                .resolve(hash + "." + format);
+    }
+
+
+    /**
+     * Writes the icon to the disk cache. The icon is written to a temporary file first,
+     * to ensure that concurrent readers never see a partially written icon.
+     */
+    private void writeCachedIcon(byte[] icon, Path file) {
+        try {
+            AtomicFileUtils.writeAtomically(file, icon);
+        } catch (IOException e) {
+            log.warn("Failed caching AtoN icon " + file + ": " + e);
+        }
+    }
+
+
+    /** Escape naughty file name characters **/
+    private String escape(String name) {
+        return name.replaceAll("[^a-zA-Z0-9.-]", "_");
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.aton;
+
+import org.niord.core.map.VectorTileCache;
+import org.niord.core.map.VectorTileService;
+
+import javax.batch.api.listener.AbstractJobListener;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.context.JobContext;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * A job listener for the AtoN import batch job.
+ * <p>
+ * When AtoNs have been imported, the cached AtoN vector tiles are invalidated, and the icons of
+ * all distinct AtoN tag signatures are pre-rendered in the background.
+ */
+@Named
+public class AtonImportJobListener extends AbstractJobListener {
+
+    @Inject
+    JobContext jobContext;
+
+    @Inject
+    AtonIconService atonIconService;
+
+    @Inject
+    VectorTileCache vectorTileCache;
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void afterJob() throws Exception {
+        if (jobContext.getBatchStatus() != BatchStatus.FAILED) {
+            vectorTileCache.invalidateLayer(VectorTileService.LAYER_ATONS);
+            atonIconService.preRenderIcons();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.web.conf;
+
+import org.apache.commons.io.IOUtils;
+import org.niord.core.util.GzipUtils;
+import org.niord.core.util.HashUtils;
+import org.niord.core.web.SiteBundleVersion;
+import org.slf4j.Logger;
+
+import javax.inject.Inject;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base class for text resources, such as site-config.js, whose content is generated from
+ * data that only changes rarely.
+ * <p>
+ * Rather than re-generating the response for every request, the bundle is generated once, and only
+ * re-generated when the {@linkplain SiteBundleVersion} changes. The bundle is cached as UTF-8 and gzipped
+ * bytes along with a content hash.
+ * <p>
+ * The bundle may be requested with a "v" parameter containing the content hash, as returned by
+ * {@linkplain #getVersionedPath(HttpServletRequest)}. Such requests are cached by clients for a year.
+ * Requests without the current hash must re-validate the bundle using the content hash as a strong ETag.
+ */
+public abstract class AbstractSiteBundleServletFilter extends AbstractTextResourceServletFilter {
+
+    /** The servlet context attribute prefix used for registering site bundle filters by path **/
+    static final String FILTER_ATTR_PREFIX = AbstractSiteBundleServletFilter.class.getName() + ":";
+
+    static final String VERSION_PARAM = "v";
+    static final String VERSIONED_CACHE_CONTROL = "max-age=31536000, immutable";
+
+    @Inject
+    Logger log;
+
+    @Inject
+    SiteBundleVersion siteBundleVersion;
+
+    private final String path;
+    private final String contentType;
+    private String template;
+    private volatile SiteBundle bundle;
+
+
+    /**
+     * Constructor
+     * @param path the servlet path of the bundle template
+     * @param contentType the content type of the bundle
+     */
+    public AbstractSiteBundleServletFilter(String path, String contentType) {
+        super(0);
+        this.path = path;
+        this.contentType = contentType;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        filterConfig.getServletContext().setAttribute(FILTER_ATTR_PREFIX + path, this);
+    }
+
+
+    /**
+     * Returns the site bundle filter registered for the given servlet path, or null if not found
+     * @param servletContext the servlet context
+     * @param path the servlet path of the bundle
+     * @return the site bundle filter registered for the given servlet path
+     */
+    static AbstractSiteBundleServletFilter getSiteBundleFilter(ServletContext servletContext, String path) {
+        return (AbstractSiteBundleServletFilter) servletContext.getAttribute(FILTER_ATTR_PREFIX + path);
+    }
+
+
+    /**
+     * Returns the path of the bundle with the content hash of the current bundle as the "v" parameter
+     * @param request the current request
+     * @return the versioned path of the bundle
+     */
+    String getVersionedPath(HttpServletRequest request) throws IOException {
+        SiteBundle bundle = getBundle(request);
+        return bundle != null ? path + "?" + VERSION_PARAM + "=" + bundle.hash : path;
+    }
+
+
+    /**
+     * Main filter method
+     * @param req the request
+     * @param res the response
+     * @param chain the filter chain
+     */
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+
+        SiteBundle bundle = getBundle(request);
+        if (bundle == null) {
+            // Resource not found
+            chain.doFilter(req, res);
+            return;
+        }
+
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        boolean gzip = bundle.gzipData != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        response.setHeader("Vary", "Accept-Encoding");
+
+        if (bundle.hash.equals(request.getParameter(VERSION_PARAM))) {
+            // The versioned URL of the current bundle never changes content
+            response.setHeader("Cache-Control", VERSIONED_CACHE_CONTROL);
+
+        } else {
+            // The gzipped and identity representations have distinct strong ETags
+            String etag = gzip ? bundle.gzipEtag : bundle.etag;
+            response.setHeader("ETag", etag);
+            response.setHeader("Cache-Control", "no-cache");
+
+            // Check if the client has the current version of the bundle
+            String ifNoneMatch = request.getHeader("If-None-Match");
+            if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+
+        byte[] data = bundle.data;
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            data = bundle.gzipData;
+        }
+
+        response.setContentType(contentType);
+        response.setContentLength(data.length);
+        response.getOutputStream().write(data);
+        response.getOutputStream().flush();
+    }
+
+
+    /**
+     * Returns the current bundle, and re-generates it if the bundle data has changed.
+     * @param request the request
+     * @return the current bundle, or null if the underlying resource was not found
+     */
+    private SiteBundle getBundle(HttpServletRequest request) throws IOException {
+        long version = siteBundleVersion.getVersion();
+        SiteBundle bundle = this.bundle;
+        if (bundle != null && bundle.version == version) {
+            return bundle;
+        }
+
+        synchronized (this) {
+            bundle = this.bundle;
+            if (bundle != null && bundle.version == version) {
+                return bundle;
+            }
+
+            // The resource template is static, so load it once
+            if (template == null) {
+                try (InputStream in = request.getServletContext().getResourceAsStream(path)) {
+                    if (in == null) {
+                        return null;
+                    }
+                    template = IOUtils.toString(in, StandardCharsets.UTF_8);
+                }
+            }
+
+            long t0 = System.currentTimeMillis();
+            bundle = new SiteBundle(version, updateResponse(request, template));
+            this.bundle = bundle;
+            log.info("Generated " + path + " bundle with hash " + bundle.hash
+                    + " in " + (System.currentTimeMillis() - t0) + " ms");
+            return bundle;
+        }
+    }
+
+
+    /**
+     * A generated bundle
+     */
+    private static class SiteBundle {
+        final long version;
+        final byte[] data;
+        final byte[] gzipData;
+        final String hash;
+        final String etag;
+        final String gzipEtag;
+
+        /** Constructor **/
+        SiteBundle(long version, String content) {
+            this.version = version;
+            this.data = content.getBytes(StandardCharsets.UTF_8);
+            this.gzipData = GzipUtils.compressStringIgnoreError(content);
+            this.hash = HashUtils.sha1Hex(data);
+            this.etag = "\"" + hash + "\"";
+            this.gzipEtag = "\"" + hash + "-gzip\"";
+        }
+    }
+}
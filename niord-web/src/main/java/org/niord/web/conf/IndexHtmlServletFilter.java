@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.web.conf;
+
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Serves index.html as a site bundle, where the references to the site bundles, such as site-config.js,
+ * point to their versioned URLs. This allows clients to cache the site bundles for a year, whereas
+ * index.html itself is re-validated using its ETag.
+ */
+@WebFilter(urlPatterns={"/index.html"})
+public class IndexHtmlServletFilter extends AbstractSiteBundleServletFilter {
+
+    final static String[] VERSIONED_BUNDLES = { "/conf/site-config.js", "/conf/site-texts.js" };
+
+
+    /** Constructor **/
+    public IndexHtmlServletFilter() {
+        super("/index.html", "text/html;charset=UTF-8");
+    }
+
+
+    /**
+     * Updates the script references to the site bundles with their versioned URLs
+     */
+    @Override
+    String updateResponse(HttpServletRequest request, String response) {
+        for (String path : VERSIONED_BUNDLES) {
+            AbstractSiteBundleServletFilter filter = getSiteBundleFilter(request.getServletContext(), path);
+            if (filter != null) {
+                try {
+                    response = response.replace(
+                            "src=\"" + path + "\"",
+                            "src=\"" + filter.getVersionedPath(request) + "\"");
+                } catch (IOException e) {
+                    log.error("Error generating versioned URL for " + path, e);
+                }
+            }
+        }
+        return response;
+    }
+}
@@ -21,7 +21,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.niord.core.settings.SettingsService;
 import org.niord.core.domain.vo.DomainVo;
 import org.niord.web.DomainRestService;
-import org.slf4j.Logger;
 
 import javax.inject.Inject;
 import javax.servlet.annotation.WebFilter;
@@ -32,25 +31,21 @@ import java.util.List;
  * Loads the site-config.js file and injects relevant system configuration and domains
  */
 @WebFilter(urlPatterns={"/conf/site-config.js"})
-public class SiteConfigServletFilter extends AbstractTextResourceServletFilter {
-
-    final static int CACHE_SECONDS = 0; // Do not cache
+public class SiteConfigServletFilter extends AbstractSiteBundleServletFilter {
 
     final static String SETTINGS_START  = "/** SETTINGS START **/";
     final static String SETTINGS_END    = "/** SETTINGS END **/";
 
-    @Inject
-    Logger log;
-
     @Inject
     SettingsService settingsService;
 
     @Inject
     DomainRestService domainRestService;
 
+
     /** Constructor **/
     public SiteConfigServletFilter() {
-        super(CACHE_SECONDS);
+        super("/conf/site-config.js", "application/javascript;charset=UTF-8");
     }
 
 
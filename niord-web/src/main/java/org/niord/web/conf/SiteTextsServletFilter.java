@@ -20,7 +20,6 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.niord.core.NiordApp;
 import org.niord.core.dictionary.DictionaryService;
-import org.slf4j.Logger;
 
 import javax.inject.Inject;
 import javax.servlet.annotation.WebFilter;
@@ -35,17 +34,12 @@ import java.util.stream.Collectors;
  * The translations consists of all the dictionary entries of the "web" dictionary.
  */
 @WebFilter(urlPatterns={"/conf/site-texts.js"})
-public class SiteTextsServletFilter extends AbstractTextResourceServletFilter {
-
-    final static int CACHE_SECONDS = 0; // No caching
+public class SiteTextsServletFilter extends AbstractSiteBundleServletFilter {
 
     final static String[] WEB_DICTIONARIES    = { "web", "message" };
     final static String TRANSLATIONS_START  = "/** TRANSLATIONS START **/";
     final static String TRANSLATIONS_END    = "/** TRANSLATIONS END **/";
 
-    @Inject
-    Logger log;
-
     @Inject
     NiordApp app;
 
@@ -53,9 +47,9 @@ public class SiteTextsServletFilter extends AbstractTextResourceServletFilter {
     DictionaryService dictionaryService;
 
 
-    /** Constructor */
+    /** Constructor **/
     public SiteTextsServletFilter() {
-        super(CACHE_SECONDS);
+        super("/conf/site-texts.js", "application/javascript;charset=UTF-8");
     }
 
 
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.map;
+
+import org.apache.commons.lang.StringUtils;
+import org.niord.core.settings.annotation.Setting;
+import org.niord.core.util.AtomicFileUtils;
+import org.niord.core.util.GlobalMercator;
+import org.slf4j.Logger;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.imageio.ImageIO;
+import javax.inject.Inject;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static org.niord.core.settings.Setting.Type.Integer;
+
+/**
+ * Provides the background OpenStreetMap images used for message map thumbnails.
+ * <p>
+ * The base images are cached on disk, either as whole static-map images keyed by center and zoom level,
+ * or - if a tile server is configured - as standard OSM tiles that are stitched into base images.
+ * The latter is preferable, since tiles are shared between all messages in the same region.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class MessageMapBaseImageCache {
+
+    static final String STATIC_IMAGE_URL = "%s?center=%f,%f&zoom=%d&size=%dx%d";
+
+    static final GlobalMercator mercator = new GlobalMercator();
+
+    @Inject
+    Logger log;
+
+    @Inject
+    @Setting(value = "mapImageServer", defaultValue = "http://staticmap.openstreetmap.de/staticmap.php",
+            description = "URL of static-map service used for generation map thumbnails")
+    String mapImageServer;
+
+    @Inject
+    @Setting(value = "mapTileServer", defaultValue = "",
+            description = "Optional tile URL template, e.g. https://tile.openstreetmap.org/{z}/{x}/{y}.png, " +
+                    "used for stitching map thumbnails instead of the static-map service")
+    String mapTileServer;
+
+    @Inject
+    @Setting(value = "mapImageCacheRoot", defaultValue = "${niord.home}/map-cache",
+            description = "The root directory of the cached map thumbnail base images and tiles")
+    Path cacheRoot;
+
+    @Inject
+    @Setting(value = "mapImageCacheDays", defaultValue = "30", type = Integer,
+            description = "The number of days to cache map thumbnail base images and tiles")
+    Integer cacheDays;
+
+
+    /**
+     * Returns the background map image for the given center and zoom level.
+     * The image is either stitched from cached OSM tiles, or fetched from the static-map
+     * service and cropped, if specified.
+     *
+     * @param centerPt the center point
+     * @param zoom the zoom level
+     * @param size the size of the resulting image
+     * @param indent the indentation to crop from a static-map image, e.g. to remove watermarks
+     * @return the image
+     */
+    public BufferedImage getMapImage(double[] centerPt, int zoom, int size, int indent) throws IOException {
+        if (StringUtils.isNotBlank(mapTileServer)) {
+            return stitchMapImage(centerPt, zoom, size);
+        }
+
+        Path file = cacheRoot
+                .resolve("static")
+                .resolve(String.valueOf(zoom))
+                .resolve(String.format(Locale.US, "%.5f_%.5f_%d_%d.png", centerPt[1], centerPt[0], size, indent));
+
+        BufferedImage image = readCachedImage(file, false);
+        if (image == null) {
+            try {
+                image = fetchStaticMapImage(centerPt, zoom, size, indent);
+                writeCachedImage(image, file);
+            } catch (IOException e) {
+                // Fall back to a stale cached image if available
+                image = readCachedImage(file, true);
+                if (image == null) {
+                    throw e;
+                }
+            }
+        }
+        return image;
+    }
+
+
+    /**
+     * Fetches the map image from the static-map service and crops it if specified
+     * @param centerPt the center point
+     * @param zoom the zoom level
+     * @param size the size of the resulting image
+     * @param indent the indentation to crop from the image
+     * @return the image
+     */
+    private BufferedImage fetchStaticMapImage(double[] centerPt, int zoom, int size, int indent) throws IOException {
+        // Fetch the image
+        long fetchSize = size + 2 * indent;
+        String url = String.format(
+                STATIC_IMAGE_URL,
+                mapImageServer,
+                centerPt[1],
+                centerPt[0],
+                zoom,
+                fetchSize,
+                fetchSize);
+
+        BufferedImage image = fetchImage(url);
+
+        // Check if we need to crop the image (e.g. to remove watermarks)
+        if (indent > 0) {
+            // NB: sub-images share the same image buffer as the source image
+            image = image.getSubimage(indent, indent, size, size);
+        }
+
+        return image;
+    }
+
+
+    /**
+     * Stitches the map image from the standard OSM tiles covering the image
+     * @param centerPt the center point
+     * @param zoom the zoom level
+     * @param size the size of the resulting image
+     * @return the image
+     */
+    private BufferedImage stitchMapImage(double[] centerPt, int zoom, int size) throws IOException {
+        int tileSize = GlobalMercator.TILE_SIZE;
+        int tileCount = 1 << zoom;
+
+        // Compute the top-left pixel of the image in raster coordinates (origin at top-left corner)
+        int[] cxy = mercator.LatLonToPixels(centerPt[1], centerPt[0], zoom);
+        int[] rxy = mercator.PixelsToRaster(cxy[0], cxy[1], zoom);
+        int x0 = rxy[0] - size / 2;
+        int y0 = rxy[1] - size / 2;
+
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        try {
+            for (int ty = Math.floorDiv(y0, tileSize); ty <= Math.floorDiv(y0 + size - 1, tileSize); ty++) {
+                if (ty < 0 || ty >= tileCount) {
+                    continue;
+                }
+                for (int tx = Math.floorDiv(x0, tileSize); tx <= Math.floorDiv(x0 + size - 1, tileSize); tx++) {
+                    BufferedImage tile = getTile(Math.floorMod(tx, tileCount), ty, zoom);
+                    g2.drawImage(tile, tx * tileSize - x0, ty * tileSize - y0, null);
+                }
+            }
+        } finally {
+            g2.dispose();
+        }
+        return image;
+    }
+
+
+    /**
+     * Returns the cached OSM tile with the given (Google/XYZ) tile coordinates.
+     * Fetches the tile from the tile server if it is not cached or the cached tile has expired.
+     *
+     * @param x the tile x coordinate
+     * @param y the tile y coordinate
+     * @param zoom the zoom level
+     * @return the tile image
+     */
+    private BufferedImage getTile(int x, int y, int zoom) throws IOException {
+        Path file = cacheRoot
+                .resolve("tiles")
+                .resolve(String.valueOf(zoom))
+                .resolve(String.valueOf(x))
+                .resolve(y + ".png");
+
+        BufferedImage tile = readCachedImage(file, false);
+        if (tile == null) {
+            String url = mapTileServer
+                    .replace("{z}", String.valueOf(zoom))
+                    .replace("{x}", String.valueOf(x))
+                    .replace("{y}", String.valueOf(y));
+            try {
+                tile = fetchImage(url);
+                writeCachedImage(tile, file);
+            } catch (IOException e) {
+                // Fall back to a stale cached tile if available
+                tile = readCachedImage(file, true);
+                if (tile == null) {
+                    throw e;
+                }
+            }
+        }
+        return tile;
+    }
+
+
+    /** Fetches the image at the given URL **/
+    private BufferedImage fetchImage(String url) throws IOException {
+        URLConnection con = new URL(url).openConnection();
+        con.setConnectTimeout(5000);
+        con.setReadTimeout(5000);
+        con.setRequestProperty("User-Agent", "Niord");
+
+        BufferedImage image;
+        try (InputStream in = con.getInputStream()) {
+            image = ImageIO.read(in);
+        }
+        if (image == null) {
+            throw new IOException("No image returned from " + url);
+        }
+        return image;
+    }
+
+
+    /**
+     * Reads the cached image file
+     * @param file the cached image file
+     * @param allowExpired whether to return an expired image or not
+     * @return the cached image, or null if not found
+     */
+    private BufferedImage readCachedImage(Path file, boolean allowExpired) {
+        try {
+            if (Files.isRegularFile(file) &&
+                    (allowExpired ||
+                    Files.getLastModifiedTime(file).toMillis() > System.currentTimeMillis() - 1000L * 60L * 60L * 24L * cacheDays)) {
+                return ImageIO.read(file.toFile());
+            }
+        } catch (IOException e) {
+            log.debug("Failed reading cached map image " + file + ": " + e);
+        }
+        return null;
+    }
+
+
+    /**
+     * Writes the image to the cache. The image is written atomically,
+     * to ensure that concurrent readers never see a partially written image.
+     * @param image the image to cache
+     * @param file the cached image file
+     */
+    private void writeCachedImage(BufferedImage image, Path file) {
+        try {
+            AtomicFileUtils.writeAtomically(file, tmpFile -> ImageIO.write(image, "png", tmpFile.toFile()));
+        } catch (IOException e) {
+            log.warn("Failed caching map image " + file + ": " + e);
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.niord.web.map;
 
+import org.apache.commons.lang.StringUtils;
 import org.locationtech.jts.awt.PointShapeFactory;
 import org.locationtech.jts.awt.ShapeWriter;
 import org.locationtech.jts.geom.Geometry;
@@ -23,7 +24,10 @@ import org.niord.core.geojson.FeatureName;
 import org.niord.core.geojson.GeoJsonUtils;
 import org.niord.core.geojson.JtsConverter;
 import org.niord.core.message.Message;
+import org.niord.core.message.MessageService;
+import org.niord.core.repo.RepositoryService;
 import org.niord.core.settings.annotation.Setting;
+import org.niord.core.util.AtomicFileUtils;
 import org.niord.core.util.GlobalMercator;
 import org.niord.core.util.GraphicsUtils;
 import org.niord.model.message.MainType;
@@ -50,9 +54,7 @@ import java.awt.geom.Ellipse2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
-import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
@@ -68,8 +70,6 @@ import static org.niord.core.settings.Setting.Type.Integer;
 @Lock(LockType.READ)
 public class MessageMapImageGenerator {
 
-    static final String STATIC_IMAGE_URL = "%s?center=%f,%f&zoom=%d&size=%dx%d";
-
     static final int ICON_SIZE = 20;
 
     static final float LINE_WIDTH = 1.0f;
@@ -87,9 +87,13 @@ public class MessageMapImageGenerator {
     NiordApp app;
 
     @Inject
-    @Setting(value = "mapImageServer", defaultValue = "http://staticmap.openstreetmap.de/staticmap.php",
-            description = "URL of static-map service used for generation map thumbnails")
-    String mapImageServer;
+    MessageService messageService;
+
+    @Inject
+    RepositoryService repositoryService;
+
+    @Inject
+    MessageMapBaseImageCache baseImageCache;
 
     @Inject
     @Setting(value = "mapImageSize", defaultValue = "256", type = Integer, web = true,
@@ -106,8 +110,8 @@ public class MessageMapImageGenerator {
             description = "The map thumbnail zoom level used for single-position messages.")
     Integer zoomLevel;
 
-    private Image nwImage;
-    private Image nmImage;
+    private volatile Image nwImage;
+    private volatile Image nmImage;
 
 
     /** Returns the size of the map image */
@@ -117,45 +121,54 @@ public class MessageMapImageGenerator {
 
 
     /**
-     * Fetches the map image and crops it if specified
-     * @param centerPt the center point
-     * @param zoom the zoom level
-     * @return the image
+     * Returns the repository path of the standard auto-generated map image file of the message
+     * @param message the message
+     * @return the repository path of the map image file
+     */
+    public Path getMessageMapImageRepoPath(Message message) {
+        String imageName = String.format("map_%d.png", mapImageSize);
+        return repositoryService.getRepoRoot().resolve(message.getRepoPath()).resolve(imageName);
+    }
+
+
+    /**
+     * Returns if the standard auto-generated map image file of the message is missing or outdated
+     * @param message the message
+     * @param imageRepoPath the path of the image
+     * @return if the map image file is missing or outdated
+     */
+    public boolean isMessageMapImageOutdated(Message message, Path imageRepoPath) throws IOException {
+        return !Files.exists(imageRepoPath) ||
+                message.getUpdated().getTime() > Files.getLastModifiedTime(imageRepoPath).toMillis();
+    }
+
+
+    /**
+     * Generates the standard map image of the message with the given UID, unless a custom
+     * map image has been defined or the existing map image is up-to-date.
+     * <p>
+     * Called by the {@code MessageMapImageService} worker pool in a transaction of its own.
+     *
+     * @param uid the UID of the message
+     * @return if an up-to-date map image file exists
      */
-    protected BufferedImage fetchMapImage(double[] centerPt, int zoom) throws  IOException {
-        // Fetch the image
-        long fetchSize = mapImageSize + 2 * mapImageIndent;
-        String url = String.format(
-                STATIC_IMAGE_URL,
-                mapImageServer,
-                centerPt[1],
-                centerPt[0],
-                zoom,
-                fetchSize,
-                fetchSize);
-
-        URLConnection con = new URL(url).openConnection();
-        con.setConnectTimeout(5000);
-        con.setReadTimeout(5000);
-
-        BufferedImage image;
-        try (InputStream in = con.getInputStream()) {
-            image = ImageIO.read(in);
+    public boolean generateMessageMapImage(String uid) throws IOException {
+        Message message = messageService.findByUid(uid);
+        if (message == null || StringUtils.isNotBlank(message.getThumbnailPath())) {
+            return false;
         }
 
-        // Check if we need to crop the image (e.g. to remove watermarks)
-        if (mapImageIndent > 0) {
-            // NB: sub-images share the same image buffer as the source image
-            image = image.getSubimage(
-                    mapImageIndent,
-                    mapImageIndent,
-                    mapImageSize,
-                    mapImageSize);
+        FeatureCollectionVo[] fcs = message.toGeoJson();
+        if (fcs.length == 0) {
+            return false;
         }
 
-        return image;
+        Path imageRepoPath = getMessageMapImageRepoPath(message);
+        return !isMessageMapImageOutdated(message, imageRepoPath) ||
+                generateMessageMapImage(message, fcs, imageRepoPath);
     }
 
+
     /**
      * Attempts to create a map image for the locations at the given path
      * @param message the feature collection
@@ -183,8 +196,8 @@ public class MessageMapImageGenerator {
                     ? zoomLevel
                     : computeZoomLevel(bbox, maxWH, maxWH, 12, 3);
 
-            // Fetch the background OpenStreetMap image
-            BufferedImage image = fetchMapImage(center, zoom);
+            // Fetch the (cached) background OpenStreetMap image
+            BufferedImage image = baseImageCache.getMapImage(center, zoom, mapImageSize, mapImageIndent);
 
             Graphics2D g2 = image.createGraphics();
             GraphicsUtils.antialias(g2);
@@ -202,10 +215,11 @@ public class MessageMapImageGenerator {
                     }));
 
             // Draw each feature
+            Image pointIndicator = getMessageImage(message);
             Arrays.stream(fcs)
                     .filter(fc -> fc.getFeatures() != null)
                     .flatMap(g -> Arrays.stream(g.getFeatures()))
-                    .forEach(f -> drawGeometry(f, f.getGeometry(), g2, getMessageImage(message)));
+                    .forEach(f -> drawGeometry(f, f.getGeometry(), g2, pointIndicator));
 
             // Draw labels
             // Disabled for now - if enabled, we need to generate one image per language...
@@ -214,12 +228,8 @@ public class MessageMapImageGenerator {
 
             g2.dispose();
 
-            if (!Files.exists(imageRepoPath.getParent())) {
-                Files.createDirectories(imageRepoPath.getParent());
-            }
-
             // Save the image to the repository
-            ImageIO.write(image, "png", imageRepoPath.toFile());
+            AtomicFileUtils.writeAtomically(imageRepoPath, tmpFile -> ImageIO.write(image, "png", tmpFile.toFile()));
             image.flush();
 
             // Update the timestamp of the image file to match the change date of the message
@@ -413,14 +423,9 @@ public class MessageMapImageGenerator {
      * Returns the NW symbol image
      * @return the NW symbol image
      */
-    private synchronized Image getNwImage() {
+    private Image getNwImage() {
         if (nwImage == null) {
-            String imageUrl = app.getBaseUri() + "/img/nw.png";
-            try {
-                nwImage = ImageIO.read(new URL(imageUrl));
-            } catch (IOException e) {
-                log.error("This should never happen - could not load image from " + imageUrl);
-            }
+            nwImage = loadImage("/img/nw.png");
         }
         return nwImage;
     }
@@ -429,20 +434,32 @@ public class MessageMapImageGenerator {
      * Returns the NM symbol image
      * @return the NM symbol image
      */
-    private synchronized Image getNmImage() {
+    private Image getNmImage() {
         if (nmImage == null) {
-            String imageUrl = app.getBaseUri() + "/img/nm.png";
-            try {
-                nmImage = ImageIO.read(new URL(imageUrl));
-            } catch (IOException e) {
-                log.error("This should never happen - could not load image from " + imageUrl);
-            }
+            nmImage = loadImage("/img/nm.png");
         }
         return nmImage;
     }
 
 
 
+    /**
+     * Loads and decodes the image with the given path relative to the application base URI.
+     * The decoded image is kept in memory by the caller, so this is only called once per image.
+     * @param path the path of the image
+     * @return the decoded image
+     */
+    private synchronized Image loadImage(String path) {
+        String imageUrl = app.getBaseUri() + path;
+        try {
+            return ImageIO.read(new URL(imageUrl));
+        } catch (IOException e) {
+            log.error("This should never happen - could not load image from " + imageUrl);
+            return null;
+        }
+    }
+
+
     /**
      * Validates the the given image data buffer represents an image. If the image does not have the
      * proper proportions, it will be scaled.
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.web.map;
+
+import org.niord.core.message.MessageStatusEvent;
+import org.niord.core.message.MessageStatusEventListener;
+import org.niord.model.message.Status;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Used for listening for message status updates via the message status event bus and
+ * pre-generating the message map image
+ */
+@ApplicationScoped
+@SuppressWarnings("unused")
+public class MessageMapImageListener implements MessageStatusEventListener {
+
+    @Inject
+    Logger log;
+
+    @Inject
+    MessageMapImageService messageMapImageService;
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onMessageStatusEvents(List<MessageStatusEvent> events) {
+
+        for (MessageStatusEvent event : events) {
+            // No need to generate map images for deleted messages
+            if (event.getStatus() != Status.DELETED) {
+                log.debug("Received message status update for UID: " + event.getUid());
+
+                messageMapImageService.scheduleMessageMapImage(event.getUid());
+            }
+        }
+    }
+}
@@ -58,6 +58,9 @@ import java.util.List;
  * Either a standard map image is generated and returned, or the user may
  * upload a custom map image thumbnail.
  * <p>
+ * Standard map images are generated in the background by the {@code MessageMapImageService}.
+ * Until the map image has been generated, a placeholder image is returned.
+ * <p>
  * The URL to fetch an image can either be specified via a message ID or a temporary repository path.
  * The latter is used when messages is being edited.
  */
@@ -68,6 +71,7 @@ import java.util.List;
 public class MessageMapImageRestService {
 
     static final int CACHE_TIMEOUT_MINUTES = 10;
+    static final int PENDING_CACHE_TIMEOUT_SECONDS = 10;
     static final String IMAGE_PLACEHOLDER = "../img/map_image_placeholder.png";
     static final String UPLOADED_IMAGE_PREFIX = "data:image/png;base64,";
 
@@ -83,6 +87,9 @@ public class MessageMapImageRestService {
     @Inject
     MessageMapImageGenerator messageMapImageGenerator;
 
+    @Inject
+    MessageMapImageService messageMapImageService;
+
     /**
      * Returns the map thumbnail image associated with the message with the given UID
      * @param uid the UID of the message
@@ -115,24 +122,20 @@ public class MessageMapImageRestService {
             if (fcs.length > 0) {
 
                 // Construct the image file for the message
-                String imageName = String.format("map_%d.png", messageMapImageGenerator.getMapImageSize());
-                Path imageRepoPath = repositoryService.getRepoRoot().resolve(message.getRepoPath()).resolve(imageName);
+                Path imageRepoPath = messageMapImageGenerator.getMessageMapImageRepoPath(message);
 
                 // If the image file does not exist, or if the message has been updated after the image file,
-                // generate a new image file
-                boolean imageFileExists = Files.exists(imageRepoPath);
-                if (!imageFileExists ||
-                        message.getUpdated().getTime() > Files.getLastModifiedTime(imageRepoPath).toMillis()) {
-                    imageFileExists = messageMapImageGenerator.generateMessageMapImage(
-                            message,
-                            fcs,
-                            imageRepoPath);
+                // schedule the generation of a new image file in the background
+                if (messageMapImageGenerator.isMessageMapImageOutdated(message, imageRepoPath)) {
+                    messageMapImageService.scheduleMessageMapImage(message.getUid());
+
+                    // Until the image has been generated, return any outdated image or a placeholder image
+                    return Files.exists(imageRepoPath)
+                            ? redirect(imageRepoPath, getPendingExpiryTime())
+                            : placeholder(getPendingExpiryTime());
                 }
 
-                // Either return the image file, or a place holder image
-                if (imageFileExists) {
-                    return redirect(imageRepoPath);
-                }
+                return redirect(imageRepoPath);
             }
 
         } catch (Exception ex) {
@@ -140,10 +143,7 @@ public class MessageMapImageRestService {
         }
 
         // Show a placeholder image
-        return Response
-                .temporaryRedirect(new URI(IMAGE_PLACEHOLDER))
-                .expires(getExpiryTime())
-                .build();
+        return placeholder(getExpiryTime());
     }
 
 
@@ -151,11 +151,30 @@ public class MessageMapImageRestService {
      * Returns a redirect to the actual repository image file
      **/
     private Response redirect(Path imagePath) throws IOException, URISyntaxException {
+        return redirect(imagePath, getExpiryTime());
+    }
+
+
+    /**
+     * Returns a redirect to the actual repository image file with the given expiry time
+     **/
+    private Response redirect(Path imagePath, Date expiryTime) throws IOException, URISyntaxException {
         // Redirect the the repository streaming service
         String uri = repositoryService.getRepoUri(imagePath);
         return Response
                 .temporaryRedirect(new URI("../" + uri))
-                .expires(getExpiryTime())
+                .expires(expiryTime)
+                .build();
+    }
+
+
+    /**
+     * Returns a redirect to the placeholder image with the given expiry time
+     **/
+    private Response placeholder(Date expiryTime) throws URISyntaxException {
+        return Response
+                .temporaryRedirect(new URI(IMAGE_PLACEHOLDER))
+                .expires(expiryTime)
                 .build();
     }
 
@@ -166,6 +185,12 @@ public class MessageMapImageRestService {
     }
 
 
+    /** Returns the cache timeout used whilst the map image is being generated **/
+    private Date getPendingExpiryTime() {
+        return new Date(System.currentTimeMillis() + 1000L * PENDING_CACHE_TIMEOUT_SECONDS);
+    }
+
+
     /**
      * Updates the map image with a custom image
      */
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.map;
+
+import org.niord.core.settings.annotation.Setting;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.niord.core.settings.Setting.Type.Integer;
+
+/**
+ * Generates message map thumbnail images asynchronously.
+ * <p>
+ * Map images are generated in a background worker pool when messages are saved or change status,
+ * so that e.g. a search result page does not trigger a synchronous map image generation for
+ * every message being displayed.
+ * <p>
+ * When called within a transaction, the generation is only scheduled once the transaction has committed.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class MessageMapImageService {
+
+    @Inject
+    Logger log;
+
+    @Inject
+    @Setting(value = "mapImagePoolSize", defaultValue = "2", type = Integer,
+            description = "The number of worker threads used for generating map thumbnails")
+    Integer poolSize;
+
+    @Inject
+    MessageMapImageGenerator messageMapImageGenerator;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * The UIDs of messages with pending map image generation. The value is true if the message
+     * has been re-scheduled while its map image is being generated, i.e. it must be generated again.
+     **/
+    private final Map<String, Boolean> pendingUids = new ConcurrentHashMap<>();
+
+    private ExecutorService processPool;
+
+    @PostConstruct
+    private void init() {
+        processPool = Executors.newFixedThreadPool(Math.max(1, poolSize));
+    }
+
+    @PreDestroy
+    private void closeDown() {
+        if (processPool != null && !processPool.isShutdown()) {
+            processPool.shutdown();
+            processPool = null;
+        }
+    }
+
+
+    /**
+     * Schedules the generation of the standard map image of the message with the given UID.
+     * If the map image of the message is already being generated, it is generated again afterwards.
+     *
+     * @param uid the UID of the message
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public void scheduleMessageMapImage(String uid) {
+        if (uid == null || processPool == null) {
+            return;
+        }
+
+        if (transactionRegistry != null
+                && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        submitMessageMapImage(uid);
+                    }
+                }
+            });
+        } else {
+            submitMessageMapImage(uid);
+        }
+    }
+
+
+    /**
+     * Submits the generation of the map image of the message with the given UID to the worker pool,
+     * unless it is already pending, in which case it is flagged for re-generation
+     *
+     * @param uid the UID of the message
+     */
+    private void submitMessageMapImage(String uid) {
+        boolean[] submit = { false };
+        pendingUids.compute(uid, (key, rerun) -> {
+            submit[0] = rerun == null;
+            return rerun != null;
+        });
+        if (!submit[0] || processPool == null) {
+            return;
+        }
+
+        processPool.submit(() -> {
+            boolean rerun;
+            do {
+                pendingUids.put(uid, Boolean.FALSE);
+                try {
+                    // NB: Called via the EJB proxy, so the message is loaded in a transaction of its own
+                    messageMapImageGenerator.generateMessageMapImage(uid);
+                } catch (Exception e) {
+                    log.warn("Error generating map image for message " + uid + ": " + e);
+                }
+                // Generate the image again if the message was re-scheduled during generation
+                rerun = pendingUids.computeIfPresent(uid, (key, r) -> r ? Boolean.FALSE : null) != null;
+            } while (rerun);
+        });
+    }
+}
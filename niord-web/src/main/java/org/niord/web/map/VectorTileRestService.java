@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.map;
+
+import org.jboss.resteasy.annotations.GZIP;
+import org.niord.core.map.VectorTileService;
+import org.slf4j.Logger;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.GET;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Feeds message, area and AtoN geometries as Mapbox Vector Tiles (MVT).
+ * <p>
+ * Can be used for servicing a vector tile layer in Openlayers or Mapbox GL.
+ * The layer should be configured to have the url "/rest/vector-tiles/{layer}/{z}/{x}/{y}.mvt",
+ * where the layer is one of "messages", "areas" or "atons".
+ */
+@javax.ws.rs.Path("/vector-tiles")
+public class VectorTileRestService {
+
+    static final String MVT_MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+    static final int TILE_TTL_MINUTES = 5;
+
+    @Inject
+    Logger log;
+
+    @Inject
+    VectorTileService vectorTileService;
+
+
+    /**
+     * Streams the given vector tile
+     */
+    @GET
+    @javax.ws.rs.Path("/{layer}/{z}/{x}/{y}.mvt")
+    @Produces(MVT_MEDIA_TYPE)
+    @GZIP
+    public Response streamTile(
+            @PathParam("layer") String layer,
+            @PathParam("z") int z,
+            @PathParam("x") int x,
+            @PathParam("y") int y,
+            @QueryParam("domain") String domain,
+            @QueryParam("lang") String lang,
+            @Context Request request) {
+
+        if (!VectorTileService.isValidLayer(layer) || z < 0 || z > 22
+                || x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            return Response
+                    .status(HttpServletResponse.SC_NOT_FOUND)
+                    .entity(String.format("Invalid tile layer=%s, z=%d, x=%d, y=%d", layer, z, x, y))
+                    .build();
+        }
+
+        try {
+            byte[] tile = vectorTileService.getTile(layer, z, x, y, domain, lang);
+            Date expirationDate = new Date(System.currentTimeMillis() + 1000L * 60L * TILE_TTL_MINUTES);
+
+            // Check for an ETag match
+            EntityTag etag = new EntityTag(tile.length + "_" + Integer.toHexString(Arrays.hashCode(tile)));
+            Response.ResponseBuilder responseBuilder = request.evaluatePreconditions(etag);
+            if (responseBuilder != null) {
+                log.trace("Tile unchanged. Return code 304");
+                return responseBuilder
+                        .expires(expirationDate)
+                        .build();
+            }
+
+            return Response
+                    .ok(tile, MVT_MEDIA_TYPE)
+                    .expires(expirationDate)
+                    .tag(etag)
+                    .build();
+
+        } catch (Exception e) {
+            log.error(String.format("Error generating vector tile layer=%s, z=%d, x=%d, y=%d. Error=%s", layer, z, x, y, e));
+            return Response
+                    .status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
+                    .entity(String.format("Error generating vector tile layer=%s, z=%d, x=%d, y=%d", layer, z, x, y))
+                    .build();
+        }
+    }
+}
@@ -208,6 +208,28 @@ angular.module('niord.admin')
             };
 
 
+            /** Returns if the messages of the recording publication can be re-recorded **/
+            $scope.canReRecord = function () {
+                var pub = $scope.publication;
+                return pub.created && pub.status === 'RECORDING' && pub.messageTag && pub.messageTagFilter;
+            };
+
+
+            /** Replays all messages through the message tag filter of the recording publication **/
+            $scope.reRecord = function () {
+                if ($scope.canReRecord()) {
+                    DialogService.showConfirmDialog(
+                        "Re-record Messages?", "Re-evaluate all published and recorded messages against the message tag filter?")
+                        .then(function() {
+                            AdminPublicationService
+                                .reRecordPublication($scope.publication)
+                                .success($scope.editPublication)
+                                .error($scope.displayError);
+                        });
+                }
+            };
+
+
             /** Updates the message tag filter **/
             $scope.setMessageTagFilter = function (filterType) {
                 switch (filterType) {
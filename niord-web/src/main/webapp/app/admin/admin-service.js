@@ -195,6 +195,12 @@ angular.module('niord.admin')
             },
 
 
+            /** Replays all messages through the message tag filter of the given recording publication **/
+            reRecordPublication: function (publication) {
+                return $http.put('/rest/publications/re-record/' + encodeURIComponent(publication.publicationId));
+            },
+
+
             /** Deletes the given publication **/
             deletePublication: function(publication) {
                 return $http['delete']('/rest/publications/publication/' + publication.publicationId);